@@ -0,0 +1,131 @@
+package com.btcwallet.balance;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bitcoinj.core.Coin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * {@link BalanceCache} against the original two-map {@link LegacyBalanceCache}.
+ *
+ * Reads follow a skewed distribution (a small set of hot wallets takes most
+ * requests), which is where frequency-based admission pays off once the
+ * working set exceeds the weight limit. Hit rates of the bounded cache are
+ * printed at the end of each trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class BalanceCacheBenchmark {
+
+    private static final int KEY_MASK = (1 << 16) - 1;
+
+    @Param({"legacy", "bounded"})
+    private String implementation;
+
+    @Param({"100000"})
+    private int walletCount;
+
+    @Param({"10"})
+    private int utxosPerWallet;
+
+    private LegacyBalanceCache legacy;
+    private BalanceCache bounded;
+    private String[] walletIds;
+    private WalletBalance[] balances;
+    private int[] skewedKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        walletIds = new String[walletCount];
+        balances = new WalletBalance[walletCount];
+        for (int i = 0; i < walletCount; i++) {
+            walletIds[i] = "WALLET-" + Integer.toHexString(i).toUpperCase();
+            balances[i] = balance(walletIds[i], utxosPerWallet);
+        }
+
+        // Roughly Zipfian: key = n * u^3 keeps most draws among the first few percent
+        SplittableRandom random = new SplittableRandom(42);
+        skewedKeys = new int[KEY_MASK + 1];
+        for (int i = 0; i < skewedKeys.length; i++) {
+            double u = random.nextDouble();
+            skewedKeys[i] = (int) (walletCount * u * u * u);
+        }
+
+        // Bounded to a quarter of the wallets so eviction is exercised
+        legacy = new LegacyBalanceCache();
+        bounded = new BalanceCache(BalanceCachePolicy.defaults(), (long) walletCount / 4 * (utxosPerWallet + 1));
+        for (int i = 0; i < walletCount; i++) {
+            put(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        if ("bounded".equals(implementation)) {
+            System.out.println("\n" + bounded.stats());
+        }
+    }
+
+    @Benchmark
+    public WalletBalance read() {
+        return get(nextSkewedKey());
+    }
+
+    @Benchmark
+    public void write() {
+        put(ThreadLocalRandom.current().nextInt(walletCount));
+    }
+
+    @Benchmark
+    public WalletBalance readThrough() {
+        int key = nextSkewedKey();
+        WalletBalance balance = get(key);
+        if (balance == null) {
+            put(key);
+            balance = balances[key];
+        }
+        return balance;
+    }
+
+    private int nextSkewedKey() {
+        return skewedKeys[ThreadLocalRandom.current().nextInt() & KEY_MASK];
+    }
+
+    private WalletBalance get(int key) {
+        return "legacy".equals(implementation) ? legacy.get(walletIds[key]) : bounded.lookup(walletIds[key]).balance();
+    }
+
+    private void put(int key) {
+        if ("legacy".equals(implementation)) {
+            legacy.put(walletIds[key], balances[key]);
+        } else {
+            bounded.put(walletIds[key], balances[key]);
+        }
+    }
+
+    private static WalletBalance balance(String walletId, int utxoCount) {
+        List<WalletBalance.UTXO> utxos = new ArrayList<>(utxoCount);
+        for (int i = 0; i < utxoCount; i++) {
+            utxos.add(new WalletBalance.UTXO(walletId + "-tx" + i, i, Coin.valueOf(1_000), "", 6));
+        }
+        Coin total = Coin.valueOf(1_000L * utxoCount);
+        return new WalletBalance(walletId, total, Coin.ZERO, total, Instant.now(), "1", utxos);
+    }
+}
@@ -0,0 +1,35 @@
+package com.btcwallet.balance;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The original two-map balance cache, kept as the baseline for {@link BalanceCacheBenchmark}.
+ */
+public class LegacyBalanceCache {
+    private final Map<String, WalletBalance> balanceCache = new ConcurrentHashMap<>();
+    private final Map<String, Instant> cacheTimestamps = new ConcurrentHashMap<>();
+    private static final long CACHE_TTL_MINUTES = 5;
+
+    public WalletBalance get(String walletId) {
+        if (isCacheStale(walletId)) {
+            return null;
+        }
+        return balanceCache.get(walletId);
+    }
+
+    public void put(String walletId, WalletBalance balance) {
+        balanceCache.put(walletId, balance);
+        cacheTimestamps.put(walletId, Instant.now());
+    }
+
+    public boolean isCacheStale(String walletId) {
+        if (!cacheTimestamps.containsKey(walletId)) {
+            return true;
+        }
+        Instant lastUpdated = cacheTimestamps.get(walletId);
+        return ChronoUnit.MINUTES.between(lastUpdated, Instant.now()) >= CACHE_TTL_MINUTES;
+    }
+}
@@ -0,0 +1,157 @@
+package com.btcwallet.balance;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.bitcoinj.core.Coin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link UtxoSet} against a plain list of {@link WalletBalance.UTXO} objects
+ * for one large wallet.
+ *
+ * Covers building the set (run with {@code -prof gc} to compare the bytes
+ * allocated per UTXO), the greedy coin selection scan used by the transaction
+ * service, the value-ordered lookup that replaces it, the UTXO total and JSON
+ * rendering of a full balance snapshot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class UtxoSetBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Param({"100000"})
+    private int utxoCount;
+
+    private byte[][] txHashes;
+    private long[] values;
+    private byte[] script;
+    private List<WalletBalance.UTXO> legacy;
+    private UtxoSet compact;
+    private WalletBalance balance;
+    private long target;
+    private long payment;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        txHashes = new byte[utxoCount][UtxoSet.HASH_LENGTH];
+        values = new long[utxoCount];
+        // P2PKH script; every UTXO of the wallet pays to the same address
+        script = new byte[25];
+        random.nextBytes(script);
+        long total = 0;
+        for (int i = 0; i < utxoCount; i++) {
+            random.nextBytes(txHashes[i]);
+            values[i] = 1_000 + random.nextLong(1_000_000);
+            total += values[i];
+        }
+        legacy = buildLegacy();
+        compact = buildCompact();
+        balance = new WalletBalance("WALLET-1", Coin.valueOf(total), Coin.ZERO, Coin.valueOf(total),
+            Instant.now(), "800000", compact);
+        // Far enough in that selection scans most of the wallet
+        target = total * 9 / 10;
+        payment = 500_000;
+        // Build the value order outside the measurement
+        compact.ceilingRank(0);
+    }
+
+    @Benchmark
+    public List<WalletBalance.UTXO> buildLegacy() {
+        List<WalletBalance.UTXO> utxos = new ArrayList<>(utxoCount);
+        String scriptText = hex(script);
+        for (int i = 0; i < utxoCount; i++) {
+            utxos.add(new WalletBalance.UTXO(hex(txHashes[i]), i % 4, Coin.valueOf(values[i]), scriptText, i % 7));
+        }
+        return utxos;
+    }
+
+    @Benchmark
+    public UtxoSet buildCompact() {
+        UtxoSet.Builder builder = UtxoSet.builder(utxoCount);
+        for (int i = 0; i < utxoCount; i++) {
+            builder.add(txHashes[i], 0, i % 4, values[i], script, i % 7);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public int selectLegacy() {
+        long selected = 0;
+        int count = 0;
+        for (WalletBalance.UTXO utxo : legacy) {
+            selected += utxo.getValue().getValue();
+            count++;
+            if (selected >= target) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int selectCompact() {
+        long selected = 0;
+        int count = 0;
+        while (count < compact.size() && selected < target) {
+            selected += compact.valueAt(count++);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int selectByValueOrder() {
+        // Smallest single UTXO covering a typical payment, as the transaction service does first
+        int rank = compact.ceilingRank(payment);
+        return rank < compact.size() ? compact.positionAtRank(rank) : -1;
+    }
+
+    @Benchmark
+    public Coin totalLegacy() {
+        return legacy.stream().map(WalletBalance.UTXO::getValue).reduce(Coin.ZERO, Coin::add);
+    }
+
+    @Benchmark
+    public Coin totalCompact() {
+        return balance.getUtxoTotalValue();
+    }
+
+    @Benchmark
+    public byte[] renderLegacy() throws Exception {
+        return MAPPER.writeValueAsBytes(legacy);
+    }
+
+    @Benchmark
+    public byte[] renderCompactView() throws Exception {
+        return MAPPER.writeValueAsBytes(balance.getUtxos());
+    }
+
+    @Benchmark
+    public byte[] renderStreamSnapshot() throws Exception {
+        return MAPPER.writeValueAsBytes(BalanceStream.BalanceUpdate.between(null, balance));
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder text = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            text.append(Character.forDigit((b >>> 4) & 0x0f, 16)).append(Character.forDigit(b & 0x0f, 16));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,153 @@
+package com.btcwallet.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bitcoinj.core.Block;
+import org.bitcoinj.core.BlockChain;
+import org.bitcoinj.core.CheckpointManager;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.StoredBlock;
+import org.bitcoinj.params.RegTestParams;
+import org.bitcoinj.store.BlockStore;
+import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.store.SPVBlockStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Time from process start to a synced header chain, against a locally mined
+ * regtest chain standing in for the node.
+ *
+ * <ul>
+ *   <li>{@code coldMemoryStore} - the old behaviour: replay every header from genesis</li>
+ *   <li>{@code warmSpvStore} - reopen the persistent header store left by a previous run</li>
+ *   <li>{@code checkpointedSpvStore} - fresh store seeded from a checkpoint just before
+ *       the earliest wallet, then only the headers after it</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ChainStartupBenchmark {
+
+    private static final NetworkParameters PARAMS = RegTestParams.get();
+
+    /** Kept below the regtest retarget interval so no difficulty transition is crossed. */
+    @Param({"2000"})
+    private int chainLength;
+
+    /** Headers the checkpointed start still has to download after the checkpoint. */
+    @Param({"100"})
+    private int headersAfterCheckpoint;
+
+    private final List<Block> headers = new ArrayList<>();
+    private File workDir;
+    private File syncedStore;
+    private File scratchStore;
+    private byte[] checkpoints;
+    private long earliestWalletTime;
+
+    @Setup(Level.Trial)
+    public void mineChain() throws Exception {
+        Context.propagate(new Context(PARAMS));
+        Block previous = PARAMS.getGenesisBlock();
+        for (int i = 0; i < chainLength; i++) {
+            previous = previous.createNextBlock(null);
+            headers.add(previous.cloneAsHeader());
+        }
+
+        workDir = Files.createTempDirectory("chain-startup").toFile();
+        syncedStore = new File(workDir, "synced.spvchain");
+        scratchStore = new File(workDir, "scratch.spvchain");
+
+        // Leave a fully synced store behind, as a previous run would
+        BlockStore store = new SPVBlockStore(PARAMS, syncedStore);
+        BlockChain chain = new BlockChain(PARAMS, store);
+        for (Block header : headers) {
+            chain.add(header);
+        }
+        StoredBlock checkpoint = store.get(headers.get(chainLength - headersAfterCheckpoint - 1).getHash());
+        store.close();
+
+        checkpoints = textCheckpoints(checkpoint);
+        // CheckpointManager backs off a week from the requested time
+        earliestWalletTime = checkpoint.getHeader().getTimeSeconds() + TimeUnit.DAYS.toSeconds(7) + 1;
+    }
+
+    @Setup(Level.Iteration)
+    public void resetScratchStore() throws IOException {
+        Files.deleteIfExists(scratchStore.toPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStores() throws IOException {
+        Files.deleteIfExists(scratchStore.toPath());
+        Files.deleteIfExists(syncedStore.toPath());
+        Files.deleteIfExists(workDir.toPath());
+    }
+
+    @Benchmark
+    public int coldMemoryStore() throws Exception {
+        BlockChain chain = new BlockChain(PARAMS, new MemoryBlockStore(PARAMS));
+        for (Block header : headers) {
+            chain.add(header);
+        }
+        return chain.getBestChainHeight();
+    }
+
+    @Benchmark
+    public int warmSpvStore() throws Exception {
+        Files.copy(syncedStore.toPath(), scratchStore.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        BlockStore store = new SPVBlockStore(PARAMS, scratchStore);
+        try {
+            return new BlockChain(PARAMS, store).getBestChainHeight();
+        } finally {
+            store.close();
+        }
+    }
+
+    @Benchmark
+    public int checkpointedSpvStore() throws Exception {
+        BlockStore store = new SPVBlockStore(PARAMS, scratchStore);
+        try (InputStream stream = new ByteArrayInputStream(checkpoints)) {
+            CheckpointManager.checkpoint(PARAMS, stream, store, earliestWalletTime);
+            BlockChain chain = new BlockChain(PARAMS, store);
+            for (Block header : headers.subList(chainLength - headersAfterCheckpoint, chainLength)) {
+                chain.add(header);
+            }
+            return chain.getBestChainHeight();
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * Encodes a single checkpoint in bitcoinj's textual checkpoints format.
+     */
+    private static byte[] textCheckpoints(StoredBlock checkpoint) {
+        ByteBuffer compact = ByteBuffer.allocate(StoredBlock.COMPACT_SERIALIZED_SIZE);
+        checkpoint.serializeCompact(compact);
+        String text = "TXT CHECKPOINTS 1\n0\n1\n" + Base64.getEncoder().encodeToString(compact.array()) + "\n";
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,106 @@
+package com.btcwallet.transaction;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.SegwitAddress;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionWitness;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Signing a consolidation from a legacy (P2PKH) wallet against a native
+ * SegWit (P2WPKH) wallet with the same key, on one thread so only the
+ * signature hashing differs. BitcoinJ's BIP143 input by input signing,
+ * which hashes every outpoint, sequence and output again for each input,
+ * is the baseline for the cached witness digests.
+ *
+ * The virtual size of both signed transactions is printed once per trial;
+ * fees scale with it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SegwitSigningBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    private int inputCount;
+
+    private NetworkParameters params;
+    private ECKey key;
+    private Script legacyScriptPubKey;
+    private Script segwitScriptPubKey;
+    private Address recipient;
+    private TransactionSigner signer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        params = MainNetParams.get();
+        key = new ECKey();
+        legacyScriptPubKey = ScriptBuilder.createOutputScript(LegacyAddress.fromKey(params, key));
+        segwitScriptPubKey = ScriptBuilder.createOutputScript(SegwitAddress.fromKey(params, key));
+        recipient = SegwitAddress.fromKey(params, new ECKey());
+        signer = new TransactionSigner(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+
+        System.out.println("📏 " + inputCount + " inputs: legacy "
+                + TransactionSizeModel.vsize(legacyTemplate()) + " vB, native SegWit "
+                + TransactionSizeModel.vsize(segwitTemplate()) + " vB");
+    }
+
+    private Transaction unsignedTransaction() {
+        Transaction transaction = new Transaction(params);
+        for (int i = 0; i < inputCount; i++) {
+            TransactionOutPoint outPoint = new TransactionOutPoint(params, 0, Sha256Hash.of(new byte[] {(byte) i, (byte) (i >>> 8)}));
+            transaction.addInput(new TransactionInput(params, transaction, new byte[] {}, outPoint, Coin.valueOf(50_000)));
+        }
+        transaction.addOutput(Coin.valueOf(40_000L * inputCount), recipient);
+        return transaction;
+    }
+
+    @Benchmark
+    public Transaction legacyTemplate() {
+        Transaction transaction = unsignedTransaction();
+        signer.sign(transaction, key, legacyScriptPubKey);
+        return transaction;
+    }
+
+    @Benchmark
+    public Transaction segwitTemplate() {
+        Transaction transaction = unsignedTransaction();
+        signer.sign(transaction, key, segwitScriptPubKey);
+        return transaction;
+    }
+
+    @Benchmark
+    public Transaction segwitBitcoinjInputByInput() {
+        Transaction transaction = unsignedTransaction();
+        Script scriptCode = ScriptBuilder.createP2PKHOutputScript(key);
+        for (int i = 0; i < inputCount; i++) {
+            TransactionInput input = transaction.getInput(i);
+            TransactionSignature signature = transaction.calculateWitnessSignature(
+                i, key, scriptCode, input.getValue(), Transaction.SigHash.ALL, false);
+            input.setWitness(TransactionWitness.redeemP2WPKH(signature, key));
+        }
+        return transaction;
+    }
+}
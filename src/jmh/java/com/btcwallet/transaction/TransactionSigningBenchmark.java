@@ -0,0 +1,95 @@
+package com.btcwallet.transaction;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Signing a consolidation: BitcoinJ input by input, as the transaction
+ * service used to, against {@link TransactionSigner} on one thread (the
+ * shared signature hash template alone) and across the common fork/join pool.
+ *
+ * A fresh unsigned transaction is built per invocation, since signing sets
+ * the input scripts; building costs the same for every variant.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TransactionSigningBenchmark {
+
+    @Param({"10", "100", "500"})
+    private int inputCount;
+
+    private NetworkParameters params;
+    private ECKey key;
+    private Script scriptPubKey;
+    private LegacyAddress recipient;
+    private TransactionSigner singleThreaded;
+    private TransactionSigner parallel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        params = MainNetParams.get();
+        key = new ECKey();
+        scriptPubKey = ScriptBuilder.createOutputScript(LegacyAddress.fromKey(params, key));
+        recipient = LegacyAddress.fromKey(params, new ECKey());
+        singleThreaded = new TransactionSigner(ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+        parallel = new TransactionSigner();
+    }
+
+    private Transaction unsignedTransaction() {
+        Transaction transaction = new Transaction(params);
+        for (int i = 0; i < inputCount; i++) {
+            TransactionOutPoint outPoint = new TransactionOutPoint(params, 0, Sha256Hash.of(new byte[] {(byte) i, (byte) (i >>> 8)}));
+            transaction.addInput(new TransactionInput(params, transaction, new byte[] {}, outPoint, Coin.valueOf(50_000)));
+        }
+        transaction.addOutput(Coin.valueOf(40_000L * inputCount), recipient);
+        return transaction;
+    }
+
+    @Benchmark
+    public Transaction bitcoinjInputByInput() {
+        Transaction transaction = unsignedTransaction();
+        for (int i = 0; i < inputCount; i++) {
+            TransactionSignature signature = transaction.calculateSignature(
+                i, key, scriptPubKey, Transaction.SigHash.ALL, false);
+            transaction.getInput(i).setScriptSig(ScriptBuilder.createInputScript(signature, key));
+        }
+        return transaction;
+    }
+
+    @Benchmark
+    public Transaction templateSingleThreaded() {
+        Transaction transaction = unsignedTransaction();
+        singleThreaded.sign(transaction, key, scriptPubKey);
+        return transaction;
+    }
+
+    @Benchmark
+    public Transaction templateParallel() {
+        Transaction transaction = unsignedTransaction();
+        parallel.sign(transaction, key, scriptPubKey);
+        return transaction;
+    }
+}
@@ -0,0 +1,71 @@
+package com.btcwallet.transaction;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.params.MainNetParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.btcwallet.transaction.TransactionSizeModel.ScriptType;
+
+/**
+ * Sizing an unsigned payment for its fee: serializing it, as the fee
+ * calculator used to, against {@link TransactionSizeModel} walking the
+ * transaction and computing from script types alone.
+ *
+ * Only the model gives the signed size; serializing counts the empty script
+ * signatures and comes out about 107 bytes per input short.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class TransactionSizeBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int inputCount;
+
+    private Transaction transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        NetworkParameters params = MainNetParams.get();
+        LegacyAddress address = LegacyAddress.fromKey(params, new ECKey());
+        transaction = new Transaction(params);
+        for (int i = 0; i < inputCount; i++) {
+            TransactionOutPoint outPoint = new TransactionOutPoint(params, i, Sha256Hash.of(new byte[] {(byte) i}));
+            transaction.addInput(new TransactionInput(params, transaction, new byte[] {}, outPoint, Coin.valueOf(50_000)));
+        }
+        transaction.addOutput(Coin.valueOf(40_000), address);
+        transaction.addOutput(Coin.valueOf(5_000), address);
+    }
+
+    @Benchmark
+    public int serializedLength() {
+        return transaction.bitcoinSerialize().length;
+    }
+
+    @Benchmark
+    public int modelFromTransaction() {
+        return TransactionSizeModel.vsize(transaction);
+    }
+
+    @Benchmark
+    public int modelFromScriptTypes() {
+        return TransactionSizeModel.vsize(ScriptType.P2PKH, inputCount, ScriptType.P2PKH, ScriptType.P2PKH);
+    }
+}
@@ -0,0 +1,78 @@
+package com.btcwallet.transaction.selection;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.btcwallet.balance.UtxoSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Time per selection for each {@link CoinSelector} on wallets of
+ * log-normally distributed UTXO values, cycling through a fixed set of
+ * payment amounts. Includes building the {@link SelectionPool}, as the
+ * transaction service does per payment.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class CoinSelectionBenchmark {
+
+    private static final long FEE_RATE = 10;
+    private static final long LONG_TERM_FEE_RATE = 2;
+
+    @Param({"branch-and-bound", "knapsack", "single-random-draw", "waste-minimizing"})
+    private String selectorName;
+
+    @Param({"1000", "100000"})
+    private int utxoCount;
+
+    private CoinSelector selector;
+    private UtxoSet utxos;
+    private long[] targets;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(7);
+        long[] values = FeeSavingsSimulation.syntheticWallet(random, utxoCount);
+        UtxoSet.Builder builder = UtxoSet.builder(utxoCount);
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        byte[] script = new byte[25];
+        for (int i = 0; i < utxoCount; i++) {
+            random.nextBytes(hash);
+            builder.add(hash, 0, 0, values[i], script, 6);
+        }
+        utxos = builder.build();
+        utxos.ceilingRank(0);
+
+        targets = new long[64];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = FeeSavingsSimulation.paymentAmount(random);
+        }
+        selector = switch (selectorName) {
+            case "branch-and-bound" -> new BranchAndBoundSelector();
+            case "knapsack" -> new KnapsackSelector(KnapsackSelector.DEFAULT_ITERATIONS, new SplittableRandom(1));
+            case "single-random-draw" -> new SingleRandomDrawSelector(new SplittableRandom(1));
+            default -> WasteMinimizingSelector.defaults();
+        };
+    }
+
+    @Benchmark
+    public Optional<CoinSelection> select() {
+        long target = targets[next++ & (targets.length - 1)];
+        CoinSelectionParams params = CoinSelectionParams.p2pkh(target, FEE_RATE, LONG_TERM_FEE_RATE);
+        SelectionPool pool = SelectionPool.of(utxos, position -> true, params);
+        return selector.select(pool, params, CoinSelector.DEFAULT_BUDGET);
+    }
+}
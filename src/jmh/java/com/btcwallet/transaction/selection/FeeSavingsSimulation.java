@@ -0,0 +1,175 @@
+package com.btcwallet.transaction.selection;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.btcwallet.balance.UtxoSet;
+import com.btcwallet.transaction.TransactionSizeModel.ScriptType;
+
+/**
+ * Replays a stream of payments and deposits against a wallet twice, once
+ * with the original greedy selection (list order, change whenever it is not
+ * dust) and once with {@link WasteMinimizingSelector}, and compares the fees
+ * paid, including the future cost of spending the change each one created.
+ *
+ * Each argument is a recorded UTXO set: a file with one UTXO value in
+ * satoshis per line. Without arguments a synthetic wallet is used.
+ *
+ * Run with {@code ./gradlew jmhClasses} and
+ * {@code java -cp build/classes/java/jmh:build/classes/java/main:<runtime classpath>
+ * com.btcwallet.transaction.selection.FeeSavingsSimulation [files...]}.
+ */
+public final class FeeSavingsSimulation {
+
+    private static final int PAYMENTS = 2_000;
+    private static final long FEE_RATE = 10;
+    private static final long LONG_TERM_FEE_RATE = 2;
+    // Version, counts and lock time plus the recipient output
+    private static final int BASE_SIZE = 10 + ScriptType.P2PKH.outputSize();
+
+    private FeeSavingsSimulation() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<long[]> wallets = new ArrayList<>();
+        for (String file : args) {
+            wallets.add(Files.readAllLines(Path.of(file)).stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .mapToLong(Long::parseLong)
+                .toArray());
+        }
+        if (wallets.isEmpty()) {
+            wallets.add(syntheticWallet(new SplittableRandom(42), 5_000));
+        }
+
+        for (int w = 0; w < wallets.size(); w++) {
+            Result greedy = replay(wallets.get(w), false);
+            Result engine = replay(wallets.get(w), true);
+            long saved = greedy.totalCost() - engine.totalCost();
+            System.out.printf("Wallet %d (%d UTXOs, %d payments)%n", w, wallets.get(w).length, PAYMENTS);
+            System.out.printf("  greedy: %s%n  engine: %s%n", greedy, engine);
+            System.out.printf("  saved %d sat (%.1f%%)%n", saved, 100.0 * saved / Math.max(1, greedy.totalCost()));
+        }
+    }
+
+    /**
+     * Draws a wallet with log-normally distributed UTXO values, roughly
+     * 10,000 to 10,000,000 satoshis.
+     */
+    static long[] syntheticWallet(SplittableRandom random, int size) {
+        long[] values = new long[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = logNormal(random, 12.0, 1.5);
+        }
+        return values;
+    }
+
+    static long paymentAmount(SplittableRandom random) {
+        return logNormal(random, 12.5, 1.2);
+    }
+
+    private static long logNormal(SplittableRandom random, double mu, double sigma) {
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        return Math.max(1_000, (long) Math.exp(mu + sigma * gaussian));
+    }
+
+    private static Result replay(long[] initial, boolean useEngine) {
+        // Same payments and deposits for both runs
+        SplittableRandom random = new SplittableRandom(99);
+        List<Long> wallet = new ArrayList<>();
+        for (long value : initial) {
+            wallet.add(value);
+        }
+        WasteMinimizingSelector engine = new WasteMinimizingSelector(List.of(new BranchAndBoundSelector(),
+            new KnapsackSelector(KnapsackSelector.DEFAULT_ITERATIONS, new SplittableRandom(1)),
+            new SingleRandomDrawSelector(new SplittableRandom(1))));
+
+        Result result = new Result();
+        for (int payment = 0; payment < PAYMENTS; payment++) {
+            if (random.nextInt(3) == 0) {
+                wallet.add(paymentAmount(random) * 2);
+            }
+            long amount = paymentAmount(random);
+            CoinSelectionParams params = CoinSelectionParams.p2pkh(amount + FEE_RATE * BASE_SIZE,
+                FEE_RATE, LONG_TERM_FEE_RATE);
+            long[] spent = useEngine ? selectWithEngine(engine, wallet, params) : selectGreedy(wallet, params);
+            if (spent == null) {
+                result.failed++;
+                continue;
+            }
+            long inputs = 0;
+            for (long value : spent) {
+                inputs += value;
+                wallet.remove(value);
+            }
+            long fee = params.target() - amount + spent.length * params.inputFee();
+            long change = inputs - amount - fee - params.changeFee();
+            if (change >= params.minChange()) {
+                fee += params.changeFee();
+                result.futureCost += LONG_TERM_FEE_RATE * params.changeSpendSize();
+                result.changeOutputs++;
+                wallet.add(change);
+            } else {
+                fee = inputs - amount;
+            }
+            result.fees += fee;
+            result.inputs += spent.length;
+            result.payments++;
+        }
+        return result;
+    }
+
+    private static long[] selectGreedy(List<Long> wallet, CoinSelectionParams params) {
+        List<Long> picked = new ArrayList<>();
+        long effective = 0;
+        for (long value : wallet) {
+            if (effective >= params.target()) {
+                break;
+            }
+            picked.add(value);
+            effective += value - params.inputFee();
+        }
+        return effective >= params.target() ? picked.stream().mapToLong(Long::longValue).toArray() : null;
+    }
+
+    private static long[] selectWithEngine(CoinSelector engine, List<Long> wallet, CoinSelectionParams params) {
+        UtxoSet.Builder builder = UtxoSet.builder(wallet.size());
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        for (int i = 0; i < wallet.size(); i++) {
+            hash[0] = (byte) i;
+            hash[1] = (byte) (i >>> 8);
+            hash[2] = (byte) (i >>> 16);
+            builder.add(hash, 0, 0, wallet.get(i), new byte[0], 1);
+        }
+        UtxoSet utxos = builder.build();
+        SelectionPool pool = SelectionPool.of(utxos, position -> true, params);
+        return engine.select(pool, params, CoinSelector.DEFAULT_BUDGET)
+            .map(selection -> Arrays.stream(selection.positions()).mapToLong(utxos::valueAt).toArray())
+            .orElse(null);
+    }
+
+    private static final class Result {
+        long fees;
+        long futureCost;
+        int payments;
+        int failed;
+        int inputs;
+        int changeOutputs;
+
+        long totalCost() {
+            return fees + futureCost;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("fees=%d sat, future change spend=%d sat, payments=%d, failed=%d, inputs=%d, change outputs=%d",
+                fees, futureCost, payments, failed, inputs, changeOutputs);
+        }
+    }
+}
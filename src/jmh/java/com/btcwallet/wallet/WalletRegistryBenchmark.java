@@ -0,0 +1,87 @@
+package com.btcwallet.wallet;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bitcoinj.params.MainNetParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Read/write throughput of {@link WalletRegistry} under contention.
+ *
+ * Run {@link #main(String[])} from the jmh classpath to sweep 1 to 64 threads;
+ * {@code ./gradlew jmh} runs a single thread count.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class WalletRegistryBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    @Param({"100000"})
+    private int walletCount;
+
+    private WalletRegistry registry;
+    private Wallet[] wallets;
+    private String[] walletIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = new WalletRegistry(walletCount);
+        wallets = new Wallet[walletCount];
+        walletIds = new String[walletCount];
+        for (int i = 0; i < walletCount; i++) {
+            String walletId = "WALLET-" + Integer.toHexString(i).toUpperCase();
+            wallets[i] = new Wallet(walletId, "address-" + i, "pub-" + i, "priv-" + i,
+                    Instant.EPOCH, MainNetParams.get());
+            walletIds[i] = walletId;
+            registry.register(wallets[i]);
+        }
+    }
+
+    @Benchmark
+    public Wallet lookup() {
+        return registry.get(walletIds[ThreadLocalRandom.current().nextInt(walletCount)]);
+    }
+
+    @Benchmark
+    public void register() {
+        registry.register(wallets[ThreadLocalRandom.current().nextInt(walletCount)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterateIds(Blackhole blackhole) {
+        for (String walletId : registry.walletIds()) {
+            blackhole.consume(walletId);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(WalletRegistryBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .forks(1)
+                    .warmupIterations(3)
+                    .measurementIterations(5)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
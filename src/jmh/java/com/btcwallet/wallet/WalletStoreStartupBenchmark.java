@@ -0,0 +1,108 @@
+package com.btcwallet.wallet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.params.MainNetParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.btcwallet.balance.TieredRefreshScheduler;
+
+/**
+ * Time from process start to serving requests with a large wallet store left
+ * behind by a previous run.
+ *
+ * <ul>
+ *   <li>{@code openStore} - map the index of a cleanly closed store</li>
+ *   <li>{@code startService} - open the store and construct the wallet service,
+ *       the part a request waits for</li>
+ *   <li>{@code startServiceUntilTracked} - as above, until the background refresh
+ *       has picked up every stored wallet</li>
+ * </ul>
+ *
+ * The store is built once per trial; every save is durable, so that takes a
+ * while at a million wallets.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class WalletStoreStartupBenchmark {
+
+    private static final NetworkParameters PARAMS = MainNetParams.get();
+
+    @Param({"1000000"})
+    private int walletCount;
+
+    private Path storeDir;
+    private FileWalletStore store;
+    private WalletService service;
+
+    @Setup(Level.Trial)
+    public void fillStore() throws IOException {
+        storeDir = Files.createTempDirectory("wallet-startup").resolve("store");
+        try (FileWalletStore filling = FileWalletStore.open(storeDir)) {
+            for (int i = 0; i < walletCount; i++) {
+                filling.save(new Wallet("WALLET-" + Integer.toHexString(i).toUpperCase(), "address-" + i,
+                        "pub-" + i, "priv-" + i, Instant.EPOCH, PARAMS));
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+        if (service != null) {
+            service.shutdown();
+            service = null;
+        }
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStore() throws IOException {
+        try (Stream<Path> paths = Files.walk(storeDir.getParent())) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public int openStore() {
+        store = FileWalletStore.open(storeDir);
+        return store.size();
+    }
+
+    @Benchmark
+    public int startService() {
+        store = FileWalletStore.open(storeDir);
+        service = new WalletService(PARAMS, null, store);
+        return service.listWalletIds().size();
+    }
+
+    @Benchmark
+    public int startServiceUntilTracked() throws InterruptedException {
+        int tracked = startService();
+        while (service.getBalanceRefreshStats().tierSizes().get(TieredRefreshScheduler.Tier.COLD) < tracked) {
+            Thread.sleep(1);
+        }
+        return tracked;
+    }
+}
@@ -1,15 +1,27 @@
 package com.btcwallet;
 
+import java.nio.file.Path;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
+import com.btcwallet.balance.BalanceCache;
+import com.btcwallet.balance.BalanceCachePolicy;
+import com.btcwallet.balance.BalanceRefreshEngine;
+import com.btcwallet.balance.BalanceStream;
+import com.btcwallet.balance.TieredRefreshScheduler;
 import com.btcwallet.config.BitcoinConfig;
 import com.btcwallet.network.BitcoinNodeClient;
 import com.btcwallet.network.FeeCalculator;
 import com.btcwallet.network.NetworkMonitor;
+import com.btcwallet.transaction.MempoolOverlay;
+import com.btcwallet.transaction.PaymentQueue;
 import com.btcwallet.transaction.TransactionService;
+import com.btcwallet.transaction.selection.WasteMinimizingSelector;
+import com.btcwallet.wallet.FileWalletStore;
 import com.btcwallet.wallet.WalletService;
+import com.btcwallet.wallet.WalletStore;
 
 @SpringBootApplication
 public class Main {
@@ -23,14 +35,41 @@ public class Main {
         return new BitcoinConfig();
     }
 
-    @Bean
+    @Bean(destroyMethod = "disconnect")
     public BitcoinNodeClient bitcoinNodeClient(BitcoinConfig bitcoinConfig) {
         return new BitcoinNodeClient(bitcoinConfig);
     }
 
     @Bean
-    public WalletService walletService(BitcoinConfig config, BitcoinNodeClient bitcoinNodeClient) {
-        return new WalletService(config.getNetworkParameters(), bitcoinNodeClient);
+    public BalanceCache balanceCache(BitcoinConfig config) {
+        BalanceCachePolicy policy = config.isBalanceCacheChainEvents()
+            ? BalanceCachePolicy.untilInvalidated()
+            : config.getBalanceCachePolicy();
+        return new BalanceCache(policy, config.getBalanceCacheMaxWeight());
+    }
+
+    @Bean
+    public BalanceStream balanceStream(BalanceCache balanceCache) {
+        BalanceStream balanceStream = new BalanceStream();
+        balanceCache.addChangeListener(balanceStream);
+        return balanceStream;
+    }
+
+    @Bean
+    public WalletService walletService(BitcoinConfig config, BitcoinNodeClient bitcoinNodeClient,
+            BalanceCache balanceCache) {
+        WalletStore walletStore = config.isWalletStoreEnabled()
+            ? FileWalletStore.open(Path.of(config.getWalletStorePath()))
+            : null;
+        BalanceRefreshEngine refreshEngine = new BalanceRefreshEngine(
+            config.getBalanceRefreshConcurrency(), config.getBalanceRefreshRatePerSecond(),
+            new TieredRefreshScheduler(config.getBalanceRefreshTiers()));
+        WalletService walletService = new WalletService(config.getNetworkParameters(), bitcoinNodeClient,
+            walletStore, balanceCache, refreshEngine);
+        if (config.isBalanceCacheChainEvents()) {
+            walletService.enableChainEventInvalidation();
+        }
+        return walletService;
     }
 
     @Bean
@@ -43,12 +82,31 @@ public class Main {
         return new FeeCalculator(networkMonitor);
     }
 
+    @Bean
+    public MempoolOverlay mempoolOverlay(BitcoinConfig config, BalanceCache balanceCache) {
+        MempoolOverlay mempoolOverlay = new MempoolOverlay(config.getMempoolMaxAncestors());
+        balanceCache.addChangeListener(mempoolOverlay);
+        return mempoolOverlay;
+    }
+
     @Bean
     public TransactionService transactionService(
             WalletService walletService,
             FeeCalculator feeCalculator,
             NetworkMonitor networkMonitor,
-            BitcoinNodeClient bitcoinNodeClient) {
-        return new TransactionService(walletService, feeCalculator, networkMonitor, bitcoinNodeClient);
+            BitcoinNodeClient bitcoinNodeClient,
+            MempoolOverlay mempoolOverlay) {
+        return new TransactionService(walletService, feeCalculator, networkMonitor, bitcoinNodeClient,
+                walletService.getOutpointIndex(), WasteMinimizingSelector.defaults(), mempoolOverlay);
+    }
+
+    @Bean(destroyMethod = "close")
+    public PaymentQueue paymentQueue(BitcoinConfig config, WalletService walletService,
+            TransactionService transactionService) {
+        if (!config.isPaymentQueueEnabled()) {
+            return null;
+        }
+        return PaymentQueue.open(Path.of(config.getPaymentQueuePath()), walletService, transactionService,
+            config.getPaymentQueueWindow(), config.getPaymentQueueMaxBatch());
     }
-}
\ No newline at end of file
+}
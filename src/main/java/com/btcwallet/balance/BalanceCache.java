@@ -1,59 +1,331 @@
 package com.btcwallet.balance;
 
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
 
 /**
- * Singleton cache for wallet balances.
+ * Bounded cache for wallet balances.
+ *
+ * Backed by Caffeine: entries are weighed by their UTXO count, and once the
+ * maximum weight is reached W-TinyLFU admission keeps frequently read wallets
+ * over one-off lookups. Entries are dropped outright once past the hard TTL.
+ *
+ * Freshness follows a soft/hard TTL model (see {@link BalanceCachePolicy}):
+ * {@link #lookup(String)} keeps serving an entry past its soft TTL and tells
+ * the caller to revalidate it in the background, so only a cold or long-expired
+ * wallet pays a node round-trip on the request thread.
+ *
+ * Writes that change a wallet's balances or UTXO set are reported to
+ * {@link BalanceChangeListener}s.
  */
 public class BalanceCache {
-    private static BalanceCache instance;
-    private final Map<String, WalletBalance> balanceCache = new ConcurrentHashMap<>();
-    private final Map<String, Instant> cacheTimestamps = new ConcurrentHashMap<>();
-    private static final long CACHE_TTL_MINUTES = 5;
 
-    private BalanceCache() {}
+    /** Default maximum weight, i.e. cached balances plus their UTXOs. */
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 500_000;
+
+    private final Cache<String, CacheEntry> balanceCache;
+    private final ConcurrentStatsCounter statsCounter = new ConcurrentStatsCounter();
+    private final BalanceCachePolicy policy;
+    private final long maximumWeight;
+    private final List<BalanceChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new BalanceCache with the default policy and weight limit.
+     */
+    public BalanceCache() {
+        this(BalanceCachePolicy.defaults(), DEFAULT_MAXIMUM_WEIGHT);
+    }
 
-    public static synchronized BalanceCache getInstance() {
-        if (instance == null) {
-            instance = new BalanceCache();
+    /**
+     * Creates a new BalanceCache.
+     *
+     * @param policy Freshness policy
+     * @param maximumWeight Maximum total weight; each entry weighs one plus its UTXO count
+     */
+    public BalanceCache(BalanceCachePolicy policy, long maximumWeight) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Policy cannot be null");
         }
-        return instance;
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        this.policy = policy;
+        this.maximumWeight = maximumWeight;
+        Caffeine<String, CacheEntry> builder = Caffeine.newBuilder()
+            .maximumWeight(maximumWeight)
+            .weigher((String walletId, CacheEntry entry) -> entry.weight())
+            .recordStats(() -> statsCounter);
+        if (policy.expires()) {
+            builder.expireAfterWrite(policy.hardTtl());
+        }
+        this.balanceCache = builder.build();
     }
 
+    public BalanceCachePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Registers a listener for balance changes.
+     *
+     * @param listener Listener to add
+     */
+    public void addChangeListener(BalanceChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered balance change listener.
+     *
+     * @param listener Listener to remove
+     */
+    public void removeChangeListener(BalanceChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Gets a cached balance that is still within its hard TTL.
+     *
+     * @param walletId Wallet ID
+     * @return Cached balance, or null if absent or expired
+     */
     public WalletBalance get(String walletId) {
-        if (isCacheStale(walletId)) {
-            return null;
+        CacheEntry entry = balanceCache.getIfPresent(walletId);
+        return entry == null ? null : entry.balance;
+    }
+
+    /**
+     * Looks up a balance for serving a request and decides whether it should be
+     * revalidated. At most one refresh is requested per cached value.
+     *
+     * @param walletId Wallet ID
+     * @return Lookup result; {@link Lookup#MISS} if absent or past the hard TTL
+     */
+    public Lookup lookup(String walletId) {
+        CacheEntry entry = balanceCache.getIfPresent(walletId);
+        if (entry == null) {
+            return Lookup.MISS;
+        }
+
+        long age = entry.ageNanos();
+        long softTtl = policy.softTtl().toNanos();
+        boolean refresh;
+        if (age >= softTtl) {
+            refresh = entry.claimRefresh();
+        } else {
+            int reads = entry.reads.incrementAndGet();
+            refresh = reads >= policy.refreshAheadReads()
+                && age >= (long) (softTtl * policy.refreshAheadRatio())
+                && entry.claimRefresh();
         }
-        return balanceCache.get(walletId);
+        return new Lookup(entry.balance, refresh);
     }
 
     public void put(String walletId, WalletBalance balance) {
-        balanceCache.put(walletId, balance);
-        cacheTimestamps.put(walletId, Instant.now());
+        CacheEntry previous = balanceCache.asMap().put(walletId, new CacheEntry(balance));
+        notifyIfChanged(previous != null ? previous.balance : null, balance, null);
     }
 
-    public boolean isCacheStale(String walletId) {
-        if (!cacheTimestamps.containsKey(walletId)) {
-            return true;
+    /**
+     * Caches a balance fetched from the node and records how long the fetch took.
+     *
+     * @param walletId Wallet ID
+     * @param balance Fetched balance
+     * @param loadTimeNanos Time spent fetching it
+     */
+    public void putLoaded(String walletId, WalletBalance balance, long loadTimeNanos) {
+        statsCounter.recordLoadSuccess(loadTimeNanos);
+        put(walletId, balance);
+    }
+
+    /**
+     * Records a failed node fetch.
+     *
+     * @param loadTimeNanos Time spent before the fetch failed
+     */
+    public void recordLoadFailure(long loadTimeNanos) {
+        statsCounter.recordLoadFailure(loadTimeNanos);
+    }
+
+    /**
+     * Releases the refresh claim taken by {@link #lookup(String)} after a failed
+     * background refresh, so a later read can retry it.
+     *
+     * @param walletId Wallet ID
+     */
+    public void refreshFailed(String walletId) {
+        CacheEntry entry = balanceCache.asMap().get(walletId);
+        if (entry != null) {
+            entry.refreshClaimed.set(false);
+        }
+    }
+
+    /**
+     * Applies a pushed UTXO change to a cached balance. The updated entry counts
+     * as freshly written. Wallets that are not cached are left alone; their next
+     * read loads a full snapshot.
+     *
+     * @param delta Change for one wallet
+     * @return true if a cached balance was updated
+     */
+    public boolean applyDelta(BalanceDelta delta) {
+        WalletBalance[] previous = new WalletBalance[1];
+        CacheEntry updated = balanceCache.asMap().computeIfPresent(delta.walletId(), (walletId, entry) -> {
+            previous[0] = entry.balance;
+            return new CacheEntry(entry.balance.apply(delta));
+        });
+        if (updated == null) {
+            return false;
+        }
+        notifyIfChanged(previous[0], updated.balance, delta);
+        return true;
+    }
+
+    private void notifyIfChanged(WalletBalance previous, WalletBalance current, BalanceDelta delta) {
+        if (changeListeners.isEmpty()) {
+            return;
+        }
+        if (previous != null
+                && previous.getConfirmedBalance().equals(current.getConfirmedBalance())
+                && previous.getUnconfirmedBalance().equals(current.getUnconfirmedBalance())
+                && previous.utxoSet().equals(current.utxoSet())) {
+            return;
+        }
+        for (BalanceChangeListener listener : changeListeners) {
+            try {
+                if (delta != null) {
+                    listener.onDelta(previous, current, delta);
+                } else {
+                    listener.onBalanceChanged(previous, current);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Balance change listener failed: " + e.getMessage());
+            }
         }
-        Instant lastUpdated = cacheTimestamps.get(walletId);
-        return ChronoUnit.MINUTES.between(lastUpdated, Instant.now()) >= CACHE_TTL_MINUTES;
+    }
+
+    public boolean isCacheStale(String walletId) {
+        CacheEntry entry = balanceCache.asMap().get(walletId);
+        return entry == null || entry.ageNanos() >= policy.softTtl().toNanos();
     }
 
     public void clear(String walletId) {
-        balanceCache.remove(walletId);
-        cacheTimestamps.remove(walletId);
+        balanceCache.invalidate(walletId);
+    }
+
+    /**
+     * Removes the cached balances of several wallets.
+     *
+     * @param walletIds Wallet IDs to invalidate
+     */
+    public void clear(Iterable<String> walletIds) {
+        balanceCache.invalidateAll(walletIds);
     }
 
     public void clearAll() {
-        balanceCache.clear();
-        cacheTimestamps.clear();
+        balanceCache.invalidateAll();
     }
 
     public Map<String, WalletBalance> getAllCachedBalances() {
-        return new ConcurrentHashMap<>(balanceCache);
+        Map<String, WalletBalance> balances = new ConcurrentHashMap<>();
+        balanceCache.asMap().forEach((walletId, entry) -> balances.put(walletId, entry.balance));
+        return balances;
+    }
+
+    /**
+     * Gets a snapshot of the cache statistics.
+     *
+     * @return Hit, miss, eviction and load-time counters with the current size and weight
+     */
+    public Stats stats() {
+        CacheStats snapshot = statsCounter.snapshot();
+        long weight = balanceCache.policy().eviction()
+            .map(eviction -> eviction.weightedSize().orElse(0L))
+            .orElse(0L);
+        return new Stats(
+            snapshot.hitCount(),
+            snapshot.missCount(),
+            snapshot.hitRate(),
+            snapshot.evictionCount(),
+            snapshot.evictionWeight(),
+            snapshot.loadSuccessCount(),
+            snapshot.loadFailureCount(),
+            TimeUnit.NANOSECONDS.toMicros((long) snapshot.averageLoadPenalty()),
+            balanceCache.estimatedSize(),
+            weight,
+            maximumWeight);
+    }
+
+    /**
+     * Flushes pending evictions and expirations. Useful for testing.
+     */
+    public void cleanUp() {
+        balanceCache.cleanUp();
+    }
+
+    /**
+     * Result of {@link #lookup(String)}.
+     *
+     * @param balance Cached balance to serve, or null on a miss
+     * @param refreshNeeded Whether the caller should refresh the entry in the background
+     */
+    public record Lookup(WalletBalance balance, boolean refreshNeeded) {
+        public static final Lookup MISS = new Lookup(null, false);
+    }
+
+    /**
+     * Cache statistics.
+     *
+     * @param hitCount Reads served from the cache
+     * @param missCount Reads that found no usable entry
+     * @param hitRate Share of reads served from the cache
+     * @param evictionCount Entries evicted for size or expiry
+     * @param evictionWeight Total weight of evicted entries
+     * @param loadSuccessCount Successful node fetches
+     * @param loadFailureCount Failed node fetches
+     * @param averageLoadMicros Average node fetch time in microseconds
+     * @param size Current number of entries
+     * @param weight Current total weight
+     * @param maximumWeight Configured weight limit
+     */
+    public record Stats(long hitCount, long missCount, double hitRate, long evictionCount, long evictionWeight,
+            long loadSuccessCount, long loadFailureCount, long averageLoadMicros, long size, long weight,
+            long maximumWeight) {
+    }
+
+    /**
+     * Cached balance together with its write time and read statistics.
+     */
+    private static final class CacheEntry {
+        private final WalletBalance balance;
+        private final long cachedAtNanos = System.nanoTime();
+        private final AtomicInteger reads = new AtomicInteger();
+        private final AtomicBoolean refreshClaimed = new AtomicBoolean();
+
+        private CacheEntry(WalletBalance balance) {
+            this.balance = balance;
+        }
+
+        private int weight() {
+            return 1 + balance.getUtxoCount();
+        }
+
+        private long ageNanos() {
+            return System.nanoTime() - cachedAtNanos;
+        }
+
+        private boolean claimRefresh() {
+            return !refreshClaimed.get() && refreshClaimed.compareAndSet(false, true);
+        }
     }
 }
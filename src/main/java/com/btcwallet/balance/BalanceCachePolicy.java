@@ -0,0 +1,71 @@
+package com.btcwallet.balance;
+
+import java.time.Duration;
+
+/**
+ * Freshness rules for cached balances.
+ *
+ * <ul>
+ *   <li>Younger than {@code softTtl}: served as is.</li>
+ *   <li>Between {@code softTtl} and {@code hardTtl}: served, with one background refresh.</li>
+ *   <li>Older than {@code hardTtl}: dropped; the caller fetches synchronously.</li>
+ * </ul>
+ *
+ * Entries read at least {@code refreshAheadReads} times are refreshed in the
+ * background once they reach {@code refreshAheadRatio} of the soft TTL, so hot
+ * wallets never go stale at all.
+ *
+ * @param softTtl Age after which a cached balance is revalidated in the background
+ * @param hardTtl Age after which a cached balance is no longer served
+ * @param refreshAheadRatio Fraction of the soft TTL after which hot entries are refreshed early
+ * @param refreshAheadReads Reads since the last write that make an entry hot
+ */
+public record BalanceCachePolicy(Duration softTtl, Duration hardTtl, double refreshAheadRatio, int refreshAheadReads) {
+
+    /** TTL used by {@link #untilInvalidated()}; entries never age out. */
+    public static final Duration UNBOUNDED = Duration.ofNanos(Long.MAX_VALUE);
+
+    public BalanceCachePolicy {
+        if (softTtl == null || hardTtl == null || softTtl.isNegative() || softTtl.isZero()) {
+            throw new IllegalArgumentException("Soft TTL must be positive");
+        }
+        if (hardTtl.compareTo(softTtl) < 0) {
+            throw new IllegalArgumentException("Hard TTL must not be shorter than soft TTL");
+        }
+        if (refreshAheadRatio <= 0 || refreshAheadRatio > 1) {
+            throw new IllegalArgumentException("Refresh-ahead ratio must be in (0, 1]");
+        }
+        if (refreshAheadReads < 1) {
+            throw new IllegalArgumentException("Refresh-ahead reads must be at least 1");
+        }
+    }
+
+    /**
+     * Gets the default policy: revalidate after 5 minutes, serve for up to 30 minutes,
+     * refresh wallets read 10+ times once they are 4 minutes old.
+     *
+     * @return Default policy
+     */
+    public static BalanceCachePolicy defaults() {
+        return new BalanceCachePolicy(Duration.ofMinutes(5), Duration.ofMinutes(30), 0.8, 10);
+    }
+
+    /**
+     * Gets a policy for event-driven invalidation: entries never expire or refresh
+     * on their own and stay cached until explicitly cleared.
+     *
+     * @return Policy without time-based expiry
+     */
+    public static BalanceCachePolicy untilInvalidated() {
+        return new BalanceCachePolicy(UNBOUNDED, UNBOUNDED, 1.0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Checks whether entries expire with age.
+     *
+     * @return true if the hard TTL is bounded
+     */
+    public boolean expires() {
+        return hardTtl.compareTo(UNBOUNDED) < 0;
+    }
+}
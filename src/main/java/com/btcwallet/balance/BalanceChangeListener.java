@@ -0,0 +1,31 @@
+package com.btcwallet.balance;
+
+/**
+ * Receives balances written to the {@link BalanceCache} that differ from the
+ * previously cached value. Called on the writing thread, so implementations
+ * must not block.
+ */
+@FunctionalInterface
+public interface BalanceChangeListener {
+
+    /**
+     * Called after a wallet's cached balance changed.
+     *
+     * @param previous Previously cached balance, or null if none was cached
+     * @param current Newly cached balance
+     */
+    void onBalanceChanged(WalletBalance previous, WalletBalance current);
+
+    /**
+     * Called instead of {@link #onBalanceChanged} after a pushed delta changed a
+     * wallet's cached balance. Listeners that can work from the delta alone
+     * override this to avoid comparing the full UTXO sets.
+     *
+     * @param previous Previously cached balance
+     * @param current Balance after the delta was applied
+     * @param delta The applied delta
+     */
+    default void onDelta(WalletBalance previous, WalletBalance current, BalanceDelta delta) {
+        onBalanceChanged(previous, current);
+    }
+}
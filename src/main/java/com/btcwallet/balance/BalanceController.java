@@ -1,22 +1,191 @@
 package com.btcwallet.balance;
 
+import com.btcwallet.balance.dto.BatchBalanceRequest;
 import com.btcwallet.wallet.WalletService;
 import com.btcwallet.wallet.WalletException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/balance")
 public class BalanceController {
 
+    private static final int MAX_WALLETS_PER_REQUEST = 10_000;
+    private static final Duration STREAM_KEEP_ALIVE = Duration.ofSeconds(15);
+
     private final WalletService walletService;
+    private final BalanceStream balanceStream;
+    private final ObjectMapper objectMapper;
 
-    public BalanceController(WalletService walletService) {
+    public BalanceController(WalletService walletService, BalanceStream balanceStream, ObjectMapper objectMapper) {
         this.walletService = walletService;
+        this.balanceStream = balanceStream;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Retrieves balance cache and request coalescing statistics.
+     *
+     * @return A map with cache hit/miss/eviction/load-time counters,
+     *         executed, coalesced and timed-out balance lookups, and
+     *         background refresh pass progress, and stream fan-out counters.
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getBalanceMetrics() {
+        Map<String, Object> response = Map.of(
+            "cache", walletService.getBalanceCacheStats(),
+            "requests", walletService.getBalanceRequestStats(),
+            "refresh", walletService.getBalanceRefreshStats(),
+            "stream", balanceStream.stats(),
+            "outpoints", walletService.getOutpointIndex().stats()
+        );
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Retrieves the confirmed, unconfirmed and total balance across all wallets.
+     *
+     * @return Portfolio sums in satoshis with the number of wallets included.
+     */
+    @GetMapping("/portfolio")
+    public ResponseEntity<?> getPortfolioTotals() {
+        try {
+            return ResponseEntity.ok(walletService.getPortfolioTotals());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Verifies the portfolio totals against the cached balances and repairs drift.
+     *
+     * @return Wallets checked and corrected, and the drift found.
+     */
+    @PostMapping("/portfolio/check")
+    public ResponseEntity<PortfolioTotals.Check> checkPortfolioTotals() {
+        return ResponseEntity.ok(walletService.checkPortfolioTotals());
+    }
+
+    /**
+     * Retrieves the balances of many wallets in one call. Cached balances are
+     * written out first; all remaining wallets are resolved with one batched
+     * node query. The response is a JSON array streamed as results arrive, with
+     * one {@code {"walletId", "balance"}} or {@code {"walletId", "error"}} entry
+     * per distinct wallet.
+     *
+     * @param request The IDs of up to 10,000 wallets.
+     * @return A streamed JSON array of results.
+     */
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getWalletBalances(@RequestBody BatchBalanceRequest request) {
+        List<String> walletIds = request.walletIds();
+        if (walletIds == null || walletIds.isEmpty() || walletIds.size() > MAX_WALLETS_PER_REQUEST) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                try {
+                    walletService.getWalletBalances(walletIds, new WalletService.BalanceBatchListener() {
+                        @Override
+                        public void onBalance(WalletBalance balance) {
+                            writeEntry(json, balance.getWalletId(), "balance", balance);
+                        }
+
+                        @Override
+                        public void onError(String walletId, String message) {
+                            writeEntry(json, walletId, "error", message);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok(body);
+    }
+
+    private static void writeEntry(JsonGenerator json, String walletId, String field, Object value) {
+        try {
+            json.writeStartObject();
+            json.writeStringField("walletId", walletId);
+            json.writeObjectField(field, value);
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Streams balance changes for a set of wallets as server-sent events.
+     * A "snapshot" event is sent first for every wallet with a cached balance,
+     * then a "balance" event with the changed totals and UTXOs whenever one of
+     * the wallets changes. A client that falls too far behind receives a
+     * "dropped" event and should reconnect.
+     *
+     * @param walletIds The IDs of the wallets to follow.
+     * @return An open event stream.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamBalances(@RequestParam List<String> walletIds) {
+        if (walletIds.isEmpty() || walletIds.size() > MAX_WALLETS_PER_REQUEST) {
+            return ResponseEntity.badRequest().build();
+        }
+        BalanceStream.Subscription subscription =
+            balanceStream.subscribe(walletIds, walletService::getCachedWalletBalance);
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        Thread.ofVirtual().name("balance-stream").start(() -> pump(subscription, emitter));
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Writes a subscription's events to its emitter until either side goes away.
+     */
+    private static void pump(BalanceStream.Subscription subscription, SseEmitter emitter) {
+        try (subscription) {
+            while (subscription.isOpen() || subscription.isDropped()) {
+                BalanceStream.Event event = subscription.poll(STREAM_KEEP_ALIVE);
+                if (event == null) {
+                    if (!subscription.isOpen()) {
+                        break;
+                    }
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                    continue;
+                }
+                emitter.send(SseEmitter.event().name(event.name()).data(event.data(), MediaType.APPLICATION_JSON));
+                if (event == BalanceStream.DROPPED) {
+                    break;
+                }
+            }
+            emitter.complete();
+        } catch (IOException e) {
+            // Client disconnected
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        }
     }
 
     /**
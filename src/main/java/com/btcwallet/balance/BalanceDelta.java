@@ -0,0 +1,29 @@
+package com.btcwallet.balance;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Change to one wallet's UTXO set, pushed by the node client as the watching
+ * wallet applies transactions, confirmations and double spends.
+ *
+ * Upserted UTXOs replace any cached UTXO with the same outpoint, so a
+ * confirmation is simply the same output with a new confirmation count.
+ * Applying a delta is idempotent.
+ *
+ * @param walletId Wallet ID
+ * @param upserted UTXOs that are now spendable, with their current confirmations
+ * @param removed Outpoints ({@code txHash:index}) that are spent or no longer valid
+ * @param blockchainHeight Chain height when the change was seen, or null if unknown
+ */
+public record BalanceDelta(String walletId, List<WalletBalance.UTXO> upserted, Set<String> removed,
+        String blockchainHeight) {
+
+    public BalanceDelta {
+        if (walletId == null) {
+            throw new IllegalArgumentException("Wallet ID cannot be null");
+        }
+        upserted = List.copyOf(upserted);
+        removed = Set.copyOf(removed);
+    }
+}
@@ -0,0 +1,257 @@
+package com.btcwallet.balance;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refreshes wallet balances in the background.
+ *
+ * A {@link TieredRefreshScheduler} decides which wallets are due; each call to
+ * {@link #runDue(WalletRefresher)} refreshes them in one pass.
+ *
+ * Every wallet is refreshed on its own virtual thread. A semaphore caps how
+ * many refreshes are in flight and a token bucket caps how fast they reach the
+ * node. Wallets are admitted one permit at a time, so a 50k-wallet pass never
+ * holds more than the concurrency cap in threads. A failing wallet is counted
+ * and skipped; it never aborts the pass.
+ */
+public class BalanceRefreshEngine {
+
+    /**
+     * Refreshes a single wallet's balance.
+     */
+    @FunctionalInterface
+    public interface WalletRefresher {
+        void refresh(String walletId) throws Exception;
+    }
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 32;
+    private static final double DEFAULT_RATE_PER_SECOND = 50;
+
+    private final int maxConcurrency;
+    private final double ratePerSecond;
+    private final Semaphore concurrency;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final TieredRefreshScheduler scheduler;
+    private final AtomicBoolean passRunning = new AtomicBoolean();
+    private final AtomicInteger passTotal = new AtomicInteger();
+    private final AtomicInteger passSucceeded = new AtomicInteger();
+    private final AtomicInteger passFailed = new AtomicInteger();
+    private volatile Instant passStartedAt;
+    private volatile PassResult lastPass;
+
+    /**
+     * Creates a new BalanceRefreshEngine with the default limits.
+     */
+    public BalanceRefreshEngine() {
+        this(DEFAULT_MAX_CONCURRENCY, DEFAULT_RATE_PER_SECOND);
+    }
+
+    /**
+     * Creates a new BalanceRefreshEngine.
+     *
+     * @param maxConcurrency Maximum refreshes in flight at once
+     * @param ratePerSecond Maximum refreshes started per second; bursts up to one second's worth
+     */
+    public BalanceRefreshEngine(int maxConcurrency, double ratePerSecond) {
+        this(maxConcurrency, ratePerSecond, new TieredRefreshScheduler(RefreshTiers.defaults()));
+    }
+
+    /**
+     * Creates a new BalanceRefreshEngine.
+     *
+     * @param maxConcurrency Maximum refreshes in flight at once
+     * @param ratePerSecond Maximum refreshes started per second; bursts up to one second's worth
+     * @param scheduler Scheduler deciding when each wallet is due
+     */
+    public BalanceRefreshEngine(int maxConcurrency, double ratePerSecond, TieredRefreshScheduler scheduler) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.ratePerSecond = ratePerSecond;
+        this.concurrency = new Semaphore(maxConcurrency);
+        this.rateLimiter = new TokenBucketRateLimiter(ratePerSecond, (int) Math.max(1, Math.ceil(ratePerSecond)));
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Starts refreshing a wallet in the background.
+     *
+     * @param walletId Wallet ID
+     */
+    public void track(String walletId) {
+        scheduler.track(walletId);
+    }
+
+    /**
+     * Stops refreshing all wallets in the background.
+     */
+    public void untrackAll() {
+        scheduler.clear();
+    }
+
+    /**
+     * Records a balance read, which feeds the wallet's refresh tier.
+     *
+     * @param walletId Wallet ID
+     */
+    public void recordAccess(String walletId) {
+        scheduler.recordAccess(walletId);
+    }
+
+    /**
+     * Refreshes every wallet whose refresh is due.
+     *
+     * @param refresher Refresh action for one wallet
+     * @return Result of the pass, or null if nothing was due or a pass was running
+     * @throws InterruptedException If interrupted; wallets not yet started are skipped
+     */
+    public PassResult runDue(WalletRefresher refresher) throws InterruptedException {
+        // Claim the pass before polling: polling reschedules the wallets it returns
+        if (!passRunning.compareAndSet(false, true)) {
+            return null;
+        }
+        List<String> due;
+        try {
+            due = scheduler.pollDue();
+        } catch (RuntimeException e) {
+            passRunning.set(false);
+            throw e;
+        }
+        if (due.isEmpty()) {
+            passRunning.set(false);
+            return null;
+        }
+        return runClaimedPass(due, refresher);
+    }
+
+    /**
+     * Refreshes every given wallet and waits for the pass to finish. Passes do not
+     * overlap: if one is already running, this returns null immediately.
+     *
+     * @param walletIds Wallets to refresh
+     * @param refresher Refresh action for one wallet
+     * @return Result of the pass, or null if another pass was running
+     * @throws InterruptedException If interrupted; wallets not yet started are skipped
+     */
+    public PassResult runPass(Iterable<String> walletIds, WalletRefresher refresher) throws InterruptedException {
+        if (!passRunning.compareAndSet(false, true)) {
+            return null;
+        }
+        return runClaimedPass(walletIds, refresher);
+    }
+
+    /**
+     * Runs a pass once the caller has claimed {@code passRunning}; releases it when done.
+     */
+    private PassResult runClaimedPass(Iterable<String> walletIds, WalletRefresher refresher)
+            throws InterruptedException {
+        passTotal.set(0);
+        passSucceeded.set(0);
+        passFailed.set(0);
+        Instant startedAt = Instant.now();
+        passStartedAt = startedAt;
+        long start = System.nanoTime();
+        boolean interrupted = false;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String walletId : walletIds) {
+                try {
+                    concurrency.acquire();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    break;
+                }
+                passTotal.incrementAndGet();
+                executor.execute(() -> refreshOne(walletId, refresher));
+            }
+        } finally {
+            passRunning.set(false);
+        }
+
+        PassResult result = new PassResult(startedAt, Duration.ofNanos(System.nanoTime() - start),
+            passTotal.get(), passSucceeded.get(), passFailed.get(), interrupted);
+        lastPass = result;
+        if (interrupted) {
+            throw new InterruptedException("Balance refresh pass interrupted after " + result.total() + " wallets");
+        }
+        return result;
+    }
+
+    private void refreshOne(String walletId, WalletRefresher refresher) {
+        try {
+            rateLimiter.acquire();
+            refresher.refresh(walletId);
+            passSucceeded.incrementAndGet();
+        } catch (InterruptedException e) {
+            passFailed.incrementAndGet();
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            passFailed.incrementAndGet();
+            System.err.println("Balance refresh failed for " + walletId + ": " + e.getMessage());
+        } finally {
+            concurrency.release();
+        }
+    }
+
+    /**
+     * Gets the progress of the running pass and the result of the last completed one.
+     *
+     * @return Current statistics
+     */
+    public Stats stats() {
+        boolean running = passRunning.get();
+        Progress progress = running
+            ? new Progress(passStartedAt, passTotal.get(), passSucceeded.get(), passFailed.get(),
+                maxConcurrency - concurrency.availablePermits())
+            : null;
+        return new Stats(maxConcurrency, ratePerSecond, scheduler.tierSizes(), progress, lastPass);
+    }
+
+    /**
+     * Outcome of a completed pass.
+     *
+     * @param startedAt When the pass started
+     * @param duration How long the pass took
+     * @param total Wallets started
+     * @param succeeded Wallets refreshed
+     * @param failed Wallets whose refresh failed
+     * @param interrupted Whether the pass stopped before every wallet was started
+     */
+    public record PassResult(Instant startedAt, Duration duration, int total, int succeeded, int failed,
+            boolean interrupted) {
+    }
+
+    /**
+     * Progress of the running pass.
+     *
+     * @param startedAt When the pass started
+     * @param started Wallets started so far
+     * @param succeeded Wallets refreshed so far
+     * @param failed Wallets failed so far
+     * @param inFlight Refreshes currently running
+     */
+    public record Progress(Instant startedAt, int started, int succeeded, int failed, int inFlight) {
+    }
+
+    /**
+     * Engine limits with the current and last pass.
+     *
+     * @param maxConcurrency Concurrency cap
+     * @param ratePerSecond Rate limit toward the node
+     * @param tierSizes Wallets per refresh tier
+     * @param running Progress of the running pass, or null when idle
+     * @param lastPass Last completed pass, or null before the first one
+     */
+    public record Stats(int maxConcurrency, double ratePerSecond, Map<TieredRefreshScheduler.Tier, Integer> tierSizes,
+            Progress running, PassResult lastPass) {
+    }
+}
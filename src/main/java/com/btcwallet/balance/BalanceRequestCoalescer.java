@@ -0,0 +1,134 @@
+package com.btcwallet.balance;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight layer for balance lookups.
+ *
+ * Concurrent requests for the same wallet share one in-flight
+ * {@link CompletableFuture}: the first caller (the leader) runs the lookup on its
+ * own thread, everyone arriving while it runs waits on the leader's result for at
+ * most the configured timeout. The entry is removed as soon as the leader
+ * finishes, so a later request always starts a fresh lookup.
+ */
+public class BalanceRequestCoalescer {
+
+    private static final long DEFAULT_WAIT_TIMEOUT_MILLIS = 15_000;
+
+    private final ConcurrentHashMap<String, CompletableFuture<WalletBalance>> inFlight = new ConcurrentHashMap<>();
+    private final long waitTimeoutMillis;
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    /**
+     * Creates a new BalanceRequestCoalescer with the default waiter timeout.
+     */
+    public BalanceRequestCoalescer() {
+        this(DEFAULT_WAIT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a new BalanceRequestCoalescer.
+     *
+     * @param waitTimeoutMillis How long a coalesced caller waits for the leader's result
+     */
+    public BalanceRequestCoalescer(long waitTimeoutMillis) {
+        if (waitTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Wait timeout must be positive");
+        }
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    /**
+     * Runs the lookup for a wallet, or joins the one already in flight for it.
+     *
+     * @param walletId Wallet ID the lookup is keyed on
+     * @param lookup Lookup to run if no request for the wallet is in flight
+     * @return Balance produced by the shared lookup
+     * @throws BalanceException If waiting for an in-flight lookup times out or is interrupted
+     * @throws Exception The exception thrown by the shared lookup
+     */
+    public WalletBalance execute(String walletId, Callable<WalletBalance> lookup) throws Exception {
+        CompletableFuture<WalletBalance> flight = new CompletableFuture<>();
+        CompletableFuture<WalletBalance> existing = inFlight.putIfAbsent(walletId, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(walletId, existing);
+        }
+
+        executed.increment();
+        try {
+            WalletBalance balance = lookup.call();
+            flight.complete(balance);
+            return balance;
+        } catch (Exception e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } catch (Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(walletId, flight);
+        }
+    }
+
+    private WalletBalance await(String walletId, CompletableFuture<WalletBalance> flight) throws Exception {
+        try {
+            return flight.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            throw new BalanceException("Timed out after " + waitTimeoutMillis +
+                "ms waiting for in-flight balance lookup of " + walletId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BalanceException("Interrupted waiting for balance lookup of " + walletId, e);
+        } catch (ExecutionException e) {
+            // Hand waiters the leader's failure unchanged
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets a snapshot of the coalescing counters.
+     *
+     * @return Current statistics
+     */
+    public Stats stats() {
+        return new Stats(executed.sum(), coalesced.sum(), timedOut.sum(), inFlight.size());
+    }
+
+    /**
+     * Coalescing counters.
+     *
+     * @param executed Lookups that actually ran
+     * @param coalesced Requests that joined a lookup already in flight
+     * @param timedOut Coalesced requests that gave up waiting
+     * @param inFlight Lookups running right now
+     */
+    public record Stats(long executed, long coalesced, long timedOut, int inFlight) {
+
+        /**
+         * Gets the share of requests served by another caller's lookup.
+         *
+         * @return Ratio between 0 and 1
+         */
+        public double coalescedRatio() {
+            long total = executed + coalesced;
+            return total == 0 ? 0.0 : (double) coalesced / total;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.btcwallet.balance;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Fans balance changes out to streaming subscribers.
+ *
+ * Each change is encoded once and the same bytes are queued for every
+ * subscriber of that wallet. Queues are bounded: a subscriber that falls
+ * behind by more than its buffer is dropped instead of slowing down the
+ * writer or growing without limit, and is expected to reconnect.
+ *
+ * Updates carry absolute balances and upsert/remove UTXO changes, so
+ * receiving one twice, or after a snapshot that already reflects it, is
+ * harmless. Pushed deltas are forwarded as they were applied; only snapshots
+ * and full refreshes compare whole UTXO sets.
+ */
+public class BalanceStream implements BalanceChangeListener {
+
+    /** Default number of queued events per subscriber before it is dropped. */
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+
+    /** Sent to a subscriber once it has been dropped for falling behind. */
+    public static final Event DROPPED =
+        new Event("dropped", "{\"reason\":\"slow consumer\"}".getBytes(StandardCharsets.UTF_8));
+
+    private static final Event CLOSED = new Event("closed", new byte[0]);
+    private static final int OPEN = 0;
+    private static final int CLOSED_STATE = 1;
+    private static final int DROPPED_STATE = 2;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final int bufferSize;
+    private final Map<String, Set<Subscription>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger openSubscriptions = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Creates a new BalanceStream with the default buffer size.
+     */
+    public BalanceStream() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new BalanceStream.
+     *
+     * @param bufferSize Events a subscriber may have queued before it is dropped
+     */
+    public BalanceStream(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Subscribes to changes of the given wallets and queues a snapshot of each
+     * wallet's current balance. The subscription is registered before the
+     * snapshots are taken, so no change in between is missed.
+     *
+     * @param walletIds Wallets to follow
+     * @param currentBalance Current balance of a wallet, or null if unknown
+     * @return Open subscription; close it when the client goes away
+     */
+    public Subscription subscribe(Collection<String> walletIds, Function<String, WalletBalance> currentBalance) {
+        Set<String> ids = new LinkedHashSet<>(walletIds);
+        Subscription subscription = new Subscription(ids, bufferSize + ids.size());
+        openSubscriptions.incrementAndGet();
+        for (String walletId : ids) {
+            subscribers.computeIfAbsent(walletId, key -> ConcurrentHashMap.newKeySet()).add(subscription);
+        }
+        for (String walletId : ids) {
+            WalletBalance balance = currentBalance.apply(walletId);
+            if (balance != null) {
+                subscription.offer(new Event("snapshot", encode(BalanceUpdate.between(null, balance))));
+            }
+        }
+        return subscription;
+    }
+
+    @Override
+    public void onBalanceChanged(WalletBalance previous, WalletBalance current) {
+        Set<Subscription> walletSubscribers = subscribers.get(current.getWalletId());
+        if (walletSubscribers == null || walletSubscribers.isEmpty()) {
+            return;
+        }
+        publish(walletSubscribers, BalanceUpdate.between(previous, current));
+    }
+
+    @Override
+    public void onDelta(WalletBalance previous, WalletBalance current, BalanceDelta delta) {
+        Set<Subscription> walletSubscribers = subscribers.get(current.getWalletId());
+        if (walletSubscribers == null || walletSubscribers.isEmpty()) {
+            return;
+        }
+        publish(walletSubscribers, BalanceUpdate.of(current, delta));
+    }
+
+    private void publish(Set<Subscription> walletSubscribers, BalanceUpdate update) {
+        Event event = new Event("balance", encode(update));
+        published.increment();
+        for (Subscription subscription : walletSubscribers) {
+            subscription.offer(event);
+        }
+    }
+
+    private static byte[] encode(BalanceUpdate update) {
+        try {
+            return MAPPER.writeValueAsBytes(update);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode balance update", e);
+        }
+    }
+
+    private void unregister(Subscription subscription) {
+        for (String walletId : subscription.walletIds) {
+            subscribers.computeIfPresent(walletId, (key, set) -> {
+                set.remove(subscription);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        openSubscriptions.decrementAndGet();
+    }
+
+    /**
+     * Gets fan-out statistics.
+     *
+     * @return Open subscriptions, watched wallets, published updates and dropped subscribers
+     */
+    public Stats stats() {
+        return new Stats(openSubscriptions.get(), subscribers.size(), published.sum(), dropped.sum());
+    }
+
+    /**
+     * One server-sent event; the data is shared by every subscriber it is queued for.
+     *
+     * @param name Event name
+     * @param data UTF-8 JSON payload
+     */
+    public record Event(String name, byte[] data) {
+    }
+
+    /**
+     * Compact balance update. {@code added} holds new or changed UTXOs,
+     * {@code removed} the outpoints that are gone; a snapshot lists every UTXO.
+     *
+     * @param walletId Wallet ID
+     * @param confirmed Confirmed balance in satoshis
+     * @param unconfirmed Unconfirmed balance in satoshis
+     * @param total Total balance in satoshis
+     * @param height Chain height the balance was computed at
+     * @param added New or changed UTXOs
+     * @param removed Outpoints no longer unspent
+     */
+    public record BalanceUpdate(String walletId, long confirmed, long unconfirmed, long total, String height,
+            List<Utxo> added, List<String> removed) {
+
+        /**
+         * Computes the update from one cached balance to the next.
+         *
+         * @param previous Previous balance, or null for a full snapshot
+         * @param current Current balance
+         * @return Update
+         */
+        public static BalanceUpdate between(WalletBalance previous, WalletBalance current) {
+            // Compare column by column; no UTXO objects are created
+            Map<String, Integer> before = new HashMap<>();
+            UtxoSet previousUtxos = previous != null ? previous.utxoSet() : UtxoSet.EMPTY;
+            for (int i = 0; i < previousUtxos.size(); i++) {
+                before.put(previousUtxos.outpointAt(i), i);
+            }
+            UtxoSet utxos = current.utxoSet();
+            List<Utxo> added = new ArrayList<>();
+            for (int i = 0; i < utxos.size(); i++) {
+                String outpoint = utxos.outpointAt(i);
+                Integer old = before.remove(outpoint);
+                if (old == null
+                        || previousUtxos.valueAt(old) != utxos.valueAt(i)
+                        || previousUtxos.confirmationsAt(old) != utxos.confirmationsAt(i)
+                        || !previousUtxos.scriptPubKeyAt(old).equals(utxos.scriptPubKeyAt(i))) {
+                    added.add(new Utxo(outpoint, utxos.valueAt(i), utxos.confirmationsAt(i)));
+                }
+            }
+            return new BalanceUpdate(current.getWalletId(), current.getConfirmedBalance().value,
+                current.getUnconfirmedBalance().value, current.getTotalBalance().value,
+                current.getBlockchainHeight(), added, new ArrayList<>(before.keySet()));
+        }
+
+        /**
+         * Builds the update for a pushed delta from the delta itself.
+         *
+         * @param current Balance after the delta was applied
+         * @param delta Applied delta
+         * @return Update
+         */
+        public static BalanceUpdate of(WalletBalance current, BalanceDelta delta) {
+            List<Utxo> added = new ArrayList<>(delta.upserted().size());
+            for (WalletBalance.UTXO utxo : delta.upserted()) {
+                added.add(new Utxo(utxo.getOutpoint(), utxo.getValue().value, utxo.getConfirmations()));
+            }
+            return new BalanceUpdate(current.getWalletId(), current.getConfirmedBalance().value,
+                current.getUnconfirmedBalance().value, current.getTotalBalance().value,
+                current.getBlockchainHeight(), added, new ArrayList<>(delta.removed()));
+        }
+    }
+
+    /**
+     * UTXO as carried in a {@link BalanceUpdate}.
+     *
+     * @param outpoint {@code txHash:index}
+     * @param value Value in satoshis
+     * @param confirmations Confirmations
+     */
+    public record Utxo(String outpoint, long value, int confirmations) {
+    }
+
+    /**
+     * Fan-out statistics.
+     *
+     * @param subscriptions Open subscriptions
+     * @param wallets Wallets with at least one subscriber
+     * @param published Updates encoded and fanned out
+     * @param dropped Subscribers dropped for falling behind
+     */
+    public record Stats(int subscriptions, int wallets, long published, long dropped) {
+    }
+
+    /**
+     * A client's subscription with its bounded event queue.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Set<String> walletIds;
+        private final BlockingQueue<Event> queue;
+        private final AtomicInteger state = new AtomicInteger(OPEN);
+
+        private Subscription(Set<String> walletIds, int capacity) {
+            this.walletIds = walletIds;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void offer(Event event) {
+            if (state.get() != OPEN || queue.offer(event)) {
+                return;
+            }
+            if (state.compareAndSet(OPEN, DROPPED_STATE)) {
+                dropped.increment();
+                unregister(this);
+                queue.clear();
+                queue.offer(DROPPED);
+            }
+        }
+
+        /**
+         * Waits for the next event. After a drop, {@link BalanceStream#DROPPED} is
+         * the last event returned.
+         *
+         * @param timeout Maximum wait
+         * @return Next event, or null if none arrived in time or the subscription is closed
+         * @throws InterruptedException If interrupted while waiting
+         */
+        public Event poll(Duration timeout) throws InterruptedException {
+            Event event = queue.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            return event == CLOSED ? null : event;
+        }
+
+        /**
+         * Checks whether events may still arrive.
+         *
+         * @return true until the subscription is closed or dropped
+         */
+        public boolean isOpen() {
+            return state.get() == OPEN;
+        }
+
+        /**
+         * Checks whether the subscription was dropped for falling behind.
+         *
+         * @return true if dropped
+         */
+        public boolean isDropped() {
+            return state.get() == DROPPED_STATE;
+        }
+
+        /**
+         * Gets the wallets this subscription follows.
+         *
+         * @return Wallet IDs
+         */
+        public Set<String> getWalletIds() {
+            return walletIds;
+        }
+
+        @Override
+        public void close() {
+            if (state.compareAndSet(OPEN, CLOSED_STATE)) {
+                unregister(this);
+                // Wake up a waiting reader
+                queue.offer(CLOSED);
+            }
+        }
+    }
+}
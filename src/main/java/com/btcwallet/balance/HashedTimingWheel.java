@@ -0,0 +1,165 @@
+package com.btcwallet.balance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel holding one deadline per wallet.
+ *
+ * Time is cut into fixed ticks and a deadline lands in bucket
+ * {@code tick % wheelSize}, with a round counter for deadlines further out
+ * than one revolution. Scheduling is O(1): the deadline is queued lock-free
+ * and moved into its bucket by the thread that advances the wheel. Advancing
+ * one tick only visits one bucket. Rescheduling a wallet cancels its previous
+ * deadline lazily; the stale entry is dropped when its bucket comes around.
+ */
+public class HashedTimingWheel {
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<Deadline>[] buckets;
+    private final Queue<Deadline> pendingDeadlines = new ConcurrentLinkedQueue<>();
+    private final Map<String, Deadline> deadlines = new ConcurrentHashMap<>();
+    private final long startNanos;
+    private long currentTick;
+
+    /**
+     * Creates a new HashedTimingWheel.
+     *
+     * @param tickNanos Tick length; deadlines are rounded up to a tick
+     * @param wheelSize Number of buckets, rounded up to a power of two
+     * @param startNanos Time of tick zero, on the same clock passed to {@link #advance}
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickNanos, int wheelSize, long startNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        if (wheelSize < 1 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("Wheel size must be between 1 and 2^30");
+        }
+        int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.tickNanos = tickNanos;
+        this.mask = size - 1;
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Sets a wallet's deadline, replacing any previous one.
+     *
+     * @param walletId Wallet ID
+     * @param deadlineNanos Absolute deadline on the wheel's clock
+     */
+    public void schedule(String walletId, long deadlineNanos) {
+        long ticks = Math.max(0, deadlineNanos - startNanos);
+        Deadline deadline = new Deadline(walletId, (ticks + tickNanos - 1) / tickNanos);
+        Deadline previous = deadlines.put(walletId, deadline);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        pendingDeadlines.add(deadline);
+    }
+
+    /**
+     * Removes a wallet's deadline.
+     *
+     * @param walletId Wallet ID
+     */
+    public void cancel(String walletId) {
+        Deadline previous = deadlines.remove(walletId);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+    }
+
+    /**
+     * Checks whether a wallet has a pending deadline.
+     *
+     * @param walletId Wallet ID
+     * @return true if scheduled
+     */
+    public boolean isScheduled(String walletId) {
+        return deadlines.containsKey(walletId);
+    }
+
+    /**
+     * Gets the number of pending deadlines.
+     *
+     * @return Scheduled wallet count
+     */
+    public int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Advances the wheel to the given time and hands every expired wallet to the
+     * consumer. Must be called from one thread at a time.
+     *
+     * @param nowNanos Current time on the wheel's clock
+     * @param expired Receives expired wallet IDs
+     */
+    public synchronized void advance(long nowNanos, Consumer<String> expired) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        while (currentTick <= targetTick) {
+            transferPending();
+            expireBucket(buckets[(int) (currentTick & mask)], expired);
+            currentTick++;
+        }
+    }
+
+    private void transferPending() {
+        Deadline deadline;
+        while ((deadline = pendingDeadlines.poll()) != null) {
+            if (deadline.cancelled) {
+                continue;
+            }
+            long tick = Math.max(deadline.tick, currentTick);
+            deadline.rounds = (tick - currentTick) / buckets.length;
+            buckets[(int) (tick & mask)].add(deadline);
+        }
+    }
+
+    private void expireBucket(List<Deadline> bucket, Consumer<String> expired) {
+        // Compact in place: keep entries for later rounds, drop cancelled and expired ones
+        int kept = 0;
+        for (int i = 0, n = bucket.size(); i < n; i++) {
+            Deadline deadline = bucket.get(i);
+            if (deadline.cancelled) {
+                continue;
+            }
+            if (deadline.rounds > 0) {
+                deadline.rounds--;
+                bucket.set(kept++, deadline);
+                continue;
+            }
+            if (deadlines.remove(deadline.walletId, deadline)) {
+                expired.accept(deadline.walletId);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    /**
+     * A wallet's deadline in ticks since the wheel started.
+     */
+    private static final class Deadline {
+        private final String walletId;
+        private final long tick;
+        private long rounds;
+        private volatile boolean cancelled;
+
+        private Deadline(String walletId, long tick) {
+            this.walletId = walletId;
+            this.tick = tick;
+        }
+    }
+}
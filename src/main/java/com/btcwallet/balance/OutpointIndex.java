@@ -0,0 +1,729 @@
+package com.btcwallet.balance;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Global index from outpoint to owning wallet and spend state.
+ *
+ * Outpoints are stored as a 32-byte transaction hash (four longs) plus an
+ * output index in an open-addressing table with linear probing, so a lookup
+ * is a few array reads with no object per entry. Registered as a
+ * {@link BalanceChangeListener}, it follows every wallet's UTXO set: outputs
+ * that appear are {@link State#UNSPENT}, outputs that disappear from the set
+ * are {@link State#SPENT_CONFIRMED}. The transaction service moves outputs to
+ * {@link State#SPENT_PENDING} when it spends them, which lets a second
+ * transaction spending the same output be refused before it is signed.
+ *
+ * Coin selection claims outputs with {@link #reserve}, which moves each one
+ * to {@link State#RESERVED} with a compare-and-set on its state word, so
+ * transactions built concurrently from one wallet never pick the same
+ * output. State changes take the read lock and only exclude table growth;
+ * a reservation that is neither committed nor released expires with its
+ * lease and can then be claimed again. A pending spend that the wallet's UTXO
+ * set still lists {@link #PENDING_GRACE} after it was marked is taken as a
+ * transaction that never reached the network, and the output is unspent again.
+ *
+ * Spent entries are kept so late checks still see them, and are dropped
+ * when the table is rebuilt on growth or once they outnumber the rest.
+ */
+public class OutpointIndex implements BalanceChangeListener {
+
+    /**
+     * Spend state of an outpoint.
+     */
+    public enum State {
+        /** In the owner's UTXO set and free to spend. */
+        UNSPENT,
+        /** Held for a transaction that is being built. */
+        RESERVED,
+        /** Spent by a transaction of ours that the chain has not reflected yet. */
+        SPENT_PENDING,
+        /** No longer in the owner's UTXO set. */
+        SPENT_CONFIRMED
+    }
+
+    /** How long a refresh may keep listing an output spent by us before the spend is given up. */
+    public static final Duration PENDING_GRACE = Duration.ofMinutes(10);
+
+    private static final State[] STATES = State.values();
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int KEY_LONGS = 4;
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+    private static final int PURGE_THRESHOLD = 1024;
+
+    // State word: time (millis since the index was created) | reservation number | state. The time
+    // is the lease deadline of a reservation and the moment a spend was marked pending.
+    private static final int STATE_BITS = 3;
+    private static final int RESERVATION_BITS = 21;
+    private static final int TIME_SHIFT = RESERVATION_BITS + STATE_BITS;
+    private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+    private static final long RESERVATION_MASK = (1L << RESERVATION_BITS) - 1;
+    private static final long UNSPENT_WORD = State.UNSPENT.ordinal();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Clock clock;
+    private final long clockBase;
+    private final AtomicLong reservations = new AtomicLong();
+    private final Map<String, Integer> walletRefs = new HashMap<>();
+    private final List<String> walletIds = new ArrayList<>();
+    private int[] walletEpochs = new int[MIN_CAPACITY];
+
+    private long[] keys;
+    private int[] outputIndices;
+    private int[] owners;
+    private int[] epochs;
+    private long[] words;
+    private int mask;
+    private int used;
+    private final AtomicIntegerArray stateCounts = new AtomicIntegerArray(STATES.length);
+
+    /**
+     * Creates an empty index.
+     */
+    public OutpointIndex() {
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * Creates an empty index timing reservation leases with the given clock.
+     *
+     * @param clock Clock for lease deadlines
+     */
+    public OutpointIndex(Clock clock) {
+        this.clock = clock;
+        this.clockBase = clock.millis();
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Outpoints claimed for one transaction, until committed, released or
+     * past their lease.
+     */
+    public static final class Reservation {
+        private final byte[][] transactionHashes;
+        private final int[] outputIndices;
+        private final long word;
+
+        private Reservation(byte[][] transactionHashes, int[] outputIndices, long word) {
+            this.transactionHashes = transactionHashes;
+            this.outputIndices = outputIndices;
+            this.word = word;
+        }
+
+        public int size() {
+            return outputIndices.length;
+        }
+    }
+
+    @Override
+    public void onBalanceChanged(WalletBalance previous, WalletBalance current) {
+        sync(current.getWalletId(), previous != null ? previous.utxoSet() : null, current.utxoSet());
+    }
+
+    /**
+     * Reconciles a wallet's entries with its latest UTXO set. Outputs in the set
+     * are owned by the wallet and become unspent unless one of our transactions
+     * has been spending them for less than {@link #PENDING_GRACE}; outputs only
+     * in the previous set are spent. Runs in time proportional to the two sets,
+     * not to the whole index.
+     *
+     * @param walletId Wallet ID
+     * @param previous Wallet's previous UTXO set, or null if unknown
+     * @param current Wallet's current UTXO set
+     */
+    public void sync(String walletId, UtxoSet previous, UtxoSet current) {
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        lock.writeLock().lock();
+        try {
+            int wallet = walletRef(walletId);
+            int epoch = ++walletEpochs[wallet];
+            long abandoned = now() - PENDING_GRACE.toMillis();
+            int released = 0;
+            for (int i = 0; i < current.size(); i++) {
+                hashOf(current, i, hash);
+                int slot = insert(hash, current.outputIndexAt(i), wallet, State.UNSPENT);
+                owners[slot] = wallet;
+                epochs[slot] = epoch;
+                long word = words[slot];
+                if (stateOrdinal(word) == State.SPENT_CONFIRMED.ordinal()) {
+                    // Back in the set, e.g. after a reorg
+                    setState(slot, State.UNSPENT);
+                } else if (stateOrdinal(word) == State.SPENT_PENDING.ordinal() && word >>> TIME_SHIFT < abandoned) {
+                    // Still listed long after we spent it: the spend never took
+                    setState(slot, State.UNSPENT);
+                    released++;
+                }
+            }
+            if (released > 0) {
+                System.out.println("⚠️ Releasing " + released + " outputs of wallet " + walletId +
+                    " whose spends are still unseen after " + PENDING_GRACE.toMinutes() + " minutes");
+            }
+            if (previous != null) {
+                for (int i = 0; i < previous.size(); i++) {
+                    hashOf(previous, i, hash);
+                    int slot = find(hash, previous.outputIndexAt(i));
+                    if (slot >= 0 && owners[slot] == wallet && epochs[slot] != epoch) {
+                        setState(slot, State.SPENT_CONFIRMED);
+                    }
+                }
+            }
+            int spent = stateCounts.get(State.SPENT_CONFIRMED.ordinal());
+            if (spent > PURGE_THRESHOLD && spent * 2 > entries()) {
+                rebuild(mask + 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the state of an outpoint.
+     *
+     * @param transactionHash Transaction hash
+     * @param outputIndex Output index
+     * @return State, or null if the outpoint is not indexed
+     */
+    public State stateOf(String transactionHash, int outputIndex) {
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        hashOf(transactionHash, hash);
+        return stateOf(hash, outputIndex);
+    }
+
+    /**
+     * Gets the state of an outpoint.
+     *
+     * @param transactionHash 32-byte transaction hash
+     * @param outputIndex Output index
+     * @return State, or null if the outpoint is not indexed
+     */
+    public State stateOf(byte[] transactionHash, int outputIndex) {
+        lock.readLock().lock();
+        try {
+            int slot = find(transactionHash, outputIndex);
+            return slot >= 0 ? stateAt(slot) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the wallet owning an outpoint.
+     *
+     * @param transactionHash Transaction hash
+     * @param outputIndex Output index
+     * @return Wallet ID, or null if the outpoint is not indexed
+     */
+    public String ownerOf(String transactionHash, int outputIndex) {
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        hashOf(transactionHash, hash);
+        lock.readLock().lock();
+        try {
+            int slot = find(hash, outputIndex);
+            return slot >= 0 ? walletIds.get(owners[slot]) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a UTXO may be selected for a new transaction. Outpoints
+     * the index has not seen yet are spendable.
+     *
+     * @param utxos UTXO set
+     * @param position Position in the set
+     * @param scratch 32-byte buffer reused across calls
+     * @return false if the output is reserved or already spent
+     */
+    public boolean isSpendable(UtxoSet utxos, int position, byte[] scratch) {
+        hashOf(utxos, position, scratch);
+        lock.readLock().lock();
+        try {
+            int slot = find(scratch, utxos.outputIndexAt(position));
+            return slot < 0 || isClaimable(wordAt(slot), now());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the UTXOs of a set that may not be selected, checking them all
+     * under one read lock. Only UTXOs from a value rank up are checked, so
+     * ones too small to select cost nothing. If every indexed outpoint is
+     * unspent, nothing is looked up.
+     *
+     * @param utxos UTXO set
+     * @param fromRank Lowest value rank to check
+     * @return Positions of the checked UTXOs that are reserved or already spent
+     */
+    public BitSet unspendable(UtxoSet utxos, int fromRank) {
+        BitSet blocked = new BitSet();
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        lock.readLock().lock();
+        try {
+            if (entries() == stateCounts.get(State.UNSPENT.ordinal())) {
+                return blocked;
+            }
+            long now = now();
+            for (int rank = fromRank; rank < utxos.size(); rank++) {
+                int position = utxos.positionAtRank(rank);
+                hashOf(utxos, position, hash);
+                int slot = find(hash, utxos.outputIndexAt(position));
+                if (slot >= 0 && !isClaimable(wordAt(slot), now)) {
+                    blocked.set(position);
+                }
+            }
+            return blocked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Claims outpoints for a transaction being built. Either every outpoint is
+     * reserved or, if any of them is reserved by someone else or spent, none is.
+     *
+     * @param walletId Wallet spending the outpoints
+     * @param transactionHashes 32-byte hashes of the outputs' transactions
+     * @param outputIndices Output indices, parallel to the hashes
+     * @param lease How long the reservation holds without being committed
+     * @return The reservation, or null if one of the outpoints is taken
+     */
+    public Reservation reserve(String walletId, byte[][] transactionHashes, int[] outputIndices, Duration lease) {
+        ensureIndexed(walletId, transactionHashes, outputIndices);
+        long deadline = now() + lease.toMillis();
+        long word = deadline << TIME_SHIFT
+            | (reservations.getAndIncrement() & RESERVATION_MASK) << STATE_BITS
+            | State.RESERVED.ordinal();
+        return claim(transactionHashes, outputIndices, word) ? new Reservation(transactionHashes, outputIndices, word) : null;
+    }
+
+    /**
+     * Moves reserved outpoints to spent-pending, e.g. right before broadcasting.
+     *
+     * @param reservation Reservation from {@link #reserve}
+     * @return false if the lease ran out and an outpoint was claimed by someone else
+     */
+    public boolean commit(Reservation reservation) {
+        long pending = pendingWord();
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < reservation.size(); i++) {
+                if (!transition(reservation.transactionHashes[i], reservation.outputIndices[i], reservation.word,
+                        pending)) {
+                    // Hand the committed ones back to the reservation, which the caller releases
+                    for (int j = 0; j < i; j++) {
+                        transition(reservation.transactionHashes[j], reservation.outputIndices[j], pending,
+                            reservation.word);
+                    }
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns reserved outpoints to unspent, e.g. after a simulation or a failure
+     * while building. Outpoints already committed or claimed by someone else
+     * are left alone, so this is safe to call in any case.
+     *
+     * @param reservation Reservation from {@link #reserve}
+     */
+    public void release(Reservation reservation) {
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < reservation.size(); i++) {
+                transition(reservation.transactionHashes[i], reservation.outputIndices[i], reservation.word,
+                    UNSPENT_WORD);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks outpoints as spent by a transaction of ours. Either every outpoint is
+     * marked or, if any of them is already reserved or spent, none is.
+     *
+     * @param walletId Wallet spending the outpoints
+     * @param transactionHashes 32-byte hashes of the spent outputs' transactions
+     * @param outputIndices Output indices, parallel to the hashes
+     * @return false if one of the outpoints is already reserved or spent
+     */
+    public boolean markSpentPending(String walletId, byte[][] transactionHashes, int[] outputIndices) {
+        ensureIndexed(walletId, transactionHashes, outputIndices);
+        return claim(transactionHashes, outputIndices, pendingWord());
+    }
+
+    /**
+     * Returns pending outpoints to unspent, e.g. after a failed broadcast.
+     * Outpoints in any other state are left alone.
+     *
+     * @param transactionHashes 32-byte hashes of the outputs' transactions
+     * @param outputIndices Output indices, parallel to the hashes
+     */
+    public void releasePending(byte[][] transactionHashes, int[] outputIndices) {
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < transactionHashes.length; i++) {
+                int slot = find(transactionHashes[i], outputIndices[i]);
+                if (slot >= 0) {
+                    long word = wordAt(slot);
+                    if (stateOrdinal(word) == State.SPENT_PENDING.ordinal()) {
+                        transition(slot, word, UNSPENT_WORD);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            walletRefs.clear();
+            walletIds.clear();
+            walletEpochs = new int[MIN_CAPACITY];
+            resetCounts();
+            allocate(MIN_CAPACITY);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of indexed outpoints.
+     *
+     * @return Entry count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int entries() {
+        int total = 0;
+        for (int i = 0; i < STATES.length; i++) {
+            total += stateCounts.get(i);
+        }
+        return total;
+    }
+
+    private void resetCounts() {
+        for (int i = 0; i < STATES.length; i++) {
+            stateCounts.set(i, 0);
+        }
+    }
+
+    /**
+     * Gets index statistics.
+     *
+     * @return Entries by state and table capacity
+     */
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            Map<State, Integer> byState = new EnumMap<>(State.class);
+            for (State state : STATES) {
+                byState.put(state, stateCounts.get(state.ordinal()));
+            }
+            return new Stats(entries(), byState, mask + 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Index statistics.
+     *
+     * @param entries Indexed outpoints
+     * @param byState Entries per state
+     * @param capacity Table slots
+     */
+    public record Stats(int entries, Map<State, Integer> byState, int capacity) {
+    }
+
+    private int walletRef(String walletId) {
+        Integer ref = walletRefs.get(walletId);
+        if (ref != null) {
+            return ref;
+        }
+        int next = walletIds.size();
+        walletIds.add(walletId);
+        walletRefs.put(walletId, next);
+        if (next == walletEpochs.length) {
+            walletEpochs = Arrays.copyOf(walletEpochs, next * 2);
+        }
+        return next;
+    }
+
+    private long now() {
+        return clock.millis() - clockBase;
+    }
+
+    /**
+     * Gets the word of a spend marked pending now.
+     */
+    private long pendingWord() {
+        return now() << TIME_SHIFT | State.SPENT_PENDING.ordinal();
+    }
+
+    private long wordAt(int slot) {
+        return (long) WORDS.getAcquire(words, slot);
+    }
+
+    private static int stateOrdinal(long word) {
+        return (int) (word & STATE_MASK);
+    }
+
+    private static boolean isClaimable(long word, long now) {
+        return word == UNSPENT_WORD
+            || stateOrdinal(word) == State.RESERVED.ordinal() && word >>> TIME_SHIFT <= now;
+    }
+
+    private State stateAt(int slot) {
+        return STATES[stateOrdinal(wordAt(slot))];
+    }
+
+    /**
+     * Sets a state while holding the write lock.
+     */
+    private void setState(int slot, State state) {
+        stateCounts.decrementAndGet(stateOrdinal(words[slot]));
+        words[slot] = state.ordinal();
+        stateCounts.incrementAndGet(state.ordinal());
+    }
+
+    /**
+     * Swaps an outpoint's state word if it still holds the expected one. Needs
+     * at least the read lock.
+     *
+     * @return false if the outpoint is unknown or its word changed
+     */
+    private boolean transition(byte[] hash, int outputIndex, long expected, long next) {
+        int slot = find(hash, outputIndex);
+        return slot >= 0 && transition(slot, expected, next);
+    }
+
+    private boolean transition(int slot, long expected, long next) {
+        if (!WORDS.compareAndSet(words, slot, expected, next)) {
+            return false;
+        }
+        stateCounts.decrementAndGet(stateOrdinal(expected));
+        stateCounts.incrementAndGet(stateOrdinal(next));
+        return true;
+    }
+
+    /**
+     * Moves every outpoint from a claimable state to the given word, or none.
+     */
+    private boolean claim(byte[][] transactionHashes, int[] outputIndices, long word) {
+        lock.readLock().lock();
+        try {
+            long now = now();
+            long[] previous = new long[transactionHashes.length];
+            for (int i = 0; i < transactionHashes.length; i++) {
+                int slot = find(transactionHashes[i], outputIndices[i]);
+                boolean claimed = false;
+                if (slot >= 0) {
+                    previous[i] = wordAt(slot);
+                    claimed = isClaimable(previous[i], now) && transition(slot, previous[i], word);
+                }
+                if (!claimed) {
+                    for (int j = 0; j < i; j++) {
+                        transition(transactionHashes[j], outputIndices[j], word, previous[j]);
+                    }
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds any outpoint the index has not seen yet as unspent and owned by the wallet.
+     */
+    private void ensureIndexed(String walletId, byte[][] transactionHashes, int[] outputIndices) {
+        lock.readLock().lock();
+        try {
+            boolean missing = false;
+            for (int i = 0; i < transactionHashes.length && !missing; i++) {
+                missing = find(transactionHashes[i], outputIndices[i]) < 0;
+            }
+            if (!missing) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            int wallet = walletRef(walletId);
+            for (int i = 0; i < transactionHashes.length; i++) {
+                insert(transactionHashes[i], outputIndices[i], wallet, State.UNSPENT);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long word(byte[] hash, int index) {
+        return (long) LONGS.get(hash, index * Long.BYTES);
+    }
+
+    private static int spread(byte[] hash, int outputIndex) {
+        long h = word(hash, 0) ^ word(hash, 3) ^ (outputIndex * 0x9E3779B97F4A7C15L);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private boolean matches(int slot, byte[] hash, int outputIndex) {
+        int base = slot * KEY_LONGS;
+        return outputIndices[slot] == outputIndex
+            && keys[base] == word(hash, 0)
+            && keys[base + 1] == word(hash, 1)
+            && keys[base + 2] == word(hash, 2)
+            && keys[base + 3] == word(hash, 3);
+    }
+
+    private int find(byte[] hash, int outputIndex) {
+        for (int slot = spread(hash, outputIndex) & mask; ; slot = (slot + 1) & mask) {
+            if (owners[slot] == EMPTY) {
+                return -1;
+            }
+            if (matches(slot, hash, outputIndex)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Finds an entry or adds it with the given owner and state.
+     *
+     * @return Slot of the entry
+     */
+    private int insert(byte[] hash, int outputIndex, int wallet, State state) {
+        int existing = find(hash, outputIndex);
+        if (existing >= 0) {
+            return existing;
+        }
+        // Keep at least a quarter of the slots empty so probes stay short
+        if ((used + 1) * 4 > (mask + 1) * 3) {
+            int kept = entries() - stateCounts.get(State.SPENT_CONFIRMED.ordinal()) + 1;
+            rebuild(Math.max(MIN_CAPACITY, Integer.highestOneBit(kept * 2 - 1) * 2));
+        }
+        int slot = spread(hash, outputIndex) & mask;
+        while (owners[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        int base = slot * KEY_LONGS;
+        for (int i = 0; i < KEY_LONGS; i++) {
+            keys[base + i] = word(hash, i);
+        }
+        outputIndices[slot] = outputIndex;
+        owners[slot] = wallet;
+        epochs[slot] = 0;
+        words[slot] = state.ordinal();
+        stateCounts.incrementAndGet(state.ordinal());
+        used++;
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity * KEY_LONGS];
+        outputIndices = new int[capacity];
+        owners = new int[capacity];
+        epochs = new int[capacity];
+        words = new long[capacity];
+        Arrays.fill(owners, EMPTY);
+        mask = capacity - 1;
+        used = 0;
+    }
+
+    /**
+     * Rehashes the entries into a fresh table, dropping spent-confirmed ones.
+     */
+    private void rebuild(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldOutputIndices = outputIndices;
+        int[] oldOwners = owners;
+        int[] oldEpochs = epochs;
+        long[] oldWords = words;
+        allocate(capacity);
+        resetCounts();
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        for (int old = 0; old < oldOwners.length; old++) {
+            if (oldOwners[old] == EMPTY || stateOrdinal(oldWords[old]) == State.SPENT_CONFIRMED.ordinal()) {
+                continue;
+            }
+            for (int i = 0; i < KEY_LONGS; i++) {
+                LONGS.set(hash, i * Long.BYTES, oldKeys[old * KEY_LONGS + i]);
+            }
+            int slot = spread(hash, oldOutputIndices[old]) & mask;
+            while (owners[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            System.arraycopy(oldKeys, old * KEY_LONGS, keys, slot * KEY_LONGS, KEY_LONGS);
+            outputIndices[slot] = oldOutputIndices[old];
+            owners[slot] = oldOwners[old];
+            epochs[slot] = oldEpochs[old];
+            words[slot] = oldWords[old];
+            stateCounts.incrementAndGet(stateOrdinal(oldWords[old]));
+            used++;
+        }
+    }
+
+    private static void hashOf(UtxoSet utxos, int position, byte[] dest) {
+        if (!utxos.copyHash(position, dest, 0)) {
+            hashOf(utxos.transactionHashAt(position), dest);
+        }
+    }
+
+    /**
+     * Gets the 32-byte key of a transaction hash. Hashes that are not hex (only
+     * seen in hand-built balances) are keyed by their SHA-256.
+     */
+    private static void hashOf(String transactionHash, byte[] dest) {
+        if (UtxoSet.decodeHex(transactionHash, dest, 0, UtxoSet.HASH_LENGTH)) {
+            return;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(transactionHash.getBytes(StandardCharsets.UTF_8));
+            System.arraycopy(digest, 0, dest, 0, UtxoSet.HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.btcwallet.balance;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.bitcoinj.core.Coin;
+
+/**
+ * Running confirmed and unconfirmed sums across all wallets.
+ *
+ * Registered as a {@link BalanceChangeListener}, so every balance written to
+ * the cache adjusts the sums by the difference to that wallet's last known
+ * balance. Reading the totals is O(1). The last known balance per wallet is
+ * kept here rather than in the cache, so evicting a cached balance does not
+ * change the totals.
+ *
+ * Updates run concurrently; only {@link #check(Map)} excludes them while it
+ * recomputes the sums.
+ */
+public class PortfolioTotals implements BalanceChangeListener {
+
+    private final Map<String, Amounts> byWallet = new ConcurrentHashMap<>();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder unconfirmed = new LongAdder();
+    private final ReadWriteLock checkLock = new ReentrantReadWriteLock();
+
+    @Override
+    public void onBalanceChanged(WalletBalance previous, WalletBalance current) {
+        update(current);
+    }
+
+    /**
+     * Sets a wallet's balance, adjusting the totals by the difference.
+     *
+     * @param balance Latest balance
+     */
+    public void update(WalletBalance balance) {
+        Amounts amounts = new Amounts(balance.getConfirmedBalance().value, balance.getUnconfirmedBalance().value);
+        checkLock.readLock().lock();
+        try {
+            byWallet.compute(balance.getWalletId(), (walletId, old) -> {
+                confirmed.add(amounts.confirmed - (old != null ? old.confirmed : 0));
+                unconfirmed.add(amounts.unconfirmed - (old != null ? old.unconfirmed : 0));
+                return amounts;
+            });
+        } finally {
+            checkLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a wallet from the totals.
+     *
+     * @param walletId Wallet ID
+     */
+    public void remove(String walletId) {
+        checkLock.readLock().lock();
+        try {
+            byWallet.computeIfPresent(walletId, (id, old) -> {
+                confirmed.add(-old.confirmed);
+                unconfirmed.add(-old.unconfirmed);
+                return null;
+            });
+        } finally {
+            checkLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every wallet from the totals.
+     */
+    public void clear() {
+        for (String walletId : byWallet.keySet()) {
+            remove(walletId);
+        }
+    }
+
+    /**
+     * Checks whether a wallet's balance is part of the totals.
+     *
+     * @param walletId Wallet ID
+     * @return true if the wallet has a known balance
+     */
+    public boolean contains(String walletId) {
+        return byWallet.containsKey(walletId);
+    }
+
+    /**
+     * Gets the number of wallets with a known balance.
+     *
+     * @return Wallet count
+     */
+    public int walletCount() {
+        return byWallet.size();
+    }
+
+    public Coin getConfirmed() {
+        return Coin.valueOf(confirmed.sum());
+    }
+
+    public Coin getUnconfirmed() {
+        return Coin.valueOf(unconfirmed.sum());
+    }
+
+    public Coin getTotal() {
+        return Coin.valueOf(confirmed.sum() + unconfirmed.sum());
+    }
+
+    /**
+     * Gets all sums at once.
+     *
+     * @return Confirmed, unconfirmed and total satoshis with the wallet count
+     */
+    public Totals totals() {
+        long confirmedSum = confirmed.sum();
+        long unconfirmedSum = unconfirmed.sum();
+        return new Totals(confirmedSum, unconfirmedSum, confirmedSum + unconfirmedSum, byWallet.size());
+    }
+
+    /**
+     * Verifies the totals. Per-wallet balances that differ from the given reference
+     * balances are corrected, then the sums are recomputed from the per-wallet
+     * balances and any drift is repaired. Blocks updates while it runs.
+     *
+     * @param reference Authoritative balances by wallet ID, e.g. the cached ones
+     * @return What was found and corrected
+     */
+    public Check check(Map<String, WalletBalance> reference) {
+        checkLock.writeLock().lock();
+        try {
+            int corrected = 0;
+            for (WalletBalance balance : reference.values()) {
+                Amounts expected = new Amounts(balance.getConfirmedBalance().value, balance.getUnconfirmedBalance().value);
+                Amounts known = byWallet.put(balance.getWalletId(), expected);
+                if (!expected.equals(known)) {
+                    corrected++;
+                }
+            }
+
+            long confirmedSum = 0;
+            long unconfirmedSum = 0;
+            for (Amounts amounts : byWallet.values()) {
+                confirmedSum += amounts.confirmed;
+                unconfirmedSum += amounts.unconfirmed;
+            }
+            long confirmedDrift = confirmed.sum() - confirmedSum;
+            long unconfirmedDrift = unconfirmed.sum() - unconfirmedSum;
+            confirmed.add(-confirmedDrift);
+            unconfirmed.add(-unconfirmedDrift);
+            return new Check(reference.size(), corrected, confirmedDrift, unconfirmedDrift);
+        } finally {
+            checkLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Portfolio sums in satoshis.
+     *
+     * @param confirmed Confirmed sum
+     * @param unconfirmed Unconfirmed sum
+     * @param total Confirmed plus unconfirmed
+     * @param wallets Wallets included
+     */
+    public record Totals(long confirmed, long unconfirmed, long total, int wallets) {
+    }
+
+    /**
+     * Result of {@link #check(Map)}.
+     *
+     * @param walletsChecked Reference balances compared
+     * @param walletsCorrected Wallets whose known balance differed from the reference
+     * @param confirmedDrift Difference between the running and recomputed confirmed sum
+     * @param unconfirmedDrift Difference between the running and recomputed unconfirmed sum
+     */
+    public record Check(int walletsChecked, int walletsCorrected, long confirmedDrift, long unconfirmedDrift) {
+
+        public boolean consistent() {
+            return walletsCorrected == 0 && confirmedDrift == 0 && unconfirmedDrift == 0;
+        }
+    }
+
+    /**
+     * A wallet's last known balance in satoshis.
+     */
+    private record Amounts(long confirmed, long unconfirmed) {
+    }
+}
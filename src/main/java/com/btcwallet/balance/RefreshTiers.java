@@ -0,0 +1,48 @@
+package com.btcwallet.balance;
+
+import java.time.Duration;
+
+/**
+ * Refresh periods per access tier.
+ *
+ * A wallet read at least {@code hotReadsPerMinute} times a minute is hot, one read
+ * at least {@code warmReadsPerMinute} times a minute is warm, anything else is cold.
+ * Every scheduled refresh is moved by up to {@code jitter} of its period in either
+ * direction so wallets registered together do not stay in lockstep.
+ *
+ * @param hotPeriod Refresh period of hot wallets
+ * @param warmPeriod Refresh period of warm wallets
+ * @param coldPeriod Refresh period of cold wallets
+ * @param hotReadsPerMinute Read rate from which a wallet is hot
+ * @param warmReadsPerMinute Read rate from which a wallet is warm
+ * @param jitter Fraction of the period used as random offset
+ */
+public record RefreshTiers(Duration hotPeriod, Duration warmPeriod, Duration coldPeriod,
+        double hotReadsPerMinute, double warmReadsPerMinute, double jitter) {
+
+    public RefreshTiers {
+        if (hotPeriod == null || warmPeriod == null || coldPeriod == null
+                || hotPeriod.isNegative() || hotPeriod.isZero()) {
+            throw new IllegalArgumentException("Refresh periods must be positive");
+        }
+        if (warmPeriod.compareTo(hotPeriod) < 0 || coldPeriod.compareTo(warmPeriod) < 0) {
+            throw new IllegalArgumentException("Refresh periods must not shrink from hot to cold");
+        }
+        if (hotReadsPerMinute < warmReadsPerMinute || warmReadsPerMinute <= 0) {
+            throw new IllegalArgumentException("Tier read rates must be positive and hot >= warm");
+        }
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("Jitter must be in [0, 1)");
+        }
+    }
+
+    /**
+     * Gets the default tiers: hot every 30 seconds from 6 reads a minute, warm every
+     * 5 minutes from one read per 10 minutes, cold hourly, with 10% jitter.
+     *
+     * @return Default tiers
+     */
+    public static RefreshTiers defaults() {
+        return new RefreshTiers(Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofHours(1), 6, 0.1, 0.1);
+    }
+}
@@ -0,0 +1,224 @@
+package com.btcwallet.balance;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides when each wallet's balance is refreshed next, based on how often it is read.
+ *
+ * Reads are counted per wallet between refreshes and folded into a moving
+ * average read rate, which places the wallet in a {@link Tier}. Each wallet's
+ * next refresh is a deadline on a {@link HashedTimingWheel}. A wallet that
+ * suddenly gets busy is promoted on the read that crosses the threshold instead
+ * of waiting for its next cold refresh. New wallets start cold at a random
+ * point in the cold period so a large fleet is spread across it.
+ */
+public class TieredRefreshScheduler {
+
+    /**
+     * Access tiers, hottest first.
+     */
+    public enum Tier { HOT, WARM, COLD }
+
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int WHEEL_SIZE = 4096;
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final RefreshTiers tiers;
+    private final LongSupplier clock;
+    private final HashedTimingWheel wheel;
+    private final Map<String, AccessState> states = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray tierCounts = new AtomicIntegerArray(Tier.values().length);
+
+    /**
+     * Creates a new TieredRefreshScheduler on the system clock.
+     *
+     * @param tiers Tier thresholds and periods
+     */
+    public TieredRefreshScheduler(RefreshTiers tiers) {
+        this(tiers, System::nanoTime);
+    }
+
+    /**
+     * Creates a new TieredRefreshScheduler.
+     *
+     * @param tiers Tier thresholds and periods
+     * @param clock Nanosecond clock
+     */
+    public TieredRefreshScheduler(RefreshTiers tiers, LongSupplier clock) {
+        this.tiers = tiers;
+        this.clock = clock;
+        this.wheel = new HashedTimingWheel(TICK_NANOS, WHEEL_SIZE, clock.getAsLong());
+    }
+
+    /**
+     * Starts scheduling refreshes for a wallet, as cold, at a random point within
+     * the cold period but no sooner than one hot period. Does nothing if the wallet
+     * is already tracked.
+     *
+     * @param walletId Wallet ID
+     */
+    public void track(String walletId) {
+        long now = clock.getAsLong();
+        AccessState created = new AccessState(now);
+        if (states.putIfAbsent(walletId, created) == null) {
+            tierCounts.incrementAndGet(Tier.COLD.ordinal());
+            long hotNanos = tiers.hotPeriod().toNanos();
+            long coldNanos = tiers.coldPeriod().toNanos();
+            long offset = hotNanos < coldNanos ? ThreadLocalRandom.current().nextLong(hotNanos, coldNanos) : coldNanos;
+            wheel.schedule(walletId, now + offset);
+        }
+    }
+
+    /**
+     * Stops scheduling refreshes for a wallet.
+     *
+     * @param walletId Wallet ID
+     */
+    public void untrack(String walletId) {
+        AccessState state = states.remove(walletId);
+        if (state != null) {
+            tierCounts.decrementAndGet(state.tier.ordinal());
+            wheel.cancel(walletId);
+        }
+    }
+
+    /**
+     * Stops scheduling refreshes for all wallets.
+     */
+    public void clear() {
+        for (String walletId : states.keySet()) {
+            untrack(walletId);
+        }
+    }
+
+    /**
+     * Records a balance read. Promotes the wallet right away if its read rate since
+     * the last refresh already qualifies for a hotter tier.
+     *
+     * @param walletId Wallet ID
+     */
+    public void recordAccess(String walletId) {
+        AccessState state = states.get(walletId);
+        if (state == null) {
+            return;
+        }
+        int reads = state.reads.incrementAndGet();
+        if (state.tier == Tier.HOT) {
+            return;
+        }
+        long now = clock.getAsLong();
+        // Count at least a minute so a couple of quick reads do not promote a wallet
+        double minutes = Math.max(1.0, (now - state.windowStartNanos) / NANOS_PER_MINUTE);
+        Tier tier = tierFor(reads / minutes);
+        if (tier.ordinal() < state.tier.ordinal()) {
+            synchronized (state) {
+                if (tier.ordinal() < state.tier.ordinal() && states.get(walletId) == state) {
+                    moveTo(state, tier);
+                    wheel.schedule(walletId, now + jittered(tier));
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the wallets due for a refresh and schedules each one's next refresh
+     * from its updated tier.
+     *
+     * @return Wallet IDs due now
+     */
+    public List<String> pollDue() {
+        long now = clock.getAsLong();
+        List<String> due = new ArrayList<>();
+        wheel.advance(now, due::add);
+        for (String walletId : due) {
+            AccessState state = states.get(walletId);
+            if (state == null) {
+                continue;
+            }
+            synchronized (state) {
+                double minutes = Math.max(TICK_NANOS, now - state.windowStartNanos) / NANOS_PER_MINUTE;
+                double windowRate = state.reads.getAndSet(0) / minutes;
+                state.readsPerMinute = state.readsPerMinute < 0
+                    ? windowRate
+                    : (state.readsPerMinute + windowRate) / 2;
+                state.windowStartNanos = now;
+                Tier tier = tierFor(state.readsPerMinute);
+                moveTo(state, tier);
+                wheel.schedule(walletId, now + jittered(tier));
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Gets a wallet's current tier.
+     *
+     * @param walletId Wallet ID
+     * @return Tier, or null if the wallet is not tracked
+     */
+    public Tier tierOf(String walletId) {
+        AccessState state = states.get(walletId);
+        return state == null ? null : state.tier;
+    }
+
+    /**
+     * Gets the number of wallets in each tier.
+     *
+     * @return Tier sizes
+     */
+    public Map<Tier, Integer> tierSizes() {
+        Map<Tier, Integer> sizes = new EnumMap<>(Tier.class);
+        for (Tier tier : Tier.values()) {
+            sizes.put(tier, tierCounts.get(tier.ordinal()));
+        }
+        return sizes;
+    }
+
+    private Tier tierFor(double readsPerMinute) {
+        if (readsPerMinute >= tiers.hotReadsPerMinute()) {
+            return Tier.HOT;
+        }
+        return readsPerMinute >= tiers.warmReadsPerMinute() ? Tier.WARM : Tier.COLD;
+    }
+
+    private long jittered(Tier tier) {
+        long period = switch (tier) {
+            case HOT -> tiers.hotPeriod().toNanos();
+            case WARM -> tiers.warmPeriod().toNanos();
+            case COLD -> tiers.coldPeriod().toNanos();
+        };
+        double offset = tiers.jitter() * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return (long) (period * (1 + offset));
+    }
+
+    private void moveTo(AccessState state, Tier tier) {
+        if (state.tier != tier) {
+            tierCounts.decrementAndGet(state.tier.ordinal());
+            tierCounts.incrementAndGet(tier.ordinal());
+            state.tier = tier;
+        }
+    }
+
+    /**
+     * Per-wallet read statistics.
+     */
+    private static final class AccessState {
+        private final AtomicInteger reads = new AtomicInteger();
+        private volatile long windowStartNanos;
+        private volatile Tier tier = Tier.COLD;
+        private double readsPerMinute = -1;
+
+        private AccessState(long now) {
+            this.windowStartNanos = now;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.btcwallet.balance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket.
+ *
+ * Instead of counting tokens, the bucket tracks the time at which the next
+ * token becomes free. A caller reserves that slot with a CAS and sleeps until
+ * it arrives; an idle bucket accumulates at most {@code burst} tokens. Sleeping
+ * is cheap on virtual threads, so callers simply block.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong nextFreeNanos;
+
+    /**
+     * Creates a new TokenBucketRateLimiter.
+     *
+     * @param permitsPerSecond Sustained rate
+     * @param burst Tokens an idle bucket can accumulate
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be at least 1");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = intervalNanos * (burst - 1);
+        // Start with a full bucket
+        this.nextFreeNanos = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    /**
+     * Takes one token, sleeping until it is available.
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long now = System.nanoTime();
+        long slot;
+        while (true) {
+            long next = nextFreeNanos.get();
+            slot = Math.max(next, now - burstNanos);
+            if (nextFreeNanos.compareAndSet(next, slot + intervalNanos)) {
+                break;
+            }
+        }
+        long waitNanos = slot - now;
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
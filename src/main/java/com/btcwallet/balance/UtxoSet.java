@@ -0,0 +1,716 @@
+package com.btcwallet.balance;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.bitcoinj.core.Coin;
+
+/**
+ * A wallet's unspent outputs stored column by column in primitive arrays.
+ *
+ * Transaction hashes are kept as 32 raw bytes each in one shared array,
+ * values, output indices and confirmations in {@code long[]}/{@code int[]}
+ * columns. Output scripts are stored once per distinct script (a wallet
+ * usually pays to a single address) and referenced by position. This takes
+ * roughly 60 bytes per UTXO instead of the ~300 bytes of a
+ * {@link WalletBalance.UTXO} with its strings and {@link Coin}.
+ *
+ * The per-position accessors and {@link #copyHash(int, byte[], int)} do not
+ * allocate, and the confirmed/unconfirmed totals are computed once when the
+ * set is built. {@link #asList()} materializes {@link WalletBalance.UTXO}
+ * objects on access for callers that still need them.
+ *
+ * For coin selection the set also keeps its positions in ascending value
+ * order, built on first use. {@link #ceilingRank(long)} finds the smallest
+ * UTXO covering a target by binary search, and ranks give range scans in
+ * value order. Applying a delta merges the changed UTXOs into the existing
+ * order rather than sorting again.
+ *
+ * Hashes or scripts that are not hex (only seen in hand-built balances) are
+ * kept as text in a side array allocated on first use, so every UTXO
+ * round-trips unchanged. Instances are immutable; use {@link #builder(int)}
+ * or {@link #apply(BalanceDelta)} to derive new ones.
+ */
+public final class UtxoSet {
+
+    /** Size of a transaction hash in bytes. */
+    public static final int HASH_LENGTH = 32;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    public static final UtxoSet EMPTY = builder(0).build();
+
+    private final int size;
+    private final byte[] hashes;
+    private final String[] textHashes;
+    private final int[] outputIndices;
+    private final long[] values;
+    private final int[] confirmations;
+    private final int[] scriptRefs;
+    private final byte[][] scripts;
+    private final String[] scriptTexts;
+    private final long confirmedValue;
+    private final long unconfirmedValue;
+    // Derived on demand; racing threads compute the same order
+    private volatile ValueOrder valueOrder;
+
+    private UtxoSet(Builder builder) {
+        this.size = builder.size;
+        this.hashes = Arrays.copyOf(builder.hashes, size * HASH_LENGTH);
+        this.textHashes = builder.textHashes != null ? Arrays.copyOf(builder.textHashes, size) : null;
+        this.outputIndices = Arrays.copyOf(builder.outputIndices, size);
+        this.values = Arrays.copyOf(builder.values, size);
+        this.confirmations = Arrays.copyOf(builder.confirmations, size);
+        this.scriptRefs = Arrays.copyOf(builder.scriptRefs, size);
+        this.scripts = builder.scripts.toArray(new byte[0][]);
+        this.scriptTexts = builder.scriptTexts.toArray(new String[0]);
+
+        long confirmedSum = 0;
+        long unconfirmedSum = 0;
+        for (int i = 0; i < size; i++) {
+            if (confirmations[i] > 0) {
+                confirmedSum += values[i];
+            } else {
+                unconfirmedSum += values[i];
+            }
+        }
+        this.confirmedValue = confirmedSum;
+        this.unconfirmedValue = unconfirmedSum;
+    }
+
+    /**
+     * Creates a builder.
+     *
+     * @param expectedSize Expected number of UTXOs, used to size the columns
+     * @return Empty builder
+     */
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    /**
+     * Copies UTXO objects into a compact set.
+     *
+     * @param utxos UTXOs in order
+     * @return Compact set holding the same UTXOs
+     */
+    public static UtxoSet of(List<WalletBalance.UTXO> utxos) {
+        Builder builder = builder(utxos.size());
+        for (WalletBalance.UTXO utxo : utxos) {
+            builder.add(utxo);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long valueAt(int position) {
+        checkPosition(position);
+        return values[position];
+    }
+
+    public int outputIndexAt(int position) {
+        checkPosition(position);
+        return outputIndices[position];
+    }
+
+    public int confirmationsAt(int position) {
+        checkPosition(position);
+        return confirmations[position];
+    }
+
+    /**
+     * Copies the raw 32-byte transaction hash at a position, in the same byte
+     * order as its hex form.
+     *
+     * @param position UTXO position
+     * @param dest Destination array
+     * @param offset Offset in the destination
+     * @return false if the hash is only known as non-hex text
+     */
+    public boolean copyHash(int position, byte[] dest, int offset) {
+        checkPosition(position);
+        if (textHashes != null && textHashes[position] != null) {
+            return false;
+        }
+        System.arraycopy(hashes, position * HASH_LENGTH, dest, offset, HASH_LENGTH);
+        return true;
+    }
+
+    /**
+     * Gets the transaction hash at a position as text.
+     *
+     * @param position UTXO position
+     * @return Hex transaction hash
+     */
+    public String transactionHashAt(int position) {
+        checkPosition(position);
+        if (textHashes != null && textHashes[position] != null) {
+            return textHashes[position];
+        }
+        char[] hex = new char[HASH_LENGTH * 2];
+        int base = position * HASH_LENGTH;
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            int b = hashes[base + i] & 0xff;
+            hex[i * 2] = HEX_DIGITS[b >>> 4];
+            hex[i * 2 + 1] = HEX_DIGITS[b & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Gets the output script at a position. The text is shared by all UTXOs
+     * paying to the same script, so this does not allocate.
+     *
+     * @param position UTXO position
+     * @return Hex of the raw script, or the original text for non-hex scripts
+     */
+    public String scriptPubKeyAt(int position) {
+        checkPosition(position);
+        return scriptTexts[scriptRefs[position]];
+    }
+
+    /**
+     * Gets the outpoint at a position.
+     *
+     * @param position UTXO position
+     * @return {@code txHash:index}
+     */
+    public String outpointAt(int position) {
+        return transactionHashAt(position) + ":" + outputIndexAt(position);
+    }
+
+    /**
+     * Materializes the UTXO at a position.
+     *
+     * @param position UTXO position
+     * @return UTXO object
+     */
+    public WalletBalance.UTXO get(int position) {
+        return new WalletBalance.UTXO(transactionHashAt(position), outputIndexAt(position),
+            Coin.valueOf(valueAt(position)), scriptPubKeyAt(position), confirmationsAt(position));
+    }
+
+    /**
+     * Finds a UTXO by outpoint with a linear scan.
+     *
+     * @param transactionHash Transaction hash
+     * @param outputIndex Output index
+     * @return Position, or -1 if absent
+     */
+    public int indexOf(String transactionHash, int outputIndex) {
+        for (int i = 0; i < size; i++) {
+            if (outputIndices[i] == outputIndex && transactionHashAt(i).equals(transactionHash)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long totalValue() {
+        return confirmedValue + unconfirmedValue;
+    }
+
+    public long confirmedValue() {
+        return confirmedValue;
+    }
+
+    public long unconfirmedValue() {
+        return unconfirmedValue;
+    }
+
+    /**
+     * Gets a read-only list view. Elements are created on each access.
+     *
+     * @return List view of the UTXOs
+     */
+    public List<WalletBalance.UTXO> asList() {
+        return new ListView();
+    }
+
+    /**
+     * Applies a pushed UTXO change. Upserted UTXOs replace existing ones with the
+     * same outpoint in place; new ones are appended.
+     *
+     * @param delta Change to apply
+     * @return New set, or this set if the delta changes nothing
+     */
+    public UtxoSet apply(BalanceDelta delta) {
+        if (delta.upserted().isEmpty() && delta.removed().isEmpty()) {
+            return this;
+        }
+        Map<String, WalletBalance.UTXO> upserts = new HashMap<>();
+        Set<Integer> touchedIndices = new HashSet<>();
+        for (WalletBalance.UTXO utxo : delta.upserted()) {
+            upserts.put(utxo.getOutpoint(), utxo);
+            touchedIndices.add(utxo.getOutputIndex());
+        }
+        for (String outpoint : delta.removed()) {
+            int separator = outpoint.lastIndexOf(':');
+            if (separator >= 0) {
+                try {
+                    touchedIndices.add(Integer.parseInt(outpoint.substring(separator + 1)));
+                } catch (NumberFormatException e) {
+                    // Cannot match any stored UTXO
+                }
+            }
+        }
+
+        Builder builder = builder(size + upserts.size());
+        // New position of every kept entry, -1 if removed or replaced
+        int[] moved = new int[size];
+        int[] added = new int[delta.upserted().size()];
+        int addedCount = 0;
+        for (int i = 0; i < size; i++) {
+            moved[i] = -1;
+            // Only outputs whose index appears in the delta need their outpoint built
+            if (!touchedIndices.contains(outputIndices[i])) {
+                moved[i] = builder.size();
+                builder.copy(this, i);
+                continue;
+            }
+            String outpoint = outpointAt(i);
+            WalletBalance.UTXO replacement = upserts.remove(outpoint);
+            if (replacement != null) {
+                added[addedCount++] = builder.size();
+                builder.add(replacement);
+            } else if (!delta.removed().contains(outpoint)) {
+                moved[i] = builder.size();
+                builder.copy(this, i);
+            }
+        }
+        for (WalletBalance.UTXO utxo : delta.upserted()) {
+            WalletBalance.UTXO latest = upserts.remove(utxo.getOutpoint());
+            if (latest != null) {
+                added[addedCount++] = builder.size();
+                builder.add(latest);
+            }
+        }
+        UtxoSet updated = builder.build();
+        ValueOrder order = valueOrder;
+        if (order != null) {
+            updated.valueOrder = order.update(moved, Arrays.copyOf(added, addedCount), updated.values);
+        }
+        return updated;
+    }
+
+    /**
+     * Finds the smallest UTXO worth at least the target in ascending value
+     * order. Runs in O(log n) once the value order exists.
+     *
+     * @param target Minimum value in satoshis
+     * @return Rank in value order, or {@link #size()} if every UTXO is smaller
+     */
+    public int ceilingRank(long target) {
+        long[] sorted = valueOrder().values;
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the position of the UTXO at a rank in ascending value order. Ranks
+     * {@code ceilingRank(min)} up to {@code ceilingRank(max + 1)} cover the UTXOs
+     * worth between {@code min} and {@code max}.
+     *
+     * @param rank Rank, 0 for the smallest UTXO
+     * @return Position in this set
+     */
+    public int positionAtRank(int rank) {
+        checkPosition(rank);
+        return valueOrder().positions[rank];
+    }
+
+    /**
+     * Gets the value of the UTXO at a rank in ascending value order.
+     *
+     * @param rank Rank, 0 for the smallest UTXO
+     * @return Value in satoshis
+     */
+    public long valueAtRank(int rank) {
+        checkPosition(rank);
+        return valueOrder().values[rank];
+    }
+
+    /**
+     * Gets the value order, sorting on first use. Sets derived with
+     * {@link #apply(BalanceDelta)} inherit it by merging instead of sorting.
+     */
+    private ValueOrder valueOrder() {
+        ValueOrder order = valueOrder;
+        if (order == null) {
+            order = ValueOrder.sort(values, size);
+            valueOrder = order;
+        }
+        return order;
+    }
+
+    /**
+     * Estimates the heap retained by this set.
+     *
+     * @return Approximate size in bytes
+     */
+    public long estimatedBytes() {
+        long bytes = 64 + 16L + hashes.length + 4 * 16L + size * (4L + 8 + 4 + 4);
+        if (textHashes != null) {
+            bytes += 16 + 4L * size;
+        }
+        for (byte[] script : scripts) {
+            bytes += 16 + script.length;
+        }
+        for (String text : scriptTexts) {
+            bytes += 40 + text.length();
+        }
+        return bytes;
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of bounds for size " + size);
+        }
+    }
+
+    private boolean sameHash(int position, UtxoSet other, int otherPosition) {
+        String text = textHashes != null ? textHashes[position] : null;
+        String otherText = other.textHashes != null ? other.textHashes[otherPosition] : null;
+        if (text != null || otherText != null) {
+            return text != null && text.equals(otherText);
+        }
+        return Arrays.equals(hashes, position * HASH_LENGTH, (position + 1) * HASH_LENGTH,
+            other.hashes, otherPosition * HASH_LENGTH, (otherPosition + 1) * HASH_LENGTH);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UtxoSet that = (UtxoSet) o;
+        if (size != that.size || confirmedValue != that.confirmedValue || unconfirmedValue != that.unconfirmedValue) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (values[i] != that.values[i] ||
+                    outputIndices[i] != that.outputIndices[i] ||
+                    confirmations[i] != that.confirmations[i] ||
+                    !sameHash(i, that, i) ||
+                    !scriptPubKeyAt(i).equals(that.scriptPubKeyAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = size;
+        for (int i = 0; i < size; i++) {
+            result = 31 * result + Long.hashCode(values[i]);
+            result = 31 * result + outputIndices[i];
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "UtxoSet{size=" + size + ", confirmed=" + confirmedValue + ", unconfirmed=" + unconfirmedValue + '}';
+    }
+
+    /**
+     * Positions sorted by ascending value, with the values alongside so binary
+     * searches stay within one array.
+     */
+    private static final class ValueOrder {
+        private final int[] positions;
+        private final long[] values;
+
+        private ValueOrder(int[] positions, long[] values) {
+            this.positions = positions;
+            this.values = values;
+        }
+
+        static ValueOrder sort(long[] values, int size) {
+            int[] positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                positions[i] = i;
+            }
+            return of(mergeSort(positions, values), values);
+        }
+
+        private static ValueOrder of(int[] positions, long[] values) {
+            long[] sorted = new long[positions.length];
+            for (int rank = 0; rank < positions.length; rank++) {
+                sorted[rank] = values[positions[rank]];
+            }
+            return new ValueOrder(positions, sorted);
+        }
+
+        /**
+         * Carries the order over to a derived set: kept entries stay in order
+         * under their new positions, added entries are sorted and merged in.
+         *
+         * @param moved New position of each old position, -1 if gone
+         * @param added New positions of added entries
+         * @param newValues Values of the derived set
+         */
+        ValueOrder update(int[] moved, int[] added, long[] newValues) {
+            int[] kept = new int[positions.length];
+            int keptCount = 0;
+            for (int position : positions) {
+                if (moved[position] >= 0) {
+                    kept[keptCount++] = moved[position];
+                }
+            }
+            int[] addedSorted = mergeSort(added, newValues);
+            int[] merged = new int[keptCount + addedSorted.length];
+            int k = 0;
+            int a = 0;
+            for (int rank = 0; rank < merged.length; rank++) {
+                if (a == addedSorted.length
+                        || (k < keptCount && newValues[kept[k]] <= newValues[addedSorted[a]])) {
+                    merged[rank] = kept[k++];
+                } else {
+                    merged[rank] = addedSorted[a++];
+                }
+            }
+            return of(merged, newValues);
+        }
+
+        /**
+         * Stable bottom-up merge sort of positions by value.
+         */
+        private static int[] mergeSort(int[] positions, long[] values) {
+            int[] source = positions.clone();
+            int[] target = new int[source.length];
+            for (int width = 1; width < source.length; width *= 2) {
+                for (int start = 0; start < source.length; start += 2 * width) {
+                    int middle = Math.min(start + width, source.length);
+                    int end = Math.min(start + 2 * width, source.length);
+                    int left = start;
+                    int right = middle;
+                    for (int out = start; out < end; out++) {
+                        if (right == end || (left < middle && values[source[left]] <= values[source[right]])) {
+                            target[out] = source[left++];
+                        } else {
+                            target[out] = source[right++];
+                        }
+                    }
+                }
+                int[] swap = source;
+                source = target;
+                target = swap;
+            }
+            return source;
+        }
+    }
+
+    private final class ListView extends AbstractList<WalletBalance.UTXO> implements RandomAccess {
+
+        @Override
+        public WalletBalance.UTXO get(int index) {
+            return UtxoSet.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        // Upper case is kept as text so it renders back unchanged
+        return -1;
+    }
+
+    /**
+     * Decodes hex text into a destination array.
+     *
+     * @return false if the text is not lower-case hex of exactly {@code length} bytes
+     */
+    static boolean decodeHex(String text, byte[] dest, int offset, int length) {
+        if (text.length() != length * 2) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            int high = hexValue(text.charAt(i * 2));
+            int low = hexValue(text.charAt(i * 2 + 1));
+            if (high < 0 || low < 0) {
+                return false;
+            }
+            dest[offset + i] = (byte) ((high << 4) | low);
+        }
+        return true;
+    }
+
+    private static String encodeHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            hex[i * 2] = HEX_DIGITS[b >>> 4];
+            hex[i * 2 + 1] = HEX_DIGITS[b & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Accumulates UTXOs column by column. Not thread-safe.
+     */
+    public static final class Builder {
+        private int size;
+        private byte[] hashes;
+        private String[] textHashes;
+        private int[] outputIndices;
+        private long[] values;
+        private int[] confirmations;
+        private int[] scriptRefs;
+        private final List<byte[]> scripts = new ArrayList<>();
+        private final List<String> scriptTexts = new ArrayList<>();
+        private final Map<Object, Integer> scriptIds = new HashMap<>();
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 4);
+            hashes = new byte[capacity * HASH_LENGTH];
+            outputIndices = new int[capacity];
+            values = new long[capacity];
+            confirmations = new int[capacity];
+            scriptRefs = new int[capacity];
+        }
+
+        /**
+         * Adds a UTXO from its raw parts, as read from the chain.
+         *
+         * @param hash Array holding the 32-byte transaction hash
+         * @param hashOffset Offset of the hash in that array
+         * @param outputIndex Output index
+         * @param value Value in satoshis
+         * @param script Raw output script
+         * @param confirmations Confirmations
+         * @return This builder
+         */
+        public Builder add(byte[] hash, int hashOffset, int outputIndex, long value, byte[] script, int confirmations) {
+            int position = append(outputIndex, value, confirmations);
+            System.arraycopy(hash, hashOffset, hashes, position * HASH_LENGTH, HASH_LENGTH);
+            scriptRefs[position] = rawScriptRef(script);
+            return this;
+        }
+
+        /**
+         * Adds a UTXO object.
+         *
+         * @param utxo UTXO
+         * @return This builder
+         */
+        public Builder add(WalletBalance.UTXO utxo) {
+            int position = append(utxo.getOutputIndex(), utxo.getValue().value, utxo.getConfirmations());
+            if (!decodeHex(utxo.getTransactionHash(), hashes, position * HASH_LENGTH, HASH_LENGTH)) {
+                if (textHashes == null) {
+                    textHashes = new String[outputIndices.length];
+                }
+                textHashes[position] = utxo.getTransactionHash();
+            }
+            scriptRefs[position] = textScriptRef(utxo.getScriptPubKey());
+            return this;
+        }
+
+        private Builder copy(UtxoSet source, int position) {
+            int target = append(source.outputIndices[position], source.values[position],
+                source.confirmations[position]);
+            System.arraycopy(source.hashes, position * HASH_LENGTH, hashes, target * HASH_LENGTH, HASH_LENGTH);
+            if (source.textHashes != null && source.textHashes[position] != null) {
+                if (textHashes == null) {
+                    textHashes = new String[outputIndices.length];
+                }
+                textHashes[target] = source.textHashes[position];
+            }
+            scriptRefs[target] = textScriptRef(source.scriptPubKeyAt(position));
+            return this;
+        }
+
+        private int append(int outputIndex, long value, int confirmationCount) {
+            if (size == outputIndices.length) {
+                int capacity = size * 2;
+                hashes = Arrays.copyOf(hashes, capacity * HASH_LENGTH);
+                textHashes = textHashes != null ? Arrays.copyOf(textHashes, capacity) : null;
+                outputIndices = Arrays.copyOf(outputIndices, capacity);
+                values = Arrays.copyOf(values, capacity);
+                confirmations = Arrays.copyOf(confirmations, capacity);
+                scriptRefs = Arrays.copyOf(scriptRefs, capacity);
+            }
+            outputIndices[size] = outputIndex;
+            values[size] = value;
+            confirmations[size] = confirmationCount;
+            return size++;
+        }
+
+        private int rawScriptRef(byte[] script) {
+            Integer id = scriptIds.get(ByteBuffer.wrap(script));
+            if (id != null) {
+                return id;
+            }
+            byte[] copy = script.clone();
+            String text = encodeHex(copy);
+            return register(ByteBuffer.wrap(copy), text, copy);
+        }
+
+        private int textScriptRef(String text) {
+            Integer id = scriptIds.get(text);
+            if (id != null) {
+                return id;
+            }
+            byte[] raw = new byte[text.length() / 2];
+            if (text.length() % 2 == 0 && decodeHex(text, raw, 0, raw.length)) {
+                // Hex of a raw script: share the entry with identical raw scripts
+                id = scriptIds.get(ByteBuffer.wrap(raw));
+                if (id == null) {
+                    id = register(ByteBuffer.wrap(raw), text, raw);
+                }
+                scriptIds.put(text, id);
+                return id;
+            }
+            return register(text, text, text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private int register(Object key, String text, byte[] raw) {
+            int id = scripts.size();
+            scripts.add(raw);
+            scriptTexts.add(text);
+            scriptIds.put(key, id);
+            if (!key.equals(text)) {
+                scriptIds.put(text, id);
+            }
+            return id;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public UtxoSet build() {
+            return new UtxoSet(this);
+        }
+    }
+}
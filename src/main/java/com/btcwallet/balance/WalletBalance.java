@@ -17,7 +17,7 @@ public class WalletBalance {
     private final Coin totalBalance;
     private final Instant lastUpdated;
     private final String blockchainHeight;
-    private final List<UTXO> utxos;
+    private final UtxoSet utxos;
 
     /**
      * Creates a new WalletBalance.
@@ -38,7 +38,29 @@ public class WalletBalance {
         this.totalBalance = totalBalance;
         this.lastUpdated = lastUpdated;
         this.blockchainHeight = blockchainHeight;
-        this.utxos = List.copyOf(utxos);
+        this.utxos = UtxoSet.of(utxos);
+    }
+
+    /**
+     * Creates a new WalletBalance over a compact UTXO set.
+     *
+     * @param walletId Wallet ID
+     * @param confirmedBalance Confirmed balance (in satoshis)
+     * @param unconfirmedBalance Unconfirmed balance (in satoshis)
+     * @param totalBalance Total balance (in satoshis)
+     * @param lastUpdated When the balance was last updated
+     * @param blockchainHeight Current blockchain height
+     * @param utxos Unspent transaction outputs
+     */
+    public WalletBalance(String walletId, Coin confirmedBalance, Coin unconfirmedBalance,
+                        Coin totalBalance, Instant lastUpdated, String blockchainHeight, UtxoSet utxos) {
+        this.walletId = walletId;
+        this.confirmedBalance = confirmedBalance;
+        this.unconfirmedBalance = unconfirmedBalance;
+        this.totalBalance = totalBalance;
+        this.lastUpdated = lastUpdated;
+        this.blockchainHeight = blockchainHeight;
+        this.utxos = utxos;
     }
 
     /**
@@ -123,11 +145,21 @@ public class WalletBalance {
     }
 
     /**
-     * Gets the list of unspent transaction outputs.
+     * Gets the list of unspent transaction outputs. The list is a view over
+     * {@link #utxoSet()} that creates the UTXO objects as they are read.
      *
      * @return List of UTXOs
      */
     public List<UTXO> getUtxos() {
+        return utxos.asList();
+    }
+
+    /**
+     * Gets the unspent transaction outputs in their compact form.
+     *
+     * @return UTXO set
+     */
+    public UtxoSet utxoSet() {
         return utxos;
     }
 
@@ -166,9 +198,26 @@ public class WalletBalance {
      * @return Total UTXO value
      */
     public Coin getUtxoTotalValue() {
-        return utxos.stream()
-                .map(UTXO::getValue)
-                .reduce(Coin.ZERO, Coin::add);
+        return Coin.valueOf(utxos.totalValue());
+    }
+
+    /**
+     * Applies a pushed UTXO change and recomputes the balances from the resulting
+     * UTXO set. UTXOs with at least one confirmation count as confirmed.
+     *
+     * @param delta Change for this wallet
+     * @return Updated balance
+     */
+    public WalletBalance apply(BalanceDelta delta) {
+        if (!walletId.equals(delta.walletId())) {
+            throw new IllegalArgumentException("Delta for wallet " + delta.walletId() + " applied to " + walletId);
+        }
+        UtxoSet updated = utxos.apply(delta);
+        Coin confirmed = Coin.valueOf(updated.confirmedValue());
+        Coin unconfirmed = Coin.valueOf(updated.unconfirmedValue());
+        String height = delta.blockchainHeight() != null ? delta.blockchainHeight() : blockchainHeight;
+        return new WalletBalance(walletId, confirmed, unconfirmed, confirmed.add(unconfirmed), Instant.now(),
+                height, updated);
     }
 
     @Override
@@ -205,7 +254,9 @@ public class WalletBalance {
     }
 
     /**
-     * Represents an Unspent Transaction Output (UTXO).
+     * Represents an Unspent Transaction Output (UTXO). Balances store UTXOs in a
+     * {@link UtxoSet}; objects of this class are created when they are read.
+     * For outputs read from the chain the script is the hex of its raw bytes.
      */
     public static class UTXO {
         private final String transactionHash;
@@ -229,6 +280,13 @@ public class WalletBalance {
         public String getScriptPubKey() { return scriptPubKey; }
         public int getConfirmations() { return confirmations; }
 
+        /**
+         * Gets the outpoint identifying this output.
+         *
+         * @return {@code txHash:index}
+         */
+        public String getOutpoint() { return transactionHash + ":" + outputIndex; }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
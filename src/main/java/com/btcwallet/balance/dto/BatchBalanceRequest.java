@@ -0,0 +1,6 @@
+package com.btcwallet.balance.dto;
+
+import java.util.List;
+
+public record BatchBalanceRequest(List<String> walletIds) {
+}
@@ -1,5 +1,7 @@
 package com.btcwallet.config;
 
+import com.btcwallet.balance.BalanceCachePolicy;
+import com.btcwallet.balance.RefreshTiers;
 import com.btcwallet.exception.BitcoinConfigurationException;
 import org.bitcoinj.params.MainNetParams;
 import org.bitcoinj.params.TestNet3Params;
@@ -7,6 +9,7 @@ import org.bitcoinj.core.NetworkParameters;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.Properties;
 
 /**
@@ -21,6 +24,20 @@ public class BitcoinConfig {
     private final int maxConnections;
     private final boolean enabled;
     private final boolean localhostPeer;
+    private final String blockStorePath;
+    private final boolean walletStoreEnabled;
+    private final String walletStorePath;
+    private final BalanceCachePolicy balanceCachePolicy;
+    private final long balanceCacheMaxWeight;
+    private final boolean balanceCacheChainEvents;
+    private final int balanceRefreshConcurrency;
+    private final double balanceRefreshRatePerSecond;
+    private final RefreshTiers balanceRefreshTiers;
+    private final boolean paymentQueueEnabled;
+    private final String paymentQueuePath;
+    private final Duration paymentQueueWindow;
+    private final int paymentQueueMaxBatch;
+    private final int mempoolMaxAncestors;
 
     /**
      * Creates a new BitcoinConfig by loading from bitcoin.properties.
@@ -53,6 +70,39 @@ public class BitcoinConfig {
                 props.getProperty("bitcoin.node.max_connections", "3"));
             this.localhostPeer = Boolean.parseBoolean(
                 props.getProperty("bitcoin.node.localhost_peer", "true"));
+            this.blockStorePath = props.getProperty("bitcoin.node.block_store_path", "data/chain");
+            this.walletStoreEnabled = Boolean.parseBoolean(
+                props.getProperty("wallet.store.enabled", "false"));
+            this.walletStorePath = props.getProperty("wallet.store.path", "data/wallets");
+            this.balanceCachePolicy = new BalanceCachePolicy(
+                Duration.ofSeconds(Long.parseLong(props.getProperty("balance.cache.soft_ttl_seconds", "300"))),
+                Duration.ofSeconds(Long.parseLong(props.getProperty("balance.cache.hard_ttl_seconds", "1800"))),
+                Double.parseDouble(props.getProperty("balance.cache.refresh_ahead_ratio", "0.8")),
+                Integer.parseInt(props.getProperty("balance.cache.refresh_ahead_reads", "10")));
+            this.balanceCacheMaxWeight = Long.parseLong(
+                props.getProperty("balance.cache.max_weight", "500000"));
+            this.balanceCacheChainEvents = Boolean.parseBoolean(
+                props.getProperty("balance.cache.chain_events", "false"));
+            this.balanceRefreshConcurrency = Integer.parseInt(
+                props.getProperty("balance.refresh.concurrency", "32"));
+            this.balanceRefreshRatePerSecond = Double.parseDouble(
+                props.getProperty("balance.refresh.rate_per_second", "50"));
+            this.balanceRefreshTiers = new RefreshTiers(
+                Duration.ofSeconds(Long.parseLong(props.getProperty("balance.refresh.hot_seconds", "30"))),
+                Duration.ofSeconds(Long.parseLong(props.getProperty("balance.refresh.warm_seconds", "300"))),
+                Duration.ofSeconds(Long.parseLong(props.getProperty("balance.refresh.cold_seconds", "3600"))),
+                Double.parseDouble(props.getProperty("balance.refresh.hot_reads_per_minute", "6")),
+                Double.parseDouble(props.getProperty("balance.refresh.warm_reads_per_minute", "0.1")),
+                Double.parseDouble(props.getProperty("balance.refresh.jitter", "0.1")));
+            this.paymentQueueEnabled = Boolean.parseBoolean(
+                props.getProperty("payment.queue.enabled", "false"));
+            this.paymentQueuePath = props.getProperty("payment.queue.path", "data/payments");
+            this.paymentQueueWindow = Duration.ofSeconds(Long.parseLong(
+                props.getProperty("payment.queue.window_seconds", "30")));
+            this.paymentQueueMaxBatch = Integer.parseInt(
+                props.getProperty("payment.queue.max_batch", "500"));
+            this.mempoolMaxAncestors = Integer.parseInt(
+                props.getProperty("mempool.max_ancestors", "25"));
 
         } catch (IOException e) {
             throw new BitcoinConfigurationException(
@@ -60,6 +110,9 @@ public class BitcoinConfig {
         } catch (NumberFormatException e) {
             throw new BitcoinConfigurationException(
                 "Invalid number format in bitcoin.properties", e);
+        } catch (IllegalArgumentException e) {
+            throw new BitcoinConfigurationException(
+                "Invalid balance cache or refresh settings in bitcoin.properties: " + e.getMessage(), e);
         }
     }
 
@@ -126,6 +179,134 @@ public class BitcoinConfig {
         return localhostPeer; 
     }
 
+    /**
+     * Gets the directory holding the persistent SPV header store.
+     * 
+     * @return header store directory
+     */
+    public String getBlockStorePath() {
+        return blockStorePath;
+    }
+
+    /**
+     * Checks if wallets should be persisted to the durable wallet store.
+     * 
+     * @return true if the wallet store is enabled
+     */
+    public boolean isWalletStoreEnabled() {
+        return walletStoreEnabled;
+    }
+
+    /**
+     * Gets the directory holding the wallet store files.
+     * 
+     * @return wallet store directory
+     */
+    public String getWalletStorePath() {
+        return walletStorePath;
+    }
+
+    /**
+     * Gets the balance cache freshness policy.
+     * 
+     * @return soft/hard TTL and refresh-ahead settings
+     */
+    public BalanceCachePolicy getBalanceCachePolicy() {
+        return balanceCachePolicy;
+    }
+
+    /**
+     * Gets the maximum balance cache weight, counted as one per cached
+     * balance plus one per UTXO it holds.
+     * 
+     * @return maximum cache weight
+     */
+    public long getBalanceCacheMaxWeight() {
+        return balanceCacheMaxWeight;
+    }
+
+    /**
+     * Checks if cached balances should be kept current by chain events instead of TTLs.
+     * Only takes effect when the node connection is enabled.
+     * 
+     * @return true if chain events drive balance cache updates
+     */
+    public boolean isBalanceCacheChainEvents() {
+        return balanceCacheChainEvents && enabled;
+    }
+
+    /**
+     * Gets the maximum number of balances refreshed concurrently by the background refresh.
+     * 
+     * @return refresh concurrency cap
+     */
+    public int getBalanceRefreshConcurrency() {
+        return balanceRefreshConcurrency;
+    }
+
+    /**
+     * Gets the maximum rate at which the background refresh queries the node.
+     * 
+     * @return refreshes per second
+     */
+    public double getBalanceRefreshRatePerSecond() {
+        return balanceRefreshRatePerSecond;
+    }
+
+    /**
+     * Gets the background refresh tiers.
+     * 
+     * @return refresh periods and read-rate thresholds per tier
+     */
+    public RefreshTiers getBalanceRefreshTiers() {
+        return balanceRefreshTiers;
+    }
+
+    /**
+     * Checks if payments may be queued for batching.
+     * 
+     * @return true if the payment queue is enabled
+     */
+    public boolean isPaymentQueueEnabled() {
+        return paymentQueueEnabled;
+    }
+
+    /**
+     * Gets the directory holding the queued payment journal.
+     * 
+     * @return payment queue directory
+     */
+    public String getPaymentQueuePath() {
+        return paymentQueuePath;
+    }
+
+    /**
+     * Gets the longest a queued payment waits for its batch.
+     * 
+     * @return batching window
+     */
+    public Duration getPaymentQueueWindow() {
+        return paymentQueueWindow;
+    }
+
+    /**
+     * Gets the number of queued payments that triggers a batch before the window ends.
+     * 
+     * @return payments per batch
+     */
+    public int getPaymentQueueMaxBatch() {
+        return paymentQueueMaxBatch;
+    }
+
+    /**
+     * Gets the most unconfirmed transactions of ours a payment may chain, counting itself.
+     * 
+     * @return ancestor limit
+     */
+    public int getMempoolMaxAncestors() {
+        return mempoolMaxAncestors;
+    }
+
     /**
      * Gets the appropriate NetworkParameters based on testnet setting.
      * 
@@ -145,6 +326,20 @@ public class BitcoinConfig {
                 ", maxConnections=" + maxConnections +
                 ", enabled=" + enabled +
                 ", localhostPeer=" + localhostPeer +
+                ", blockStorePath='" + blockStorePath + '\'' +
+                ", walletStoreEnabled=" + walletStoreEnabled +
+                ", walletStorePath='" + walletStorePath + '\'' +
+                ", balanceCachePolicy=" + balanceCachePolicy +
+                ", balanceCacheMaxWeight=" + balanceCacheMaxWeight +
+                ", balanceCacheChainEvents=" + balanceCacheChainEvents +
+                ", balanceRefreshConcurrency=" + balanceRefreshConcurrency +
+                ", balanceRefreshRatePerSecond=" + balanceRefreshRatePerSecond +
+                ", balanceRefreshTiers=" + balanceRefreshTiers +
+                ", paymentQueueEnabled=" + paymentQueueEnabled +
+                ", paymentQueuePath='" + paymentQueuePath + '\'' +
+                ", paymentQueueWindow=" + paymentQueueWindow +
+                ", paymentQueueMaxBatch=" + paymentQueueMaxBatch +
+                ", mempoolMaxAncestors=" + mempoolMaxAncestors +
                 '}';
     }
 }
\ No newline at end of file
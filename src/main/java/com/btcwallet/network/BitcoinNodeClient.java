@@ -1,30 +1,94 @@
 package com.btcwallet.network;
 
+import com.btcwallet.balance.BalanceDelta;
 import com.btcwallet.balance.WalletBalance;
 import com.btcwallet.config.BitcoinConfig;
 import com.btcwallet.wallet.Wallet;
 
 import org.bitcoinj.core.*;
+import org.bitcoinj.core.listeners.DownloadProgressTracker;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.bitcoinj.store.BlockStore;
 import org.bitcoinj.store.BlockStoreException;
-import org.bitcoinj.store.MemoryBlockStore;
+import org.bitcoinj.store.SPVBlockStore;
+import org.bitcoinj.utils.Threading;
+import org.bitcoinj.wallet.UnreadableWalletException;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.file.Files;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * Service for connecting to and communicating with Bitcoin nodes.
  * Uses BitcoinJ to establish peer connections and broadcast transactions.
+ *
+ * All wallet addresses are tracked by a single long-lived watching wallet that
+ * is attached to the block chain and peer group once, so balance queries are
+ * in-memory lookups against its state rather than a fresh sync per call.
+ *
+ * The watching wallet is saved next to the header store and the two resume
+ * together; a store that is not at the wallet's height makes the next start
+ * re-checkpoint the store and replay the chain for the watched addresses.
+ *
+ * An address watched after the chain has passed its creation time is scanned
+ * for in the background, on a separate chain that holds only the addresses
+ * waiting for a scan and feeds the transactions it finds to the watching
+ * wallet. Existing balances are served throughout, and addresses watched while
+ * a scan runs are coalesced into the next one.
+ *
+ * The client also maps watched addresses back to wallet IDs and pushes every
+ * change the watching wallet applies (new transactions, confirmations, double
+ * spends) to {@link ChainEventListener}s as per-wallet UTXO deltas, so cached
+ * balances can be kept current without polling.
  */
 public class BitcoinNodeClient {
+    // Delay before changes to the watching wallet are written out
+    private static final long AUTOSAVE_DELAY_SECONDS = 5;
+    // Block timestamps may run this far ahead of the clock
+    private static final long MAX_BLOCK_TIME_DRIFT_SECONDS = TimeUnit.HOURS.toSeconds(2);
+    // How often a running rescan checks whether it was stopped
+    private static final long RESCAN_POLL_SECONDS = 1;
+
     private final BitcoinConfig config;
+    private final org.bitcoinj.wallet.Wallet watchWallet;
+    private final AtomicBoolean chainDownloadStarted = new AtomicBoolean();
+    private final WatchedOutputs watchedOutputs = new WatchedOutputs();
+    private final List<ChainEventListener> chainEventListeners = new CopyOnWriteArrayList<>();
+    // Whether the watching wallet was saved by an earlier run and not reset since
+    private volatile boolean restoredWatchWallet;
+    private boolean autosaving;
+    private Supplier<? extends Collection<Wallet>> walletsToWatchOnInitialize;
     private PeerGroup peerGroup;
-    private BlockChain blockChain;
+    private volatile BlockChain blockChain;
+    private BlockStore blockStore;
+    // Addresses waiting for a history scan, and the earliest creation time among them
+    private final List<Address> pendingRescan = new ArrayList<>();
+    private long pendingRescanFromSecs = Long.MAX_VALUE;
+    private boolean rescanQueued;
+    private final ExecutorService rescanExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chain-rescan");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile PeerGroup rescanPeerGroup;
 
     /**
      * Creates a new BitcoinNodeClient with the specified configuration.
@@ -33,6 +97,53 @@ public class BitcoinNodeClient {
      */
     public BitcoinNodeClient(BitcoinConfig config) {
         this.config = config;
+        this.watchWallet = loadWatchWallet();
+        resetWatchedOutputs();
+
+        // Fired after the watching wallet has applied the change, so its UTXO state is current.
+        // Confidence events cover confirmations, depth changes and transactions turning dead;
+        // every block deepens every confirmed transaction, and those events change no UTXO.
+        watchWallet.addCoinsReceivedEventListener((wallet, tx, prevBalance, newBalance) -> publishDeltas(tx));
+        watchWallet.addCoinsSentEventListener((wallet, tx, prevBalance, newBalance) -> publishDeltas(tx));
+        watchWallet.addTransactionConfidenceEventListener((wallet, tx) -> {
+            if (!isDeepening(tx)) {
+                publishDeltas(tx);
+            }
+        });
+
+        // A scan interrupted by the last shutdown starts over
+        if (config.isEnabled()) {
+            restoreRescan();
+        }
+    }
+
+    /**
+     * Registers a listener for balance-relevant chain events.
+     * 
+     * @param listener Listener to add
+     */
+    public void addChainEventListener(ChainEventListener listener) {
+        chainEventListeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered chain event listener.
+     * 
+     * @param listener Listener to remove
+     */
+    public void removeChainEventListener(ChainEventListener listener) {
+        chainEventListeners.remove(listener);
+    }
+
+    /**
+     * Defers watching wallets until the client first initializes. Without a
+     * header store the stored wallets must all be watched before the store is
+     * checkpointed, but loading them need not hold up startup.
+     *
+     * @param wallets Supplies the wallets to watch, called once
+     */
+    public synchronized void watchOnInitialize(Supplier<? extends Collection<Wallet>> wallets) {
+        this.walletsToWatchOnInitialize = wallets;
     }
 
     /**
@@ -40,17 +151,53 @@ public class BitcoinNodeClient {
      * 
      * @throws BitcoinBroadcastException if initialization fails
      */
-    public void initialize() throws BitcoinBroadcastException {
+    public synchronized void initialize() throws BitcoinBroadcastException {
         if (!config.isEnabled()) {
             throw new BitcoinBroadcastException(
                 "Bitcoin node connection is disabled in configuration");
         }
 
         try {
-            // Create block chain with memory store
+            // Wallets deferred by watchOnInitialize date the checkpoint of a fresh store
+            if (walletsToWatchOnInitialize != null) {
+                watchWallets(walletsToWatchOnInitialize.get());
+                walletsToWatchOnInitialize = null;
+            }
+
+            // Open the persistent header store, seeding a fresh one from the bundled checkpoints
+            File blockStoreFile = getBlockStoreFile();
+            boolean freshStore = !blockStoreFile.exists();
+            if (blockStoreFile.getParentFile() != null) {
+                blockStoreFile.getParentFile().mkdirs();
+            }
+            this.blockStore = new SPVBlockStore(config.getNetworkParameters(), blockStoreFile);
+
+            // Blocks only reach the watching wallet through the chain, so a store that is not at the
+            // wallet's height (wallet file lost or saved before a crash, or reset for a rescan) is
+            // replaced by a fresh checkpoint and the chain replayed from there
+            int walletHeight = watchWallet.getLastBlockSeenHeight();
+            if (!freshStore && walletHeight != blockStore.getChainHead().getHeight()) {
+                System.out.println("🔄 Watching wallet is at height " + walletHeight + ", header store at " +
+                    blockStore.getChainHead().getHeight() + "; re-checkpointing the header store");
+                blockStore.close();
+                Files.delete(blockStoreFile.toPath());
+                this.blockStore = new SPVBlockStore(config.getNetworkParameters(), blockStoreFile);
+                freshStore = true;
+            }
+            if (freshStore) {
+                if (walletHeight >= 0) {
+                    // The replay delivers the wallet's blocks again
+                    watchWallet.reset();
+                    resetWatchedOutputs();
+                }
+                seedFromCheckpoints();
+            }
+
+            // Create block chain; the watching wallet receives its blocks
             this.blockChain = new BlockChain(
                 config.getNetworkParameters(), 
-                new MemoryBlockStore(config.getNetworkParameters())
+                watchWallet,
+                blockStore
             );
 
             // Create and configure PeerGroup
@@ -58,6 +205,19 @@ public class BitcoinNodeClient {
                 config.getNetworkParameters(), 
                 blockChain
             );
+            peerGroup.addWallet(watchWallet);
+            if (!autosaving) {
+                watchWallet.autosaveToFile(getWatchWalletFile(), AUTOSAVE_DELAY_SECONDS, TimeUnit.SECONDS, null);
+                autosaving = true;
+            }
+
+            // The watching wallet holds back confidence events while reorganizing,
+            // so listeners hear about the reorganization as a whole
+            blockChain.addReorganizeListener((splitPoint, oldBlocks, newBlocks) -> {
+                for (ChainEventListener listener : chainEventListeners) {
+                    listener.onReorganize();
+                }
+            });
 
             // Configure peer group settings
             peerGroup.setMaxConnections(config.getMaxConnections());
@@ -81,19 +241,107 @@ public class BitcoinNodeClient {
         }
     }
 
+    /**
+     * Checkpoints a fresh header store just before the earliest watched wallet was
+     * created, so the initial sync only fetches headers from that point on. The
+     * peer group derives its fast-catchup time from the same watching wallet.
+     *
+     * @throws Exception if the checkpoints cannot be read or applied
+     */
+    private void seedFromCheckpoints() throws Exception {
+        long catchupTimeSecs = watchWallet.getEarliestKeyCreationTime();
+        try (InputStream checkpoints = CheckpointManager.openStream(config.getNetworkParameters())) {
+            if (checkpoints == null) {
+                System.out.println("⚠️ No bundled checkpoints for " + config.getNetworkParameters().getId() +
+                    ", syncing headers from genesis");
+                return;
+            }
+            CheckpointManager.checkpoint(config.getNetworkParameters(), checkpoints, blockStore, catchupTimeSecs);
+            System.out.println("📍 Header store checkpointed at height " +
+                blockStore.getChainHead().getHeight() + " for catch-up from " + Instant.ofEpochSecond(catchupTimeSecs));
+        }
+    }
+
+    /**
+     * Gets the header store file for the configured network.
+     * 
+     * @return header store file
+     */
+    private File getBlockStoreFile() {
+        String network = config.getNetworkParameters().getPaymentProtocolId();
+        return new File(config.getBlockStorePath(), network + ".spvchain");
+    }
+
+    /**
+     * Gets the watching wallet file, saved next to the header store.
+     * 
+     * @return watching wallet file
+     */
+    private File getWatchWalletFile() {
+        String network = config.getNetworkParameters().getPaymentProtocolId();
+        return new File(config.getBlockStorePath(), network + ".wallet");
+    }
+
+    /**
+     * Loads the watching wallet saved by a previous run, or creates an empty one.
+     * 
+     * @return watching wallet
+     */
+    private org.bitcoinj.wallet.Wallet loadWatchWallet() {
+        File walletFile = getWatchWalletFile();
+        if (config.isEnabled() && walletFile.exists()) {
+            try {
+                org.bitcoinj.wallet.Wallet wallet = org.bitcoinj.wallet.Wallet.loadFromFile(walletFile);
+                restoredWatchWallet = true;
+                System.out.println("💼 Loaded watching wallet with " + wallet.getWatchedScripts().size() +
+                    " addresses at height " + wallet.getLastBlockSeenHeight());
+                return wallet;
+            } catch (UnreadableWalletException e) {
+                System.err.println("⚠️ Unreadable watching wallet " + walletFile + ", starting empty: " +
+                    e.getMessage());
+            }
+        }
+        return org.bitcoinj.wallet.Wallet.createBasic(config.getNetworkParameters());
+    }
+
+    private void saveWatchWallet() {
+        File walletFile = getWatchWalletFile();
+        try {
+            if (walletFile.getParentFile() != null) {
+                walletFile.getParentFile().mkdirs();
+            }
+            watchWallet.saveToFile(walletFile);
+        } catch (IOException e) {
+            System.err.println("Warning: Error saving watching wallet: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether synced chain state survives from a previous run. Without it
+     * the first connect checkpoints from the earliest watched wallet, so every
+     * wallet should be watched before that happens.
+     * 
+     * @return true if a header store and the watching wallet already exist on disk
+     */
+    public boolean hasPersistedChainState() {
+        return getBlockStoreFile().exists() && getWatchWalletFile().exists();
+    }
+
     /**
      * Connects to the configured Bitcoin node.
      * 
      * @throws BitcoinBroadcastException if connection fails
      */
-    public void connect() throws BitcoinBroadcastException {
+    public synchronized void connect() throws BitcoinBroadcastException {
         if (peerGroup == null) {
             initialize();
         }
 
         try {
             // Start peer group
-            peerGroup.start();
+            if (!peerGroup.isRunning()) {
+                peerGroup.start();
+            }
 
             // Connect to our configured node
             Peer peer = peerGroup.connectTo(new InetSocketAddress(
@@ -116,6 +364,14 @@ public class BitcoinNodeClient {
             System.out.println("✅ Connected to Bitcoin node: " + 
                 config.getNodeHost() + ":" + config.getNodePort());
 
+            // Sync once in the background; the watching wallet stays current from then on
+            if (chainDownloadStarted.compareAndSet(false, true)) {
+                peerGroup.startBlockChainDownload(new DownloadProgressTracker());
+            }
+
+            // Retry scans that failed while the node was unreachable
+            resumeRescan();
+
         } catch (TimeoutException e) {
             throw new BitcoinBroadcastException(
                 "Connection timeout after " + config.getTimeoutMillis() + "ms", e);
@@ -155,6 +411,9 @@ public class BitcoinNodeClient {
             System.out.println("📡 Successfully broadcasted transaction: " + 
                 transaction.getTxId() + " to Bitcoin network");
 
+            // Apply our own spend now instead of when a peer relays it back
+            receivePending(transaction);
+
         } catch (TimeoutException e) {
             throw new BitcoinBroadcastException(
                 "Transaction broadcast timeout after " + config.getTimeoutMillis() + "ms", e);
@@ -165,77 +424,384 @@ public class BitcoinNodeClient {
     }
 
     /**
-     * Gets the balance for a wallet by querying the Bitcoin blockchain.
+     * Hands a transaction to the watching wallet ahead of relay, so the outputs it
+     * spends and creates for watched addresses show in balances right away.
+     * Transactions that touch no watched address are ignored.
      * 
-     * @param wallet Wallet to get balance for
-     * @return WalletBalance object with balance information
-     * @throws BitcoinBroadcastException If balance cannot be retrieved
+     * @param transaction Transaction to apply as pending
      */
-    public WalletBalance getWalletBalance(Wallet wallet) throws BitcoinBroadcastException {
+    public void receivePending(Transaction transaction) {
         try {
-            // Ensure we're connected to blockchain
-            if (!isConnected()) {
-                connect();
+            watchWallet.receivePending(transaction, null);
+        } catch (VerificationException e) {
+            System.err.println("Warning: Watching wallet rejected transaction " + transaction.getTxId() +
+                ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts tracking a wallet's address in the shared watching wallet.
+     * Safe to call repeatedly; already watched addresses are ignored.
+     * 
+     * @param wallet Wallet whose address should be watched
+     */
+    public void watchWallet(Wallet wallet) {
+        watchWallets(List.of(wallet));
+    }
+
+    /**
+     * Starts tracking several wallets' addresses with a single bloom filter update.
+     * If the watching wallet has already seen blocks from after one of the
+     * wallets was created, a background scan picks up its earlier history.
+     * 
+     * @param wallets Wallets whose addresses should be watched
+     */
+    public void watchWallets(Collection<Wallet> wallets) {
+        List<Address> newAddresses = new ArrayList<>();
+        long earliestCreation = Long.MAX_VALUE;
+        for (Wallet wallet : wallets) {
+            try {
+                Address address = Address.fromString(config.getNetworkParameters(), wallet.address());
+                watchedOutputs.watch(wallet.walletId(), ScriptBuilder.createOutputScript(address).getProgram());
+                if (!watchWallet.isAddressWatched(address)) {
+                    newAddresses.add(address);
+                    earliestCreation = Math.min(earliestCreation, wallet.createdAt().getEpochSecond());
+                }
+            } catch (AddressFormatException e) {
+                System.err.println("Warning: Not watching wallet " + wallet.walletId() +
+                    " with invalid address: " + e.getMessage());
             }
+        }
+        if (!newAddresses.isEmpty()) {
+            watchWallet.addWatchedAddresses(newAddresses, earliestCreation);
+            if (earliestCreation < watchWallet.getLastBlockSeenTimeSecs() - MAX_BLOCK_TIME_DRIFT_SECONDS) {
+                queueRescan(newAddresses, earliestCreation);
+            }
+        }
+    }
 
-            // Create a BitcoinJ wallet for balance tracking
-            org.bitcoinj.wallet.Wallet bitcoinJWallet = org.bitcoinj.wallet.Wallet.createBasic(
-                config.getNetworkParameters()
-            );
+    /**
+     * Queues a history scan for addresses the watching wallet has already passed.
+     * Addresses queued while a scan is waiting or running join the next one.
+     *
+     * @param addresses Newly watched addresses
+     * @param fromTimeSecs Earliest creation time among them
+     */
+    private void queueRescan(Collection<Address> addresses, long fromTimeSecs) {
+        synchronized (pendingRescan) {
+            pendingRescan.addAll(addresses);
+            pendingRescanFromSecs = Math.min(pendingRescanFromSecs, fromTimeSecs);
+            if (!rescanQueued) {
+                rescanQueued = true;
+                rescanExecutor.execute(this::runRescan);
+            }
+        }
+    }
+
+    /**
+     * Queues the addresses left over by a scan that could not reach the node.
+     */
+    private void resumeRescan() {
+        synchronized (pendingRescan) {
+            if (!pendingRescan.isEmpty() && !rescanQueued) {
+                rescanQueued = true;
+                rescanExecutor.execute(this::runRescan);
+            }
+        }
+    }
+
+    /**
+     * Picks up the addresses of a scan that was still running at the last shutdown.
+     */
+    private void restoreRescan() {
+        File walletFile = getRescanWalletFile();
+        if (!walletFile.exists()) {
+            return;
+        }
+        try {
+            org.bitcoinj.wallet.Wallet interrupted = org.bitcoinj.wallet.Wallet.loadFromFile(walletFile);
+            queueRescan(interrupted.getWatchedAddresses(), interrupted.getEarliestKeyCreationTime());
+        } catch (UnreadableWalletException e) {
+            System.err.println("⚠️ Unreadable rescan wallet " + walletFile + ", dropping it: " + e.getMessage());
+            deleteRescanFiles();
+        }
+    }
 
-            // Add the wallet address to watch
-            Address address = org.bitcoinj.core.Address.fromString(config.getNetworkParameters(), wallet.address());
-            bitcoinJWallet.addWatchedAddress(address);
+    private void runRescan() {
+        List<Address> addresses;
+        long fromTimeSecs;
+        synchronized (pendingRescan) {
+            addresses = new ArrayList<>(pendingRescan);
+            fromTimeSecs = pendingRescanFromSecs;
+            pendingRescan.clear();
+            pendingRescanFromSecs = Long.MAX_VALUE;
+            rescanQueued = false;
+        }
+        if (addresses.isEmpty()) {
+            return;
+        }
+        try {
+            rescan(addresses, fromTimeSecs);
+        } catch (Exception e) {
+            // Kept for the next successful connect
+            System.err.println("Warning: Rescan for " + addresses.size() + " addresses failed, retrying on next connect: " +
+                e.getMessage());
+            synchronized (pendingRescan) {
+                pendingRescan.addAll(addresses);
+                pendingRescanFromSecs = Math.min(pendingRescanFromSecs, fromTimeSecs);
+            }
+        }
+    }
 
-            // Add wallet to peer group for balance tracking
-            peerGroup.addWallet(bitcoinJWallet);
+    /**
+     * Scans the chain for the history of addresses whose creation time the
+     * watching wallet has already passed. A separate wallet watching only these
+     * addresses syncs a chain checkpointed at their creation time; every
+     * transaction it finds is handed to the watching wallet as well, which
+     * keeps its own state and serves balances throughout.
+     *
+     * The scan wallet is saved until the scan completes, so one interrupted by
+     * a shutdown is picked up by the next start.
+     *
+     * @param addresses Addresses to scan for
+     * @param fromTimeSecs Earliest creation time among them
+     * @throws Exception if the scan cannot complete
+     */
+    private void rescan(List<Address> addresses, long fromTimeSecs) throws Exception {
+        NetworkParameters params = config.getNetworkParameters();
+        System.out.println("🔁 Scanning the chain from " + Instant.ofEpochSecond(fromTimeSecs) + " for " +
+            addresses.size() + " addresses watched after the watching wallet passed it");
+        org.bitcoinj.wallet.Wallet scanWallet = org.bitcoinj.wallet.Wallet.createBasic(params);
+        scanWallet.addWatchedAddresses(addresses, fromTimeSecs);
+        File walletFile = getRescanWalletFile();
+        if (walletFile.getParentFile() != null) {
+            walletFile.getParentFile().mkdirs();
+        }
+        scanWallet.saveToFile(walletFile);
 
-            // Wait for initial chain download (with timeout)
-            try {
-                peerGroup.downloadBlockChain();
-            } catch (Exception e) {
-                // If full sync takes too long, proceed with available data
-                System.out.println("⏳ Chain sync still in progress, using available balance data");
+        File storeFile = getRescanStoreFile();
+        Files.deleteIfExists(storeFile.toPath());
+        BlockStore scanStore = new SPVBlockStore(params, storeFile);
+        PeerGroup scanPeers = null;
+        try {
+            try (InputStream checkpoints = CheckpointManager.openStream(params)) {
+                if (checkpoints != null) {
+                    CheckpointManager.checkpoint(params, checkpoints, scanStore, fromTimeSecs);
+                }
+            }
+            BlockChain scanChain = new BlockChain(params, scanWallet, scanStore);
+            // The watching wallet only receives the transactions; its chain position is untouched
+            scanChain.addTransactionReceivedListener(Threading.SAME_THREAD, watchWallet);
+
+            scanPeers = new PeerGroup(params, scanChain);
+            scanPeers.addWallet(scanWallet);
+            scanPeers.setMaxConnections(config.getMaxConnections());
+            scanPeers.setConnectTimeoutMillis(config.getTimeoutMillis());
+            scanPeers.setUseLocalhostPeerWhenPossible(config.isLocalhostPeer());
+            scanPeers.addAddress(new PeerAddress(params, InetAddress.getByName(config.getNodeHost()),
+                config.getNodePort()));
+            rescanPeerGroup = scanPeers;
+            scanPeers.start();
+            scanPeers.waitForPeers(1).get(config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+            DownloadProgressTracker tracker = new DownloadProgressTracker();
+            scanPeers.startBlockChainDownload(tracker);
+            while (true) {
+                try {
+                    tracker.getFuture().get(RESCAN_POLL_SECONDS, TimeUnit.SECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    if (rescanPeerGroup != scanPeers) {
+                        throw new IllegalStateException("rescan stopped by shutdown");
+                    }
+                }
             }
 
-            // Get current balances
-            Coin confirmedBalance = bitcoinJWallet.getBalance(org.bitcoinj.wallet.Wallet.BalanceType.ESTIMATED);
-            Coin unconfirmedBalance = bitcoinJWallet.getBalance(org.bitcoinj.wallet.Wallet.BalanceType.AVAILABLE_SPENDABLE);
-            Coin totalBalance = confirmedBalance.add(unconfirmedBalance);
-
-            // Get UTXOs
-            List<WalletBalance.UTXO> utxos = new ArrayList<>();
-            for (TransactionOutput output : bitcoinJWallet.getUnspents()) {
-                utxos.add(new WalletBalance.UTXO(
-                    output.getParentTransaction().getTxId().toString(),
-                    output.getIndex(),
-                    output.getValue(),
-                    output.getScriptPubKey().toString(),
-                    output.getParentTransaction().getConfidence().getDepthInBlocks()
-                ));
+            // Transactions handed over by the scan appear one block deep; settle their
+            // depth against the watching wallet's own head
+            int bestHeight = watchWallet.getLastBlockSeenHeight();
+            for (Transaction found : scanWallet.getTransactions(false)) {
+                Transaction watched = watchWallet.getTransaction(found.getTxId());
+                if (watched != null) {
+                    TransactionConfidence confidence = watched.getConfidence();
+                    if (confidence.getConfidenceType() == TransactionConfidence.ConfidenceType.BUILDING) {
+                        confidence.setDepthInBlocks(Math.max(1, bestHeight - confidence.getAppearedAtChainHeight() + 1));
+                    }
+                }
+            }
+            System.out.println("✅ Chain scan found " + scanWallet.getTransactions(false).size() +
+                " transactions for " + addresses.size() + " addresses");
+        } finally {
+            // Unless shutdown already stopped it
+            if (scanPeers != null && rescanPeerGroup == scanPeers) {
+                rescanPeerGroup = null;
+                scanPeers.stop();
             }
+            scanStore.close();
+        }
+        deleteRescanFiles();
+    }
 
-            // Create and return WalletBalance object
-            return new WalletBalance(
-                wallet.walletId(),
-                confirmedBalance,
-                unconfirmedBalance,
-                totalBalance,
-                Instant.now(),
-                String.valueOf(peerGroup.getMostCommonChainHeight()),
-                utxos
-            );
+    /**
+     * Stops a running history scan, leaving its wallet for the next start.
+     */
+    private void stopRescan() {
+        PeerGroup scanPeers = rescanPeerGroup;
+        rescanPeerGroup = null;
+        if (scanPeers != null) {
+            scanPeers.stopAsync();
+        }
+    }
+
+    private File getRescanWalletFile() {
+        String network = config.getNetworkParameters().getPaymentProtocolId();
+        return new File(config.getBlockStorePath(), network + ".rescan.wallet");
+    }
+
+    private File getRescanStoreFile() {
+        String network = config.getNetworkParameters().getPaymentProtocolId();
+        return new File(config.getBlockStorePath(), network + ".rescan.spvchain");
+    }
+
+    private void deleteRescanFiles() {
+        try {
+            Files.deleteIfExists(getRescanWalletFile().toPath());
+            Files.deleteIfExists(getRescanStoreFile().toPath());
+        } catch (IOException e) {
+            System.err.println("Warning: Error deleting rescan files: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies the UTXO changes a transaction made to the output index and pushes
+     * them to each watched wallet it touches.
+     *
+     * @param tx Transaction the watching wallet just applied or updated
+     */
+    private void publishDeltas(Transaction tx) {
+        List<TransactionOutput> spentOutputs = new ArrayList<>();
+        for (TransactionInput input : tx.getInputs()) {
+            TransactionOutput spent = fundingOutput(input);
+            if (spent != null) {
+                spentOutputs.add(spent);
+            }
+        }
+        BlockChain chain = blockChain;
+        String height = chain != null ? String.valueOf(chain.getBestChainHeight()) : null;
+        for (BalanceDelta delta : watchedOutputs.apply(tx, spentOutputs, height).values()) {
+            for (ChainEventListener listener : chainEventListeners) {
+                listener.onBalanceDelta(delta);
+            }
+        }
+    }
+
+    /**
+     * Whether a confidence event can only be a depth change: the transaction was
+     * already confirmed before the latest block.
+     *
+     * @param tx Transaction whose confidence changed
+     * @return true if the event changes no UTXO
+     */
+    private static boolean isDeepening(Transaction tx) {
+        TransactionConfidence confidence = tx.getConfidence();
+        return confidence.getConfidenceType() == TransactionConfidence.ConfidenceType.BUILDING
+            && confidence.getDepthInBlocks() > 1;
+    }
+
+    /**
+     * Rebuilds the output index from the watching wallet, after it was loaded or reset.
+     */
+    private void resetWatchedOutputs() {
+        List<byte[]> scripts = new ArrayList<>();
+        for (Script script : watchWallet.getWatchedScripts()) {
+            scripts.add(script.getProgram());
+        }
+        watchedOutputs.reset(scripts, watchWallet.getWatchedOutputs(true));
+    }
+
+    /**
+     * Finds the output an input spends, either through its connection or through
+     * the funding transaction held by the watching wallet.
+     *
+     * @param input Transaction input
+     * @return Spent output, or null if it is not known to the watching wallet
+     */
+    private TransactionOutput fundingOutput(TransactionInput input) {
+        TransactionOutput spent = input.getConnectedOutput();
+        if (spent == null) {
+            TransactionOutPoint outpoint = input.getOutpoint();
+            Transaction funding = watchWallet.getTransaction(outpoint.getHash());
+            if (funding != null && outpoint.getIndex() < funding.getOutputs().size()) {
+                spent = funding.getOutput(outpoint.getIndex());
+            }
+        }
+        return spent;
+    }
 
+    /**
+     * Gets the balance for a wallet from the shared watching wallet's state.
+     * No chain sync happens on this path; the watching wallet is kept current
+     * by the background block chain download started on connect. The wallet
+     * must already be watched, see {@link #watchWallet}.
+     * 
+     * @param wallet Wallet to get balance for
+     * @return WalletBalance object with balance information
+     * @throws BitcoinBroadcastException If balance cannot be retrieved
+     */
+    public WalletBalance getWalletBalance(Wallet wallet) throws BitcoinBroadcastException {
+        try {
+            return computeBalances(List.of(wallet)).get(wallet.walletId());
         } catch (Exception e) {
             throw new BitcoinBroadcastException(
                 "Failed to fetch balance for wallet " + wallet.walletId() + ": " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Gets the balances of several wallets, each read from the outputs indexed
+     * under its own address script. The wallets must already be watched.
+     * 
+     * @param wallets Wallets to get balances for
+     * @return Balances by wallet ID
+     * @throws BitcoinBroadcastException If the balances cannot be retrieved
+     */
+    public Map<String, WalletBalance> getWalletBalances(Collection<Wallet> wallets) throws BitcoinBroadcastException {
+        try {
+            return computeBalances(wallets);
+        } catch (Exception e) {
+            throw new BitcoinBroadcastException(
+                "Failed to fetch balances for " + wallets.size() + " wallets: " + e.getMessage(), e);
+        }
+    }
+
+    private Map<String, WalletBalance> computeBalances(Collection<Wallet> wallets) throws Exception {
+        // Ensure we're connected to blockchain; while the node is unreachable, the
+        // watching wallet saved by the previous run still answers
+        if (!isConnected()) {
+            try {
+                connect();
+            } catch (BitcoinBroadcastException e) {
+                if (!restoredWatchWallet || blockChain == null) {
+                    throw e;
+                }
+                System.err.println("⚠️ Node unreachable, answering from stored chain state: " + e.getMessage());
+            }
+        }
+        Instant now = Instant.now();
+        BlockChain chain = blockChain;
+        String height = chain != null ? String.valueOf(chain.getBestChainHeight()) : null;
+        Map<String, WalletBalance> balances = new HashMap<>();
+        for (Wallet wallet : wallets) {
+            balances.put(wallet.walletId(), watchedOutputs.balance(wallet.walletId(), now, height));
+        }
+        return balances;
+    }
+
     /**
      * Disconnects from Bitcoin nodes and cleans up resources.
      */
-    public void disconnect() {
+    public synchronized void disconnect() {
+        stopRescan();
         if (peerGroup != null) {
             try {
                 peerGroup.stop();
@@ -245,8 +811,27 @@ public class BitcoinNodeClient {
             }
         }
 
-        // Note: In BitcoinJ, Context and BlockChain don't have explicit stop methods
-        // The peerGroup.stop() is sufficient for cleanup
+        // Save the watching wallet at the same head as the header store
+        if (autosaving) {
+            watchWallet.shutdownAutosaveAndWait();
+            autosaving = false;
+            saveWatchWallet();
+        }
+
+        // Flush and unmap the header store so the next start resumes from its head
+        if (blockStore != null) {
+            try {
+                blockStore.close();
+            } catch (BlockStoreException e) {
+                System.err.println("Warning: Error closing block store: " + e.getMessage());
+            }
+        }
+
+        // A later connect() reopens the store and rebuilds the chain from it
+        peerGroup = null;
+        blockChain = null;
+        blockStore = null;
+        chainDownloadStarted.set(false);
     }
 
     /**
@@ -0,0 +1,36 @@
+package com.btcwallet.network;
+
+import com.btcwallet.balance.BalanceDelta;
+
+import java.util.Set;
+
+/**
+ * Receives chain events from {@link BitcoinNodeClient} that can change wallet balances.
+ * Callbacks run on bitcoinj's user thread and should return quickly.
+ */
+public interface ChainEventListener {
+
+    /**
+     * Called when a transaction paying to or spending from the given wallets is seen
+     * and no finer-grained change is available.
+     *
+     * @param walletIds IDs of the affected wallets
+     */
+    void onWalletsAffected(Set<String> walletIds);
+
+    /**
+     * Called with the UTXO change a transaction, confirmation or double spend made
+     * to one wallet. Listeners that only invalidate can rely on the default, which
+     * reports the wallet as affected.
+     *
+     * @param delta UTXO change for one wallet
+     */
+    default void onBalanceDelta(BalanceDelta delta) {
+        onWalletsAffected(Set.of(delta.walletId()));
+    }
+
+    /**
+     * Called when the best chain is reorganized. Any wallet may have changed.
+     */
+    void onReorganize();
+}
@@ -3,6 +3,8 @@ package com.btcwallet.network;
 /**
  * Calculates transaction fees based on network conditions.
  * Provides fee estimates for different priority levels.
+ * Fees are priced from a transaction's virtual size, which the caller
+ * supplies; the transaction layer knows what the signed inputs will weigh.
  */
 public class FeeCalculator {
 
@@ -30,25 +32,24 @@ public class FeeCalculator {
     /**
      * Calculates fee for a transaction based on current network conditions.
      *
-     * @param transaction BitcoinJ Transaction to calculate fee for
+     * @param vsize Virtual size of the signed transaction in bytes
      * @return Fee in satoshis
      */
-    public long calculateFee(org.bitcoinj.core.Transaction transaction) {
-        return calculateFee(transaction, FeePriority.MEDIUM);
+    public long calculateFee(int vsize) {
+        return calculateFee(vsize, FeePriority.MEDIUM);
     }
 
     /**
      * Calculates fee for a transaction with specified priority.
      *
-     * @param transaction BitcoinJ Transaction to calculate fee for
+     * @param vsize Virtual size of the signed transaction in bytes
      * @param priority Fee priority level
      * @return Fee in satoshis
      */
-    public long calculateFee(org.bitcoinj.core.Transaction transaction, FeePriority priority) {
+    public long calculateFee(int vsize, FeePriority priority) {
         int feeRate = getFeeRate(priority);
-        int transactionSize = transaction.bitcoinSerialize().length;
         
-        return transactionSize * feeRate;
+        return (long) vsize * feeRate;
     }
 
     /**
@@ -92,13 +93,12 @@ public class FeeCalculator {
     /**
      * Calculates fee for a custom fee rate.
      *
-     * @param transaction BitcoinJ Transaction to calculate fee for
+     * @param vsize Virtual size of the signed transaction in bytes
      * @param satoshiPerByte Custom fee rate in satoshis per byte
      * @return Fee in satoshis
      */
-    public long calculateCustomFee(org.bitcoinj.core.Transaction transaction, int satoshiPerByte) {
-        int transactionSize = transaction.bitcoinSerialize().length;
-        return transactionSize * satoshiPerByte;
+    public long calculateCustomFee(int vsize, int satoshiPerByte) {
+        return (long) vsize * satoshiPerByte;
     }
 
     /**
@@ -0,0 +1,228 @@
+package com.btcwallet.network;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.Utils;
+
+import com.btcwallet.balance.BalanceDelta;
+import com.btcwallet.balance.UtxoSet;
+import com.btcwallet.balance.WalletBalance;
+
+/**
+ * Spendable outputs of the watching wallet indexed by output script, with the
+ * wallets each script belongs to.
+ *
+ * The index is updated from the same transaction events that produce balance
+ * deltas, so a balance lookup reads only the outputs of the wallet's own
+ * script instead of every output the watching wallet holds. Outputs are kept
+ * by reference; confirmations are read from their transaction at lookup time.
+ *
+ * A change is only reported when an output appears, disappears or gets its
+ * first confirmation. Every new block raises the depth of every confirmed
+ * transaction, and those depth-only changes are not pushed, so confirmation
+ * counts in deltas are current as of the output's last state change.
+ *
+ * Updates come from one thread at a time (the watching wallet's event thread,
+ * or a reset while it is stopped); lookups may run concurrently with them.
+ */
+public class WatchedOutputs {
+
+    // Wallet IDs by output script of their address, and back
+    private final Map<ByteBuffer, Set<String>> walletIdsByScript = new ConcurrentHashMap<>();
+    private final Map<String, ByteBuffer> scriptsByWalletId = new ConcurrentHashMap<>();
+    // Outpoint -> spendable output, for every watched script
+    private final Map<ByteBuffer, Map<String, Indexed>> outputsByScript = new ConcurrentHashMap<>();
+
+    // Spendable output with whether it was confirmed when last indexed
+    private record Indexed(TransactionOutput output, boolean confirmed) {
+    }
+
+    /**
+     * Starts indexing outputs paying to a wallet's script.
+     *
+     * @param walletId Wallet ID
+     * @param script Output script of the wallet's address
+     */
+    public void watch(String walletId, byte[] script) {
+        ByteBuffer key = ByteBuffer.wrap(script.clone());
+        walletIdsByScript.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(walletId);
+        outputsByScript.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+        scriptsByWalletId.put(walletId, key);
+    }
+
+    /**
+     * Gets the wallets a script belongs to.
+     *
+     * @param script Output script
+     * @return Wallet IDs, or null if no wallet is watching the script
+     */
+    public Set<String> walletIds(byte[] script) {
+        return walletIdsByScript.get(ByteBuffer.wrap(script));
+    }
+
+    /**
+     * Rebuilds the index from the watching wallet's state, after it was loaded
+     * or reset. Wallet mappings are kept.
+     *
+     * @param watchedScripts Scripts the watching wallet watches
+     * @param spendableOutputs Its spendable outputs paying to those scripts
+     */
+    public void reset(Collection<byte[]> watchedScripts, Collection<TransactionOutput> spendableOutputs) {
+        outputsByScript.clear();
+        for (ByteBuffer script : walletIdsByScript.keySet()) {
+            outputsByScript.put(script, new ConcurrentHashMap<>());
+        }
+        for (byte[] script : watchedScripts) {
+            outputsByScript.computeIfAbsent(ByteBuffer.wrap(script), k -> new ConcurrentHashMap<>());
+        }
+        for (TransactionOutput output : spendableOutputs) {
+            Map<String, Indexed> outputs = outputsByScript.get(ByteBuffer.wrap(output.getScriptBytes()));
+            if (outputs != null) {
+                outputs.put(outpoint(output), new Indexed(output, isConfirmed(output)));
+            }
+        }
+    }
+
+    /**
+     * Applies the UTXO changes a transaction made. Its own outputs are indexed
+     * while spendable and dropped otherwise; the outputs its inputs spend are
+     * dropped, or restored if the transaction died. Outputs whose state did not
+     * change, such as one confirmed transaction getting deeper, produce no delta.
+     *
+     * @param tx Transaction the watching wallet just applied or updated
+     * @param spentOutputs Outputs its inputs spend that the watching wallet knows
+     * @param height Best chain height, or null if unknown
+     * @return Delta per affected wallet ID
+     */
+    public Map<String, BalanceDelta> apply(Transaction tx, Collection<TransactionOutput> spentOutputs, String height) {
+        Map<String, List<WalletBalance.UTXO>> upserted = new HashMap<>();
+        Map<String, Set<String>> removed = new HashMap<>();
+        boolean dead = tx.getConfidence().getConfidenceType() == TransactionConfidence.ConfidenceType.DEAD;
+        for (TransactionOutput output : tx.getOutputs()) {
+            update(output, !dead && output.isAvailableForSpending(), upserted, removed);
+        }
+        for (TransactionOutput spent : spentOutputs) {
+            update(spent, spent.isAvailableForSpending(), upserted, removed);
+        }
+
+        Set<String> walletIds = new HashSet<>(upserted.keySet());
+        walletIds.addAll(removed.keySet());
+        Map<String, BalanceDelta> deltas = new HashMap<>();
+        for (String walletId : walletIds) {
+            deltas.put(walletId, new BalanceDelta(walletId,
+                upserted.getOrDefault(walletId, List.of()), removed.getOrDefault(walletId, Set.of()), height));
+        }
+        return deltas;
+    }
+
+    private void update(TransactionOutput output, boolean spendable,
+            Map<String, List<WalletBalance.UTXO>> upserted, Map<String, Set<String>> removed) {
+        ByteBuffer script = ByteBuffer.wrap(output.getScriptBytes());
+        Map<String, Indexed> outputs = outputsByScript.get(script);
+        if (outputs == null) {
+            // Not one of our scripts
+            return;
+        }
+        String outpoint = outpoint(output);
+        if (spendable) {
+            Indexed current = new Indexed(output, isConfirmed(output));
+            if (current.equals(outputs.put(outpoint, current))) {
+                return;
+            }
+        } else if (outputs.remove(outpoint) == null) {
+            return;
+        }
+
+        Set<String> walletIds = walletIdsByScript.get(script);
+        if (walletIds == null) {
+            return;
+        }
+        for (String walletId : walletIds) {
+            if (spendable) {
+                upserted.computeIfAbsent(walletId, key -> new ArrayList<>()).add(toUtxo(output));
+            } else {
+                removed.computeIfAbsent(walletId, key -> new HashSet<>()).add(outpoint);
+            }
+        }
+    }
+
+    /**
+     * Computes the balance of a watched wallet from the outputs paying to its
+     * script. A wallet that is not watched has no outputs.
+     *
+     * @param walletId Wallet ID
+     * @param now Time of the lookup
+     * @param height Best chain height, or null if unknown
+     * @return Balance with the wallet's UTXO set
+     */
+    public WalletBalance balance(String walletId, Instant now, String height) {
+        ByteBuffer script = scriptsByWalletId.get(walletId);
+        return balance(walletId, script != null ? outputsByScript.get(script) : null, now, height);
+    }
+
+    /**
+     * Computes a wallet's balance from the outputs paying to its script.
+     *
+     * @param walletId Wallet ID
+     * @param script Output script of the wallet's address
+     * @param now Time of the lookup
+     * @param height Best chain height, or null if unknown
+     * @return Balance with the wallet's UTXO set
+     */
+    public WalletBalance balance(String walletId, byte[] script, Instant now, String height) {
+        return balance(walletId, outputsByScript.get(ByteBuffer.wrap(script)), now, height);
+    }
+
+    private static WalletBalance balance(String walletId, Map<String, Indexed> scriptOutputs, Instant now,
+            String height) {
+        Map<String, Indexed> outputs = scriptOutputs != null ? scriptOutputs : Map.of();
+        Coin confirmed = Coin.ZERO;
+        Coin unconfirmed = Coin.ZERO;
+        UtxoSet.Builder utxos = UtxoSet.builder(outputs.size());
+        for (Indexed indexed : outputs.values()) {
+            TransactionOutput output = indexed.output();
+            TransactionConfidence confidence = output.getParentTransaction().getConfidence();
+            if (confidence.getConfidenceType() == TransactionConfidence.ConfidenceType.BUILDING) {
+                confirmed = confirmed.add(output.getValue());
+            } else {
+                unconfirmed = unconfirmed.add(output.getValue());
+            }
+            utxos.add(output.getParentTransaction().getTxId().getBytes(), 0, output.getIndex(),
+                output.getValue().value, output.getScriptBytes(), confidence.getDepthInBlocks());
+        }
+        return new WalletBalance(walletId, confirmed, unconfirmed, confirmed.add(unconfirmed), now, height,
+            outputs.isEmpty() ? UtxoSet.EMPTY : utxos.build());
+    }
+
+    private static boolean isConfirmed(TransactionOutput output) {
+        return output.getParentTransaction().getConfidence().getConfidenceType()
+            == TransactionConfidence.ConfidenceType.BUILDING;
+    }
+
+    private static String outpoint(TransactionOutput output) {
+        return output.getParentTransaction().getTxId() + ":" + output.getIndex();
+    }
+
+    private static WalletBalance.UTXO toUtxo(TransactionOutput output) {
+        return new WalletBalance.UTXO(
+            output.getParentTransaction().getTxId().toString(),
+            output.getIndex(),
+            output.getValue(),
+            Utils.HEX.encode(output.getScriptBytes()),
+            output.getParentTransaction().getConfidence().getDepthInBlocks()
+        );
+    }
+}
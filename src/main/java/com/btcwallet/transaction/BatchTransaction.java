@@ -0,0 +1,68 @@
+package com.btcwallet.transaction;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents one Bitcoin transaction paying many recipients.
+ *
+ * @param transactionId Unique transaction hash/ID
+ * @param walletId Wallet ID that created this transaction
+ * @param payouts One entry per requested payment, in request order
+ * @param totalAmount Sum of all payouts in satoshis
+ * @param fee Transaction fee in satoshis
+ * @param status Current transaction status
+ * @param createdAt Timestamp when transaction was created
+ * @param isSimulation Whether this is a simulation (not broadcasted)
+ * @param rawTransaction Raw BitcoinJ transaction object
+ */
+public record BatchTransaction(
+    String transactionId,
+    String walletId,
+    List<Payout> payouts,
+    long totalAmount,
+    long fee,
+    Transaction.TransactionStatus status,
+    Instant createdAt,
+    boolean isSimulation,
+    org.bitcoinj.core.Transaction rawTransaction
+) {
+
+    /**
+     * A payment and the output that carries it.
+     *
+     * @param recipientAddress Bitcoin address of the recipient
+     * @param amount Amount in satoshis
+     * @param outputIndex Index of the output within the transaction
+     * @param reference Outpoint of the output, {@code transactionId:outputIndex}
+     */
+    public record Payout(String recipientAddress, long amount, int outputIndex, String reference) {
+    }
+
+    /**
+     * Creates a BatchTransaction from a BitcoinJ transaction whose first
+     * outputs are the payments, in order.
+     *
+     * @param walletId Wallet ID
+     * @param rawTransaction BitcoinJ transaction
+     * @param payments Payments in output order
+     * @param status Transaction status
+     * @param fee Transaction fee in satoshis
+     * @return New BatchTransaction instance
+     */
+    public static BatchTransaction fromTransaction(String walletId, org.bitcoinj.core.Transaction rawTransaction,
+            List<Payment> payments, Transaction.TransactionStatus status, long fee) {
+        String transactionId = rawTransaction.getTxId().toString();
+        List<Payout> payouts = new ArrayList<>(payments.size());
+        long totalAmount = 0;
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            payouts.add(new Payout(payment.recipientAddress(), payment.amount(), i, transactionId + ":" + i));
+            totalAmount += payment.amount();
+        }
+        return new BatchTransaction(transactionId, walletId, Collections.unmodifiableList(payouts), totalAmount, fee,
+            status, Instant.now(), status == Transaction.TransactionStatus.SIMULATED, rawTransaction);
+    }
+}
@@ -0,0 +1,312 @@
+package com.btcwallet.transaction;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.Utils;
+
+import com.btcwallet.balance.BalanceChangeListener;
+import com.btcwallet.balance.BalanceDelta;
+import com.btcwallet.balance.UtxoSet;
+import com.btcwallet.balance.WalletBalance;
+
+/**
+ * Our own broadcast transactions, applied on top of the cached UTXO sets
+ * until the balance refresh catches up.
+ *
+ * A broadcast removes its inputs and adds its change outputs at zero
+ * confirmations right away, so the next payment from the same wallet can
+ * spend the change instead of waiting for a refresh or a block. Each
+ * transaction remembers its unconfirmed ancestors among our own transactions;
+ * change is not offered for spending once a child would exceed the ancestor
+ * limit nodes enforce on relayed chains.
+ *
+ * Registered as a {@link BalanceChangeListener}: outputs the refreshed set
+ * lists are dropped from the overlay, and transactions seen confirmed no
+ * longer count as ancestors. Change the refresh still does not list
+ * {@link #UNSEEN_GRACE} after its broadcast is dropped, so a transaction the
+ * network never accepted is not chained on forever.
+ */
+public class MempoolOverlay implements BalanceChangeListener {
+
+    /** Ancestor limit of Bitcoin Core's default mempool policy, counting the transaction itself. */
+    public static final int DEFAULT_MAX_ANCESTORS = 25;
+
+    /** How long change may stay unlisted by the balance refresh before it is dropped. */
+    public static final Duration UNSEEN_GRACE = Duration.ofMinutes(10);
+
+    private final int maxAncestors;
+    private final Clock clock;
+    private final Map<String, WalletOverlay> wallets = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty overlay.
+     *
+     * @param maxAncestors Most unconfirmed transactions in a chain, counting the newest
+     */
+    public MempoolOverlay(int maxAncestors) {
+        this(maxAncestors, Clock.systemUTC());
+    }
+
+    /**
+     * Creates an empty overlay timing unseen change with the given clock.
+     *
+     * @param maxAncestors Most unconfirmed transactions in a chain, counting the newest
+     * @param clock Clock for broadcast times
+     */
+    public MempoolOverlay(int maxAncestors, Clock clock) {
+        if (maxAncestors < 1) {
+            throw new IllegalArgumentException("Ancestor limit must be at least 1");
+        }
+        this.maxAncestors = maxAncestors;
+        this.clock = clock;
+    }
+
+    /**
+     * Per wallet state, guarded by its own monitor.
+     */
+    private static final class WalletOverlay {
+        // Change outputs by outpoint, in broadcast order
+        final Map<String, PendingOutput> outputs = new LinkedHashMap<>();
+        // Outpoints spent by our broadcasts that the refresh still lists
+        final Set<String> spent = new HashSet<>();
+        // Transaction ID -> the transaction and its unconfirmed ancestors
+        final Map<String, Set<String>> ancestry = new HashMap<>();
+        UtxoSet base;
+        UtxoSet applied;
+    }
+
+    private record PendingOutput(WalletBalance.UTXO utxo, Instant broadcastAt) {
+    }
+
+    public int maxAncestors() {
+        return maxAncestors;
+    }
+
+    /**
+     * Records a transaction we broadcast.
+     *
+     * @param walletId Wallet that signed the transaction
+     * @param transaction Broadcast transaction
+     * @param changeScript Output script of the wallet's change address
+     */
+    public void record(String walletId, org.bitcoinj.core.Transaction transaction, byte[] changeScript) {
+        String txId = transaction.getTxId().toString();
+        WalletOverlay overlay = wallets.computeIfAbsent(walletId, id -> new WalletOverlay());
+        synchronized (overlay) {
+            Set<String> ancestors = new HashSet<>();
+            ancestors.add(txId);
+            for (TransactionInput input : transaction.getInputs()) {
+                String parent = input.getOutpoint().getHash().toString();
+                Set<String> parentAncestry = overlay.ancestry.get(parent);
+                if (parentAncestry != null) {
+                    ancestors.addAll(parentAncestry);
+                }
+                String outpoint = parent + ":" + input.getOutpoint().getIndex();
+                if (overlay.outputs.remove(outpoint) == null) {
+                    overlay.spent.add(outpoint);
+                }
+            }
+            overlay.ancestry.put(txId, ancestors);
+
+            Instant now = clock.instant();
+            for (TransactionOutput output : transaction.getOutputs()) {
+                if (Arrays.equals(output.getScriptBytes(), changeScript)) {
+                    WalletBalance.UTXO change = new WalletBalance.UTXO(txId, output.getIndex(), output.getValue(),
+                            Utils.HEX.encode(output.getScriptBytes()), 0);
+                    overlay.outputs.put(change.getOutpoint(), new PendingOutput(change, now));
+                }
+            }
+            overlay.applied = null;
+        }
+    }
+
+    /**
+     * Gets a wallet's UTXO set with our pending transactions applied.
+     *
+     * @param walletId Wallet ID
+     * @param utxos UTXO set from the wallet's cached balance
+     * @return Set without the outputs we spent and with our unconfirmed change
+     */
+    public UtxoSet apply(String walletId, UtxoSet utxos) {
+        WalletOverlay overlay = wallets.get(walletId);
+        if (overlay == null) {
+            return utxos;
+        }
+        synchronized (overlay) {
+            if (overlay.applied == null || overlay.base != utxos) {
+                List<WalletBalance.UTXO> upserted = new ArrayList<>(overlay.outputs.size());
+                for (PendingOutput output : overlay.outputs.values()) {
+                    upserted.add(output.utxo());
+                }
+                overlay.base = utxos;
+                overlay.applied = utxos.apply(new BalanceDelta(walletId, upserted, overlay.spent, null));
+            }
+            return overlay.applied;
+        }
+    }
+
+    /**
+     * Gets a filter accepting the UTXOs a new transaction may spend without
+     * exceeding the ancestor limit on its own.
+     *
+     * @param walletId Wallet ID
+     * @param utxos Set returned by {@link #apply}
+     * @return Predicate on positions in the set
+     */
+    public IntPredicate withinAncestorLimit(String walletId, UtxoSet utxos) {
+        WalletOverlay overlay = wallets.get(walletId);
+        if (overlay == null) {
+            return position -> true;
+        }
+        Set<String> full = new HashSet<>();
+        synchronized (overlay) {
+            for (Map.Entry<String, Set<String>> entry : overlay.ancestry.entrySet()) {
+                if (entry.getValue().size() >= maxAncestors) {
+                    full.add(entry.getKey());
+                }
+            }
+        }
+        if (full.isEmpty()) {
+            return position -> true;
+        }
+        // Only unconfirmed outputs can belong to a pending chain
+        return position -> utxos.confirmationsAt(position) > 0 || !full.contains(utxos.transactionHashAt(position));
+    }
+
+    /**
+     * Counts the unconfirmed transactions a new transaction would chain, itself included.
+     *
+     * @param walletId Wallet ID
+     * @param transaction Transaction about to be broadcast
+     * @return Ancestor count as nodes compute it for our own chains
+     */
+    public int ancestorCount(String walletId, org.bitcoinj.core.Transaction transaction) {
+        WalletOverlay overlay = wallets.get(walletId);
+        if (overlay == null) {
+            return 1;
+        }
+        Set<String> ancestors = new HashSet<>();
+        synchronized (overlay) {
+            for (TransactionInput input : transaction.getInputs()) {
+                Set<String> parentAncestry = overlay.ancestry.get(input.getOutpoint().getHash().toString());
+                if (parentAncestry != null) {
+                    ancestors.addAll(parentAncestry);
+                }
+            }
+        }
+        return ancestors.size() + 1;
+    }
+
+    @Override
+    public void onBalanceChanged(WalletBalance previous, WalletBalance current) {
+        WalletOverlay overlay = wallets.get(current.getWalletId());
+        if (overlay == null) {
+            return;
+        }
+        UtxoSet utxos = current.utxoSet();
+        synchronized (overlay) {
+            // Key our transactions by raw hash so the set is scanned without building strings
+            Map<ByteBuffer, String> tracked = new HashMap<>();
+            for (String txId : overlay.ancestry.keySet()) {
+                tracked.put(ByteBuffer.wrap(Sha256Hash.wrap(txId).getBytes()), txId);
+            }
+            for (String outpoint : overlay.spent) {
+                String txId = outpoint.substring(0, outpoint.lastIndexOf(':'));
+                if (txId.length() == UtxoSet.HASH_LENGTH * 2) {
+                    tracked.putIfAbsent(ByteBuffer.wrap(Sha256Hash.wrap(txId).getBytes()), txId);
+                }
+            }
+
+            Set<String> listed = new HashSet<>();
+            Set<String> confirmed = new HashSet<>();
+            Set<String> unconfirmed = new HashSet<>();
+            byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+            for (int i = 0; i < utxos.size(); i++) {
+                if (!utxos.copyHash(i, hash, 0)) {
+                    continue;
+                }
+                String txId = tracked.get(ByteBuffer.wrap(hash));
+                if (txId != null) {
+                    listed.add(txId + ":" + utxos.outputIndexAt(i));
+                    (utxos.confirmationsAt(i) > 0 ? confirmed : unconfirmed).add(txId);
+                }
+            }
+
+            // A confirmed transaction's ancestors are confirmed as well
+            for (String txId : new ArrayList<>(confirmed)) {
+                Set<String> ancestors = overlay.ancestry.get(txId);
+                if (ancestors != null) {
+                    confirmed.addAll(ancestors);
+                }
+            }
+
+            // Spent outpoints stay hidden only while the refresh still lists them
+            overlay.spent.retainAll(listed);
+
+            Instant expired = clock.instant().minus(UNSEEN_GRACE);
+            Iterator<Map.Entry<String, PendingOutput>> outputs = overlay.outputs.entrySet().iterator();
+            while (outputs.hasNext()) {
+                Map.Entry<String, PendingOutput> entry = outputs.next();
+                if (listed.contains(entry.getKey())) {
+                    outputs.remove();
+                } else if (entry.getValue().broadcastAt().isBefore(expired)) {
+                    System.err.println("⚠️ Dropping unconfirmed change " + entry.getKey()
+                            + ": not seen by the balance refresh since its broadcast");
+                    outputs.remove();
+                }
+            }
+
+            // Keep the ancestry of every chain that can still be extended
+            Set<String> live = new HashSet<>(unconfirmed);
+            for (PendingOutput output : overlay.outputs.values()) {
+                live.add(output.utxo().getTransactionHash());
+            }
+            Set<String> keep = new HashSet<>();
+            for (String txId : live) {
+                Set<String> ancestors = overlay.ancestry.get(txId);
+                if (ancestors != null) {
+                    keep.addAll(ancestors);
+                }
+            }
+            keep.removeAll(confirmed);
+            overlay.ancestry.keySet().retainAll(keep);
+            for (Set<String> ancestors : overlay.ancestry.values()) {
+                ancestors.removeAll(confirmed);
+            }
+            overlay.applied = null;
+        }
+    }
+
+    /**
+     * Counts the change outputs waiting for the balance refresh.
+     *
+     * @param walletId Wallet ID
+     * @return Pending change outputs
+     */
+    public int pendingOutputs(String walletId) {
+        WalletOverlay overlay = wallets.get(walletId);
+        if (overlay == null) {
+            return 0;
+        }
+        synchronized (overlay) {
+            return overlay.outputs.size();
+        }
+    }
+}
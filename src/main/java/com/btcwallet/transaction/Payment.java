@@ -0,0 +1,10 @@
+package com.btcwallet.transaction;
+
+/**
+ * One output of a payment: an amount sent to a recipient.
+ *
+ * @param recipientAddress Bitcoin address of the recipient
+ * @param amount Amount in satoshis
+ */
+public record Payment(String recipientAddress, long amount) {
+}
@@ -0,0 +1,699 @@
+package com.btcwallet.transaction;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.btcwallet.transaction.selection.CoinSelectionParams;
+import com.btcwallet.wallet.WalletService;
+
+/**
+ * Durable per-wallet queue of payments that are sent in batches.
+ *
+ * A payment is accepted once it is written to an append-only journal and gets
+ * a payment ID the caller can poll. Each wallet's queue is flushed into one
+ * multi-output transaction when it holds {@code maxBatchSize} payments or its
+ * oldest payment has waited for the batching window, whichever comes first.
+ *
+ * Payments are journalled as submitting before their batch is signed and
+ * broadcast. If the process stops before the outcome is journalled, those
+ * payments come back as {@link Status#INTERRUPTED} rather than queued: the
+ * transaction may have reached the network, so sending them again could pay
+ * twice.
+ */
+public class PaymentQueue implements AutoCloseable {
+
+    private static final String JOURNAL_FILE = "payments.log";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int JOURNAL_MAGIC = 0x42545051; // "BTPQ"
+    private static final int FORMAT_VERSION = 1;
+    private static final int JOURNAL_HEADER_SIZE = 8;     // magic, version
+    private static final int RECORD_HEADER_SIZE = 8;      // payload length, crc32
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+
+    private static final byte RECORD_ENQUEUED = 1;
+    private static final byte RECORD_SUBMITTING = 2;
+    private static final byte RECORD_SENT = 3;
+    private static final byte RECORD_FAILED = 4;
+    private static final byte RECORD_INTERRUPTED = 5;
+
+    private static final long COMPACTION_MIN_JOURNAL_SIZE = 4 << 20;
+    private static final Duration RESULT_RETENTION = Duration.ofDays(7);
+
+    /**
+     * Lifecycle of a queued payment.
+     */
+    public enum Status {
+        QUEUED,      // Waiting for its wallet's next batch
+        SUBMITTING,  // Part of a batch being signed and broadcast
+        SENT,        // Paid by the batch transaction
+        FAILED,      // The batch was refused; the payment was not sent
+        INTERRUPTED  // Stopped while submitting; check the wallet before sending again
+    }
+
+    /**
+     * Snapshot of a queued payment.
+     *
+     * @param paymentId Handle returned when the payment was queued
+     * @param walletId Wallet paying
+     * @param recipientAddress Bitcoin address of the recipient
+     * @param amount Amount in satoshis
+     * @param isSimulation Whether the batch is simulated rather than broadcast
+     * @param queuedAt When the payment was accepted
+     * @param status Current status
+     * @param transactionId Batch transaction once sent, otherwise null
+     * @param outputIndex Output paying the recipient once sent, otherwise -1
+     * @param error Why the payment was not sent, otherwise null
+     */
+    public record QueuedPayment(
+        String paymentId,
+        String walletId,
+        String recipientAddress,
+        long amount,
+        boolean isSimulation,
+        Instant queuedAt,
+        Status status,
+        String transactionId,
+        int outputIndex,
+        String error
+    ) {
+        /**
+         * Gets the outpoint of the output paying the recipient.
+         *
+         * @return {@code transactionId:outputIndex}, or null until sent
+         */
+        public String reference() {
+            return transactionId == null ? null : transactionId + ":" + outputIndex;
+        }
+    }
+
+    /**
+     * Queue counters.
+     *
+     * @param queued Payments waiting for a batch
+     * @param submitting Payments in a batch being sent
+     * @param sent Payments sent since startup
+     * @param failed Payments refused since startup
+     * @param batches Batch transactions sent since startup
+     * @param journalBytes Current journal size
+     */
+    public record Stats(int queued, int submitting, long sent, long failed, long batches, long journalBytes) {
+    }
+
+    private static final class Entry {
+        final String paymentId;
+        final String walletId;
+        final String recipientAddress;
+        final long amount;
+        final boolean simulation;
+        final Instant queuedAt;
+        Status status = Status.QUEUED;
+        String transactionId;
+        int outputIndex = -1;
+        String error;
+        Instant completedAt;
+
+        Entry(String paymentId, String walletId, String recipientAddress, long amount, boolean simulation,
+                Instant queuedAt) {
+            this.paymentId = paymentId;
+            this.walletId = walletId;
+            this.recipientAddress = recipientAddress;
+            this.amount = amount;
+            this.simulation = simulation;
+            this.queuedAt = queuedAt;
+        }
+
+        QueuedPayment snapshot() {
+            return new QueuedPayment(paymentId, walletId, recipientAddress, amount, simulation, queuedAt, status,
+                transactionId, outputIndex, error);
+        }
+    }
+
+    private static final class WalletQueue {
+        final ArrayDeque<Entry> pending = new ArrayDeque<>();
+        ScheduledFuture<?> timer;
+        boolean flushing;
+    }
+
+    private final Path directory;
+    private final Path journalPath;
+    private final WalletService walletService;
+    private final TransactionService transactionService;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final Clock clock;
+    private final ScheduledExecutorService batcher;
+
+    // Guarded by this
+    private final Map<String, Entry> payments = new LinkedHashMap<>();
+    private final Map<String, WalletQueue> walletQueues = new HashMap<>();
+    private FileChannel journal;
+    private long journalLength;
+    private long journalLengthAfterCompaction;
+    private int queued;
+    private int submitting;
+    private long sent;
+    private long failed;
+    private long batches;
+    private boolean closed;
+
+    private PaymentQueue(Path directory, WalletService walletService, TransactionService transactionService,
+            Duration window, int maxBatchSize, Clock clock) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Batching window must be positive");
+        }
+        if (maxBatchSize < 1 || maxBatchSize > TransactionService.MAX_BATCH_PAYMENTS) {
+            throw new IllegalArgumentException("Batch size must be between 1 and " + TransactionService.MAX_BATCH_PAYMENTS);
+        }
+        this.directory = directory;
+        this.journalPath = directory.resolve(JOURNAL_FILE);
+        this.walletService = walletService;
+        this.transactionService = transactionService;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.clock = clock;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2, runnable -> {
+            Thread thread = new Thread(runnable, "payment-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Queued payments survive in the journal, so pending windows need not hold up shutdown
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.batcher = executor;
+    }
+
+    /**
+     * Opens (or creates) a payment queue in the given directory, recovering
+     * the payments journalled before the last shutdown.
+     *
+     * @param directory Directory holding the journal
+     * @param walletService Wallet service for validating payments
+     * @param transactionService Transaction service sending the batches
+     * @param window Longest a payment waits for its batch
+     * @param maxBatchSize Payments that trigger a batch without waiting for the window
+     * @return Opened queue
+     * @throws TransactionException If the journal cannot be opened
+     */
+    public static PaymentQueue open(Path directory, WalletService walletService, TransactionService transactionService,
+            Duration window, int maxBatchSize) {
+        return open(directory, walletService, transactionService, window, maxBatchSize, Clock.systemUTC());
+    }
+
+    static PaymentQueue open(Path directory, WalletService walletService, TransactionService transactionService,
+            Duration window, int maxBatchSize, Clock clock) {
+        PaymentQueue queue = new PaymentQueue(directory, walletService, transactionService, window, maxBatchSize, clock);
+        try {
+            Files.createDirectories(directory);
+            queue.recover();
+            return queue;
+        } catch (IOException e) {
+            queue.batcher.shutdownNow();
+            throw TransactionException.transactionFailed(
+                "Failed to open payment queue at " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Queues a payment for the wallet's next batch.
+     *
+     * @param walletId Wallet paying
+     * @param recipientAddress Bitcoin address of the recipient
+     * @param amount Amount in satoshis
+     * @param isSimulation Whether the batch is simulated rather than broadcast
+     * @return The queued payment, with the ID to poll
+     * @throws TransactionException If the payment is invalid or cannot be journalled
+     */
+    public QueuedPayment enqueue(String walletId, String recipientAddress, long amount, boolean isSimulation)
+            throws TransactionException {
+        if (amount < CoinSelectionParams.DUST_LIMIT) {
+            throw TransactionException.invalidTransaction(
+                "Amount must be at least " + CoinSelectionParams.DUST_LIMIT + " satoshis");
+        }
+        if (walletService.getWallet(walletId) == null) {
+            throw TransactionException.invalidTransaction("Wallet not found: " + walletId);
+        }
+        if (!walletService.isValidAddress(recipientAddress)) {
+            throw TransactionException.invalidTransaction("Invalid recipient address: " + recipientAddress);
+        }
+
+        Entry entry = new Entry("PAY-" + UUID.randomUUID(), walletId, recipientAddress, amount, isSimulation,
+            clock.instant());
+        synchronized (this) {
+            ensureOpen();
+            try {
+                append(encodeEnqueued(entry));
+            } catch (IOException e) {
+                throw TransactionException.transactionFailed("Failed to queue payment: " + e.getMessage(), e);
+            }
+            payments.put(entry.paymentId, entry);
+            queued++;
+            WalletQueue walletQueue = walletQueues.computeIfAbsent(walletId, id -> new WalletQueue());
+            walletQueue.pending.add(entry);
+            schedule(walletId, walletQueue);
+            return entry.snapshot();
+        }
+    }
+
+    /**
+     * Gets the current state of a queued payment.
+     *
+     * @param paymentId ID returned by {@link #enqueue}
+     * @return The payment, or empty if unknown or past retention
+     */
+    public synchronized Optional<QueuedPayment> get(String paymentId) {
+        return Optional.ofNullable(payments.get(paymentId)).map(Entry::snapshot);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(queued, submitting, sent, failed, batches, journalLength);
+    }
+
+    /**
+     * Sends the payments queued for a wallet now, without waiting for the
+     * window. Returns once the batch has been sent or refused.
+     *
+     * @param walletId Wallet whose queue to flush
+     */
+    public void flush(String walletId) {
+        List<Entry> batch;
+        synchronized (this) {
+            WalletQueue walletQueue = walletQueues.get(walletId);
+            if (closed || walletQueue == null || walletQueue.flushing || walletQueue.pending.isEmpty()) {
+                return;
+            }
+            if (walletQueue.timer != null) {
+                walletQueue.timer.cancel(false);
+                walletQueue.timer = null;
+            }
+            batch = new ArrayList<>(Math.min(maxBatchSize, walletQueue.pending.size()));
+            while (batch.size() < maxBatchSize && !walletQueue.pending.isEmpty()) {
+                batch.add(walletQueue.pending.poll());
+            }
+            walletQueue.flushing = true;
+            if (!appendQuietly(encodeIds(RECORD_SUBMITTING, null, batch))) {
+                // Not durable, so not safe to send; try again on the next window
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    walletQueue.pending.addFirst(batch.get(i));
+                }
+                walletQueue.flushing = false;
+                schedule(walletId, walletQueue);
+                return;
+            }
+            for (Entry entry : batch) {
+                entry.status = Status.SUBMITTING;
+            }
+            queued -= batch.size();
+            submitting += batch.size();
+        }
+
+        List<Entry> simulated = batch.stream().filter(entry -> entry.simulation).toList();
+        List<Entry> real = batch.stream().filter(entry -> !entry.simulation).toList();
+        try {
+            send(walletId, simulated, true);
+            send(walletId, real, false);
+        } finally {
+            synchronized (this) {
+                WalletQueue walletQueue = walletQueues.get(walletId);
+                walletQueue.flushing = false;
+                if (walletQueue.pending.isEmpty()) {
+                    walletQueues.remove(walletId);
+                } else {
+                    schedule(walletId, walletQueue);
+                }
+                compactIfNeeded();
+            }
+        }
+    }
+
+    private void send(String walletId, List<Entry> batch, boolean simulation) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Payment> batchPayments = batch.stream()
+            .map(entry -> new Payment(entry.recipientAddress, entry.amount))
+            .toList();
+        try {
+            BatchTransaction transaction = transactionService.createBatchTransaction(walletId, batchPayments, simulation);
+            complete(batch, RECORD_SENT, transaction.transactionId());
+            System.out.println("📦 Sent batch " + transaction.transactionId() + " for wallet " + walletId
+                + " with " + batch.size() + " payments");
+        } catch (RuntimeException e) {
+            // Not retried: a broadcast error does not prove the transaction never reached a peer
+            complete(batch, RECORD_FAILED, e.getMessage());
+            System.err.println("❌ Batch for wallet " + walletId + " failed: " + e.getMessage());
+        }
+    }
+
+    private synchronized void complete(List<Entry> batch, byte type, String detail) {
+        // Best effort: if the outcome cannot be journalled the payments recover as interrupted
+        appendQuietly(encodeIds(type, detail, batch));
+        Instant now = clock.instant();
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(i);
+            if (type == RECORD_SENT) {
+                entry.status = Status.SENT;
+                entry.transactionId = detail;
+                entry.outputIndex = i;
+            } else {
+                entry.status = Status.FAILED;
+                entry.error = detail;
+            }
+            entry.completedAt = now;
+        }
+        submitting -= batch.size();
+        if (type == RECORD_SENT) {
+            sent += batch.size();
+            batches++;
+        } else {
+            failed += batch.size();
+        }
+    }
+
+    private void schedule(String walletId, WalletQueue walletQueue) {
+        if (walletQueue.flushing || closed) {
+            return;
+        }
+        if (walletQueue.pending.size() >= maxBatchSize) {
+            if (walletQueue.timer != null) {
+                walletQueue.timer.cancel(false);
+            }
+            walletQueue.timer = batcher.schedule(() -> flush(walletId), 0, TimeUnit.MILLISECONDS);
+        } else if (walletQueue.timer == null) {
+            Instant due = walletQueue.pending.peek().queuedAt.plus(window);
+            long delay = Math.max(0, Duration.between(clock.instant(), due).toMillis());
+            walletQueue.timer = batcher.schedule(() -> flush(walletId), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        batcher.shutdown();
+        try {
+            if (!batcher.awaitTermination(30, TimeUnit.SECONDS)) {
+                batcher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            batcher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                throw TransactionException.transactionFailed("Failed to close payment queue: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- journal
+
+    private void recover() throws IOException {
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        if (journal.size() < JOURNAL_HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            header.putInt(JOURNAL_MAGIC).putInt(FORMAT_VERSION).flip();
+            journal.truncate(0);
+            journal.write(header, 0);
+            journal.force(true);
+            journalLength = JOURNAL_HEADER_SIZE;
+        } else {
+            journalLength = replay();
+            // Drop a torn tail so new records follow the last complete one
+            journal.truncate(journalLength);
+        }
+
+        List<Entry> interrupted = payments.values().stream()
+            .filter(entry -> entry.status == Status.SUBMITTING)
+            .toList();
+        if (!interrupted.isEmpty()) {
+            append(encodeIds(RECORD_INTERRUPTED, null, interrupted));
+            for (Entry entry : interrupted) {
+                markInterrupted(entry);
+            }
+            System.err.println("⚠️ " + interrupted.size() + " queued payments were being sent when the queue stopped;"
+                + " marked interrupted");
+        }
+        compact();
+
+        synchronized (this) {
+            for (Entry entry : payments.values()) {
+                if (entry.status == Status.QUEUED) {
+                    walletQueues.computeIfAbsent(entry.walletId, id -> new WalletQueue()).pending.add(entry);
+                    queued++;
+                }
+            }
+            walletQueues.forEach((walletId, walletQueue) -> schedule(walletId, walletQueue));
+        }
+        if (queued > 0) {
+            System.out.println("📥 Recovered " + queued + " queued payments for " + walletQueues.size() + " wallets");
+        }
+    }
+
+    private long replay() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalPath)))) {
+            if (in.readInt() != JOURNAL_MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unrecognized payment journal format in " + journalPath);
+            }
+            long position = JOURNAL_HEADER_SIZE;
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int crc = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        return position;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    if (crc(payload) != crc) {
+                        return position;
+                    }
+                } catch (EOFException e) {
+                    return position;
+                }
+                apply(payload);
+                position += RECORD_HEADER_SIZE + payload.length;
+            }
+        }
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        if (type == RECORD_ENQUEUED) {
+            Entry entry = new Entry(in.readUTF(), in.readUTF(), in.readUTF(), in.readLong(), in.readBoolean(),
+                Instant.ofEpochMilli(in.readLong()));
+            payments.put(entry.paymentId, entry);
+            return;
+        }
+
+        String detail = in.readBoolean() ? in.readUTF() : null;
+        Instant at = Instant.ofEpochMilli(in.readLong());
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Entry entry = payments.get(in.readUTF());
+            int outputIndex = type == RECORD_SENT ? in.readInt() : -1;
+            if (entry == null) {
+                continue;
+            }
+            switch (type) {
+                case RECORD_SUBMITTING -> entry.status = Status.SUBMITTING;
+                case RECORD_SENT -> {
+                    entry.status = Status.SENT;
+                    entry.transactionId = detail;
+                    entry.outputIndex = outputIndex;
+                    entry.completedAt = at;
+                }
+                case RECORD_FAILED -> {
+                    entry.status = Status.FAILED;
+                    entry.error = detail;
+                    entry.completedAt = at;
+                }
+                case RECORD_INTERRUPTED -> {
+                    markInterrupted(entry);
+                    entry.completedAt = at;
+                }
+                default -> throw new IOException("Unknown payment journal record type " + type);
+            }
+        }
+    }
+
+    private void markInterrupted(Entry entry) {
+        entry.status = Status.INTERRUPTED;
+        entry.error = "Stopped while the batch was being sent; check the wallet before sending again";
+        entry.completedAt = clock.instant();
+    }
+
+    private void compactIfNeeded() {
+        if (journalLength > COMPACTION_MIN_JOURNAL_SIZE && journalLength > 2 * journalLengthAfterCompaction) {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("⚠️ Payment journal compaction failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rewrites the journal with only the payments still queued or completed
+     * within the retention period, and swaps it in atomically.
+     */
+    private synchronized void compact() throws IOException {
+        Instant cutoff = clock.instant().minus(RESULT_RETENTION);
+        payments.values().removeIf(entry -> entry.completedAt != null && entry.completedAt.isBefore(cutoff));
+
+        Path tempPath = directory.resolve(JOURNAL_FILE + TEMP_SUFFIX);
+        try (FileChannel temp = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(JOURNAL_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            for (Entry entry : payments.values()) {
+                out.write(encodeEnqueued(entry));
+                switch (entry.status) {
+                    case QUEUED -> { }
+                    case SUBMITTING -> out.write(encodeIds(RECORD_SUBMITTING, null, List.of(entry)));
+                    case SENT -> out.write(encodeIds(RECORD_SENT, entry.transactionId, List.of(entry)));
+                    case FAILED -> out.write(encodeIds(RECORD_FAILED, entry.error, List.of(entry)));
+                    case INTERRUPTED -> out.write(encodeIds(RECORD_INTERRUPTED, null, List.of(entry)));
+                }
+            }
+            out.flush();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                temp.write(buffer);
+            }
+            temp.force(true);
+        }
+        journal.close();
+        Files.move(tempPath, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journalLength = journal.size();
+        journalLengthAfterCompaction = journalLength;
+    }
+
+    private void append(byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        long position = journalLength;
+        while (buffer.hasRemaining()) {
+            position += journal.write(buffer, position);
+        }
+        journal.force(false);
+        journalLength = position;
+    }
+
+    private boolean appendQuietly(byte[] record) {
+        try {
+            append(record);
+            return true;
+        } catch (IOException e) {
+            System.err.println("⚠️ Failed to write payment journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw TransactionException.transactionFailed("Payment queue is closed");
+        }
+    }
+
+    // ---------------------------------------------------------------- records
+
+    private static byte[] encodeEnqueued(Entry entry) {
+        return record(out -> {
+            out.writeByte(RECORD_ENQUEUED);
+            out.writeUTF(entry.paymentId);
+            out.writeUTF(entry.walletId);
+            out.writeUTF(entry.recipientAddress);
+            out.writeLong(entry.amount);
+            out.writeBoolean(entry.simulation);
+            out.writeLong(entry.queuedAt.toEpochMilli());
+        });
+    }
+
+    private byte[] encodeIds(byte type, String detail, List<Entry> entries) {
+        long at = clock.millis();
+        return record(out -> {
+            out.writeByte(type);
+            out.writeBoolean(detail != null);
+            if (detail != null) {
+                out.writeUTF(detail.length() > 1000 ? detail.substring(0, 1000) : detail);
+            }
+            out.writeLong(at);
+            out.writeInt(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                out.writeUTF(entry.paymentId);
+                if (type == RECORD_SENT) {
+                    // Output of the payment: its position in the batch, or as recorded when compacting
+                    out.writeInt(entry.status == Status.SENT ? entry.outputIndex : i);
+                }
+            }
+        });
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] record(RecordWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            writer.write(out);
+            out.flush();
+
+            byte[] record = bytes.toByteArray();
+            byte[] payload = Arrays.copyOfRange(record, RECORD_HEADER_SIZE, record.length);
+            ByteBuffer.wrap(record).putInt(payload.length).putInt(crc(payload));
+            return record;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode payment journal record", e);
+        }
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -1,16 +1,23 @@
 package com.btcwallet.transaction;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 import com.btcwallet.network.FeeCalculator;
 import com.btcwallet.network.NetworkMonitor;
+import com.btcwallet.transaction.dto.BatchTransactionDTO;
+import com.btcwallet.transaction.dto.BatchTransactionRequest;
 import com.btcwallet.transaction.dto.CreateTransactionRequest;
+import com.btcwallet.transaction.dto.QueuedPaymentDTO;
 import com.btcwallet.transaction.dto.TransactionDTO;
 
 @RestController
@@ -20,23 +27,42 @@ public class TransactionController {
     private final TransactionService transactionService;
     private final FeeCalculator feeCalculator;
     private final NetworkMonitor networkMonitor;
+    // Null when the payment queue is disabled
+    private final PaymentQueue paymentQueue;
 
-    public TransactionController(TransactionService transactionService, FeeCalculator feeCalculator, NetworkMonitor networkMonitor) {
+    public TransactionController(TransactionService transactionService, FeeCalculator feeCalculator,
+            NetworkMonitor networkMonitor, ObjectProvider<PaymentQueue> paymentQueue) {
         this.transactionService = transactionService;
         this.feeCalculator = feeCalculator;
         this.networkMonitor = networkMonitor;
+        this.paymentQueue = paymentQueue.getIfAvailable();
     }
 
     /**
-     * Creates a new Bitcoin transaction.
+     * Creates a new Bitcoin transaction, or queues the payment for the wallet's next batch.
      *
-     * @param request The request body containing wallet ID, recipient address, amount, and simulation flag.
-     * @return A TransactionDTO representing the created transaction.
+     * @param request The request body containing wallet ID, recipient address, amount, and simulation and queue flags.
+     * @return A TransactionDTO representing the created transaction, or a QueuedPaymentDTO whose
+     *         payment ID can be polled at /queue/{paymentId} when queued; 400 if queueing is requested
+     *         while the payment queue is disabled.
      */
     @PostMapping("/create")
     public ResponseEntity<?> createTransaction(@RequestBody CreateTransactionRequest request) {
+        if (request.isQueue() && paymentQueue == null) {
+            return ResponseEntity.badRequest().body("Payment queue is disabled");
+        }
         try {
             long amountSatoshis = FeeCalculator.btcToSatoshis(request.getAmountBtc().doubleValue());
+
+            if (request.isQueue()) {
+                PaymentQueue.QueuedPayment payment = paymentQueue.enqueue(
+                    request.getWalletId(),
+                    request.getRecipientAddress(),
+                    amountSatoshis,
+                    request.isSimulate()
+                );
+                return new ResponseEntity<>(QueuedPaymentDTO.fromPayment(payment), HttpStatus.ACCEPTED);
+            }
             
             Transaction transaction = transactionService.createTransaction(
                 request.getWalletId(),
@@ -52,6 +78,72 @@ public class TransactionController {
         }
     }
 
+    /**
+     * Creates one Bitcoin transaction paying many recipients from a wallet.
+     * Coins are selected and inputs signed once for the whole batch.
+     *
+     * @param request The request body containing wallet ID, the recipients with their amounts, and simulation flag.
+     * @return A BatchTransactionDTO with the output reference of every payment, in request order.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createBatchTransaction(@RequestBody BatchTransactionRequest request) {
+        if (request.payments() == null || request.payments().isEmpty()
+                || request.payments().size() > TransactionService.MAX_BATCH_PAYMENTS) {
+            return ResponseEntity.badRequest().body("A batch needs between 1 and "
+                + TransactionService.MAX_BATCH_PAYMENTS + " payments");
+        }
+        if (request.payments().stream().anyMatch(recipient -> recipient == null || recipient.amountBtc() == null)) {
+            return ResponseEntity.badRequest().body("Every payment needs a recipient address and an amount");
+        }
+        try {
+            List<Payment> payments = request.payments().stream()
+                .map(recipient -> new Payment(recipient.recipientAddress(),
+                    FeeCalculator.btcToSatoshis(recipient.amountBtc().doubleValue())))
+                .toList();
+
+            BatchTransaction transaction = transactionService.createBatchTransaction(
+                request.walletId(),
+                payments,
+                request.simulate()
+            );
+            return new ResponseEntity<>(BatchTransactionDTO.fromTransaction(transaction), HttpStatus.CREATED);
+        } catch (TransactionException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the state of a queued payment: its transaction and output once sent.
+     *
+     * @param paymentId The payment ID returned when the payment was queued.
+     * @return A QueuedPaymentDTO, or 404 if the payment is unknown or the payment queue is disabled.
+     */
+    @GetMapping("/queue/{paymentId}")
+    public ResponseEntity<?> getQueuedPayment(@PathVariable String paymentId) {
+        if (paymentQueue == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Payment queue is disabled");
+        }
+        return paymentQueue.get(paymentId)
+            .<ResponseEntity<?>>map(payment -> ResponseEntity.ok(QueuedPaymentDTO.fromPayment(payment)))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Unknown payment: " + paymentId));
+    }
+
+    /**
+     * Retrieves payment queue counters.
+     *
+     * @return Queued and in-flight payments, payments and batches sent or failed, and journal size;
+     *         404 if the payment queue is disabled.
+     */
+    @GetMapping("/queue/metrics")
+    public ResponseEntity<PaymentQueue.Stats> getPaymentQueueMetrics() {
+        if (paymentQueue == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(paymentQueue.stats());
+    }
+
     /**
      * Estimates transaction fees for a typical transaction.
      *
@@ -59,7 +151,9 @@ public class TransactionController {
      */
     @GetMapping("/fee-estimate")
     public ResponseEntity<FeeEstimateResponse> getFeeEstimate() {
-        int typicalTransactionSize = 226; // As used in CLI
+        // One P2PKH input paying a P2PKH recipient with change: 226 bytes, as used in CLI
+        int typicalTransactionSize = TransactionSizeModel.vsize(TransactionSizeModel.ScriptType.P2PKH, 1,
+            TransactionSizeModel.ScriptType.P2PKH, TransactionSizeModel.ScriptType.P2PKH);
         FeeCalculator.FeeEstimate estimates = feeCalculator.getFeeEstimates(typicalTransactionSize);
 
         FeeEstimateResponse response = new FeeEstimateResponse(
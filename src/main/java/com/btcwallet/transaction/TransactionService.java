@@ -1,8 +1,11 @@
 package com.btcwallet.transaction;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
 
 import org.bitcoinj.core.Address;
 import org.bitcoinj.core.Coin;
@@ -11,15 +14,21 @@ import org.bitcoinj.core.NetworkParameters;
 import org.bitcoinj.core.Sha256Hash;
 import org.bitcoinj.core.TransactionInput;
 import org.bitcoinj.core.TransactionOutPoint;
-import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.core.TransactionOutput;
 import org.bitcoinj.script.Script;
 import org.bitcoinj.script.ScriptBuilder;
 
-import com.btcwallet.balance.WalletBalance;
+import com.btcwallet.balance.OutpointIndex;
+import com.btcwallet.balance.UtxoSet;
 import com.btcwallet.network.BitcoinBroadcastException;
 import com.btcwallet.network.BitcoinNodeClient;
 import com.btcwallet.network.FeeCalculator;
 import com.btcwallet.network.NetworkMonitor;
+import com.btcwallet.transaction.selection.CoinSelection;
+import com.btcwallet.transaction.selection.CoinSelectionParams;
+import com.btcwallet.transaction.selection.CoinSelector;
+import com.btcwallet.transaction.selection.SelectionPool;
+import com.btcwallet.transaction.selection.WasteMinimizingSelector;
 import com.btcwallet.wallet.Wallet;
 import com.btcwallet.wallet.WalletService;
 
@@ -29,13 +38,26 @@ import com.btcwallet.wallet.WalletService;
  */
 public class TransactionService {
 
+    /** Most payments in one batch; several thousand P2PKH outputs reach the standard size. */
+    public static final int MAX_BATCH_PAYMENTS = 2_500;
+
+    /** How long selected UTXOs stay reserved for a transaction that is neither broadcast nor abandoned. */
+    static final Duration RESERVATION_LEASE = Duration.ofSeconds(30);
+    // Selections lost to a concurrent transaction before giving up
+    private static final int MAX_SELECTION_ATTEMPTS = 3;
+
     private final WalletService walletService;
     private final FeeCalculator feeCalculator;
     private final NetworkMonitor networkMonitor;
     private final BitcoinNodeClient bitcoinNodeClient;
+    private final OutpointIndex outpointIndex;
+    private final CoinSelector coinSelector;
+    private final MempoolOverlay mempoolOverlay;
+    private final TransactionSigner transactionSigner = new TransactionSigner();
 
     /**
-     * Creates a new TransactionService.
+     * Creates a new TransactionService with its own outpoint index, which only
+     * knows about outputs spent through this service.
      *
      * @param walletService     Wallet service for accessing wallets
      * @param feeCalculator     Fee calculator for determining transaction fees
@@ -44,10 +66,63 @@ public class TransactionService {
      */
     public TransactionService(WalletService walletService, FeeCalculator feeCalculator,
             NetworkMonitor networkMonitor, BitcoinNodeClient bitcoinNodeClient) {
+        this(walletService, feeCalculator, networkMonitor, bitcoinNodeClient, new OutpointIndex());
+    }
+
+    /**
+     * Creates a new TransactionService.
+     *
+     * @param walletService     Wallet service for accessing wallets
+     * @param feeCalculator     Fee calculator for determining transaction fees
+     * @param networkMonitor    Network monitor for checking network conditions
+     * @param bitcoinNodeClient Bitcoin node client for broadcasting transactions
+     * @param outpointIndex     Spend state of every known outpoint, used to refuse double spends
+     */
+    public TransactionService(WalletService walletService, FeeCalculator feeCalculator,
+            NetworkMonitor networkMonitor, BitcoinNodeClient bitcoinNodeClient, OutpointIndex outpointIndex) {
+        this(walletService, feeCalculator, networkMonitor, bitcoinNodeClient, outpointIndex,
+                WasteMinimizingSelector.defaults());
+    }
+
+    /**
+     * Creates a new TransactionService with a specific coin selection strategy.
+     *
+     * @param walletService     Wallet service for accessing wallets
+     * @param feeCalculator     Fee calculator for determining transaction fees
+     * @param networkMonitor    Network monitor for checking network conditions
+     * @param bitcoinNodeClient Bitcoin node client for broadcasting transactions
+     * @param outpointIndex     Spend state of every known outpoint, used to refuse double spends
+     * @param coinSelector      Strategy choosing the UTXOs that fund a payment
+     */
+    public TransactionService(WalletService walletService, FeeCalculator feeCalculator,
+            NetworkMonitor networkMonitor, BitcoinNodeClient bitcoinNodeClient, OutpointIndex outpointIndex,
+            CoinSelector coinSelector) {
+        this(walletService, feeCalculator, networkMonitor, bitcoinNodeClient, outpointIndex, coinSelector,
+                new MempoolOverlay(MempoolOverlay.DEFAULT_MAX_ANCESTORS));
+    }
+
+    /**
+     * Creates a new TransactionService spending unconfirmed change through a
+     * shared mempool overlay, which must receive the wallets' balance changes.
+     *
+     * @param walletService     Wallet service for accessing wallets
+     * @param feeCalculator     Fee calculator for determining transaction fees
+     * @param networkMonitor    Network monitor for checking network conditions
+     * @param bitcoinNodeClient Bitcoin node client for broadcasting transactions
+     * @param outpointIndex     Spend state of every known outpoint, used to refuse double spends
+     * @param coinSelector      Strategy choosing the UTXOs that fund a payment
+     * @param mempoolOverlay    Our broadcast transactions not yet reflected by the cached balances
+     */
+    public TransactionService(WalletService walletService, FeeCalculator feeCalculator,
+            NetworkMonitor networkMonitor, BitcoinNodeClient bitcoinNodeClient, OutpointIndex outpointIndex,
+            CoinSelector coinSelector, MempoolOverlay mempoolOverlay) {
         this.walletService = walletService;
         this.feeCalculator = feeCalculator;
         this.networkMonitor = networkMonitor;
         this.bitcoinNodeClient = bitcoinNodeClient;
+        this.outpointIndex = outpointIndex;
+        this.coinSelector = coinSelector;
+        this.mempoolOverlay = mempoolOverlay;
     }
 
     /**
@@ -76,29 +151,26 @@ public class TransactionService {
                 throw TransactionException.invalidTransaction("Invalid recipient address: " + recipientAddress);
             }
 
-            // Fetch UTXOs for coin selection
-            var balance = walletService.getWalletBalance(walletId);
-            List<WalletBalance.UTXO> utxos = balance.getUtxos();
-
-            // Initial fee estimation (simplified for the unsigned structure)
-            long estimatedFee = feeCalculator
-                    .calculateFee(new org.bitcoinj.core.Transaction(wallet.networkParameters()));
-
-            org.bitcoinj.core.Transaction unsignedTx = createUnsignedTransaction(wallet, recipientAddress, amount,
-                    estimatedFee, utxos)
+            FundedTransaction funded = fundTransaction(wallet, walletId,
+                    List.of(new Payment(recipientAddress, amount)))
                     .orElseThrow(() -> TransactionException
                             .invalidTransaction("Insufficient funds or no spendable UTXOs for amount: " + amount));
 
-            // Calculate final fee based on the actual transaction size
-            long finalFee = feeCalculator.calculateFee(unsignedTx);
+            try {
+                // Whatever the inputs don't pay to the outputs, including change too small to keep
+                long finalFee = funded.transaction().getFee().value;
 
-            // Sign transaction
-            org.bitcoinj.core.Transaction signedTransaction = signTransaction(unsignedTx, wallet);
-
-            // Create transaction record
-            Transaction transaction = Transaction.fromTransaction(walletId, signedTransaction, isSimulation, finalFee);
+                if (isSimulation) {
+                    return handleSimulation(Transaction.fromTransaction(walletId,
+                            signTransaction(funded.transaction(), wallet), true, finalFee));
+                }
 
-            return isSimulation ? handleSimulation(transaction) : handleRealExecution(transaction);
+                return signAndCommit(wallet, walletId, funded, signedTransaction -> handleRealExecution(
+                        Transaction.fromTransaction(walletId, signedTransaction, false, finalFee)));
+            } finally {
+                // No-op once committed; otherwise the inputs go back to the wallet right away
+                outpointIndex.release(funded.reservation());
+            }
 
         } catch (TransactionException e) {
             throw e;
@@ -108,57 +180,255 @@ public class TransactionService {
     }
 
     /**
-     * Creates an unsigned Bitcoin transaction with UTXO selection and change
-     * output.
+     * Creates one transaction paying many recipients.
+     * Coins are selected once for the whole batch and every input is signed
+     * once, so each additional payout only costs its own output.
      *
-     * @param wallet           Wallet to send from
-     * @param recipientAddress Recipient Bitcoin address
-     * @param amount           Amount to send in satoshis
-     * @param fee              Fee to include in satoshis
-     * @param utxos            Available UTXOs
-     * @return Optional containing the unsigned transaction
+     * @param walletId     Wallet ID to use for the transaction
+     * @param payments     Recipients and amounts in satoshis, one output each, in order
+     * @param isSimulation Whether to simulate (true) or execute (false) the
+     *                     transaction
+     * @return Created transaction with the output carrying each payment
+     * @throws TransactionException If transaction creation fails
      */
-    private Optional<org.bitcoinj.core.Transaction> createUnsignedTransaction(
-            Wallet wallet, String recipientAddress, long amount, long fee, List<WalletBalance.UTXO> utxos) {
+    public BatchTransaction createBatchTransaction(String walletId, List<Payment> payments, boolean isSimulation)
+            throws TransactionException {
+        try {
+            if (payments == null || payments.isEmpty()) {
+                throw TransactionException.invalidTransaction("Batch has no payments");
+            }
+            if (payments.size() > MAX_BATCH_PAYMENTS) {
+                throw TransactionException.invalidTransaction("Batch has " + payments.size()
+                        + " payments, at most " + MAX_BATCH_PAYMENTS + " are allowed");
+            }
+
+            Wallet wallet = Optional.ofNullable(walletService.getWallet(walletId))
+                    .orElseThrow(() -> TransactionException.invalidTransaction("Wallet not found: " + walletId));
 
+            long totalAmount = 0;
+            for (int i = 0; i < payments.size(); i++) {
+                Payment payment = payments.get(i);
+                if (payment.amount() < CoinSelectionParams.DUST_LIMIT) {
+                    throw TransactionException.invalidTransaction("Payment " + i + ": amount must be at least "
+                            + CoinSelectionParams.DUST_LIMIT + " satoshis");
+                }
+                if (!walletService.isValidAddress(payment.recipientAddress())) {
+                    throw TransactionException.invalidTransaction(
+                            "Payment " + i + ": invalid recipient address: " + payment.recipientAddress());
+                }
+                totalAmount += payment.amount();
+            }
+
+            long batchAmount = totalAmount;
+            FundedTransaction funded = fundTransaction(wallet, walletId, payments)
+                    .orElseThrow(() -> TransactionException.invalidTransaction(
+                            "Insufficient funds or no spendable UTXOs for batch amount: " + batchAmount));
+
+            try {
+                org.bitcoinj.core.Transaction unsignedTx = funded.transaction();
+                if (TransactionSizeModel.vsize(unsignedTx, sizeModelType(wallet)) > TransactionSizeModel.MAX_STANDARD_VSIZE) {
+                    throw TransactionException.invalidTransaction(
+                            "Batch exceeds the standard transaction size; split it into smaller batches");
+                }
+
+                long finalFee = unsignedTx.getFee().value;
+
+                if (isSimulation) {
+                    org.bitcoinj.core.Transaction signedTransaction = signTransaction(unsignedTx, wallet);
+                    validateTransaction(signedTransaction);
+                    return BatchTransaction.fromTransaction(walletId, signedTransaction, payments,
+                            Transaction.TransactionStatus.SIMULATED, finalFee);
+                }
+
+                return signAndCommit(wallet, walletId, funded, signedTransaction -> {
+                    validateAndBroadcast(signedTransaction);
+                    return BatchTransaction.fromTransaction(walletId, signedTransaction, payments,
+                            Transaction.TransactionStatus.BROADCASTED, finalFee);
+                });
+            } finally {
+                outpointIndex.release(funded.reservation());
+            }
+
+        } catch (TransactionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw TransactionException.transactionFailed("Failed to create batch transaction: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the script type a wallet's inputs and change are sized at.
+     *
+     * @param wallet Wallet
+     * @return Size model script type
+     */
+    private static TransactionSizeModel.ScriptType sizeModelType(Wallet wallet) {
+        return wallet.scriptType() == Script.ScriptType.P2WPKH
+                ? TransactionSizeModel.ScriptType.P2WPKH
+                : TransactionSizeModel.ScriptType.P2PKH;
+    }
+
+    /**
+     * Selects coins for a set of payments and builds the unsigned transaction.
+     *
+     * @param wallet   Wallet to send from
+     * @param walletId Wallet ID
+     * @param payments Payments, one output each
+     * @return Optional containing the unsigned transaction with its inputs reserved, empty if the
+     *         wallet cannot fund it
+     */
+    private Optional<FundedTransaction> fundTransaction(Wallet wallet, String walletId,
+            List<Payment> payments) {
+        // Fetch UTXOs for coin selection, including change of our broadcasts the cached balance misses
+        var balance = walletService.getWalletBalance(walletId);
+        UtxoSet utxos = mempoolOverlay.apply(walletId, balance.utxoSet());
+
+        // Fee for everything except inputs and change; coin selection adds those per UTXO at their
+        // signed size, so the fee is final once the inputs are chosen
         NetworkParameters params = wallet.networkParameters();
-        long targetAmount = amount + fee;
-
-        // Coin Selection: Greedy approach to pick UTXOs (remember: UTXO are like cash bills!!!) until target is met
-        List<WalletBalance.UTXO> selectedUtxos = new ArrayList<>();
-        long totalInput = 0;
-        for (WalletBalance.UTXO utxo : utxos) {
-            selectedUtxos.add(utxo);
-            totalInput += utxo.getValue().getValue();
-            if (totalInput >= targetAmount)
-                break;
+        org.bitcoinj.core.Transaction outputs = new org.bitcoinj.core.Transaction(params);
+        for (Payment payment : payments) {
+            outputs.addOutput(Coin.valueOf(payment.amount()), Address.fromString(params, payment.recipientAddress()));
         }
+        long baseFee = feeCalculator.calculateFee(TransactionSizeModel.vsize(outputs));
+        if (wallet.scriptType() == Script.ScriptType.P2WPKH) {
+            // Segwit marker and flag: half a virtual byte, rounded up
+            baseFee += feeCalculator.getFeeRate(FeeCalculator.FeePriority.MEDIUM);
+        }
+
+        return createUnsignedTransaction(wallet, walletId, outputs, baseFee, utxos);
+    }
 
-        if (totalInput < targetAmount) {
-            return Optional.empty();
+    /**
+     * Signs a funded transaction, commits its reserved inputs as spent and hands
+     * it on for broadcasting. The inputs are released again if broadcasting fails;
+     * once it succeeds the change is spendable right away through the mempool overlay.
+     *
+     * @param wallet   Wallet containing the private key
+     * @param walletId Wallet ID
+     * @param funded   Transaction to sign with the reservation of its inputs
+     * @param execute  Broadcasts the signed transaction and builds the result
+     * @return Result of execute
+     */
+    private <T> T signAndCommit(Wallet wallet, String walletId, FundedTransaction funded,
+            Function<org.bitcoinj.core.Transaction, T> execute) {
+        org.bitcoinj.core.Transaction signedTransaction = signTransaction(funded.transaction(), wallet);
+        if (!outpointIndex.commit(funded.reservation())) {
+            throw TransactionException.invalidTransaction(
+                    "Reservation of the selected UTXOs expired and they are being spent by another transaction");
+        }
+        T result;
+        try {
+            result = execute.apply(signedTransaction);
+        } catch (RuntimeException e) {
+            outpointIndex.releasePending(inputHashes(signedTransaction), inputIndices(signedTransaction));
+            throw e;
         }
+        NetworkParameters params = wallet.networkParameters();
+        mempoolOverlay.record(walletId, signedTransaction,
+                ScriptBuilder.createOutputScript(Address.fromString(params, wallet.address())).getProgram());
+        return result;
+    }
 
-        org.bitcoinj.core.Transaction transaction = new org.bitcoinj.core.Transaction(params);
+    /**
+     * Creates an unsigned Bitcoin transaction with UTXO selection and change
+     * output.
+     *
+     * The selected UTXOs are reserved before the transaction is built. If a
+     * concurrent transaction claims one of them first, selection runs again
+     * without it.
+     *
+     * @param wallet   Wallet to send from
+     * @param walletId Wallet ID
+     * @param outputs  Transaction holding the payment outputs, which come first in the result
+     * @param fee      Fee for the transaction without inputs or change in satoshis
+     * @param utxos    Available UTXOs
+     * @return Optional containing the unsigned transaction with its inputs reserved
+     */
+    private Optional<FundedTransaction> createUnsignedTransaction(
+            Wallet wallet, String walletId, org.bitcoinj.core.Transaction outputs, long fee, UtxoSet utxos) {
 
-        // Map selected UTXOs to TransactionInputs
-        selectedUtxos.stream()
-                .map(utxo -> {
-                    TransactionOutPoint outPoint = new TransactionOutPoint(params, utxo.getOutputIndex(),
-                            Sha256Hash.wrap(utxo.getTransactionHash()));
-                    return new TransactionInput(params, transaction, new byte[] {}, outPoint, utxo.getValue());
-                })
-                .forEach(transaction::addInput);
+        NetworkParameters params = wallet.networkParameters();
+        long targetAmount = outputs.getOutputSum().value + fee;
+
+        // Coin Selection (remember: UTXO are like cash bills!!!): every strategy works on the same pool of
+        // spendable UTXOs in value order and the one wasting the least fee wins. Outputs already reserved or
+        // spent by us are left out of the pool, found with one index query per attempt. Inputs and change are
+        // priced at the wallet's script type.
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        TransactionSizeModel.ScriptType scriptType = sizeModelType(wallet);
+        CoinSelectionParams selectionParams = CoinSelectionParams.of(targetAmount,
+                feeCalculator.getFeeRate(FeeCalculator.FeePriority.MEDIUM),
+                feeCalculator.getFeeRate(FeeCalculator.FeePriority.LOW), scriptType, scriptType);
+        IntPredicate withinAncestorLimit = mempoolOverlay.withinAncestorLimit(walletId, utxos);
+        for (int attempt = 0; attempt < MAX_SELECTION_ATTEMPTS; attempt++) {
+            BitSet unspendable = outpointIndex.unspendable(utxos, SelectionPool.firstUsableRank(utxos, selectionParams));
+            SelectionPool pool = SelectionPool.of(utxos,
+                    position -> !unspendable.get(position) && withinAncestorLimit.test(position), selectionParams);
+            Optional<CoinSelection> selection = coinSelector.select(pool, selectionParams, CoinSelector.DEFAULT_BUDGET);
+            if (selection.isEmpty()) {
+                return Optional.empty();
+            }
 
-        // Add recipient output
-        transaction.addOutput(Coin.valueOf(amount), Address.fromString(params, recipientAddress));
+            org.bitcoinj.core.Transaction transaction = new org.bitcoinj.core.Transaction(params);
 
-        // Add change output if remainder is above dust limit
-        long changeValue = totalInput - targetAmount;
-        if (changeValue > org.bitcoinj.core.Transaction.MIN_NONDUST_OUTPUT.getValue()) {
-            transaction.addOutput(Coin.valueOf(changeValue), Address.fromString(params, wallet.address()));
+            // Map selected UTXOs to TransactionInputs
+            for (int i : selection.get().positions()) {
+                Sha256Hash txHash = utxos.copyHash(i, hash, 0)
+                        ? Sha256Hash.wrap(hash.clone())
+                        : Sha256Hash.wrap(utxos.transactionHashAt(i));
+                TransactionOutPoint outPoint = new TransactionOutPoint(params, utxos.outputIndexAt(i), txHash);
+                transaction.addInput(new TransactionInput(params, transaction, new byte[] {}, outPoint,
+                        Coin.valueOf(utxos.valueAt(i))));
+            }
+
+            // Add payment outputs
+            for (TransactionOutput output : outputs.getOutputs()) {
+                transaction.addOutput(output.getValue(), output.getScriptPubKey());
+            }
+
+            // Add change output unless the selection is changeless or the change would be dust
+            if (selection.get().hasChange()) {
+                transaction.addOutput(Coin.valueOf(selection.get().change()),
+                        Address.fromString(params, wallet.address()));
+            }
+
+            // Change of different pending chains can still add up to too long a chain together
+            int ancestors = mempoolOverlay.ancestorCount(walletId, transaction);
+            if (ancestors > mempoolOverlay.maxAncestors()) {
+                throw TransactionException.invalidTransaction("Payment would chain " + ancestors
+                        + " unconfirmed transactions, at most " + mempoolOverlay.maxAncestors()
+                        + " are relayed; wait for a confirmation");
+            }
+
+            // Claim the inputs, so a transaction built concurrently from the same wallet selects others
+            OutpointIndex.Reservation reservation = outpointIndex.reserve(walletId,
+                    inputHashes(transaction), inputIndices(transaction), RESERVATION_LEASE);
+            if (reservation != null) {
+                return Optional.of(new FundedTransaction(transaction, reservation));
+            }
         }
+        throw TransactionException.invalidTransaction(
+                "Selected UTXOs are already being spent by another transaction");
+    }
+
+    /**
+     * An unsigned transaction and the reservation holding its inputs.
+     */
+    private record FundedTransaction(org.bitcoinj.core.Transaction transaction,
+            OutpointIndex.Reservation reservation) {
+    }
+
+    private static byte[][] inputHashes(org.bitcoinj.core.Transaction transaction) {
+        return transaction.getInputs().stream()
+                .map(input -> input.getOutpoint().getHash().getBytes())
+                .toArray(byte[][]::new);
+    }
 
-        return Optional.of(transaction);
+    private static int[] inputIndices(org.bitcoinj.core.Transaction transaction) {
+        return transaction.getInputs().stream()
+                .mapToInt(input -> (int) input.getOutpoint().getIndex())
+                .toArray();
     }
 
     /**
@@ -174,18 +444,13 @@ public class TransactionService {
             ECKey ecKey = wallet.toECKey();
             NetworkParameters params = wallet.networkParameters();
 
-            // For P2PKH (Legacy) addresses, we sign against the output script of the
-            // address
+            // We sign against the output script of the address: P2PKH (Legacy) inputs get a
+            // script signature, P2WPKH (native SegWit) inputs a BIP143 witness
             Script scriptPubKey = ScriptBuilder.createOutputScript(Address.fromString(params, wallet.address()));
 
-            List<TransactionInput> inputs = unsignedTransaction.getInputs();
-            for (int i = 0; i < inputs.size(); i++) {
-                // SigHash.ALL (0x01) signs all inputs and outputs to ensure transaction
-                // integrity
-                TransactionSignature signature = unsignedTransaction.calculateSignature(
-                        i, ecKey, scriptPubKey, org.bitcoinj.core.Transaction.SigHash.ALL, false);
-                inputs.get(i).setScriptSig(ScriptBuilder.createInputScript(signature, ecKey));
-            }
+            // SigHash.ALL (0x01) signs all inputs and outputs to ensure transaction
+            // integrity; large transactions are signed across the fork/join pool
+            transactionSigner.sign(unsignedTransaction, ecKey, scriptPubKey);
 
             return unsignedTransaction;
         } catch (Exception e) {
@@ -226,24 +491,34 @@ public class TransactionService {
      * @throws TransactionException If transaction execution fails
      */
     private Transaction handleRealExecution(Transaction transaction) throws TransactionException {
+        validateAndBroadcast(transaction.rawTransaction());
+
+        // Return transaction with BROADCASTED status
+        return new Transaction(
+                transaction.transactionId(),
+                transaction.walletId(),
+                transaction.recipientAddress(),
+                transaction.amount(),
+                transaction.fee(),
+                Transaction.TransactionStatus.BROADCASTED,
+                transaction.createdAt(),
+                false,
+                transaction.rawTransaction());
+    }
+
+    /**
+     * Validates a signed transaction and broadcasts it to the Bitcoin network.
+     *
+     * @param transaction Transaction to execute
+     * @throws TransactionException If transaction execution fails
+     */
+    private void validateAndBroadcast(org.bitcoinj.core.Transaction transaction) throws TransactionException {
         try {
             // Validate transaction
-            validateTransaction(transaction.rawTransaction());
+            validateTransaction(transaction);
 
             // Broadcast transaction to network
-            broadcastTransaction(transaction.rawTransaction());
-
-            // Return transaction with BROADCASTED status
-            return new Transaction(
-                    transaction.transactionId(),
-                    transaction.walletId(),
-                    transaction.recipientAddress(),
-                    transaction.amount(),
-                    transaction.fee(),
-                    Transaction.TransactionStatus.BROADCASTED,
-                    transaction.createdAt(),
-                    false,
-                    transaction.rawTransaction());
+            broadcastTransaction(transaction);
 
         } catch (BitcoinBroadcastException e) {
             // Wrap our checked exception in the existing TransactionException
@@ -0,0 +1,324 @@
+package com.btcwallet.transaction;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.TransactionWitness;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+
+/**
+ * Signs every input of a transaction with SIGHASH_ALL, spreading large
+ * transactions across a fork/join pool.
+ *
+ * The legacy (P2PKH) signature hash of an input covers the whole transaction with
+ * every other input script emptied, which BitcoinJ rebuilds by copying and
+ * re-parsing the transaction for each input. Here the transaction is
+ * serialized once with all input scripts empty, and each input's hash
+ * streams that serialization through SHA-256 with the signed script spliced
+ * in at the input's position. Signatures are deterministic (RFC 6979), so
+ * the result is byte for byte what signing input by input gives.
+ *
+ * Native SegWit (P2WPKH) inputs use the BIP143 signature hash, which commits
+ * to the transaction through three digests shared by every input: of all
+ * outpoints, of all sequences and of all outputs. They are computed once, so
+ * each input hashes a fixed 182 bytes and signing stays linear in the
+ * number of inputs.
+ *
+ * Hashes and signatures are computed without touching the transaction; the
+ * input scripts are only set once all of them are done.
+ */
+public final class TransactionSigner {
+
+    /** Inputs below which a transaction is signed on the calling thread. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 16;
+
+    // Inputs hashed and signed by one fork/join task
+    private static final int INPUTS_PER_TASK = 8;
+    // Outpoint (32-byte hash and index) before an input's script
+    private static final int OUTPOINT_SIZE = 36;
+    // Empty script length and sequence
+    private static final int BLANK_TAIL_SIZE = 5;
+    private static final int SIGHASH_ALL = 1;
+    // Outpoint, value and sequence of a BIP143 input
+    private static final int WITNESS_INPUT_SIZE = OUTPOINT_SIZE + 8 + 4;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+
+    /**
+     * Creates a signer on the common fork/join pool.
+     */
+    public TransactionSigner() {
+        this(ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Creates a signer.
+     *
+     * @param pool Pool computing signatures of large transactions
+     * @param parallelThreshold Fewest inputs signed in parallel
+     */
+    public TransactionSigner(ForkJoinPool pool, int parallelThreshold) {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Signs every input, all spending outputs locked to the same key.
+     *
+     * @param transaction Transaction whose input scripts or witnesses are set
+     * @param key Private key of the spent outputs
+     * @param scriptPubKey Output script of the spent outputs, P2PKH or P2WPKH
+     */
+    public void sign(org.bitcoinj.core.Transaction transaction, ECKey key, Script scriptPubKey) {
+        List<TransactionInput> inputs = transaction.getInputs();
+        boolean segwit = scriptPubKey.getScriptType() == Script.ScriptType.P2WPKH;
+        SignatureHasher template = segwit
+                ? new WitnessSighashTemplate(transaction, ScriptBuilder.createP2PKHOutputScript(key).getProgram())
+                : new SighashTemplate(transaction, scriptPubKey.getProgram());
+        TransactionSignature[] signatures = new TransactionSignature[inputs.size()];
+
+        if (inputs.size() < parallelThreshold) {
+            signRange(template, key, signatures, 0, inputs.size());
+        } else {
+            pool.invoke(new SignTask(template, key, signatures, 0, inputs.size()));
+        }
+
+        for (int i = 0; i < signatures.length; i++) {
+            if (segwit) {
+                inputs.get(i).setWitness(TransactionWitness.redeemP2WPKH(signatures[i], key));
+            } else {
+                inputs.get(i).setScriptSig(ScriptBuilder.createInputScript(signatures[i], key));
+            }
+        }
+    }
+
+    private static void signRange(SignatureHasher template, ECKey key, TransactionSignature[] signatures,
+            int from, int to) {
+        MessageDigest digest = sha256();
+        for (int i = from; i < to; i++) {
+            Sha256Hash hash = template.hash(i, digest);
+            signatures[i] = new TransactionSignature(key.sign(hash), org.bitcoinj.core.Transaction.SigHash.ALL,
+                false);
+        }
+    }
+
+    /**
+     * Splits the inputs in halves until a range is small enough to sign.
+     */
+    private static final class SignTask extends RecursiveAction {
+        private final SignatureHasher template;
+        private final ECKey key;
+        private final TransactionSignature[] signatures;
+        private final int from;
+        private final int to;
+
+        SignTask(SignatureHasher template, ECKey key, TransactionSignature[] signatures, int from, int to) {
+            this.template = template;
+            this.key = key;
+            this.signatures = signatures;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= INPUTS_PER_TASK) {
+                signRange(template, key, signatures, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new SignTask(template, key, signatures, from, middle),
+                new SignTask(template, key, signatures, middle, to));
+        }
+    }
+
+    /**
+     * Computes the signature hash of one input.
+     */
+    private interface SignatureHasher {
+        /**
+         * Double SHA-256 of the transaction as signed by one input.
+         */
+        Sha256Hash hash(int inputIndex, MessageDigest digest);
+    }
+
+    /**
+     * A transaction serialized for legacy signature hashing, shared by every input.
+     */
+    private static final class SighashTemplate implements SignatureHasher {
+        // Version and input count
+        private final byte[] header;
+        // Every input with an empty script
+        private final byte[] blankInputs;
+        // Outputs, lock time and sighash type
+        private final byte[] trailer;
+        // Signed script with its length
+        private final byte[] scriptCode;
+        private final int inputSize = OUTPOINT_SIZE + BLANK_TAIL_SIZE;
+
+        SighashTemplate(org.bitcoinj.core.Transaction transaction, byte[] script) {
+            List<TransactionInput> inputs = transaction.getInputs();
+            List<TransactionOutput> outputs = transaction.getOutputs();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeUint32(out, transaction.getVersion());
+            writeVarInt(out, inputs.size());
+            header = out.toByteArray();
+
+            out = new ByteArrayOutputStream(inputs.size() * inputSize);
+            for (TransactionInput input : inputs) {
+                out.writeBytes(input.getOutpoint().getHash().getReversedBytes());
+                writeUint32(out, input.getOutpoint().getIndex());
+                writeVarInt(out, 0);
+                writeUint32(out, input.getSequenceNumber());
+            }
+            blankInputs = out.toByteArray();
+
+            out = new ByteArrayOutputStream();
+            writeVarInt(out, outputs.size());
+            for (TransactionOutput output : outputs) {
+                out.writeBytes(output.bitcoinSerialize());
+            }
+            writeUint32(out, transaction.getLockTime());
+            writeUint32(out, SIGHASH_ALL);
+            trailer = out.toByteArray();
+
+            out = new ByteArrayOutputStream(script.length + 9);
+            writeVarInt(out, script.length);
+            out.writeBytes(script);
+            scriptCode = out.toByteArray();
+        }
+
+        @Override
+        public Sha256Hash hash(int inputIndex, MessageDigest digest) {
+            int scriptAt = inputIndex * inputSize + OUTPOINT_SIZE;
+            digest.update(header);
+            digest.update(blankInputs, 0, scriptAt);
+            digest.update(scriptCode);
+            // Skip the empty script's length byte
+            digest.update(blankInputs, scriptAt + 1, blankInputs.length - scriptAt - 1);
+            digest.update(trailer);
+            byte[] first = digest.digest();
+            return Sha256Hash.wrap(digest.digest(first));
+        }
+    }
+
+    /**
+     * A transaction prepared for BIP143 signature hashing, shared by every input.
+     */
+    private static final class WitnessSighashTemplate implements SignatureHasher {
+        // Version, hash of all outpoints and hash of all sequences
+        private final byte[] header;
+        // Outpoint, value and sequence of every input
+        private final byte[] witnessInputs;
+        // Hash of all outputs, lock time and sighash type
+        private final byte[] trailer;
+        // P2PKH script of the key hash with its length
+        private final byte[] scriptCode;
+
+        WitnessSighashTemplate(org.bitcoinj.core.Transaction transaction, byte[] script) {
+            List<TransactionInput> inputs = transaction.getInputs();
+            MessageDigest digest = sha256();
+
+            ByteArrayOutputStream prevouts = new ByteArrayOutputStream(inputs.size() * OUTPOINT_SIZE);
+            ByteArrayOutputStream sequences = new ByteArrayOutputStream(inputs.size() * 4);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(inputs.size() * WITNESS_INPUT_SIZE);
+            for (int i = 0; i < inputs.size(); i++) {
+                TransactionInput input = inputs.get(i);
+                if (input.getValue() == null) {
+                    throw new IllegalArgumentException("Input " + i + " has no value to sign for");
+                }
+                byte[] outpointHash = input.getOutpoint().getHash().getReversedBytes();
+                prevouts.writeBytes(outpointHash);
+                writeUint32(prevouts, input.getOutpoint().getIndex());
+                out.writeBytes(outpointHash);
+                writeUint32(out, input.getOutpoint().getIndex());
+                writeUint64(out, input.getValue().value);
+                writeUint32(out, input.getSequenceNumber());
+                writeUint32(sequences, input.getSequenceNumber());
+            }
+            witnessInputs = out.toByteArray();
+
+            out = new ByteArrayOutputStream(4 + 2 * 32);
+            writeUint32(out, transaction.getVersion());
+            out.writeBytes(doubleSha256(digest, prevouts.toByteArray()));
+            out.writeBytes(doubleSha256(digest, sequences.toByteArray()));
+            header = out.toByteArray();
+
+            ByteArrayOutputStream outputs = new ByteArrayOutputStream();
+            for (TransactionOutput output : transaction.getOutputs()) {
+                outputs.writeBytes(output.bitcoinSerialize());
+            }
+            out = new ByteArrayOutputStream(32 + 8);
+            out.writeBytes(doubleSha256(digest, outputs.toByteArray()));
+            writeUint32(out, transaction.getLockTime());
+            writeUint32(out, SIGHASH_ALL);
+            trailer = out.toByteArray();
+
+            out = new ByteArrayOutputStream(script.length + 1);
+            writeVarInt(out, script.length);
+            out.writeBytes(script);
+            scriptCode = out.toByteArray();
+        }
+
+        @Override
+        public Sha256Hash hash(int inputIndex, MessageDigest digest) {
+            int inputAt = inputIndex * WITNESS_INPUT_SIZE;
+            digest.update(header);
+            digest.update(witnessInputs, inputAt, OUTPOINT_SIZE);
+            digest.update(scriptCode);
+            digest.update(witnessInputs, inputAt + OUTPOINT_SIZE, WITNESS_INPUT_SIZE - OUTPOINT_SIZE);
+            digest.update(trailer);
+            byte[] first = digest.digest();
+            return Sha256Hash.wrap(digest.digest(first));
+        }
+    }
+
+    private static byte[] doubleSha256(MessageDigest digest, byte[] data) {
+        return digest.digest(digest.digest(data));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void writeUint32(ByteArrayOutputStream out, long value) {
+        out.write((int) value);
+        out.write((int) (value >>> 8));
+        out.write((int) (value >>> 16));
+        out.write((int) (value >>> 24));
+    }
+
+    private static void writeUint64(ByteArrayOutputStream out, long value) {
+        writeUint32(out, value);
+        writeUint32(out, value >>> 32);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, long value) {
+        if (value < 0xfd) {
+            out.write((int) value);
+        } else if (value <= 0xffff) {
+            out.write(0xfd);
+            out.write((int) value);
+            out.write((int) (value >>> 8));
+        } else {
+            out.write(0xfe);
+            writeUint32(out, value);
+        }
+    }
+}
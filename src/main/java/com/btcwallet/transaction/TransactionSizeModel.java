@@ -0,0 +1,183 @@
+package com.btcwallet.transaction;
+
+import java.util.List;
+
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.TransactionWitness;
+
+/**
+ * Computes transaction virtual sizes from script types instead of serializing.
+ *
+ * Fees are paid per virtual byte: a quarter of the weight, where bytes outside
+ * the witness weigh 4 and witness bytes weigh 1. Signatures are sized at their
+ * 72 byte maximum, so an estimate is never below the size of the signed
+ * transaction and at most a byte or two per input above it.
+ */
+public final class TransactionSizeModel {
+
+    /** Largest transaction relayed by default, in virtual bytes. */
+    public static final int MAX_STANDARD_VSIZE = 100_000;
+
+    // Version and lock time
+    private static final int HEADER_SIZE = 8;
+    // Segwit marker and flag, witness bytes
+    private static final int SEGWIT_OVERHEAD = 2;
+    // Previous transaction hash, output index and sequence
+    private static final int OUTPOINT_AND_SEQUENCE_SIZE = 40;
+    // Value
+    private static final int OUTPUT_VALUE_SIZE = 8;
+
+    /**
+     * Script types with the sizes of their signed input and of their output.
+     */
+    public enum ScriptType {
+        // Signature and public key pushes
+        P2PKH(107, 0, 25),
+        // Witness program push in the script signature, signature and public key in the witness
+        P2SH_P2WPKH(23, 108, 23),
+        P2WPKH(0, 108, 22),
+        // Key path spend: one Schnorr signature
+        P2TR(0, 66, 34);
+
+        private final int scriptSigSize;
+        private final int witnessSize;
+        private final int scriptPubKeySize;
+
+        ScriptType(int scriptSigSize, int witnessSize, int scriptPubKeySize) {
+            this.scriptSigSize = scriptSigSize;
+            this.witnessSize = witnessSize;
+            this.scriptPubKeySize = scriptPubKeySize;
+        }
+
+        public boolean isSegwit() {
+            return witnessSize > 0;
+        }
+
+        /**
+         * Gets the weight of a signed input spending this script type.
+         *
+         * @return Input weight
+         */
+        public int inputWeight() {
+            return 4 * (OUTPOINT_AND_SEQUENCE_SIZE + varIntSize(scriptSigSize) + scriptSigSize) + witnessSize;
+        }
+
+        /**
+         * Gets the virtual size of a signed input, rounded up.
+         *
+         * @return Input virtual size in bytes
+         */
+        public int inputVsize() {
+            return (inputWeight() + 3) / 4;
+        }
+
+        /**
+         * Gets the size of an output paying to this script type.
+         *
+         * @return Output size in bytes
+         */
+        public int outputSize() {
+            return OUTPUT_VALUE_SIZE + varIntSize(scriptPubKeySize) + scriptPubKeySize;
+        }
+    }
+
+    private TransactionSizeModel() {
+    }
+
+    /**
+     * Gets the virtual size of a signed transaction spending inputs of one type.
+     *
+     * @param inputType Script type of every input
+     * @param inputCount Number of inputs
+     * @param outputTypes Script type of each output
+     * @return Virtual size in bytes
+     */
+    public static int vsize(ScriptType inputType, int inputCount, ScriptType... outputTypes) {
+        int size = HEADER_SIZE + varIntSize(inputCount) + varIntSize(outputTypes.length);
+        for (ScriptType outputType : outputTypes) {
+            size += outputType.outputSize();
+        }
+        int weight = 4 * size + inputCount * inputType.inputWeight();
+        if (inputType.isSegwit() && inputCount > 0) {
+            weight += SEGWIT_OVERHEAD;
+        }
+        return (weight + 3) / 4;
+    }
+
+    /**
+     * Gets the virtual size a transaction will have once signed.
+     *
+     * Inputs that already carry a script signature or witness count at their
+     * actual size. Unsigned inputs count as signed P2PKH inputs, the largest
+     * type this wallet spends, so the estimate never falls short.
+     *
+     * @param transaction BitcoinJ transaction, signed or not
+     * @return Virtual size in bytes
+     */
+    public static int vsize(org.bitcoinj.core.Transaction transaction) {
+        return vsize(transaction, ScriptType.P2PKH);
+    }
+
+    /**
+     * Gets the virtual size a transaction will have once signed, with its
+     * unsigned inputs spending the given script type.
+     *
+     * @param transaction BitcoinJ transaction, signed or not
+     * @param unsignedInputType Script type the unsigned inputs spend
+     * @return Virtual size in bytes
+     */
+    public static int vsize(org.bitcoinj.core.Transaction transaction, ScriptType unsignedInputType) {
+        List<TransactionInput> inputs = transaction.getInputs();
+        List<TransactionOutput> outputs = transaction.getOutputs();
+
+        int size = HEADER_SIZE + varIntSize(inputs.size()) + varIntSize(outputs.size());
+        int witness = 0;
+        boolean segwit = false;
+        for (TransactionInput input : inputs) {
+            int scriptSigSize = input.getScriptBytes().length;
+            if (input.hasWitness()) {
+                segwit = true;
+                witness += witnessSize(input.getWitness());
+            } else if (scriptSigSize == 0) {
+                scriptSigSize = unsignedInputType.scriptSigSize;
+                if (unsignedInputType.isSegwit()) {
+                    segwit = true;
+                    witness += unsignedInputType.witnessSize;
+                } else {
+                    witness++;
+                }
+            } else {
+                // Inputs without witness still take an empty item count in a segwit transaction
+                witness++;
+            }
+            size += OUTPOINT_AND_SEQUENCE_SIZE + varIntSize(scriptSigSize) + scriptSigSize;
+        }
+        for (TransactionOutput output : outputs) {
+            int scriptSize = output.getScriptBytes().length;
+            size += OUTPUT_VALUE_SIZE + varIntSize(scriptSize) + scriptSize;
+        }
+
+        int weight = 4 * size + (segwit ? SEGWIT_OVERHEAD + witness : 0);
+        return (weight + 3) / 4;
+    }
+
+    private static int witnessSize(TransactionWitness witness) {
+        int size = varIntSize(witness.getPushCount());
+        for (int i = 0; i < witness.getPushCount(); i++) {
+            int pushSize = witness.getPush(i).length;
+            size += varIntSize(pushSize) + pushSize;
+        }
+        return size;
+    }
+
+    static int varIntSize(long value) {
+        if (value < 0xfd) {
+            return 1;
+        }
+        if (value <= 0xffff) {
+            return 3;
+        }
+        return value <= 0xffffffffL ? 5 : 9;
+    }
+}
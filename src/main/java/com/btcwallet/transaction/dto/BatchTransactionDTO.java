@@ -0,0 +1,40 @@
+package com.btcwallet.transaction.dto;
+
+import com.btcwallet.transaction.BatchTransaction;
+import java.time.Instant;
+import java.math.BigDecimal;
+import java.util.List;
+
+public record BatchTransactionDTO(
+    String transactionId,
+    String walletId,
+    List<PayoutDTO> payouts,
+    BigDecimal totalAmountBtc,
+    BigDecimal feeBtc,
+    String status,
+    boolean simulation,
+    Instant createdAt
+) {
+    public record PayoutDTO(String recipientAddress, BigDecimal amountBtc, int outputIndex, String reference) {
+    }
+
+    public static BatchTransactionDTO fromTransaction(BatchTransaction transaction) {
+        return new BatchTransactionDTO(
+            transaction.transactionId(),
+            transaction.walletId(),
+            transaction.payouts().stream()
+                .map(payout -> new PayoutDTO(payout.recipientAddress(), toBtc(payout.amount()),
+                    payout.outputIndex(), payout.reference()))
+                .toList(),
+            toBtc(transaction.totalAmount()),
+            toBtc(transaction.fee()),
+            transaction.status().name(),
+            transaction.isSimulation(),
+            transaction.createdAt()
+        );
+    }
+
+    private static BigDecimal toBtc(long satoshis) {
+        return new BigDecimal(org.bitcoinj.core.Coin.valueOf(satoshis).toPlainString());
+    }
+}
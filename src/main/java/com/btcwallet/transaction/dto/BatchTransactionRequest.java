@@ -0,0 +1,10 @@
+package com.btcwallet.transaction.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public record BatchTransactionRequest(String walletId, List<Recipient> payments, boolean simulate) {
+
+    public record Recipient(String recipientAddress, BigDecimal amountBtc) {
+    }
+}
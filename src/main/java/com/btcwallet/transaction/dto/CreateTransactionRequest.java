@@ -7,6 +7,7 @@ public class CreateTransactionRequest {
     private String recipientAddress;
     private BigDecimal amountBtc; // Amount in BTC, to be converted to satoshis
     private boolean simulate;
+    private boolean queue; // Send with the wallet's next batch instead of in a transaction of its own
 
     public String getWalletId() {
         return walletId;
@@ -39,4 +40,12 @@ public class CreateTransactionRequest {
     public void setSimulate(boolean simulate) {
         this.simulate = simulate;
     }
+
+    public boolean isQueue() {
+        return queue;
+    }
+
+    public void setQueue(boolean queue) {
+        this.queue = queue;
+    }
 }
@@ -0,0 +1,33 @@
+package com.btcwallet.transaction.dto;
+
+import com.btcwallet.transaction.PaymentQueue;
+import java.time.Instant;
+import java.math.BigDecimal;
+
+public record QueuedPaymentDTO(
+    String paymentId,
+    String walletId,
+    String recipientAddress,
+    BigDecimal amountBtc,
+    String status,
+    boolean simulation,
+    Instant queuedAt,
+    String transactionId,
+    String reference,
+    String error
+) {
+    public static QueuedPaymentDTO fromPayment(PaymentQueue.QueuedPayment payment) {
+        return new QueuedPaymentDTO(
+            payment.paymentId(),
+            payment.walletId(),
+            payment.recipientAddress(),
+            new BigDecimal(org.bitcoinj.core.Coin.valueOf(payment.amount()).toPlainString()),
+            payment.status().name(),
+            payment.isSimulation(),
+            payment.queuedAt(),
+            payment.transactionId(),
+            payment.reference(),
+            payment.error()
+        );
+    }
+}
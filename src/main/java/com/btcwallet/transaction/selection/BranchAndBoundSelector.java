@@ -0,0 +1,114 @@
+package com.btcwallet.transaction.selection;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Searches for a changeless selection: UTXOs whose effective value lands
+ * between the target and the target plus the cost of change, so dropping the
+ * change output is cheaper than making it.
+ *
+ * Depth-first search over include/exclude decisions in descending value
+ * order, pruning branches that overshoot the window, cannot reach the
+ * target with what is left, or already waste more than the best match. It
+ * stops after a fixed number of steps or at the deadline and keeps the least
+ * wasteful match found.
+ */
+public class BranchAndBoundSelector implements CoinSelector {
+
+    /** Default number of search steps. */
+    public static final int DEFAULT_MAX_TRIES = 100_000;
+
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final int maxTries;
+
+    public BranchAndBoundSelector() {
+        this(DEFAULT_MAX_TRIES);
+    }
+
+    /**
+     * Creates a new BranchAndBoundSelector.
+     *
+     * @param maxTries Search steps before giving up
+     */
+    public BranchAndBoundSelector(int maxTries) {
+        if (maxTries <= 0) {
+            throw new IllegalArgumentException("Max tries must be positive");
+        }
+        this.maxTries = maxTries;
+    }
+
+    @Override
+    public String name() {
+        return "branch-and-bound";
+    }
+
+    @Override
+    public Optional<CoinSelection> select(SelectionPool pool, CoinSelectionParams params, long deadlineNanos) {
+        long target = params.target();
+        long upperBound = target + params.costOfChange();
+        long inputWaste = params.inputFee() - params.longTermInputFee();
+        boolean feeRateHigh = inputWaste > 0;
+        long available = pool.totalEffectiveValue();
+        if (available < target) {
+            return Optional.empty();
+        }
+
+        int[] current = new int[pool.size()];
+        int depth = 0;
+        long currentValue = 0;
+        long currentWaste = 0;
+        int[] best = null;
+        long bestWaste = Long.MAX_VALUE;
+
+        int index = 0;
+        for (int tries = 0; tries < maxTries; tries++, index++) {
+            if (tries % DEADLINE_CHECK_INTERVAL == 0 && tries > 0 && CoinSelector.expired(deadlineNanos)) {
+                break;
+            }
+            boolean backtrack = false;
+            if (currentValue + available < target
+                    || currentValue > upperBound
+                    || (feeRateHigh && currentWaste > bestWaste)) {
+                backtrack = true;
+            } else if (currentValue >= target) {
+                long waste = currentWaste + (currentValue - target);
+                if (waste <= bestWaste) {
+                    best = Arrays.copyOf(current, depth);
+                    bestWaste = waste;
+                }
+                backtrack = true;
+            }
+
+            if (backtrack) {
+                if (depth == 0) {
+                    // Every branch has been explored
+                    break;
+                }
+                // Give back the UTXOs skipped after the last included one, then exclude it
+                for (index--; index > current[depth - 1]; index--) {
+                    available += pool.effectiveValue(index);
+                }
+                currentValue -= pool.effectiveValue(index);
+                currentWaste -= inputWaste;
+                depth--;
+            } else {
+                available -= pool.effectiveValue(index);
+                // Skip a UTXO equal to an excluded predecessor; that branch was already explored
+                if (depth == 0
+                        || index - 1 == current[depth - 1]
+                        || pool.effectiveValue(index) != pool.effectiveValue(index - 1)) {
+                    current[depth++] = index;
+                    currentValue += pool.effectiveValue(index);
+                    currentWaste += inputWaste;
+                }
+            }
+        }
+
+        if (best == null) {
+            return Optional.empty();
+        }
+        return Optional.of(CoinSelection.of(name(), pool, best, best.length, params));
+    }
+}
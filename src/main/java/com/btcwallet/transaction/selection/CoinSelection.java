@@ -0,0 +1,72 @@
+package com.btcwallet.transaction.selection;
+
+import java.util.Arrays;
+
+/**
+ * Result of a coin selection.
+ *
+ * Waste follows the usual definition: what the inputs pay now beyond what
+ * they would pay at the long-term fee rate, plus either the cost of creating
+ * and later spending change, or the excess left to the fee when there is no
+ * change. Lower is better.
+ *
+ * @param algorithm Name of the selector that produced it
+ * @param positions Positions of the selected UTXOs in their set
+ * @param inputValue Sum of the selected UTXOs
+ * @param change Change to return, 0 for a changeless transaction
+ * @param waste Waste metric
+ */
+public record CoinSelection(String algorithm, int[] positions, long inputValue, long change, long waste) {
+
+    /**
+     * Evaluates picks from a pool.
+     *
+     * @param algorithm Selector name
+     * @param pool Pool the picks index into
+     * @param picks Pool indices of the selected UTXOs
+     * @param count Number of picks used
+     * @param params Selection parameters
+     * @return Selection with change and waste worked out
+     */
+    static CoinSelection of(String algorithm, SelectionPool pool, int[] picks, int count, CoinSelectionParams params) {
+        int[] positions = new int[count];
+        long inputValue = 0;
+        long effectiveValue = 0;
+        for (int i = 0; i < count; i++) {
+            positions[i] = pool.position(picks[i]);
+            inputValue += pool.value(picks[i]);
+            effectiveValue += pool.effectiveValue(picks[i]);
+        }
+        long excess = effectiveValue - params.target();
+        long change = excess - params.changeFee();
+        if (change < params.minChange()) {
+            change = 0;
+        }
+        long waste = count * (params.inputFee() - params.longTermInputFee())
+            + (change > 0 ? params.costOfChange() : excess);
+        return new CoinSelection(algorithm, positions, inputValue, change, waste);
+    }
+
+    public boolean hasChange() {
+        return change > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CoinSelection that)) return false;
+        return inputValue == that.inputValue && change == that.change && waste == that.waste
+            && algorithm.equals(that.algorithm) && Arrays.equals(positions, that.positions);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(positions) + Long.hashCode(waste);
+    }
+
+    @Override
+    public String toString() {
+        return "CoinSelection{algorithm=" + algorithm + ", inputs=" + positions.length + ", inputValue=" + inputValue
+            + ", change=" + change + ", waste=" + waste + '}';
+    }
+}
@@ -0,0 +1,88 @@
+package com.btcwallet.transaction.selection;
+
+import com.btcwallet.transaction.TransactionSizeModel;
+import com.btcwallet.transaction.TransactionSizeModel.ScriptType;
+
+/**
+ * Inputs to a coin selection, all amounts in satoshis and sizes in bytes.
+ *
+ * The target covers the payment plus the fee for everything except the
+ * inputs and a change output; each selected input pays for its own size, so
+ * UTXOs are compared by their effective value ({@code value - inputFee()}).
+ *
+ * @param target Payment amount plus the fee for the transaction without inputs or change
+ * @param feeRate Fee rate of this transaction in satoshis per byte
+ * @param longTermFeeRate Fee rate expected when change would be spent later
+ * @param inputSize Size of one input
+ * @param changeOutputSize Size of the change output
+ * @param changeSpendSize Size of the input that later spends the change
+ * @param minChange Smallest change worth creating; less is left to the fee
+ */
+public record CoinSelectionParams(long target, long feeRate, long longTermFeeRate, int inputSize,
+        int changeOutputSize, int changeSpendSize, long minChange) {
+
+    /** Smallest P2PKH output relayed by default. */
+    public static final long DUST_LIMIT = 546;
+
+    public CoinSelectionParams {
+        if (target <= 0) {
+            throw new IllegalArgumentException("Target must be positive");
+        }
+        if (feeRate < 0 || longTermFeeRate < 0) {
+            throw new IllegalArgumentException("Fee rates cannot be negative");
+        }
+        if (inputSize <= 0 || changeOutputSize <= 0 || changeSpendSize <= 0) {
+            throw new IllegalArgumentException("Sizes must be positive");
+        }
+    }
+
+    /**
+     * Creates parameters for a payment from P2PKH outputs with P2PKH change.
+     *
+     * @param target Payment amount plus the fee for the transaction without inputs or change
+     * @param feeRate Fee rate in satoshis per byte
+     * @param longTermFeeRate Fee rate expected when change would be spent later
+     * @return Parameters
+     */
+    public static CoinSelectionParams p2pkh(long target, long feeRate, long longTermFeeRate) {
+        return of(target, feeRate, longTermFeeRate, ScriptType.P2PKH, ScriptType.P2PKH);
+    }
+
+    /**
+     * Creates parameters with input and change sizes from {@link TransactionSizeModel},
+     * so the fee of the selected transaction matches its signed size.
+     *
+     * @param target Payment amount plus the fee for the transaction without inputs or change
+     * @param feeRate Fee rate in satoshis per virtual byte
+     * @param longTermFeeRate Fee rate expected when change would be spent later
+     * @param inputType Script type of the UTXOs being spent
+     * @param changeType Script type of the change output
+     * @return Parameters
+     */
+    public static CoinSelectionParams of(long target, long feeRate, long longTermFeeRate,
+            ScriptType inputType, ScriptType changeType) {
+        return new CoinSelectionParams(target, feeRate, longTermFeeRate, inputType.inputVsize(),
+            changeType.outputSize(), changeType.inputVsize(), DUST_LIMIT);
+    }
+
+    public long inputFee() {
+        return feeRate * inputSize;
+    }
+
+    public long longTermInputFee() {
+        return longTermFeeRate * inputSize;
+    }
+
+    public long changeFee() {
+        return feeRate * changeOutputSize;
+    }
+
+    /**
+     * Gets what making change costs: its output now plus spending it later.
+     *
+     * @return Cost of change
+     */
+    public long costOfChange() {
+        return changeFee() + longTermFeeRate * changeSpendSize;
+    }
+}
@@ -0,0 +1,52 @@
+package com.btcwallet.transaction.selection;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Strategy for choosing which UTXOs fund a payment.
+ */
+public interface CoinSelector {
+
+    /** Default time budget for one selection. */
+    Duration DEFAULT_BUDGET = Duration.ofMillis(100);
+
+    /**
+     * Gets the name reported in {@link CoinSelection#algorithm()}.
+     *
+     * @return Selector name
+     */
+    String name();
+
+    /**
+     * Selects UTXOs whose effective value covers the target.
+     *
+     * @param pool Usable UTXOs in descending value order
+     * @param params Selection parameters
+     * @param deadlineNanos {@link System#nanoTime()} by which a search should stop and return its best result
+     * @return Selection, or empty if this strategy found none
+     */
+    Optional<CoinSelection> select(SelectionPool pool, CoinSelectionParams params, long deadlineNanos);
+
+    /**
+     * Selects UTXOs within a time budget.
+     *
+     * @param pool Usable UTXOs in descending value order
+     * @param params Selection parameters
+     * @param budget Time a search may take
+     * @return Selection, or empty if this strategy found none
+     */
+    default Optional<CoinSelection> select(SelectionPool pool, CoinSelectionParams params, Duration budget) {
+        return select(pool, params, System.nanoTime() + budget.toNanos());
+    }
+
+    /**
+     * Checks whether a deadline has passed.
+     *
+     * @param deadlineNanos Deadline from {@link System#nanoTime()}
+     * @return true once the deadline is reached
+     */
+    static boolean expired(long deadlineNanos) {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+}
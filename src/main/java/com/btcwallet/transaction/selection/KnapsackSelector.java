@@ -0,0 +1,135 @@
+package com.btcwallet.transaction.selection;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Stochastic subset-sum approximation aiming for the target plus the
+ * smallest change worth making.
+ *
+ * Takes an exact single-UTXO match or the smallest UTXO above the goal when
+ * that beats the subsets found by repeated random passes over the smaller
+ * UTXOs. Passes stop at the iteration limit or the deadline; at least one
+ * runs.
+ */
+public class KnapsackSelector implements CoinSelector {
+
+    /** Default number of random passes. */
+    public static final int DEFAULT_ITERATIONS = 1000;
+
+    /** Work per selection, in UTXOs visited, before the iteration count is scaled down. */
+    private static final long MAX_WORK = 20_000_000;
+
+    private final int iterations;
+    private final RandomGenerator random;
+
+    public KnapsackSelector() {
+        this(DEFAULT_ITERATIONS, new SplittableRandom());
+    }
+
+    /**
+     * Creates a new KnapsackSelector.
+     *
+     * @param iterations Random passes per selection
+     * @param random Source of the random passes
+     */
+    public KnapsackSelector(int iterations, RandomGenerator random) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("Iterations must be positive");
+        }
+        this.iterations = iterations;
+        this.random = random;
+    }
+
+    @Override
+    public String name() {
+        return "knapsack";
+    }
+
+    @Override
+    public Optional<CoinSelection> select(SelectionPool pool, CoinSelectionParams params, long deadlineNanos) {
+        long target = params.target();
+        long goal = target + params.changeFee() + params.minChange();
+
+        // The pool is in descending order: UTXOs at or above the goal come first
+        int lowestLarger = -1;
+        int first = 0;
+        while (first < pool.size() && pool.effectiveValue(first) >= goal) {
+            lowestLarger = first++;
+        }
+        for (int i = first; i < pool.size(); i++) {
+            if (pool.effectiveValue(i) == target) {
+                return Optional.of(CoinSelection.of(name(), pool, new int[] {i}, 1, params));
+            }
+        }
+
+        long smallerTotal = 0;
+        for (int i = first; i < pool.size(); i++) {
+            smallerTotal += pool.effectiveValue(i);
+        }
+        if (smallerTotal < goal) {
+            if (smallerTotal >= target && (lowestLarger < 0 || smallerTotal == target)) {
+                // Everything small is just enough without change
+                return Optional.of(CoinSelection.of(name(), pool, range(first, pool.size()), pool.size() - first, params));
+            }
+            return lowestLarger < 0
+                ? Optional.empty()
+                : Optional.of(CoinSelection.of(name(), pool, new int[] {lowestLarger}, 1, params));
+        }
+
+        int count = pool.size() - first;
+        boolean[] included = new boolean[count];
+        boolean[] best = new boolean[count];
+        Arrays.fill(best, true);
+        long bestValue = smallerTotal;
+        long passes = Math.max(1, Math.min(iterations, MAX_WORK / Math.max(1, 2L * count)));
+        for (long pass = 0; pass < passes && bestValue != goal; pass++) {
+            if (pass > 0 && CoinSelector.expired(deadlineNanos)) {
+                break;
+            }
+            Arrays.fill(included, false);
+            long total = 0;
+            boolean reached = false;
+            for (int round = 0; round < 2 && !reached; round++) {
+                for (int i = 0; i < count; i++) {
+                    // First round includes at random, second fills up with the rest
+                    if (round == 0 ? random.nextBoolean() : !included[i]) {
+                        total += pool.effectiveValue(first + i);
+                        included[i] = true;
+                        if (total >= goal) {
+                            reached = true;
+                            if (total < bestValue) {
+                                bestValue = total;
+                                System.arraycopy(included, 0, best, 0, count);
+                            }
+                            total -= pool.effectiveValue(first + i);
+                            included[i] = false;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (lowestLarger >= 0 && pool.effectiveValue(lowestLarger) <= bestValue) {
+            return Optional.of(CoinSelection.of(name(), pool, new int[] {lowestLarger}, 1, params));
+        }
+        int[] picks = new int[count];
+        int picked = 0;
+        for (int i = 0; i < count; i++) {
+            if (best[i]) {
+                picks[picked++] = first + i;
+            }
+        }
+        return Optional.of(CoinSelection.of(name(), pool, picks, picked, params));
+    }
+
+    private static int[] range(int from, int to) {
+        int[] indices = new int[to - from];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = from + i;
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,95 @@
+package com.btcwallet.transaction.selection;
+
+import java.util.function.IntPredicate;
+
+import com.btcwallet.balance.UtxoSet;
+
+/**
+ * The UTXOs a selection may use, in descending value order, with their
+ * effective values. UTXOs that cannot pay for their own input are left out.
+ *
+ * Built once per payment from the set's value order, so no sorting happens
+ * here, and shared by every selector that is tried. The smallest usable UTXO
+ * is found with {@link UtxoSet#ceilingRank(long)}, so only the ranks above it
+ * are visited and copied; UTXOs worth less than their input fee cost nothing.
+ */
+public final class SelectionPool {
+
+    private final int[] positions;
+    private final long[] values;
+    private final long[] effectiveValues;
+    private final int size;
+    private final long totalEffectiveValue;
+
+    private SelectionPool(int[] positions, long[] values, long[] effectiveValues, int size) {
+        this.positions = positions;
+        this.values = values;
+        this.effectiveValues = effectiveValues;
+        this.size = size;
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += effectiveValues[i];
+        }
+        this.totalEffectiveValue = total;
+    }
+
+    /**
+     * Collects the usable UTXOs of a set.
+     *
+     * @param utxos Wallet's UTXO set
+     * @param spendable Whether the UTXO at a position may be spent
+     * @param params Selection parameters
+     * @return Pool in descending value order
+     */
+    public static SelectionPool of(UtxoSet utxos, IntPredicate spendable, CoinSelectionParams params) {
+        int fromRank = firstUsableRank(utxos, params);
+        int candidates = utxos.size() - fromRank;
+        int[] positions = new int[candidates];
+        long[] values = new long[candidates];
+        long[] effectiveValues = new long[candidates];
+        int size = 0;
+        for (int rank = utxos.size() - 1; rank >= fromRank; rank--) {
+            long value = utxos.valueAtRank(rank);
+            long effectiveValue = value - params.inputFee();
+            int position = utxos.positionAtRank(rank);
+            if (spendable.test(position)) {
+                positions[size] = position;
+                values[size] = value;
+                effectiveValues[size] = effectiveValue;
+                size++;
+            }
+        }
+        return new SelectionPool(positions, values, effectiveValues, size);
+    }
+
+    /**
+     * Finds the smallest UTXO that pays for more than its own input.
+     *
+     * @param utxos Wallet's UTXO set
+     * @param params Selection parameters
+     * @return Rank in ascending value order, or the set's size if no UTXO is usable
+     */
+    public static int firstUsableRank(UtxoSet utxos, CoinSelectionParams params) {
+        return utxos.ceilingRank(params.inputFee() + 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long totalEffectiveValue() {
+        return totalEffectiveValue;
+    }
+
+    int position(int index) {
+        return positions[index];
+    }
+
+    long value(int index) {
+        return values[index];
+    }
+
+    long effectiveValue(int index) {
+        return effectiveValues[index];
+    }
+}
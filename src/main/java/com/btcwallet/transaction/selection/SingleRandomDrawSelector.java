@@ -0,0 +1,58 @@
+package com.btcwallet.transaction.selection;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws UTXOs at random until they cover the target plus a change output
+ * of at least the minimum change. Always makes change, and over time keeps
+ * the wallet's UTXO sizes varied instead of grinding down the largest ones.
+ *
+ * Draws without replacement by a partial shuffle, so the cost grows with
+ * the number of UTXOs drawn rather than with the size of the wallet.
+ */
+public class SingleRandomDrawSelector implements CoinSelector {
+
+    private final RandomGenerator random;
+
+    public SingleRandomDrawSelector() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * Creates a new SingleRandomDrawSelector.
+     *
+     * @param random Source of the draws
+     */
+    public SingleRandomDrawSelector(RandomGenerator random) {
+        this.random = random;
+    }
+
+    @Override
+    public String name() {
+        return "single-random-draw";
+    }
+
+    @Override
+    public Optional<CoinSelection> select(SelectionPool pool, CoinSelectionParams params, long deadlineNanos) {
+        long goal = params.target() + params.changeFee() + params.minChange();
+        if (pool.totalEffectiveValue() < goal) {
+            return Optional.empty();
+        }
+        int[] order = new int[pool.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        long total = 0;
+        int drawn = 0;
+        while (total < goal) {
+            int pick = drawn + random.nextInt(order.length - drawn);
+            int swap = order[drawn];
+            order[drawn] = order[pick];
+            order[pick] = swap;
+            total += pool.effectiveValue(order[drawn++]);
+        }
+        return Optional.of(CoinSelection.of(name(), pool, order, drawn, params));
+    }
+}
@@ -0,0 +1,56 @@
+package com.btcwallet.transaction.selection;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Runs several selectors and keeps the selection with the lowest waste;
+ * on equal waste the earlier selector wins.
+ *
+ * All selectors share one deadline. Searches check it and return their
+ * best result so far, so a slow search cannot hold up a payment, while the
+ * cheap strategies listed after it still run.
+ */
+public class WasteMinimizingSelector implements CoinSelector {
+
+    private final List<CoinSelector> selectors;
+
+    /**
+     * Creates a new WasteMinimizingSelector.
+     *
+     * @param selectors Selectors in order of preference
+     */
+    public WasteMinimizingSelector(List<CoinSelector> selectors) {
+        if (selectors.isEmpty()) {
+            throw new IllegalArgumentException("At least one selector is required");
+        }
+        this.selectors = List.copyOf(selectors);
+    }
+
+    /**
+     * Creates the default engine: branch-and-bound, knapsack and single random draw.
+     *
+     * @return Selector
+     */
+    public static WasteMinimizingSelector defaults() {
+        return new WasteMinimizingSelector(
+            List.of(new BranchAndBoundSelector(), new KnapsackSelector(), new SingleRandomDrawSelector()));
+    }
+
+    @Override
+    public String name() {
+        return "waste-minimizing";
+    }
+
+    @Override
+    public Optional<CoinSelection> select(SelectionPool pool, CoinSelectionParams params, long deadlineNanos) {
+        CoinSelection best = null;
+        for (CoinSelector selector : selectors) {
+            Optional<CoinSelection> selection = selector.select(pool, params, deadlineNanos);
+            if (selection.isPresent() && (best == null || selection.get().waste() < best.waste())) {
+                best = selection.get();
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+}
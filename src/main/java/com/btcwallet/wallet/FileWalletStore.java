@@ -0,0 +1,858 @@
+package com.btcwallet.wallet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.bitcoinj.core.NetworkParameters;
+
+/**
+ * File-backed {@link WalletStore}: an append-only log of wallet records plus a
+ * memory-mapped walletId to log offset hash index.
+ *
+ * Startup maps the index and only replays log records written after the last
+ * index checkpoint, so opening a store with a million wallets does not decode
+ * a million records. When the index is missing, stale or from another log
+ * generation it is rebuilt from the log. Compaction rewrites only the live
+ * records into a fresh log snapshot and swaps it in atomically.
+ *
+ * Private keys are written as-is; the store directory is created owner-only
+ * where the file system supports POSIX permissions.
+ */
+public class FileWalletStore implements WalletStore {
+
+    private static final String LOG_FILE = "wallets.log";
+    private static final String INDEX_FILE = "wallets.idx";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int LOG_MAGIC = 0x4254574C;   // "BTWL"
+    private static final int INDEX_MAGIC = 0x42545749; // "BTWI"
+    private static final int FORMAT_VERSION = 1;
+    private static final int LOG_HEADER_SIZE = 16;     // magic, version, generation
+    private static final int RECORD_HEADER_SIZE = 8;   // payload length, crc32
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    // Index layout: 64-byte header followed by 32-byte slots, so slots never straddle a page.
+    private static final int INDEX_HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 32;
+    private static final int MAX_ID_BYTES = SLOT_SIZE - 9;
+    private static final int HDR_SLOT_COUNT = 8;
+    private static final int HDR_ENTRY_COUNT = 12;
+    private static final int HDR_CHECKPOINT = 16;
+    private static final int HDR_DEAD_BYTES = 24;
+    private static final int HDR_GENERATION = 32;
+    private static final int HDR_CLEAN = 40;
+
+    private static final int INITIAL_SLOTS = 1 << 12;
+    private static final int MAX_SLOTS = 1 << 25;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+    private static final int ESTIMATED_RECORD_SIZE = 256;
+    private static final int CHECKPOINT_INTERVAL = 1024;
+    private static final double COMPACTION_THRESHOLD = 0.5;
+    private static final long COMPACTION_MIN_LOG_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final Path logPath;
+    private final Path indexPath;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel log;
+    private long logLength;
+    private long generation;
+    private MappedByteBuffer index;
+    private int slotCount;
+    private int entryCount;
+    private long deadBytes;
+    private int appendsSinceCheckpoint;
+    private boolean closed;
+
+    private FileWalletStore(Path directory) {
+        this.directory = directory;
+        this.logPath = directory.resolve(LOG_FILE);
+        this.indexPath = directory.resolve(INDEX_FILE);
+    }
+
+    /**
+     * Opens (or creates) a wallet store in the given directory.
+     *
+     * @param directory Directory holding the log and index files
+     * @return Opened store
+     * @throws WalletException If the store cannot be opened
+     */
+    public static FileWalletStore open(Path directory) {
+        FileWalletStore store = new FileWalletStore(directory);
+        try {
+            createPrivateDirectory(directory);
+            store.openFiles();
+            return store;
+        } catch (IOException e) {
+            throw WalletException.storageFailed("Failed to open wallet store at " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void save(Wallet wallet) {
+        byte[] idBytes = encodeId(wallet.walletId());
+        byte[] record = encodeRecord(wallet);
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            long offset = logLength;
+            writeFully(log, ByteBuffer.wrap(record), offset);
+            log.force(false);
+            logLength += record.length;
+            insert(idBytes, offset);
+
+            if (++appendsSinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                checkpoint();
+            }
+            if (logLength > COMPACTION_MIN_LOG_SIZE && deadBytes > logLength * COMPACTION_THRESHOLD) {
+                compactLocked();
+            }
+        } catch (IOException e) {
+            throw WalletException.storageFailed("Failed to persist wallet " + wallet.walletId() + ": " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Wallet load(String walletId) {
+        byte[] idBytes = idBytesOrNull(walletId);
+        if (idBytes == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            long offset = offsetOf(findSlot(idBytes));
+            if (offset == 0) {
+                return null;
+            }
+            Wallet wallet = decodeRecord(readRecord(offset));
+            if (!wallet.walletId().equals(walletId)) {
+                throw WalletException.storageFailed("Index entry for " + walletId + " points at " + wallet.walletId());
+            }
+            return wallet;
+        } catch (IOException e) {
+            throw WalletException.storageFailed("Failed to load wallet " + walletId + ": " + e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String walletId) {
+        byte[] idBytes = idBytesOrNull(walletId);
+        if (idBytes == null) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return offsetOf(findSlot(idBytes)) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<String> walletIds() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new SlotIterator();
+            }
+
+            @Override
+            public int size() {
+                return FileWalletStore.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String walletId && FileWalletStore.this.contains(walletId);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entryCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams every live wallet by scanning the log sequentially, which is far
+     * cheaper than a random read per index slot.
+     */
+    @Override
+    public void forEach(Consumer<Wallet> action) {
+        long end;
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            end = logLength;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try (LogReader reader = new LogReader(LOG_HEADER_SIZE, end)) {
+            byte[] payload;
+            while ((payload = reader.next()) != null) {
+                long offset = reader.recordOffset();
+                Wallet wallet = decodeRecord(payload);
+                if (isLive(wallet.walletId(), offset)) {
+                    action.accept(wallet);
+                }
+            }
+        } catch (IOException e) {
+            throw WalletException.storageFailed("Failed to scan wallet store: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            log.truncate(0);
+            generation++;
+            writeLogHeader();
+            logLength = LOG_HEADER_SIZE;
+            createIndex(indexPath, INITIAL_SLOTS);
+            checkpoint();
+        } catch (IOException e) {
+            throw WalletException.storageFailed("Failed to clear wallet store: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the live records into a fresh log snapshot and rebuilds the index
+     * against it, dropping superseded records.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            compactLocked();
+        } catch (IOException e) {
+            throw WalletException.storageFailed("Failed to compact wallet store: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            checkpoint();
+            index.putInt(HDR_CLEAN, 1);
+            index.force();
+            log.close();
+            closed = true;
+        } catch (IOException e) {
+            throw WalletException.storageFailed("Failed to close wallet store: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- startup
+
+    private void openFiles() throws IOException {
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (log.size() == 0) {
+            generation = System.currentTimeMillis();
+            writeLogHeader();
+        } else {
+            readLogHeader();
+        }
+        logLength = log.size();
+
+        if (!mapExistingIndex()) {
+            rebuildIndex();
+            return;
+        }
+
+        boolean clean = index.getInt(HDR_CLEAN) == 1;
+        long checkpointedLength = index.getLong(HDR_CHECKPOINT);
+        if (checkpointedLength > logLength) {
+            // The log lost data the index already covers; trust the log.
+            rebuildIndex();
+            return;
+        }
+        index.putInt(HDR_CLEAN, 0);
+        index.force();
+
+        if (!clean || checkpointedLength != logLength) {
+            replayFrom(checkpointedLength);
+            entryCount = countOccupiedSlots();
+            index.putInt(HDR_ENTRY_COUNT, entryCount);
+            checkpoint();
+        }
+    }
+
+    private boolean mapExistingIndex() throws IOException {
+        if (!Files.exists(indexPath) || Files.size(indexPath) < INDEX_HEADER_SIZE) {
+            return false;
+        }
+        mapIndex(indexPath);
+        int slots = index.getInt(HDR_SLOT_COUNT);
+        boolean valid = index.getInt(0) == INDEX_MAGIC
+                && index.getInt(4) == FORMAT_VERSION
+                && Integer.bitCount(slots) == 1
+                && index.capacity() == INDEX_HEADER_SIZE + (long) slots * SLOT_SIZE
+                && index.getLong(HDR_GENERATION) == generation
+                && index.getLong(HDR_CHECKPOINT) >= LOG_HEADER_SIZE;
+        if (!valid) {
+            return false;
+        }
+        slotCount = slots;
+        entryCount = index.getInt(HDR_ENTRY_COUNT);
+        deadBytes = index.getLong(HDR_DEAD_BYTES);
+        return true;
+    }
+
+    private void rebuildIndex() throws IOException {
+        long estimatedRecords = Math.max(1, (logLength - LOG_HEADER_SIZE) / ESTIMATED_RECORD_SIZE);
+        createIndex(indexPath, slotsFor(estimatedRecords));
+        replayFrom(LOG_HEADER_SIZE);
+        checkpoint();
+    }
+
+    /**
+     * Re-indexes records from the given log offset and truncates a torn tail
+     * left behind by a crash mid-append.
+     */
+    private void replayFrom(long start) throws IOException {
+        long validEnd = start;
+        try (LogReader reader = new LogReader(start, logLength)) {
+            byte[] payload;
+            while ((payload = reader.next()) != null) {
+                insert(encodeId(readId(payload)), reader.recordOffset());
+                validEnd = reader.position();
+            }
+        }
+        if (validEnd < logLength) {
+            log.truncate(validEnd);
+            log.force(true);
+            logLength = validEnd;
+        }
+    }
+
+    // ------------------------------------------------------------------ index
+
+    private void createIndex(Path path, int slots) throws IOException {
+        Files.deleteIfExists(path);
+        mapIndex(path, INDEX_HEADER_SIZE + (long) slots * SLOT_SIZE);
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, FORMAT_VERSION);
+        index.putInt(HDR_SLOT_COUNT, slots);
+        index.putInt(HDR_ENTRY_COUNT, 0);
+        index.putLong(HDR_CHECKPOINT, LOG_HEADER_SIZE);
+        index.putLong(HDR_DEAD_BYTES, 0);
+        index.putLong(HDR_GENERATION, generation);
+        index.putInt(HDR_CLEAN, 0);
+        slotCount = slots;
+        entryCount = 0;
+        deadBytes = 0;
+    }
+
+    private void mapIndex(Path path) throws IOException {
+        mapIndex(path, Files.size(path));
+    }
+
+    private void mapIndex(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            index = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void insert(byte[] idBytes, long offset) throws IOException {
+        int slot = findSlot(idBytes);
+        long base = slotBase(slot);
+        long previous = index.getLong((int) base);
+        if (previous == offset) {
+            return; // already indexed, e.g. replaying past a lost checkpoint
+        }
+        if (previous != 0) {
+            deadBytes += RECORD_HEADER_SIZE + readInt(previous);
+        } else {
+            index.put((int) base + 8, (byte) idBytes.length);
+            index.put((int) base + 9, idBytes);
+            entryCount++;
+        }
+        // The offset goes in last: a non-zero offset marks a fully written slot.
+        index.putLong((int) base, offset);
+        index.putInt(HDR_ENTRY_COUNT, entryCount);
+        index.putLong(HDR_DEAD_BYTES, deadBytes);
+
+        if (entryCount > slotCount * MAX_LOAD_FACTOR) {
+            growIndex();
+        }
+    }
+
+    /**
+     * Returns the slot holding the ID, or the empty slot where it would go.
+     */
+    private int findSlot(byte[] idBytes) {
+        int mask = slotCount - 1;
+        int slot = hash(idBytes) & mask;
+        while (true) {
+            int base = (int) slotBase(slot);
+            if (index.getLong(base) == 0 || slotHoldsId(base, idBytes)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean slotHoldsId(int base, byte[] idBytes) {
+        if (index.get(base + 8) != idBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < idBytes.length; i++) {
+            if (index.get(base + 9 + i) != idBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long offsetOf(int slot) {
+        return index.getLong((int) slotBase(slot));
+    }
+
+    private String idAt(int slot) {
+        int base = (int) slotBase(slot);
+        byte[] idBytes = new byte[index.get(base + 8)];
+        index.get(base + 9, idBytes);
+        return new String(idBytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean isLive(String walletId, long offset) {
+        lock.readLock().lock();
+        try {
+            return offsetOf(findSlot(encodeId(walletId))) == offset;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int countOccupiedSlots() {
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (offsetOf(slot) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void growIndex() throws IOException {
+        if (slotCount >= MAX_SLOTS) {
+            throw new IOException("Wallet index is full (" + slotCount + " slots)");
+        }
+        MappedByteBuffer oldIndex = index;
+        int oldSlots = slotCount;
+        long dead = deadBytes;
+
+        Path tempPath = directory.resolve(INDEX_FILE + TEMP_SUFFIX);
+        createIndex(tempPath, oldSlots * 2);
+        for (int slot = 0; slot < oldSlots; slot++) {
+            int base = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+            long offset = oldIndex.getLong(base);
+            if (offset != 0) {
+                byte[] idBytes = new byte[oldIndex.get(base + 8)];
+                oldIndex.get(base + 9, idBytes);
+                insert(idBytes, offset);
+            }
+        }
+        deadBytes = dead;
+        index.putLong(HDR_DEAD_BYTES, deadBytes);
+        index.putLong(HDR_CHECKPOINT, oldIndex.getLong(HDR_CHECKPOINT));
+        index.force();
+        Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void checkpoint() {
+        index.force();
+        index.putLong(HDR_CHECKPOINT, logLength);
+        index.force();
+        appendsSinceCheckpoint = 0;
+    }
+
+    // ------------------------------------------------------------- compaction
+
+    private void compactLocked() throws IOException {
+        MappedByteBuffer oldIndex = index;
+        int oldSlots = slotCount;
+        int oldEntries = entryCount;
+        long oldDeadBytes = deadBytes;
+        long oldGeneration = generation;
+        try {
+            writeSnapshot(oldIndex, oldSlots);
+        } catch (IOException e) {
+            index = oldIndex;
+            slotCount = oldSlots;
+            entryCount = oldEntries;
+            deadBytes = oldDeadBytes;
+            generation = oldGeneration;
+            Files.deleteIfExists(directory.resolve(LOG_FILE + TEMP_SUFFIX));
+            Files.deleteIfExists(directory.resolve(INDEX_FILE + TEMP_SUFFIX));
+            throw e;
+        }
+    }
+
+    private void writeSnapshot(MappedByteBuffer oldIndex, int oldSlots) throws IOException {
+        Path tempLog = directory.resolve(LOG_FILE + TEMP_SUFFIX);
+        Path tempIndex = directory.resolve(INDEX_FILE + TEMP_SUFFIX);
+        long newGeneration = generation + 1;
+
+        try (FileChannel snapshot = FileChannel.open(tempLog, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            writeFully(snapshot, logHeader(newGeneration), 0);
+            long position = LOG_HEADER_SIZE;
+
+            long previousGeneration = generation;
+            generation = newGeneration;
+            createIndex(tempIndex, slotsFor(entryCount));
+            for (int slot = 0; slot < oldSlots; slot++) {
+                int base = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+                long offset = oldIndex.getLong(base);
+                if (offset == 0) {
+                    continue;
+                }
+                byte[] record = readRawRecord(offset);
+                writeFully(snapshot, ByteBuffer.wrap(record), position);
+                byte[] idBytes = new byte[oldIndex.get(base + 8)];
+                oldIndex.get(base + 9, idBytes);
+                insert(idBytes, position);
+                position += record.length;
+            }
+            snapshot.force(true);
+            index.putLong(HDR_CHECKPOINT, position);
+            index.force();
+
+            // Log first: a crash before the index move leaves a generation mismatch,
+            // which makes the next open rebuild the index from the new log.
+            log.close();
+            Files.move(tempLog, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tempIndex, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            logLength = position;
+            appendsSinceCheckpoint = 0;
+            System.out.println("🗜️ Compacted wallet store: generation " + previousGeneration + " -> " + generation
+                    + ", " + entryCount + " wallets, " + logLength + " bytes");
+        }
+    }
+
+    // ------------------------------------------------------------ log records
+
+    private void writeLogHeader() throws IOException {
+        writeFully(log, logHeader(generation), 0);
+        log.force(true);
+    }
+
+    private static ByteBuffer logHeader(long generation) {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        header.putInt(LOG_MAGIC).putInt(FORMAT_VERSION).putLong(generation).flip();
+        return header;
+    }
+
+    private void readLogHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        readFully(log, header, 0);
+        header.flip();
+        if (header.getInt() != LOG_MAGIC || header.getInt() != FORMAT_VERSION) {
+            throw new IOException("Unrecognized wallet log format in " + logPath);
+        }
+        generation = header.getLong();
+    }
+
+    private int readInt(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+        readFully(log, buffer, position);
+        return buffer.getInt(0);
+    }
+
+    private byte[] readRawRecord(long offset) throws IOException {
+        int length = readInt(offset);
+        if (length <= 0 || length > MAX_RECORD_SIZE) {
+            throw new IOException("Corrupt wallet record at offset " + offset);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        readFully(log, buffer, offset);
+        return buffer.array();
+    }
+
+    private byte[] readRecord(long offset) throws IOException {
+        byte[] raw = readRawRecord(offset);
+        byte[] payload = Arrays.copyOfRange(raw, RECORD_HEADER_SIZE, raw.length);
+        if (crc(payload) != ByteBuffer.wrap(raw).getInt(Integer.BYTES)) {
+            throw new IOException("Checksum mismatch for wallet record at offset " + offset);
+        }
+        return payload;
+    }
+
+    private static byte[] encodeRecord(Wallet wallet) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(ESTIMATED_RECORD_SIZE);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeUTF(wallet.walletId());
+            out.writeUTF(wallet.address());
+            out.writeUTF(wallet.publicKey());
+            out.writeUTF(wallet.privateKey());
+            out.writeLong(wallet.createdAt().getEpochSecond());
+            out.writeInt(wallet.createdAt().getNano());
+            out.writeUTF(wallet.networkParameters().getId());
+            out.flush();
+
+            byte[] record = bytes.toByteArray();
+            int payloadLength = record.length - RECORD_HEADER_SIZE;
+            ByteBuffer.wrap(record)
+                    .putInt(payloadLength)
+                    .putInt(crc(Arrays.copyOfRange(record, RECORD_HEADER_SIZE, record.length)));
+            return record;
+        } catch (IOException e) {
+            throw WalletException.storageFailed("Failed to encode wallet " + wallet.walletId(), e);
+        }
+    }
+
+    private static Wallet decodeRecord(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String walletId = in.readUTF();
+        String address = in.readUTF();
+        String publicKey = in.readUTF();
+        String privateKey = in.readUTF();
+        Instant createdAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        String networkId = in.readUTF();
+        NetworkParameters params = NetworkParameters.fromID(networkId);
+        if (params == null) {
+            throw new IOException("Unknown network '" + networkId + "' for wallet " + walletId);
+        }
+        return new Wallet(walletId, address, publicKey, privateKey, createdAt, params);
+    }
+
+    private static String readId(byte[] payload) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(payload)).readUTF();
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Sequential, buffered reader over a range of the log that stops at the
+     * first torn or corrupt record.
+     */
+    private final class LogReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final DataInputStream in;
+        private final long end;
+        private long position;
+        private long recordOffset;
+
+        LogReader(long start, long end) throws IOException {
+            this.channel = FileChannel.open(logPath, StandardOpenOption.READ);
+            this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(start)), 1 << 16));
+            this.position = start;
+            this.end = end;
+        }
+
+        byte[] next() throws IOException {
+            if (position + RECORD_HEADER_SIZE > end) {
+                return null;
+            }
+            try {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE || position + RECORD_HEADER_SIZE + length > end) {
+                    return null;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (crc(payload) != checksum) {
+                    return null;
+                }
+                recordOffset = position;
+                position += RECORD_HEADER_SIZE + length;
+                return payload;
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        long recordOffset() {
+            return recordOffset;
+        }
+
+        long position() {
+            return position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over occupied index slots. Slots are read in
+     * small batches under the read lock so writers are never blocked for long.
+     */
+    private final class SlotIterator implements Iterator<String> {
+        private static final int BATCH = 256;
+        private final String[] batch = new String[BATCH];
+        private int batchSize;
+        private int batchPosition;
+        private int nextSlot;
+        private boolean exhausted;
+
+        @Override
+        public boolean hasNext() {
+            while (batchPosition == batchSize && !exhausted) {
+                fill();
+            }
+            return batchPosition < batchSize;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch[batchPosition++];
+        }
+
+        private void fill() {
+            batchSize = 0;
+            batchPosition = 0;
+            lock.readLock().lock();
+            try {
+                ensureOpen();
+                while (batchSize < BATCH && nextSlot < slotCount) {
+                    if (offsetOf(nextSlot) != 0) {
+                        batch[batchSize++] = idAt(nextSlot);
+                    }
+                    nextSlot++;
+                }
+                exhausted = nextSlot >= slotCount;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- helpers
+
+    private void ensureOpen() {
+        if (closed) {
+            throw WalletException.storageFailed("Wallet store at " + directory + " is closed");
+        }
+    }
+
+    private static byte[] encodeId(String walletId) {
+        byte[] idBytes = walletId.getBytes(StandardCharsets.UTF_8);
+        if (idBytes.length > MAX_ID_BYTES) {
+            throw WalletException.storageFailed("Wallet ID too long for the index (max " + MAX_ID_BYTES + " bytes): " + walletId);
+        }
+        return idBytes;
+    }
+
+    private static byte[] idBytesOrNull(String walletId) {
+        if (walletId == null) {
+            return null;
+        }
+        byte[] idBytes = walletId.getBytes(StandardCharsets.UTF_8);
+        return idBytes.length > MAX_ID_BYTES ? null : idBytes;
+    }
+
+    private static int hash(byte[] idBytes) {
+        int h = Arrays.hashCode(idBytes);
+        // Murmur3 finalizer to spread sequential IDs across the table
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static long slotBase(int slot) {
+        return INDEX_HEADER_SIZE + (long) slot * SLOT_SIZE;
+    }
+
+    private static int slotsFor(long entries) {
+        long slots = Integer.highestOneBit((int) Math.min(MAX_SLOTS, Math.max(1, (long) (entries / MAX_LOAD_FACTOR)))) * 2L;
+        return (int) Math.max(INITIAL_SLOTS, Math.min(MAX_SLOTS, slots));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of wallet log at " + position);
+            }
+            position += read;
+        }
+    }
+
+    private static void createPrivateDirectory(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(directory,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.btcwallet.wallet;
 
+import org.bitcoinj.core.Address;
 import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.LegacyAddress;
 import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.SegwitAddress;
 import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
 
 import java.io.Serializable;
 import java.time.Instant;
@@ -11,6 +15,10 @@ import java.time.Instant;
  * Represents a Bitcoin wallet containing a key pair and address.
  * This is an immutable record class (Java 16+ feature).
  *
+ * The address is either legacy (P2PKH, "1...") or native SegWit (P2WPKH,
+ * "bc1q..."); the script type follows from the address, so stored wallets
+ * need no extra field.
+ *
  * @param walletId Unique identifier for the wallet
  * @param address Bitcoin address
  * @param publicKey Public key in hex format
@@ -46,7 +54,7 @@ public record Wallet(String walletId, String address, String publicKey, String p
     }
     
     /**
-     * Creates a Wallet from an ECKey (BitcoinJ key pair).
+     * Creates a legacy (P2PKH) Wallet from an ECKey (BitcoinJ key pair).
      *
      * @param walletId Unique identifier for the wallet
      * @param ecKey BitcoinJ ECKey containing the key pair
@@ -54,7 +62,25 @@ public record Wallet(String walletId, String address, String publicKey, String p
      * @return New Wallet instance
      */
     public static Wallet fromECKey(String walletId, ECKey ecKey, NetworkParameters networkParameters) {
-        var address = org.bitcoinj.core.LegacyAddress.fromKey(networkParameters, ecKey);
+        return fromECKey(walletId, ecKey, networkParameters, Script.ScriptType.P2PKH);
+    }
+
+    /**
+     * Creates a Wallet from an ECKey (BitcoinJ key pair).
+     *
+     * @param walletId Unique identifier for the wallet
+     * @param ecKey BitcoinJ ECKey containing the key pair
+     * @param networkParameters Network parameters
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return New Wallet instance
+     */
+    public static Wallet fromECKey(String walletId, ECKey ecKey, NetworkParameters networkParameters,
+            Script.ScriptType scriptType) {
+        Address address = switch (scriptType) {
+            case P2PKH -> LegacyAddress.fromKey(networkParameters, ecKey);
+            case P2WPKH -> SegwitAddress.fromKey(networkParameters, ecKey);
+            default -> throw new IllegalArgumentException("Unsupported wallet script type: " + scriptType);
+        };
         return new Wallet(
             walletId,
             address.toString(),
@@ -65,6 +91,15 @@ public record Wallet(String walletId, String address, String publicKey, String p
         );
     }
     
+    /**
+     * Gets the type of the wallet's address, which its outputs are locked with.
+     *
+     * @return P2PKH or P2WPKH
+     */
+    public Script.ScriptType scriptType() {
+        return Address.fromString(networkParameters, address).getOutputScriptType();
+    }
+
     /**
      * Gets the ECKey representation of this wallet.
      *
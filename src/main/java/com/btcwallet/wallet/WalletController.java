@@ -1,5 +1,6 @@
 package com.btcwallet.wallet;
 
+import org.bitcoinj.script.Script;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -7,6 +8,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.btcwallet.wallet.dto.ImportWalletRequest;
@@ -26,11 +28,16 @@ public class WalletController {
      * Generates a new random Bitcoin wallet.
      * Does not expose the private key directly in the response.
      *
+     * @param addressType "p2pkh" (legacy, default) or "p2wpkh" (native SegWit).
      * @return A WalletDTO containing public wallet information.
      */
     @PostMapping("/generate")
-    public ResponseEntity<WalletDTO> generateWallet() {
-        Wallet wallet = walletService.generateWallet();
+    public ResponseEntity<WalletDTO> generateWallet(@RequestParam(defaultValue = "p2pkh") String addressType) {
+        Script.ScriptType scriptType = parseAddressType(addressType);
+        if (scriptType == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Wallet wallet = walletService.generateWallet(scriptType);
         return new ResponseEntity<>(WalletDTO.fromWallet(wallet), HttpStatus.CREATED);
     }
 
@@ -39,11 +46,17 @@ public class WalletController {
      * NOTE: The mnemonic phrase itself is highly sensitive and is NOT exposed via this API endpoint.
      * TODO: It should be displayed securely by a client application only once upon generation.
      *
+     * @param addressType "p2pkh" (legacy BIP44, default) or "p2wpkh" (native SegWit BIP84).
      * @return A WalletDTO containing public wallet information.
      */
     @PostMapping("/generate-mnemonic")
-    public ResponseEntity<WalletDTO> generateWalletWithMnemonic() {
-        WalletGenerator.WalletGenerationResult result = walletService.generateWalletWithMnemonic();
+    public ResponseEntity<WalletDTO> generateWalletWithMnemonic(
+            @RequestParam(defaultValue = "p2pkh") String addressType) {
+        Script.ScriptType scriptType = parseAddressType(addressType);
+        if (scriptType == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        WalletGenerator.WalletGenerationResult result = walletService.generateWalletWithMnemonic(scriptType);
         Wallet wallet = result.getWallet();
         // Do NOT expose result.getMnemonic() via the API
         return new ResponseEntity<>(WalletDTO.fromWallet(wallet), HttpStatus.CREATED);
@@ -59,16 +72,20 @@ public class WalletController {
     @PostMapping("/import")
     public ResponseEntity<WalletDTO> importWallet(@RequestBody ImportWalletRequest request) {
         String input = request.getKey();
+        Script.ScriptType scriptType = parseAddressType(request.getAddressType());
+        if (scriptType == null) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
         Wallet wallet;
 
         try {
             // Heuristic to detect input type, similar to CLI
             if (walletService.isValidHexPrivateKey(input)) {
-                wallet = walletService.importFromPrivateKey(input);
+                wallet = walletService.importFromPrivateKey(input, scriptType);
             } else if (walletService.isValidWIF(input)) {
-                wallet = walletService.importFromWIF(input);
+                wallet = walletService.importFromWIF(input, scriptType);
             } else if (walletService.isValidMnemonic(input)) {
-                wallet = walletService.importFromMnemonic(input);
+                wallet = walletService.importFromMnemonic(input, scriptType);
             } else {
                 return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Or a more specific error DTO
             }
@@ -91,4 +108,21 @@ public class WalletController {
         boolean isValid = walletService.isValidAddress(address);
         return ResponseEntity.ok(isValid);
     }
+
+    /**
+     * Maps an address type parameter to its output script type.
+     *
+     * @param addressType "p2pkh"/"legacy" or "p2wpkh"/"segwit", case-insensitive; null means legacy
+     * @return The script type, or null if the address type is unknown
+     */
+    private static Script.ScriptType parseAddressType(String addressType) {
+        if (addressType == null) {
+            return Script.ScriptType.P2PKH;
+        }
+        return switch (addressType.trim().toLowerCase()) {
+            case "p2pkh", "legacy" -> Script.ScriptType.P2PKH;
+            case "p2wpkh", "segwit" -> Script.ScriptType.P2WPKH;
+            default -> null;
+        };
+    }
 }
@@ -196,6 +196,27 @@ public class WalletException extends RuntimeException {
         return new WalletException(ErrorType.GENERATION_ERROR, "Wallet generation failed: " + technicalMessage);
     }
 
+    /**
+     * Creates a WalletException for wallet persistence failures.
+     *
+     * @param technicalMessage Technical error details
+     * @return WalletException with appropriate error type and message
+     */
+    public static WalletException storageFailed(String technicalMessage) {
+        return new WalletException(ErrorType.STORAGE_ERROR, "Wallet storage failed: " + technicalMessage);
+    }
+
+    /**
+     * Creates a WalletException for wallet persistence failures with cause.
+     *
+     * @param technicalMessage Technical error details
+     * @param cause Original exception cause
+     * @return WalletException with appropriate error type and message
+     */
+    public static WalletException storageFailed(String technicalMessage, Throwable cause) {
+        return new WalletException(ErrorType.STORAGE_ERROR, "Wallet storage failed: " + technicalMessage, cause);
+    }
+
     /**
      * Creates a WalletException for balance-related errors.
      *
@@ -8,6 +8,7 @@ import org.bitcoinj.crypto.HDKeyDerivation;
 import org.bitcoinj.crypto.MnemonicCode;
 import org.bitcoinj.crypto.MnemonicException;
 import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
 
 import java.security.SecureRandom;
 import java.util.List;
@@ -32,22 +33,43 @@ public class WalletGenerator {
     }
     
     /**
-     * Generates a new Bitcoin wallet with a random key pair.
+     * Generates a new legacy Bitcoin wallet with a random key pair.
      *
      * @return Newly generated Wallet
      */
     public Wallet generateWallet() {
+        return generateWallet(Script.ScriptType.P2PKH);
+    }
+
+    /**
+     * Generates a new Bitcoin wallet with a random key pair.
+     *
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return Newly generated Wallet
+     */
+    public Wallet generateWallet(Script.ScriptType scriptType) {
         ECKey ecKey = new ECKey(secureRandom);
         String walletId = generateWalletId();
-        return Wallet.fromECKey(walletId, ecKey, networkParameters);
+        return Wallet.fromECKey(walletId, ecKey, networkParameters, scriptType);
     }
     
     /**
-     * Generates a new Bitcoin wallet with a mnemonic seed phrase.
+     * Generates a new legacy Bitcoin wallet with a mnemonic seed phrase.
      *
      * @return WalletGenerationResult containing the wallet and mnemonic
      */
     public WalletGenerationResult generateWalletWithMnemonic() {
+        return generateWalletWithMnemonic(Script.ScriptType.P2PKH);
+    }
+
+    /**
+     * Generates a new Bitcoin wallet with a mnemonic seed phrase. Legacy wallets
+     * use the BIP44 path, native SegWit wallets the BIP84 path.
+     *
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return WalletGenerationResult containing the wallet and mnemonic
+     */
+    public WalletGenerationResult generateWalletWithMnemonic(Script.ScriptType scriptType) {
         byte[] entropy = new byte[16]; // 128 bits for 12-word mnemonic
         secureRandom.nextBytes(entropy);
         
@@ -56,13 +78,14 @@ public class WalletGenerator {
             List<String> mnemonicWords = mnemonicCode.toMnemonic(entropy);
             byte[] seed = MnemonicCode.toSeed(mnemonicWords, ""); // Empty passphrase
             
-            // BIP44 Path: m / 44' / coin_type' / account' / change / address_index
+            // BIP44/BIP84 Path: m / purpose' / coin_type' / account' / change / address_index
             
             // 1. Master Key (m)
             DeterministicKey masterKey = HDKeyDerivation.createMasterPrivateKey(seed);
             
-            // 2. Purpose (44') - BIP44 standard for HD wallets
-            DeterministicKey purposeKey = HDKeyDerivation.deriveChildKey(masterKey, new ChildNumber(44, true));
+            // 2. Purpose - 44' (BIP44) for legacy, 84' (BIP84) for native SegWit addresses
+            int purpose = scriptType == Script.ScriptType.P2WPKH ? 84 : 44;
+            DeterministicKey purposeKey = HDKeyDerivation.deriveChildKey(masterKey, new ChildNumber(purpose, true));
             
             // 3. Coin Type - 0' for MainNet, 1' for TestNet
             int coinType = networkParameters.equals(MainNetParams.get()) ? 0 : 1;
@@ -79,7 +102,7 @@ public class WalletGenerator {
 
             ECKey ecKey = ECKey.fromPrivate(addressKey.getPrivKeyBytes());
             String walletId = generateWalletId();
-            Wallet wallet = Wallet.fromECKey(walletId, ecKey, networkParameters);
+            Wallet wallet = Wallet.fromECKey(walletId, ecKey, networkParameters, scriptType);
             
             return new WalletGenerationResult(wallet, String.join(" ", mnemonicWords));
         } catch (Exception e) {
@@ -8,7 +8,9 @@ import org.bitcoinj.crypto.DeterministicKey;
 import org.bitcoinj.crypto.HDKeyDerivation;
 import org.bitcoinj.crypto.MnemonicCode;
 import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,6 +18,11 @@ import java.util.UUID;
 /**
  * Service for importing existing Bitcoin wallets from private keys or seed
  * phrases.
+ *
+ * An imported key may have received funds long before the import, so the
+ * wallet's creation time is the earliest time its key could have been used:
+ * BIP39 standardisation for mnemonics, the genesis block for raw keys. The
+ * node client scans the chain from there.
  */
 public class WalletImporter {
 
@@ -38,13 +45,25 @@ public class WalletImporter {
      * @throws WalletImportException If the private key is invalid
      */
     public Wallet importFromPrivateKey(String privateKeyHex) throws WalletException {
+        return importFromPrivateKey(privateKeyHex, Script.ScriptType.P2PKH);
+    }
+
+    /**
+     * Imports a wallet from a private key in hex format.
+     *
+     * @param privateKeyHex Private key in hexadecimal format
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return Imported Wallet
+     * @throws WalletImportException If the private key is invalid
+     */
+    public Wallet importFromPrivateKey(String privateKeyHex, Script.ScriptType scriptType) throws WalletException {
         try {
             var keys = Optional.ofNullable(privateKeyHex).filter(key -> !key.isEmpty())
                     .orElseThrow(() -> WalletException.invalidPrivateKey("Private key cannot be null or empty"));
 
             ECKey ecKey = ECKey.fromPrivate(org.bitcoinj.core.Utils.HEX.decode(keys));
             String walletId = generateWalletId();
-            return Wallet.fromECKey(walletId, ecKey, networkParameters);
+            return bornAt(Wallet.fromECKey(walletId, ecKey, networkParameters, scriptType), genesisTime());
         } catch (Exception e) {
             throw WalletException.invalidPrivateKey("Invalid private key format: " + e.getMessage());
         }
@@ -58,6 +77,19 @@ public class WalletImporter {
      * @throws WalletImportException If the mnemonic is invalid
      */
     public Wallet importFromMnemonic(String mnemonic) throws WalletException {
+        return importFromMnemonic(mnemonic, Script.ScriptType.P2PKH);
+    }
+
+    /**
+     * Imports a wallet from a mnemonic seed phrase. Legacy wallets are derived
+     * on the BIP44 path, native SegWit wallets on the BIP84 path.
+     *
+     * @param mnemonic Mnemonic seed phrase (space-separated words)
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return Imported Wallet
+     * @throws WalletImportException If the mnemonic is invalid
+     */
+    public Wallet importFromMnemonic(String mnemonic, Script.ScriptType scriptType) throws WalletException {
         try {
             var seedPhrase = Optional.ofNullable(mnemonic).filter(key -> !key.isEmpty())
                     .orElseThrow(() -> WalletException.invalidMnemonic("Mnemonic seed phrase cannot be null or empty"));
@@ -72,13 +104,14 @@ public class WalletImporter {
 
             byte[] seed = MnemonicCode.toSeed(mnemonicWords, ""); // Empty passphrase
 
-            // BIP44 Path: m / 44' / coin_type' / account' / change / address_index
+            // BIP44/BIP84 Path: m / purpose' / coin_type' / account' / change / address_index
             
             // 1. Master Key (m)
             DeterministicKey masterKey = HDKeyDerivation.createMasterPrivateKey(seed);
             
-            // 2. Purpose (44') - BIP44 standard for HD wallets
-            DeterministicKey purposeKey = HDKeyDerivation.deriveChildKey(masterKey, new ChildNumber(44, true));
+            // 2. Purpose - 44' (BIP44) for legacy, 84' (BIP84) for native SegWit addresses
+            int purpose = scriptType == Script.ScriptType.P2WPKH ? 84 : 44;
+            DeterministicKey purposeKey = HDKeyDerivation.deriveChildKey(masterKey, new ChildNumber(purpose, true));
             
             // 3. Coin Type - 0' for MainNet, 1' for TestNet
             int coinType = networkParameters.equals(MainNetParams.get()) ? 0 : 1;
@@ -95,7 +128,8 @@ public class WalletImporter {
 
             ECKey ecKey = ECKey.fromPrivate(addressKey.getPrivKeyBytes());
             String walletId = generateWalletId();
-            return Wallet.fromECKey(walletId, ecKey, networkParameters);
+            return bornAt(Wallet.fromECKey(walletId, ecKey, networkParameters, scriptType),
+                    Instant.ofEpochSecond(MnemonicCode.BIP39_STANDARDISATION_TIME_SECS));
 
         } catch (Exception e) {
             if (e.getMessage() != null && (e.getMessage().contains("mnemonic") || e.getMessage().contains("word"))) {
@@ -114,6 +148,18 @@ public class WalletImporter {
      * @throws WalletImportException If the WIF key is invalid
      */
     public Wallet importFromWIF(String wifPrivateKey) throws WalletException {
+        return importFromWIF(wifPrivateKey, Script.ScriptType.P2PKH);
+    }
+
+    /**
+     * Imports a wallet from a WIF (Wallet Import Format) private key.
+     *
+     * @param wifPrivateKey WIF formatted private key
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return Imported Wallet
+     * @throws WalletImportException If the WIF key is invalid
+     */
+    public Wallet importFromWIF(String wifPrivateKey, Script.ScriptType scriptType) throws WalletException {
         try {
             var wifKey = Optional.ofNullable(wifPrivateKey).filter(key -> !key.isEmpty())
                     .orElseThrow(() -> WalletException.invalidPrivateKey("WIF private key cannot be null or empty"));
@@ -121,7 +167,7 @@ public class WalletImporter {
             DumpedPrivateKey dumpedPrivateKey = DumpedPrivateKey.fromBase58(networkParameters, wifKey);
             ECKey ecKey = dumpedPrivateKey.getKey();
             String walletId = generateWalletId();
-            return Wallet.fromECKey(walletId, ecKey, networkParameters);
+            return bornAt(Wallet.fromECKey(walletId, ecKey, networkParameters, scriptType), genesisTime());
         } catch (org.bitcoinj.core.AddressFormatException e) {
             throw WalletException.invalidPrivateKey("Invalid WIF private key format: " + e.getMessage());
         } catch (Exception e) {
@@ -129,6 +175,27 @@ public class WalletImporter {
         }
     }
 
+    /**
+     * Gets the time of the network's genesis block, before which no key was used.
+     *
+     * @return Genesis block time
+     */
+    private Instant genesisTime() {
+        return Instant.ofEpochSecond(networkParameters.getGenesisBlock().getTimeSeconds());
+    }
+
+    /**
+     * Copies a wallet with a different creation time.
+     *
+     * @param wallet Imported wallet
+     * @param keyBirth Earliest time the key may have been used
+     * @return Wallet created at keyBirth
+     */
+    private static Wallet bornAt(Wallet wallet, Instant keyBirth) {
+        return new Wallet(wallet.walletId(), wallet.address(), wallet.publicKey(), wallet.privateKey(),
+                keyBirth, wallet.networkParameters());
+    }
+
     /**
      * Generates a unique wallet ID.
      *
@@ -0,0 +1,128 @@
+package com.btcwallet.wallet;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent in-memory registry of wallets keyed by wallet ID.
+ *
+ * Backed by a {@link ConcurrentHashMap}, which is internally striped: lookups
+ * never take a lock and writes only lock the single hash bin they touch, so the
+ * request threads and the background refresh thread do not contend on one
+ * monitor. Iteration goes through live, weakly consistent views instead of
+ * copying the whole registry.
+ */
+public class WalletRegistry {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+    private final ConcurrentHashMap<String, Wallet> wallets;
+    private final Map<String, Wallet> readOnlyView;
+    private final Collection<String> walletIdsView;
+
+    /**
+     * Creates a new WalletRegistry with the default initial capacity.
+     */
+    public WalletRegistry() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a new WalletRegistry sized for the expected number of wallets.
+     *
+     * @param expectedWallets Expected number of wallets, used to avoid early resizes
+     */
+    public WalletRegistry(int expectedWallets) {
+        this.wallets = new ConcurrentHashMap<>(Math.max(16, expectedWallets));
+        this.readOnlyView = Collections.unmodifiableMap(wallets);
+        this.walletIdsView = Collections.unmodifiableSet(wallets.keySet());
+    }
+
+    /**
+     * Registers a wallet, replacing any wallet with the same ID.
+     *
+     * @param wallet Wallet to register
+     */
+    public void register(Wallet wallet) {
+        wallets.put(wallet.walletId(), wallet);
+    }
+
+    /**
+     * Registers a wallet unless one with the same ID is already present.
+     *
+     * @param wallet Wallet to register
+     * @return The wallet now registered under that ID
+     */
+    public Wallet registerIfAbsent(Wallet wallet) {
+        Wallet existing = wallets.putIfAbsent(wallet.walletId(), wallet);
+        return existing != null ? existing : wallet;
+    }
+
+    /**
+     * Gets a wallet by its ID in O(1) without locking.
+     *
+     * @param walletId Wallet ID to look up
+     * @return Wallet if found, null otherwise
+     */
+    public Wallet get(String walletId) {
+        return walletId == null ? null : wallets.get(walletId);
+    }
+
+    /**
+     * Checks whether a wallet is registered.
+     *
+     * @param walletId Wallet ID to check
+     * @return true if registered
+     */
+    public boolean contains(String walletId) {
+        return walletId != null && wallets.containsKey(walletId);
+    }
+
+    /**
+     * Gets the number of registered wallets.
+     *
+     * @return Wallet count
+     */
+    public int size() {
+        return wallets.size();
+    }
+
+    /**
+     * Gets a live, read-only view of the registered wallet IDs.
+     * The view reflects concurrent registrations and never throws
+     * ConcurrentModificationException.
+     *
+     * @return Wallet ID view
+     */
+    public Collection<String> walletIds() {
+        return walletIdsView;
+    }
+
+    /**
+     * Gets a live, read-only map view of the registry.
+     *
+     * @return Map of wallet IDs to wallets
+     */
+    public Map<String, Wallet> asMap() {
+        return readOnlyView;
+    }
+
+    /**
+     * Applies an action to every registered wallet without copying the registry.
+     *
+     * @param action Action to apply
+     */
+    public void forEach(Consumer<Wallet> action) {
+        wallets.values().forEach(action);
+    }
+
+    /**
+     * Removes all registered wallets.
+     */
+    public void clear() {
+        wallets.clear();
+    }
+}
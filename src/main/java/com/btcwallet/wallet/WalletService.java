@@ -2,30 +2,65 @@ package com.btcwallet.wallet;
 
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.bitcoinj.core.Coin;
 import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.script.Script;
 
 import com.btcwallet.balance.BalanceCache;
-import com.btcwallet.balance.BalanceException;
+import com.btcwallet.balance.BalanceDelta;
+import com.btcwallet.balance.BalanceRefreshEngine;
+import com.btcwallet.balance.BalanceRequestCoalescer;
+import com.btcwallet.balance.OutpointIndex;
+import com.btcwallet.balance.PortfolioTotals;
 import com.btcwallet.balance.WalletBalance;
 import com.btcwallet.network.BitcoinNodeClient;
+import com.btcwallet.network.ChainEventListener;
 
 public class WalletService {
 
+    private static final int REVALIDATION_THREADS = 4;
+    // Wallets loaded into the portfolio totals per background pass, so due refreshes run in between
+    private static final int TOTALS_LOAD_CHUNK = 1_000;
+
     private final WalletGenerator walletGenerator;
     private final WalletImporter walletImporter;
     private final NetworkParameters networkParameters;
-    private final Map<String, Wallet> walletStorage = new HashMap<>();
+    private final WalletRegistry walletRegistry = new WalletRegistry();
+    private final WalletStore walletStore;
     private final BitcoinNodeClient bitcoinNodeClient;
-    private final BalanceCache balanceCache = BalanceCache.getInstance();
+    private final BalanceCache balanceCache;
+    private final BalanceRefreshEngine refreshEngine;
+    private final PortfolioTotals portfolioTotals = new PortfolioTotals();
+    private final OutpointIndex outpointIndex = new OutpointIndex();
+    private final BalanceRequestCoalescer requestCoalescer = new BalanceRequestCoalescer();
+    // Registered wallets waiting for their first balance load into the portfolio totals
+    private final Set<String> untotalled = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean totalsLoadQueued = new AtomicBoolean();
+    // Wallets whose first load failed; their regular background refresh adds them later
+    private final Set<String> totalsLoadFailures = ConcurrentHashMap.newKeySet();
     private final ScheduledExecutorService refreshScheduler;
+    private volatile ScheduledFuture<?> periodicRefresh;
+    private final ExecutorService revalidationExecutor = Executors.newFixedThreadPool(REVALIDATION_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "balance-revalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Creates a new WalletService instance.
@@ -34,39 +69,244 @@ public class WalletService {
      * @param bitcoinNodeClient Bitcoin node client for blockchain operations
      */
     public WalletService(NetworkParameters networkParameters, BitcoinNodeClient bitcoinNodeClient) {
+        this(networkParameters, bitcoinNodeClient, null);
+    }
+
+    /**
+     * Creates a new WalletService instance backed by a durable wallet store.
+     *
+     * @param networkParameters Network parameters to use
+     * @param bitcoinNodeClient Bitcoin node client for blockchain operations
+     * @param walletStore       Durable wallet store, or null to keep wallets in memory only
+     */
+    public WalletService(NetworkParameters networkParameters, BitcoinNodeClient bitcoinNodeClient,
+            WalletStore walletStore) {
+        this(networkParameters, bitcoinNodeClient, walletStore, new BalanceCache());
+    }
+
+    /**
+     * Creates a new WalletService instance with its own balance cache.
+     *
+     * @param networkParameters Network parameters to use
+     * @param bitcoinNodeClient Bitcoin node client for blockchain operations
+     * @param walletStore       Durable wallet store, or null to keep wallets in memory only
+     * @param balanceCache      Cache for wallet balances
+     */
+    public WalletService(NetworkParameters networkParameters, BitcoinNodeClient bitcoinNodeClient,
+            WalletStore walletStore, BalanceCache balanceCache) {
+        this(networkParameters, bitcoinNodeClient, walletStore, balanceCache, new BalanceRefreshEngine());
+    }
+
+    /**
+     * Creates a new WalletService instance with its own balance cache and refresh engine.
+     *
+     * @param networkParameters Network parameters to use
+     * @param bitcoinNodeClient Bitcoin node client for blockchain operations
+     * @param walletStore       Durable wallet store, or null to keep wallets in memory only
+     * @param balanceCache      Cache for wallet balances
+     * @param refreshEngine     Engine running the tiered background refresh of balances
+     */
+    public WalletService(NetworkParameters networkParameters, BitcoinNodeClient bitcoinNodeClient,
+            WalletStore walletStore, BalanceCache balanceCache, BalanceRefreshEngine refreshEngine) {
         this.networkParameters = networkParameters;
         this.walletGenerator = new WalletGenerator(networkParameters);
         this.walletImporter = new WalletImporter(networkParameters);
         this.bitcoinNodeClient = bitcoinNodeClient;
+        this.walletStore = walletStore;
+        this.balanceCache = balanceCache;
+        this.refreshEngine = refreshEngine;
         this.refreshScheduler = Executors.newSingleThreadScheduledExecutor();
+        balanceCache.addChangeListener(portfolioTotals);
+        balanceCache.addChangeListener(outpointIndex);
         
+        // Startup does no per-wallet work: stored wallets are decoded and tracked in the
+        // background, ahead of the first refresh pass on the same thread
+        if (walletStore != null && bitcoinNodeClient != null) {
+            if (bitcoinNodeClient.hasPersistedChainState()) {
+                // Re-watch persisted wallets off the startup path
+                refreshScheduler.execute(this::watchStoredWallets);
+            } else {
+                // A fresh header store is checkpointed from the earliest watched wallet,
+                // so every stored wallet is watched when the client first initializes
+                bitcoinNodeClient.watchOnInitialize(this::loadStoredWallets);
+            }
+        }
+        refreshScheduler.execute(this::trackStoredWallets);
         startBackgroundRefresh();
     }
 
     /**
-     * Starts the background balance refresh scheduler.
-     * Very simple refresher - DEFINITELY not production ready :) 
+     * Registers every persisted wallet's address with the node client's watching wallet.
+     */
+    private void watchStoredWallets() {
+        try {
+            bitcoinNodeClient.watchWallets(loadStoredWallets());
+        } catch (Exception e) {
+            System.err.println("Failed to watch stored wallets: " + e.getMessage());
+        }
+    }
+
+    private List<Wallet> loadStoredWallets() {
+        List<Wallet> storedWallets = new ArrayList<>(walletStore.size());
+        walletStore.forEach(storedWallets::add);
+        return storedWallets;
+    }
+
+    /**
+     * Hands every stored wallet to the background refresh, then loads their
+     * balances into the portfolio totals.
+     */
+    private void trackStoredWallets() {
+        try {
+            listWalletIds().forEach(refreshEngine::track);
+        } catch (Exception e) {
+            System.err.println("Failed to track stored wallets: " + e.getMessage());
+            return;
+        }
+        loadIntoTotals(listWalletIds().iterator());
+    }
+
+    /**
+     * Queues a registered wallet's first balance load into the portfolio totals.
+     *
+     * @param walletId Wallet ID
+     */
+    private void queueTotalsLoad(String walletId) {
+        untotalled.add(walletId);
+        if (totalsLoadQueued.compareAndSet(false, true)) {
+            try {
+                refreshScheduler.execute(() -> {
+                    totalsLoadQueued.set(false);
+                    List<String> walletIds = new ArrayList<>(untotalled);
+                    untotalled.removeAll(walletIds);
+                    loadIntoTotals(walletIds.iterator());
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    /**
+     * Loads the balances the portfolio totals are missing, a chunk per pass of
+     * the background refresh engine. Wallets that fail are remembered and not
+     * loaded again here; their regular refresh adds them once it succeeds.
+     *
+     * @param walletIds Wallets to load unless already totalled or failed
+     */
+    private void loadIntoTotals(Iterator<String> walletIds) {
+        List<String> chunk = new ArrayList<>(TOTALS_LOAD_CHUNK);
+        while (walletIds.hasNext() && chunk.size() < TOTALS_LOAD_CHUNK) {
+            String walletId = walletIds.next();
+            if (!portfolioTotals.contains(walletId) && !totalsLoadFailures.contains(walletId)) {
+                chunk.add(walletId);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            try {
+                BalanceRefreshEngine.PassResult result = refreshEngine.runPass(chunk, walletId -> {
+                    try {
+                        WalletBalance balance = refreshWalletBalance(walletId);
+                        if (!portfolioTotals.contains(walletId)) {
+                            // Simulation-mode balances are not cached
+                            portfolioTotals.update(balance);
+                        }
+                    } catch (Exception e) {
+                        totalsLoadFailures.add(walletId);
+                        throw e;
+                    }
+                });
+                if (result != null && result.failed() > 0) {
+                    System.err.println("⚠️ Portfolio totals leave out " + result.failed() + " of " + result.total() +
+                        " wallets whose balance could not be loaded");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (walletIds.hasNext()) {
+            try {
+                refreshScheduler.execute(() -> loadIntoTotals(walletIds));
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    /**
+     * Starts the background balance refresh scheduler. Every second it refreshes
+     * the wallets whose tier says they are due; frequently read wallets come up
+     * every few seconds, idle ones about once an hour.
      */
     private void startBackgroundRefresh() {
-        refreshScheduler.scheduleAtFixedRate(() -> {
+        periodicRefresh = refreshScheduler.scheduleWithFixedDelay(() -> {
             try {
-                refreshAllBalances();
+                refreshDueBalances();
             } catch (Exception e) {
                 System.err.println("Background balance refresh failed: " + e.getMessage());
             }
-        }, 5, 5, TimeUnit.MINUTES);
+        }, 1, 1, TimeUnit.SECONDS);
     }
 
-    private void refreshAllBalances() throws BalanceException {
-        for (String walletId : listWalletIds()) {
-            refreshWalletBalance(walletId);
+    /**
+     * Switches cached balances from wall-clock refreshes to chain events.
+     * UTXO changes pushed by the node client are applied to cached balances in
+     * place, a reorganization drops every cached balance, and the periodic refresh
+     * is stopped, so in steady state the node is never polled. Pair with
+     * {@link com.btcwallet.balance.BalanceCachePolicy#untilInvalidated()}.
+     */
+    public void enableChainEventInvalidation() {
+        if (bitcoinNodeClient == null) {
+            return;
         }
+        bitcoinNodeClient.addChainEventListener(new ChainEventListener() {
+            @Override
+            public void onWalletsAffected(Set<String> walletIds) {
+                balanceCache.clear(walletIds);
+            }
+
+            @Override
+            public void onBalanceDelta(BalanceDelta delta) {
+                balanceCache.applyDelta(delta);
+            }
+
+            @Override
+            public void onReorganize() {
+                balanceCache.clearAll();
+            }
+        });
+        ScheduledFuture<?> refresh = periodicRefresh;
+        if (refresh != null) {
+            refresh.cancel(false);
+        }
+        System.out.println("🔔 Balance cache invalidation driven by chain events");
+    }
+
+    private void refreshDueBalances() throws InterruptedException {
+        BalanceRefreshEngine.PassResult result = refreshEngine.runDue(this::refreshWalletBalance);
+        if (result != null && result.failed() > 0) {
+            System.err.println("🔄 Balance refresh pass: " + result.failed() + " of " + result.total() +
+                " wallets failed in " + result.duration().toMillis() + "ms");
+        }
+    }
+
+    /**
+     * Gets the background refresh engine statistics.
+     *
+     * @return Tier sizes, progress of the running pass and result of the last one
+     */
+    public BalanceRefreshEngine.Stats getBalanceRefreshStats() {
+        return refreshEngine.stats();
     }
 
     /**
      * Shuts down the wallet service and cleans up resources.
      */
     public void shutdown() {
+        balanceCache.removeChangeListener(portfolioTotals);
+        balanceCache.removeChangeListener(outpointIndex);
+        revalidationExecutor.shutdownNow();
         if (refreshScheduler != null) {
             refreshScheduler.shutdown();
             try {
@@ -78,6 +318,9 @@ public class WalletService {
                 Thread.currentThread().interrupt();
             }
         }
+        if (walletStore != null) {
+            walletStore.close();
+        }
     }
 
     /**
@@ -87,7 +330,19 @@ public class WalletService {
      */
     public Wallet generateWallet() {
         Wallet wallet = walletGenerator.generateWallet();
-        walletStorage.put(wallet.walletId(), wallet);
+        register(wallet, true);
+        return wallet;
+    }
+
+    /**
+     * Generates a new Bitcoin wallet with the given address type.
+     *
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return Newly generated wallet
+     */
+    public Wallet generateWallet(Script.ScriptType scriptType) {
+        Wallet wallet = walletGenerator.generateWallet(scriptType);
+        register(wallet, true);
         return wallet;
     }
 
@@ -98,7 +353,19 @@ public class WalletService {
      */
     public WalletGenerator.WalletGenerationResult generateWalletWithMnemonic() {
         WalletGenerator.WalletGenerationResult result = walletGenerator.generateWalletWithMnemonic();
-        walletStorage.put(result.getWallet().walletId(), result.getWallet());
+        register(result.getWallet(), true);
+        return result;
+    }
+
+    /**
+     * Generates a new Bitcoin wallet with a mnemonic seed phrase and the given address type.
+     *
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return WalletGenerationResult containing wallet and mnemonic
+     */
+    public WalletGenerator.WalletGenerationResult generateWalletWithMnemonic(Script.ScriptType scriptType) {
+        WalletGenerator.WalletGenerationResult result = walletGenerator.generateWalletWithMnemonic(scriptType);
+        register(result.getWallet(), true);
         return result;
     }
 
@@ -111,7 +378,21 @@ public class WalletService {
      */
     public Wallet importFromPrivateKey(String privateKeyHex) {
         Wallet wallet = walletImporter.importFromPrivateKey(privateKeyHex);
-        walletStorage.put(wallet.walletId(), wallet);
+        register(wallet, false);
+        return wallet;
+    }
+
+    /**
+     * Imports a wallet from a private key in hex format with the given address type.
+     *
+     * @param privateKeyHex Private key in hexadecimal format
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return Imported wallet
+     * @throws WalletImporter.WalletImportException If import fails
+     */
+    public Wallet importFromPrivateKey(String privateKeyHex, Script.ScriptType scriptType) {
+        Wallet wallet = walletImporter.importFromPrivateKey(privateKeyHex, scriptType);
+        register(wallet, false);
         return wallet;
     }
 
@@ -124,7 +405,21 @@ public class WalletService {
      */
     public Wallet importFromMnemonic(String mnemonic) {
         Wallet wallet = walletImporter.importFromMnemonic(mnemonic);
-        walletStorage.put(wallet.walletId(), wallet);
+        register(wallet, false);
+        return wallet;
+    }
+
+    /**
+     * Imports a wallet from a mnemonic seed phrase with the given address type.
+     *
+     * @param mnemonic Mnemonic seed phrase
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return Imported wallet
+     * @throws WalletImporter.WalletImportException If import fails
+     */
+    public Wallet importFromMnemonic(String mnemonic, Script.ScriptType scriptType) {
+        Wallet wallet = walletImporter.importFromMnemonic(mnemonic, scriptType);
+        register(wallet, false);
         return wallet;
     }
 
@@ -137,10 +432,50 @@ public class WalletService {
      */
     public Wallet importFromWIF(String wifPrivateKey) {
         Wallet wallet = walletImporter.importFromWIF(wifPrivateKey);
-        walletStorage.put(wallet.walletId(), wallet);
+        register(wallet, false);
         return wallet;
     }
 
+    /**
+     * Imports a wallet from a WIF private key with the given address type.
+     *
+     * @param wifPrivateKey WIF formatted private key
+     * @param scriptType P2PKH for a legacy address, P2WPKH for native SegWit
+     * @return Imported wallet
+     * @throws WalletImporter.WalletImportException If import fails
+     */
+    public Wallet importFromWIF(String wifPrivateKey, Script.ScriptType scriptType) {
+        Wallet wallet = walletImporter.importFromWIF(wifPrivateKey, scriptType);
+        register(wallet, false);
+        return wallet;
+    }
+
+    /**
+     * Persists a wallet (when a store is configured), makes it visible in the registry
+     * and starts watching its address on the node client. A freshly generated key
+     * holds nothing, so it enters the portfolio totals at zero; an imported one is
+     * loaded into them in the background.
+     *
+     * @param wallet Wallet to register
+     * @param generated Whether the wallet's key was just generated
+     */
+    private void register(Wallet wallet, boolean generated) {
+        if (walletStore != null) {
+            walletStore.save(wallet);
+        }
+        walletRegistry.register(wallet);
+        refreshEngine.track(wallet.walletId());
+        if (bitcoinNodeClient != null) {
+            bitcoinNodeClient.watchWallet(wallet);
+        }
+        if (generated) {
+            portfolioTotals.update(new WalletBalance(wallet.walletId(), Coin.ZERO, Coin.ZERO, Coin.ZERO, Instant.now(),
+                null, List.of()));
+        } else {
+            queueTotalsLoad(wallet.walletId());
+        }
+    }
+
     /**
      * Validates that a Bitcoin address is valid for the current network.
      *
@@ -163,16 +498,25 @@ public class WalletService {
      * @return Wallet if found, null otherwise
      */
     public Wallet getWallet(String walletId) {
-        return walletStorage.get(walletId);
+        Wallet wallet = walletRegistry.get(walletId);
+        if (wallet != null || walletStore == null) {
+            return wallet;
+        }
+        // Stored wallets are decoded lazily on first access after a restart
+        wallet = walletStore.load(walletId);
+        return wallet != null ? walletRegistry.registerIfAbsent(wallet) : null;
     }
 
     /**
      * Gets all stored wallets.
      *
-     * @return Map of wallet IDs to wallets
+     * @return Live, read-only map of wallet IDs to wallets
      */
     public Map<String, Wallet> getAllWallets() {
-        return new HashMap<>(walletStorage);
+        if (walletStore != null && walletRegistry.size() < walletStore.size()) {
+            walletStore.forEach(walletRegistry::registerIfAbsent);
+        }
+        return walletRegistry.asMap();
     }
 
     /**
@@ -180,7 +524,15 @@ public class WalletService {
      * Useful for testing.
      */
     public void clearWallets() {
-        walletStorage.clear();
+        if (walletStore != null) {
+            walletStore.clear();
+        }
+        walletRegistry.clear();
+        refreshEngine.untrackAll();
+        untotalled.clear();
+        totalsLoadFailures.clear();
+        portfolioTotals.clear();
+        outpointIndex.clear();
     }
 
     /**
@@ -191,11 +543,111 @@ public class WalletService {
      * @throws WalletException If balance cannot be retrieved
      */
     public WalletBalance getWalletBalance(String walletId) throws WalletException {
-        WalletBalance cached = balanceCache.get(walletId);
-        if (cached != null) {
-            return cached;
+        refreshEngine.recordAccess(walletId);
+        BalanceCache.Lookup cached = balanceCache.lookup(walletId);
+        if (cached.balance() != null) {
+            if (cached.refreshNeeded()) {
+                revalidateInBackground(walletId);
+            }
+            return cached.balance();
+        }
+        return loadWalletBalance(walletId, true);
+    }
+
+    /**
+     * Receives the results of {@link #getWalletBalances(Collection, BalanceBatchListener)}
+     * as they become available.
+     */
+    public interface BalanceBatchListener {
+        void onBalance(WalletBalance balance);
+
+        void onError(String walletId, String message);
+    }
+
+    /**
+     * Gets the balances of many wallets at once. Cached balances are handed to the
+     * listener right away; all cache misses are then resolved with a single
+     * batched node query. Each wallet is reported exactly once, duplicates in the
+     * input are ignored.
+     *
+     * @param walletIds Wallet IDs
+     * @param listener Receives each balance or per-wallet error, in that order
+     */
+    public void getWalletBalances(Collection<String> walletIds, BalanceBatchListener listener) {
+        Map<String, Wallet> misses = new LinkedHashMap<>();
+        for (String walletId : new LinkedHashSet<>(walletIds)) {
+            refreshEngine.recordAccess(walletId);
+            BalanceCache.Lookup cached = balanceCache.lookup(walletId);
+            if (cached.balance() != null) {
+                if (cached.refreshNeeded()) {
+                    revalidateInBackground(walletId);
+                }
+                listener.onBalance(cached.balance());
+                continue;
+            }
+            Wallet wallet = getWallet(walletId);
+            if (wallet == null) {
+                listener.onError(walletId, "Wallet not found: " + walletId);
+            } else {
+                misses.put(walletId, wallet);
+            }
+        }
+        if (misses.isEmpty()) {
+            return;
+        }
+
+        if (bitcoinNodeClient == null) {
+            // Dummy balances if no client (simulation mode)
+            for (String walletId : misses.keySet()) {
+                listener.onBalance(new WalletBalance(walletId, Coin.ZERO, Coin.ZERO, Coin.ZERO, Instant.now(), "0", List.of()));
+            }
+            return;
+        }
+
+        Map<String, WalletBalance> loaded;
+        long loadStart = System.nanoTime();
+        try {
+            loaded = bitcoinNodeClient.getWalletBalances(misses.values());
+        } catch (Exception e) {
+            balanceCache.recordLoadFailure(System.nanoTime() - loadStart);
+            for (String walletId : misses.keySet()) {
+                listener.onError(walletId, "Failed to refresh balance: " + e.getMessage());
+            }
+            return;
+        }
+        // One node query served every miss; spread its cost over them in the load stats
+        long loadTimePerWallet = (System.nanoTime() - loadStart) / misses.size();
+        for (String walletId : misses.keySet()) {
+            WalletBalance balance = loaded.get(walletId);
+            if (balance == null) {
+                listener.onError(walletId, "Failed to refresh balance: no result from node");
+                continue;
+            }
+            balanceCache.putLoaded(walletId, balance, loadTimePerWallet);
+            listener.onBalance(balance);
+        }
+    }
+
+    /**
+     * Refreshes a cached balance off the request thread. The stale value keeps
+     * being served until the refresh lands.
+     *
+     * @param walletId Wallet ID
+     */
+    private void revalidateInBackground(String walletId) {
+        try {
+            revalidationExecutor.execute(() -> {
+                try {
+                    loadWalletBalance(walletId, false);
+                } catch (Exception e) {
+                    balanceCache.refreshFailed(walletId);
+                    System.err.println("Background balance revalidation failed for " + walletId + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the next read after restart fetches synchronously
+            balanceCache.refreshFailed(walletId);
         }
-        return refreshWalletBalance(walletId);
     }
 
     /**
@@ -206,6 +658,19 @@ public class WalletService {
      * @throws WalletException If balance cannot be refreshed
      */
     public WalletBalance refreshWalletBalance(String walletId) throws WalletException {
+        return loadWalletBalance(walletId, false);
+    }
+
+    /**
+     * Fetches a wallet's balance from the node. Concurrent calls for the same wallet
+     * share a single node query through the request coalescer.
+     *
+     * @param walletId Wallet ID
+     * @param reuseCached Whether the leading call may return a balance cached while it queued
+     * @return Fetched WalletBalance object
+     * @throws WalletException If balance cannot be fetched
+     */
+    private WalletBalance loadWalletBalance(String walletId, boolean reuseCached) throws WalletException {
         try {
             Wallet wallet = getWallet(walletId);
             if (wallet == null) {
@@ -217,14 +682,55 @@ public class WalletService {
                 return new WalletBalance(walletId, Coin.ZERO, Coin.ZERO, Coin.ZERO, Instant.now(), "0", List.of());
             }
 
-            WalletBalance balance = bitcoinNodeClient.getWalletBalance(wallet);
-            balanceCache.put(walletId, balance);
-            return balance;
+            return requestCoalescer.execute(walletId, () -> {
+                // A flight that just landed may already have refreshed the cache
+                WalletBalance cached = reuseCached ? balanceCache.get(walletId) : null;
+                if (cached != null) {
+                    return cached;
+                }
+                long loadStart = System.nanoTime();
+                try {
+                    WalletBalance balance = bitcoinNodeClient.getWalletBalance(wallet);
+                    balanceCache.putLoaded(walletId, balance, System.nanoTime() - loadStart);
+                    return balance;
+                } catch (Exception e) {
+                    balanceCache.recordLoadFailure(System.nanoTime() - loadStart);
+                    throw e;
+                }
+            });
         } catch (Exception e) {
             throw WalletException.balanceError("Failed to refresh balance: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Gets the balance request coalescing statistics.
+     *
+     * @return Coalescing counters
+     */
+    public BalanceRequestCoalescer.Stats getBalanceRequestStats() {
+        return requestCoalescer.stats();
+    }
+
+    /**
+     * Gets the balance cache statistics.
+     *
+     * @return Cache counters
+     */
+    public BalanceCache.Stats getBalanceCacheStats() {
+        return balanceCache.stats();
+    }
+
+    /**
+     * Gets a wallet's cached balance without contacting the node.
+     *
+     * @param walletId Wallet ID
+     * @return Cached balance, or null if none is cached
+     */
+    public WalletBalance getCachedWalletBalance(String walletId) {
+        return balanceCache.get(walletId);
+    }
+
     /**
      * Checks if a wallet has sufficient funds for a transaction.
      * 
@@ -240,24 +746,53 @@ public class WalletService {
 
     /**
      * Gets the total balance across all wallets.
+     * The sum is maintained as cached balances change, so this only reads it.
      * 
-     * @return Total balance across all wallets
-     * @throws WalletException If balance cannot be retrieved
+     * @return Total balance across the wallets whose balance is known
      */
-    public Coin getTotalBalance() throws WalletException {
-        Coin total = Coin.ZERO;
-        for (String walletId : listWalletIds()) {
-            total = total.add(getWalletBalance(walletId).getTotalBalance());
-        }
-        return total;
+    public Coin getTotalBalance() {
+        return Coin.valueOf(getPortfolioTotals().total());
     }
 
     /**
-     * 
-     * @return List of wallet IDs
+     * Gets the confirmed, unconfirmed and total sums across all wallets in O(1).
+     * Balances missing from the sums are loaded in the background after startup
+     * and registration; until then {@link PortfolioTotals.Totals#wallets()}
+     * tells how many wallets are included.
+     *
+     * @return Portfolio totals
+     */
+    public PortfolioTotals.Totals getPortfolioTotals() {
+        return portfolioTotals.totals();
+    }
+
+    /**
+     * Verifies the portfolio totals against the cached balances and repairs any
+     * difference.
+     *
+     * @return Wallets checked and corrected, and the drift that was repaired
+     */
+    public PortfolioTotals.Check checkPortfolioTotals() {
+        return portfolioTotals.check(balanceCache.getAllCachedBalances());
+    }
+
+    /**
+     * Gets the index of every known outpoint with its owning wallet and spend
+     * state. It follows the cached balances.
+     *
+     * @return Outpoint index
+     */
+    public OutpointIndex getOutpointIndex() {
+        return outpointIndex;
+    }
+
+    /**
+     * Lists the IDs of all stored wallets.
+     *
+     * @return Live, read-only view of wallet IDs
      */
-    public List<String> listWalletIds() {
-        return new ArrayList<>(walletStorage.keySet());
+    public Collection<String> listWalletIds() {
+        return walletStore != null ? walletStore.walletIds() : walletRegistry.walletIds();
     }
 
     /**
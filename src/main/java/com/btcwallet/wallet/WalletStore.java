@@ -0,0 +1,69 @@
+package com.btcwallet.wallet;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Durable storage for wallets.
+ * WalletService keeps decoded wallets in its {@link WalletRegistry}; a WalletStore
+ * is the source of truth that survives restarts.
+ */
+public interface WalletStore extends AutoCloseable {
+
+    /**
+     * Persists a wallet. The wallet is durable once this method returns.
+     *
+     * @param wallet Wallet to persist
+     * @throws WalletException If the wallet cannot be written
+     */
+    void save(Wallet wallet);
+
+    /**
+     * Loads a wallet by its ID.
+     *
+     * @param walletId Wallet ID to load
+     * @return Wallet if found, null otherwise
+     * @throws WalletException If the stored record cannot be read
+     */
+    Wallet load(String walletId);
+
+    /**
+     * Checks whether a wallet is stored.
+     *
+     * @param walletId Wallet ID to check
+     * @return true if stored
+     */
+    boolean contains(String walletId);
+
+    /**
+     * Gets a read-only, weakly consistent view of the stored wallet IDs.
+     *
+     * @return Wallet ID view
+     */
+    Collection<String> walletIds();
+
+    /**
+     * Gets the number of stored wallets.
+     *
+     * @return Wallet count
+     */
+    int size();
+
+    /**
+     * Streams every stored wallet to the given action.
+     *
+     * @param action Action to apply
+     */
+    void forEach(Consumer<Wallet> action);
+
+    /**
+     * Removes all stored wallets.
+     */
+    void clear();
+
+    /**
+     * Flushes and releases the underlying resources.
+     */
+    @Override
+    void close();
+}
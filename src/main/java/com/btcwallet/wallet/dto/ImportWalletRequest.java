@@ -2,6 +2,7 @@ package com.btcwallet.wallet.dto;
 
 public class ImportWalletRequest {
     private String key; // Can be private key (hex or WIF) or mnemonic
+    private String addressType; // "p2pkh" (default) or "p2wpkh"
 
     public String getKey() {
         return key;
@@ -10,4 +11,12 @@ public class ImportWalletRequest {
     public void setKey(String key) {
         this.key = key;
     }
+
+    public String getAddressType() {
+        return addressType;
+    }
+
+    public void setAddressType(String addressType) {
+        this.addressType = addressType;
+    }
 }
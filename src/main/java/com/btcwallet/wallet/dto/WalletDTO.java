@@ -8,12 +8,14 @@ public record WalletDTO(
         String walletId,
         String address,
         String publicKey,
+        String addressType,
         Instant createdAt) {
     public static WalletDTO fromWallet(Wallet wallet) {
         return new WalletDTO(
                 wallet.walletId(),
                 wallet.address(),
                 wallet.publicKey(),
+                wallet.scriptType().name(),
                 wallet.createdAt());
     }
 }
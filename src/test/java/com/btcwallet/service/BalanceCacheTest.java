@@ -0,0 +1,177 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.BalanceCache;
+import com.btcwallet.balance.BalanceCachePolicy;
+import com.btcwallet.balance.BalanceDelta;
+import com.btcwallet.balance.WalletBalance;
+
+import org.bitcoinj.core.Coin;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceCacheTest {
+
+    private static WalletBalance balance(String walletId, int utxoCount) {
+        List<WalletBalance.UTXO> utxos = new ArrayList<>();
+        for (int i = 0; i < utxoCount; i++) {
+            utxos.add(new WalletBalance.UTXO("tx" + i, i, Coin.valueOf(1000), "script", 6));
+        }
+        Coin total = Coin.valueOf(1000L * utxoCount);
+        return new WalletBalance(walletId, total, Coin.ZERO, total, Instant.now(), "1", utxos);
+    }
+
+    @Test
+    void testHitAndMissStatistics() {
+        // Given
+        BalanceCache cache = new BalanceCache();
+        cache.put("WALLET-1", balance("WALLET-1", 1));
+
+        // When
+        cache.get("WALLET-1");
+        cache.lookup("WALLET-1");
+        cache.get("WALLET-2");
+
+        // Then
+        BalanceCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.weight());
+    }
+
+    @Test
+    void testLoadStatistics() {
+        // Given
+        BalanceCache cache = new BalanceCache();
+
+        // When
+        cache.putLoaded("WALLET-1", balance("WALLET-1", 0), 2_000_000);
+        cache.recordLoadFailure(4_000_000);
+
+        // Then
+        BalanceCache.Stats stats = cache.stats();
+        assertEquals(1, stats.loadSuccessCount());
+        assertEquals(1, stats.loadFailureCount());
+        assertEquals(3_000, stats.averageLoadMicros());
+        assertNotNull(cache.get("WALLET-1"));
+    }
+
+    @Test
+    void testWeightBoundEvictsEntries() {
+        // Given - room for roughly ten 100-UTXO balances
+        BalanceCache cache = new BalanceCache(BalanceCachePolicy.defaults(), 1_000);
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            cache.put("WALLET-" + i, balance("WALLET-" + i, 99));
+        }
+        cache.cleanUp();
+
+        // Then
+        BalanceCache.Stats stats = cache.stats();
+        assertTrue(stats.weight() <= 1_000);
+        assertTrue(stats.evictionCount() >= 40);
+        assertEquals(stats.evictionCount() * 100, stats.evictionWeight());
+    }
+
+    @Test
+    void testFrequentlyReadEntrySurvivesScan() {
+        // Given - a hot wallet read many times once the cache is warm
+        BalanceCache cache = new BalanceCache(BalanceCachePolicy.defaults(), 100);
+        cache.put("WALLET-HOT", balance("WALLET-HOT", 0));
+        for (int i = 0; i < 60; i++) {
+            cache.put("WALLET-WARM-" + i, balance("WALLET-WARM-" + i, 0));
+        }
+        cache.cleanUp();
+        for (int i = 0; i < 20; i++) {
+            cache.get("WALLET-HOT");
+        }
+
+        // When - a scan of one-off wallets far larger than the cache
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("WALLET-" + i, balance("WALLET-" + i, 0));
+        }
+        cache.cleanUp();
+
+        // Then
+        assertNotNull(cache.get("WALLET-HOT"));
+    }
+
+    @Test
+    void testEntryPastHardTtlIsDropped() throws InterruptedException {
+        // Given
+        BalanceCache cache = new BalanceCache(
+                new BalanceCachePolicy(Duration.ofMillis(10), Duration.ofMillis(20), 1.0, 1), 1_000);
+        cache.put("WALLET-1", balance("WALLET-1", 0));
+
+        // When
+        Thread.sleep(40);
+
+        // Then
+        assertNull(cache.get("WALLET-1"));
+        assertEquals(BalanceCache.Lookup.MISS, cache.lookup("WALLET-1"));
+        assertTrue(cache.isCacheStale("WALLET-1"));
+    }
+
+    @Test
+    void testUntilInvalidatedPolicyNeverExpires() {
+        // Given
+        BalanceCache cache = new BalanceCache(BalanceCachePolicy.untilInvalidated(), 1_000);
+        cache.put("WALLET-1", balance("WALLET-1", 0));
+        cache.put("WALLET-2", balance("WALLET-2", 0));
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            cache.lookup("WALLET-1");
+        }
+        BalanceCache.Lookup lookup = cache.lookup("WALLET-1");
+        cache.clear(List.of("WALLET-2"));
+
+        // Then
+        assertNotNull(lookup.balance());
+        assertFalse(lookup.refreshNeeded());
+        assertFalse(cache.isCacheStale("WALLET-1"));
+        assertNull(cache.get("WALLET-2"));
+    }
+
+    @Test
+    void testApplyDeltaUpdatesCachedBalanceInPlace() {
+        // Given - two confirmed UTXOs of 1000
+        BalanceCache cache = new BalanceCache();
+        cache.put("WALLET-1", balance("WALLET-1", 2));
+
+        // When - one is spent and a pending 500 output arrives, then the output confirms
+        boolean applied = cache.applyDelta(new BalanceDelta("WALLET-1",
+                List.of(new WalletBalance.UTXO("tx9", 0, Coin.valueOf(500), "script", 0)), Set.of("tx0:0"), null));
+        WalletBalance pending = cache.get("WALLET-1");
+        cache.applyDelta(new BalanceDelta("WALLET-1",
+                List.of(new WalletBalance.UTXO("tx9", 0, Coin.valueOf(500), "script", 1)), Set.of(), "2"));
+        boolean appliedToMissing = cache.applyDelta(new BalanceDelta("WALLET-2", List.of(), Set.of("tx0:0"), null));
+
+        // Then
+        assertTrue(applied);
+        assertEquals(Coin.valueOf(1000), pending.getConfirmedBalance());
+        assertEquals(Coin.valueOf(500), pending.getUnconfirmedBalance());
+        assertEquals("1", pending.getBlockchainHeight());
+        WalletBalance confirmed = cache.get("WALLET-1");
+        assertEquals(Coin.valueOf(1500), confirmed.getConfirmedBalance());
+        assertEquals(Coin.ZERO, confirmed.getUnconfirmedBalance());
+        assertEquals(2, confirmed.getUtxoCount());
+        assertEquals("2", confirmed.getBlockchainHeight());
+        assertFalse(appliedToMissing);
+        assertNull(cache.get("WALLET-2"));
+    }
+
+    @Test
+    void testInvalidMaximumWeight() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new BalanceCache(BalanceCachePolicy.defaults(), 0));
+    }
+}
@@ -0,0 +1,127 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.BalanceRefreshEngine;
+import com.btcwallet.balance.RefreshTiers;
+import com.btcwallet.balance.TieredRefreshScheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceRefreshEngineTest {
+
+    private static List<String> walletIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add("WALLET-" + i);
+        }
+        return ids;
+    }
+
+    @Test
+    void testPassRefreshesEveryWalletAndIsolatesFailures() throws InterruptedException {
+        // Given - every tenth wallet fails
+        BalanceRefreshEngine engine = new BalanceRefreshEngine(8, 100_000);
+        Set<String> refreshed = ConcurrentHashMap.newKeySet();
+
+        // When
+        BalanceRefreshEngine.PassResult result = engine.runPass(walletIds(1_000), walletId -> {
+            if (walletId.endsWith("0")) {
+                throw new IllegalStateException("Node error");
+            }
+            refreshed.add(walletId);
+        });
+
+        // Then
+        assertEquals(1_000, result.total());
+        assertEquals(900, result.succeeded());
+        assertEquals(100, result.failed());
+        assertFalse(result.interrupted());
+        assertEquals(900, refreshed.size());
+        assertEquals(result, engine.stats().lastPass());
+        assertNull(engine.stats().running());
+    }
+
+    @Test
+    void testConcurrencyCapIsRespected() throws InterruptedException {
+        // Given
+        BalanceRefreshEngine engine = new BalanceRefreshEngine(4, 100_000);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        // When
+        engine.runPass(walletIds(200), walletId -> {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            Thread.sleep(1);
+            running.decrementAndGet();
+        });
+
+        // Then
+        assertTrue(maxRunning.get() <= 4);
+        assertTrue(maxRunning.get() > 1);
+    }
+
+    @Test
+    void testRateLimitSpreadsRefreshes() throws InterruptedException {
+        // Given - 20 per second with a one second burst
+        BalanceRefreshEngine engine = new BalanceRefreshEngine(64, 20);
+
+        // When - 30 refreshes need 10 tokens beyond the initial burst
+        BalanceRefreshEngine.PassResult result = engine.runPass(walletIds(30), walletId -> { });
+
+        // Then
+        assertEquals(30, result.succeeded());
+        assertTrue(result.duration().toMillis() >= 400, "took " + result.duration().toMillis() + "ms");
+    }
+
+    @Test
+    void testDueWalletsAreKeptWhileAPassIsRunning() throws Exception {
+        // Given - ten wallets due, and another pass in progress
+        AtomicLong clock = new AtomicLong();
+        TieredRefreshScheduler scheduler = new TieredRefreshScheduler(new RefreshTiers(
+            Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofHours(1), 6, 0.1, 0), clock::get);
+        BalanceRefreshEngine engine = new BalanceRefreshEngine(8, 100_000, scheduler);
+        walletIds(10).forEach(engine::track);
+        clock.addAndGet(TimeUnit.HOURS.toNanos(1) + TimeUnit.SECONDS.toNanos(1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread running = new Thread(() -> {
+            try {
+                engine.runPass(List.of("OTHER"), walletId -> {
+                    started.countDown();
+                    release.await();
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        running.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        BalanceRefreshEngine.PassResult rejected = engine.runDue(walletId -> { });
+        release.countDown();
+        running.join();
+        BalanceRefreshEngine.PassResult next = engine.runDue(walletId -> { });
+
+        // Then - the due wallets were left for the next pass
+        assertNull(rejected);
+        assertEquals(10, next.total());
+    }
+
+    @Test
+    void testInvalidConcurrency() {
+        assertThrows(IllegalArgumentException.class, () -> new BalanceRefreshEngine(0, 10));
+    }
+}
@@ -0,0 +1,150 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.BalanceException;
+import com.btcwallet.balance.BalanceRequestCoalescer;
+import com.btcwallet.balance.WalletBalance;
+
+import org.bitcoinj.core.Coin;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceRequestCoalescerTest {
+
+    private static WalletBalance balance(String walletId, long satoshis) {
+        return new WalletBalance(walletId, Coin.valueOf(satoshis), Coin.ZERO, Coin.valueOf(satoshis),
+                Instant.now(), "1", List.of());
+    }
+
+    private static void awaitCoalesced(BalanceRequestCoalescer coalescer, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (coalescer.stats().coalesced() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void testConcurrentCallersShareOneLookup() throws Exception {
+        // Given
+        BalanceRequestCoalescer coalescer = new BalanceRequestCoalescer();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger lookups = new AtomicInteger();
+        WalletBalance expected = balance("WALLET-1", 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            // When - eight callers arrive while the first lookup is still running
+            List<Future<WalletBalance>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> coalescer.execute("WALLET-1", () -> {
+                    lookups.incrementAndGet();
+                    release.await();
+                    return expected;
+                })));
+            }
+            awaitCoalesced(coalescer, 7);
+            release.countDown();
+
+            // Then
+            for (Future<WalletBalance> result : results) {
+                assertSame(expected, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, lookups.get());
+            BalanceRequestCoalescer.Stats stats = coalescer.stats();
+            assertEquals(1, stats.executed());
+            assertEquals(7, stats.coalesced());
+            assertEquals(0, stats.inFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSequentialCallersEachRunTheirOwnLookup() throws Exception {
+        // Given
+        BalanceRequestCoalescer coalescer = new BalanceRequestCoalescer();
+        AtomicInteger lookups = new AtomicInteger();
+
+        // When
+        coalescer.execute("WALLET-1", () -> balance("WALLET-1", lookups.incrementAndGet()));
+        WalletBalance second = coalescer.execute("WALLET-1", () -> balance("WALLET-1", lookups.incrementAndGet()));
+
+        // Then - a completed flight is never reused
+        assertEquals(2, lookups.get());
+        assertEquals(Coin.valueOf(2), second.getTotalBalance());
+        assertEquals(0, coalescer.stats().coalesced());
+    }
+
+    @Test
+    void testLeaderFailureIsSharedWithWaiters() throws Exception {
+        // Given
+        BalanceRequestCoalescer coalescer = new BalanceRequestCoalescer();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // When
+            Future<WalletBalance> leader = executor.submit(() -> coalescer.execute("WALLET-1", () -> {
+                release.await();
+                throw new IllegalStateException("Node error");
+            }));
+            while (coalescer.stats().inFlight() == 0) {
+                Thread.sleep(1);
+            }
+            Future<WalletBalance> waiter = executor.submit(() -> coalescer.execute("WALLET-1",
+                    () -> balance("WALLET-1", 1)));
+            awaitCoalesced(coalescer, 1);
+            release.countDown();
+
+            // Then
+            Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            Exception waiterFailure = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, leaderFailure.getCause());
+            assertSame(leaderFailure.getCause(), waiterFailure.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWaiterTimesOut() throws Exception {
+        // Given
+        BalanceRequestCoalescer coalescer = new BalanceRequestCoalescer(50);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            executor.submit(() -> coalescer.execute("WALLET-1", () -> {
+                release.await();
+                return balance("WALLET-1", 1);
+            }));
+            while (coalescer.stats().inFlight() == 0) {
+                Thread.sleep(1);
+            }
+
+            // When/Then
+            BalanceException exception = assertThrows(BalanceException.class,
+                    () -> coalescer.execute("WALLET-1", () -> balance("WALLET-1", 2)));
+            assertTrue(exception.getMessage().contains("Timed out"));
+            assertEquals(1, coalescer.stats().timedOut());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testInvalidTimeout() {
+        assertThrows(IllegalArgumentException.class, () -> new BalanceRequestCoalescer(0));
+    }
+}
@@ -0,0 +1,157 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.BalanceCache;
+import com.btcwallet.balance.BalanceDelta;
+import com.btcwallet.balance.BalanceStream;
+import com.btcwallet.balance.WalletBalance;
+
+import org.bitcoinj.core.Coin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceStreamTest {
+
+    private static final Duration NO_WAIT = Duration.ZERO;
+
+    private BalanceCache balanceCache;
+
+    @BeforeEach
+    void setUp() {
+        balanceCache = new BalanceCache();
+    }
+
+    private static WalletBalance balance(String walletId, long... utxoValues) {
+        List<WalletBalance.UTXO> utxos = new ArrayList<>();
+        long total = 0;
+        for (int i = 0; i < utxoValues.length; i++) {
+            utxos.add(new WalletBalance.UTXO("tx" + i, i, Coin.valueOf(utxoValues[i]), "script", 1));
+            total += utxoValues[i];
+        }
+        return new WalletBalance(walletId, Coin.valueOf(total), Coin.ZERO, Coin.valueOf(total),
+                Instant.now(), "1", utxos);
+    }
+
+    private static String text(BalanceStream.Event event) {
+        return new String(event.data(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testChangeIsEncodedOnceForAllSubscribers() throws InterruptedException {
+        // Given
+        BalanceStream stream = new BalanceStream();
+        balanceCache.addChangeListener(stream);
+        balanceCache.put("WALLET-1", balance("WALLET-1", 1000));
+        BalanceStream.Subscription first = stream.subscribe(List.of("WALLET-1"), balanceCache::get);
+        BalanceStream.Subscription second = stream.subscribe(List.of("WALLET-1", "WALLET-2"), balanceCache::get);
+        assertEquals("snapshot", first.poll(NO_WAIT).name());
+        assertEquals("snapshot", second.poll(NO_WAIT).name());
+
+        // When - one output is spent and a new one arrives
+        balanceCache.put("WALLET-1", new WalletBalance("WALLET-1", Coin.valueOf(500), Coin.ZERO, Coin.valueOf(500),
+                Instant.now(), "2", List.of(new WalletBalance.UTXO("tx9", 0, Coin.valueOf(500), "script", 1))));
+
+        // Then - both got the very same bytes, carrying only the change
+        BalanceStream.Event toFirst = first.poll(NO_WAIT);
+        BalanceStream.Event toSecond = second.poll(NO_WAIT);
+        assertEquals("balance", toFirst.name());
+        assertSame(toFirst.data(), toSecond.data());
+        String json = text(toFirst);
+        assertTrue(json.contains("\"confirmed\":500"), json);
+        assertTrue(json.contains("\"outpoint\":\"tx9:0\""), json);
+        assertTrue(json.contains("\"removed\":[\"tx0:0\"]"), json);
+        assertEquals(1, stream.stats().published());
+    }
+
+    @Test
+    void testPushedDeltaIsForwardedAsApplied() throws InterruptedException {
+        // Given
+        BalanceStream stream = new BalanceStream();
+        balanceCache.addChangeListener(stream);
+        balanceCache.put("WALLET-1", balance("WALLET-1", 1000, 2000));
+        BalanceStream.Subscription subscription = stream.subscribe(List.of("WALLET-1"), balanceCache::get);
+        assertEquals("snapshot", subscription.poll(NO_WAIT).name());
+
+        // When - the node pushes a spend and a new output
+        balanceCache.applyDelta(new BalanceDelta("WALLET-1",
+                List.of(new WalletBalance.UTXO("tx9", 0, Coin.valueOf(500), "script", 0)), Set.of("tx0:0"), "2"));
+
+        // Then - the update carries the delta and the recomputed balances
+        BalanceStream.Event event = subscription.poll(NO_WAIT);
+        assertEquals("balance", event.name());
+        String json = text(event);
+        assertTrue(json.contains("\"confirmed\":2000"), json);
+        assertTrue(json.contains("\"unconfirmed\":500"), json);
+        assertTrue(json.contains("\"added\":[{\"outpoint\":\"tx9:0\",\"value\":500,\"confirmations\":0}]"), json);
+        assertTrue(json.contains("\"removed\":[\"tx0:0\"]"), json);
+        assertEquals(1, stream.stats().published());
+    }
+
+    @Test
+    void testUnchangedBalanceIsNotPublished() throws InterruptedException {
+        // Given
+        BalanceStream stream = new BalanceStream();
+        balanceCache.addChangeListener(stream);
+        balanceCache.put("WALLET-1", balance("WALLET-1", 1000));
+        BalanceStream.Subscription subscription = stream.subscribe(List.of("WALLET-1"), balanceCache::get);
+        subscription.poll(NO_WAIT);
+
+        // When - a refresh returns the same balance
+        balanceCache.put("WALLET-1", balance("WALLET-1", 1000));
+        balanceCache.put("WALLET-2", balance("WALLET-2", 1000));
+
+        // Then
+        assertNull(subscription.poll(NO_WAIT));
+        assertEquals(0, stream.stats().published());
+    }
+
+    @Test
+    void testSlowConsumerIsDropped() throws InterruptedException {
+        // Given - room for two queued events
+        BalanceStream stream = new BalanceStream(2);
+        balanceCache.addChangeListener(stream);
+        BalanceStream.Subscription slow = stream.subscribe(List.of("WALLET-1"), walletId -> null);
+        BalanceStream.Subscription fast = stream.subscribe(List.of("WALLET-1"), walletId -> null);
+
+        // When - five changes while the slow subscriber never reads
+        for (int i = 1; i <= 5; i++) {
+            balanceCache.put("WALLET-1", balance("WALLET-1", i * 1000L));
+            assertNotNull(fast.poll(NO_WAIT));
+        }
+
+        // Then
+        assertTrue(slow.isDropped());
+        assertSame(BalanceStream.DROPPED, slow.poll(NO_WAIT));
+        assertNull(slow.poll(NO_WAIT));
+        assertTrue(fast.isOpen());
+        assertEquals(1, stream.stats().subscriptions());
+        assertEquals(1, stream.stats().dropped());
+    }
+
+    @Test
+    void testClosedSubscriptionIsUnregistered() throws InterruptedException {
+        // Given
+        BalanceStream stream = new BalanceStream();
+        balanceCache.addChangeListener(stream);
+        BalanceStream.Subscription subscription = stream.subscribe(List.of("WALLET-1"), walletId -> null);
+
+        // When
+        subscription.close();
+        balanceCache.put("WALLET-1", balance("WALLET-1", 1000));
+
+        // Then
+        assertFalse(subscription.isOpen());
+        assertNull(subscription.poll(NO_WAIT));
+        assertEquals(0, stream.stats().subscriptions());
+        assertEquals(0, stream.stats().wallets());
+        assertEquals(0, stream.stats().published());
+    }
+}
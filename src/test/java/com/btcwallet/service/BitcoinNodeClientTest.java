@@ -0,0 +1,133 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.WalletBalance;
+import com.btcwallet.config.BitcoinConfig;
+import com.btcwallet.exception.BitcoinConfigurationException;
+import com.btcwallet.network.BitcoinNodeClient;
+import com.btcwallet.wallet.Wallet;
+
+import org.bitcoinj.core.Address;
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.ScriptBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitcoinNodeClientTest {
+
+    private static final NetworkParameters PARAMS = MainNetParams.get();
+
+    @TempDir
+    Path chainDir;
+
+    /**
+     * Enabled configuration pointing at a port nothing listens on, so the node is unreachable.
+     */
+    private BitcoinConfig unreachableNodeConfig() throws BitcoinConfigurationException, IOException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        return new BitcoinConfig() {
+            @Override
+            public String getNodeHost() {
+                return "localhost";
+            }
+
+            @Override
+            public int getNodePort() {
+                return closedPort;
+            }
+
+            @Override
+            public int getTimeoutMillis() {
+                return 200;
+            }
+
+            @Override
+            public int getMaxConnections() {
+                return 1;
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public boolean isLocalhostPeer() {
+                return false;
+            }
+
+            @Override
+            public NetworkParameters getNetworkParameters() {
+                return PARAMS;
+            }
+
+            @Override
+            public String getBlockStorePath() {
+                return chainDir.toString();
+            }
+        };
+    }
+
+    private static Transaction payment(Wallet wallet, long amount) {
+        Transaction transaction = new Transaction(PARAMS);
+        transaction.addInput(Sha256Hash.of(wallet.walletId().getBytes()), 0, new ScriptBuilder().build());
+        transaction.addOutput(Coin.valueOf(amount), Address.fromString(PARAMS, wallet.address()));
+        return transaction;
+    }
+
+    @Test
+    void testBalanceSurvivesRestart() throws Exception {
+        // Given - a payment the watching wallet saw before a clean shutdown
+        Wallet wallet = Wallet.fromECKey("WALLET-RESTART-001", new ECKey(), PARAMS);
+        BitcoinNodeClient client = new BitcoinNodeClient(unreachableNodeConfig());
+        client.watchWallet(wallet);
+        client.initialize();
+        client.receivePending(payment(wallet, 50_000));
+        client.disconnect();
+        assertTrue(client.hasPersistedChainState());
+
+        // When - the next process starts on the same chain directory with the node down
+        BitcoinNodeClient restarted = new BitcoinNodeClient(unreachableNodeConfig());
+        try {
+            restarted.watchWallet(wallet);
+            WalletBalance balance = restarted.getWalletBalance(wallet);
+
+            // Then
+            assertEquals(Coin.valueOf(50_000), balance.getTotalBalance());
+            assertEquals(Coin.valueOf(50_000), balance.getUnconfirmedBalance());
+            assertEquals(1, balance.utxoSet().size());
+        } finally {
+            restarted.disconnect();
+        }
+    }
+
+    @Test
+    void testLostWatchWalletIsNotTreatedAsPersistedState() throws Exception {
+        // Given - a header store whose watching wallet file is gone
+        BitcoinNodeClient client = new BitcoinNodeClient(unreachableNodeConfig());
+        client.watchWallet(Wallet.fromECKey("WALLET-RESTART-002", new ECKey(), PARAMS));
+        client.initialize();
+        client.disconnect();
+        Files.delete(chainDir.resolve(PARAMS.getPaymentProtocolId() + ".wallet"));
+
+        // When
+        BitcoinNodeClient restarted = new BitcoinNodeClient(unreachableNodeConfig());
+
+        // Then - stored wallets must be watched before the store is re-checkpointed
+        assertFalse(restarted.hasPersistedChainState());
+    }
+}
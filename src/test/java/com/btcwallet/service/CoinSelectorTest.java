@@ -0,0 +1,145 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.UtxoSet;
+import com.btcwallet.transaction.TransactionSizeModel.ScriptType;
+import com.btcwallet.transaction.selection.BranchAndBoundSelector;
+import com.btcwallet.transaction.selection.CoinSelection;
+import com.btcwallet.transaction.selection.CoinSelectionParams;
+import com.btcwallet.transaction.selection.KnapsackSelector;
+import com.btcwallet.transaction.selection.SelectionPool;
+import com.btcwallet.transaction.selection.SingleRandomDrawSelector;
+import com.btcwallet.transaction.selection.WasteMinimizingSelector;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoinSelectorTest {
+
+    // 10 sat/byte now, 1 sat/byte later: each input costs 1480, change costs 340 + 148
+    private static final long FEE_RATE = 10;
+    private static final long LONG_TERM_FEE_RATE = 1;
+    private static final long INPUT_FEE = FEE_RATE * ScriptType.P2PKH.inputVsize();
+
+    private static UtxoSet utxos(long... values) {
+        UtxoSet.Builder builder = UtxoSet.builder(values.length);
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        for (int i = 0; i < values.length; i++) {
+            hash[0] = (byte) i;
+            builder.add(hash, 0, 0, values[i], new byte[] {0x76}, 1);
+        }
+        return builder.build();
+    }
+
+    private static SelectionPool pool(UtxoSet utxos, CoinSelectionParams params) {
+        return SelectionPool.of(utxos, position -> true, params);
+    }
+
+    private static long[] selectedValues(UtxoSet utxos, CoinSelection selection) {
+        return Arrays.stream(selection.positions()).mapToLong(utxos::valueAt).sorted().toArray();
+    }
+
+    @Test
+    void testBranchAndBoundFindsChangelessMatch() {
+        // Given - 30,000 + 18,100 effective lands within the cost of change above 48,000
+        UtxoSet utxos = utxos(70_000, 30_000 + INPUT_FEE, 5_000, 18_100 + INPUT_FEE);
+        CoinSelectionParams params = CoinSelectionParams.p2pkh(48_000, FEE_RATE, LONG_TERM_FEE_RATE);
+
+        // When
+        Optional<CoinSelection> selection = new BranchAndBoundSelector()
+            .select(pool(utxos, params), params, Duration.ofSeconds(1));
+
+        // Then
+        assertTrue(selection.isPresent());
+        assertArrayEquals(new long[] {18_100 + INPUT_FEE, 30_000 + INPUT_FEE}, selectedValues(utxos, selection.get()));
+        assertFalse(selection.get().hasChange());
+    }
+
+    @Test
+    void testWasteMetricPrefersChangelessSelection() {
+        // Given
+        UtxoSet utxos = utxos(70_000, 30_000 + INPUT_FEE, 5_000, 18_100 + INPUT_FEE);
+        CoinSelectionParams params = CoinSelectionParams.p2pkh(48_000, FEE_RATE, LONG_TERM_FEE_RATE);
+        WasteMinimizingSelector selector = new WasteMinimizingSelector(List.of(
+            new KnapsackSelector(100, new SplittableRandom(1)),
+            new SingleRandomDrawSelector(new SplittableRandom(1)),
+            new BranchAndBoundSelector()));
+
+        // When
+        CoinSelection selection = selector.select(pool(utxos, params), params, Duration.ofSeconds(1)).orElseThrow();
+
+        // Then - 100 sat excess beats making change worth 488
+        assertEquals("branch-and-bound", selection.algorithm());
+        assertEquals(2 * (INPUT_FEE - LONG_TERM_FEE_RATE * ScriptType.P2PKH.inputVsize()) + 100,
+            selection.waste());
+    }
+
+    @Test
+    void testKnapsackTakesLowestLargerUtxo() {
+        // Given
+        UtxoSet utxos = utxos(1_000_000, 1_000, 200_000);
+        CoinSelectionParams params = CoinSelectionParams.p2pkh(150_000, 0, 0);
+
+        // When
+        CoinSelection selection = new KnapsackSelector(100, new SplittableRandom(1))
+            .select(pool(utxos, params), params, Duration.ofSeconds(1)).orElseThrow();
+
+        // Then
+        assertArrayEquals(new long[] {200_000}, selectedValues(utxos, selection));
+        assertEquals(50_000, selection.change());
+    }
+
+    @Test
+    void testSingleRandomDrawAlwaysLeavesUsableChange() {
+        // Given
+        UtxoSet utxos = utxos(10_000, 10_000, 10_000, 10_000, 10_000, 10_000);
+        CoinSelectionParams params = CoinSelectionParams.p2pkh(25_000, FEE_RATE, LONG_TERM_FEE_RATE);
+
+        for (int seed = 0; seed < 20; seed++) {
+            // When
+            CoinSelection selection = new SingleRandomDrawSelector(new SplittableRandom(seed))
+                .select(pool(utxos, params), params, Duration.ofSeconds(1)).orElseThrow();
+
+            // Then - four inputs are needed once each pays its own fee
+            assertEquals(4, selection.positions().length);
+            assertTrue(selection.change() >= CoinSelectionParams.DUST_LIMIT);
+        }
+    }
+
+    @Test
+    void testExpiredBudgetStillReturnsSelection() {
+        // Given - a large wallet with no changeless match and no time left
+        long[] values = new long[20_000];
+        Arrays.fill(values, 10_000);
+        UtxoSet utxos = utxos(values);
+        CoinSelectionParams params = CoinSelectionParams.p2pkh(1_234_567, FEE_RATE, LONG_TERM_FEE_RATE);
+
+        // When
+        Optional<CoinSelection> selection = WasteMinimizingSelector.defaults()
+            .select(pool(utxos, params), params, System.nanoTime() - 1);
+
+        // Then
+        assertTrue(selection.isPresent());
+        assertTrue(selection.get().inputValue() >= 1_234_567);
+    }
+
+    @Test
+    void testInsufficientFunds() {
+        // Given - the only UTXO cannot pay for its own input
+        UtxoSet utxos = utxos(1_000);
+        CoinSelectionParams params = CoinSelectionParams.p2pkh(500, FEE_RATE, LONG_TERM_FEE_RATE);
+
+        // When
+        SelectionPool pool = pool(utxos, params);
+
+        // Then
+        assertEquals(0, pool.size());
+        assertTrue(WasteMinimizingSelector.defaults().select(pool, params, Duration.ofSeconds(1)).isEmpty());
+    }
+}
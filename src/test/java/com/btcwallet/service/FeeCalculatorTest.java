@@ -1,7 +1,18 @@
 package com.btcwallet.service;
 
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.SegwitAddress;
+import org.bitcoinj.core.Sha256Hash;
 import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.crypto.TransactionSignature;
 import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,6 +21,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import com.btcwallet.network.FeeCalculator;
 import com.btcwallet.network.NetworkMonitor;
+import com.btcwallet.transaction.TransactionSizeModel;
+import com.btcwallet.transaction.TransactionSizeModel.ScriptType;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -38,11 +51,11 @@ class FeeCalculatorTest {
         when(networkMonitor.getMempoolSize()).thenReturn(3000); // Normal congestion
         
         // When
-        long fee = feeCalculator.calculateFee(transaction);
+        int transactionSize = transaction.bitcoinSerialize().length;
+        long fee = feeCalculator.calculateFee(transactionSize);
         
         // Then
         assertTrue(fee > 0);
-        int transactionSize = transaction.bitcoinSerialize().length;
         int expectedFee = transactionSize * 5; // Medium priority = 5 sat/byte
         assertEquals(expectedFee, fee);
     }
@@ -59,17 +72,17 @@ class FeeCalculatorTest {
         
         // Test LOW priority
         when(networkMonitor.getMempoolSize()).thenReturn(1000); // Low congestion
-        long lowFee = feeCalculator.calculateFee(transaction, FeeCalculator.FeePriority.LOW);
+        long lowFee = feeCalculator.calculateFee(transactionSize, FeeCalculator.FeePriority.LOW);
         assertEquals(transactionSize * 1, lowFee); // 1 sat/byte
         
         // Test MEDIUM priority
         when(networkMonitor.getMempoolSize()).thenReturn(3000); // Normal congestion
-        long mediumFee = feeCalculator.calculateFee(transaction, FeeCalculator.FeePriority.MEDIUM);
+        long mediumFee = feeCalculator.calculateFee(transactionSize, FeeCalculator.FeePriority.MEDIUM);
         assertEquals(transactionSize * 5, mediumFee); // 5 sat/byte
         
         // Test HIGH priority
         when(networkMonitor.getMempoolSize()).thenReturn(3000); // Normal congestion
-        long highFee = feeCalculator.calculateFee(transaction, FeeCalculator.FeePriority.HIGH);
+        long highFee = feeCalculator.calculateFee(transactionSize, FeeCalculator.FeePriority.HIGH);
         assertEquals(transactionSize * 20, highFee); // 20 sat/byte
     }
 
@@ -100,15 +113,81 @@ class FeeCalculatorTest {
                             "1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa"));
         
         int customRate = 15; // 15 sat/byte
+        int transactionSize = transaction.bitcoinSerialize().length;
         
         // When
-        long fee = feeCalculator.calculateCustomFee(transaction, customRate);
+        long fee = feeCalculator.calculateCustomFee(transactionSize, customRate);
         
         // Then
-        int transactionSize = transaction.bitcoinSerialize().length;
         assertEquals(transactionSize * customRate, fee);
     }
 
+    @Test
+    void testFeeOfUnsignedTransactionCoversSignatures() {
+        // Given - two P2PKH inputs without their script signatures yet
+        NetworkParameters params = MainNetParams.get();
+        ECKey key = new ECKey();
+        LegacyAddress address = LegacyAddress.fromKey(params, key);
+        Transaction transaction = new Transaction(params);
+        for (int i = 0; i < 2; i++) {
+            TransactionOutPoint outPoint = new TransactionOutPoint(params, i, Sha256Hash.of(new byte[] {(byte) i}));
+            transaction.addInput(new TransactionInput(params, transaction, new byte[] {}, outPoint, Coin.valueOf(50000)));
+        }
+        transaction.addOutput(Coin.valueOf(60000), address);
+        transaction.addOutput(Coin.valueOf(30000), address);
+
+        // When
+        long unsignedFee = feeCalculator.calculateCustomFee(TransactionSizeModel.vsize(transaction), 1);
+        Script scriptPubKey = ScriptBuilder.createOutputScript(address);
+        for (int i = 0; i < 2; i++) {
+            TransactionSignature signature = transaction.calculateSignature(
+                i, key, scriptPubKey, Transaction.SigHash.ALL, false);
+            transaction.getInput(i).setScriptSig(ScriptBuilder.createInputScript(signature, key));
+        }
+
+        // Then - signatures are sized at their maximum, at most a couple of bytes each over the actual
+        int signedSize = transaction.bitcoinSerialize().length;
+        assertEquals(TransactionSizeModel.vsize(ScriptType.P2PKH, 2, ScriptType.P2PKH, ScriptType.P2PKH), unsignedFee);
+        assertTrue(unsignedFee >= signedSize);
+        assertTrue(unsignedFee - signedSize <= 4);
+        assertEquals(signedSize, feeCalculator.calculateCustomFee(TransactionSizeModel.vsize(transaction), 1));
+    }
+
+    @Test
+    void testSizeModelMatchesStandardTransactions() {
+        // One input paying a recipient with change
+        assertEquals(226, TransactionSizeModel.vsize(ScriptType.P2PKH, 1, ScriptType.P2PKH, ScriptType.P2PKH));
+        assertEquals(141, TransactionSizeModel.vsize(ScriptType.P2WPKH, 1, ScriptType.P2WPKH, ScriptType.P2WPKH));
+
+        // Per input and output
+        assertEquals(148, ScriptType.P2PKH.inputVsize());
+        assertEquals(68, ScriptType.P2WPKH.inputVsize());
+        assertEquals(34, ScriptType.P2PKH.outputSize());
+        assertEquals(31, ScriptType.P2WPKH.outputSize());
+        assertEquals(43, ScriptType.P2TR.outputSize());
+    }
+
+    @Test
+    void testUnsignedInputsAreSizedAtTheWalletsScriptType() {
+        // Given - an unsigned consolidation from a native SegWit wallet
+        NetworkParameters params = MainNetParams.get();
+        SegwitAddress address = SegwitAddress.fromKey(params, new ECKey());
+        Transaction transaction = new Transaction(params);
+        for (int i = 0; i < 1000; i++) {
+            TransactionOutPoint outPoint = new TransactionOutPoint(params, 0, Sha256Hash.of(new byte[] {(byte) i, (byte) (i >>> 8)}));
+            transaction.addInput(new TransactionInput(params, transaction, new byte[] {}, outPoint, Coin.valueOf(50000)));
+        }
+        transaction.addOutput(Coin.valueOf(40_000_000), address);
+
+        // When
+        int segwitVsize = TransactionSizeModel.vsize(transaction, ScriptType.P2WPKH);
+
+        // Then - within the standard size only when its inputs are priced as witness inputs
+        assertEquals(TransactionSizeModel.vsize(ScriptType.P2WPKH, 1000, ScriptType.P2WPKH), segwitVsize);
+        assertTrue(segwitVsize < TransactionSizeModel.MAX_STANDARD_VSIZE);
+        assertTrue(TransactionSizeModel.vsize(transaction) > TransactionSizeModel.MAX_STANDARD_VSIZE);
+    }
+
     @Test
     void testFeeEstimation() {
         // Given
@@ -0,0 +1,178 @@
+package com.btcwallet.service;
+
+import com.btcwallet.wallet.FileWalletStore;
+import com.btcwallet.wallet.Wallet;
+import com.btcwallet.wallet.WalletException;
+import com.btcwallet.wallet.WalletService;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.params.TestNet3Params;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileWalletStoreTest {
+
+    @TempDir
+    Path storeDir;
+
+    private Wallet wallet(int i) {
+        return Wallet.fromECKey(String.format("WALLET-%08X", i), new ECKey(), MainNetParams.get());
+    }
+
+    @Test
+    void testSaveAndLoadAcrossRestart() {
+        // Given
+        Wallet mainNet = wallet(1);
+        Wallet testNet = Wallet.fromECKey("WALLET-TESTNET1", new ECKey(), TestNet3Params.get());
+        try (FileWalletStore store = FileWalletStore.open(storeDir)) {
+            store.save(mainNet);
+            store.save(testNet);
+        }
+
+        // When
+        try (FileWalletStore reopened = FileWalletStore.open(storeDir)) {
+            Wallet loaded = reopened.load(mainNet.walletId());
+            Wallet loadedTestNet = reopened.load(testNet.walletId());
+
+            // Then
+            assertEquals(2, reopened.size());
+            assertEquals(mainNet.address(), loaded.address());
+            assertEquals(mainNet.privateKey(), loaded.privateKey());
+            assertEquals(mainNet.createdAt(), loaded.createdAt());
+            assertEquals(TestNet3Params.get(), loadedTestNet.networkParameters());
+            assertNull(reopened.load("WALLET-MISSING"));
+        }
+    }
+
+    @Test
+    void testIndexGrowthAndIteration() {
+        // Given - enough wallets to force several index resizes
+        int count = 10_000;
+        try (FileWalletStore store = FileWalletStore.open(storeDir)) {
+            for (int i = 0; i < count; i++) {
+                store.save(new Wallet(String.format("WALLET-%08X", i), "address-" + i, "pub-" + i, "priv-" + i,
+                        null, MainNetParams.get()));
+            }
+
+            // When
+            Set<String> ids = new HashSet<>(store.walletIds());
+            AtomicInteger scanned = new AtomicInteger();
+            store.forEach(w -> scanned.incrementAndGet());
+
+            // Then
+            assertEquals(count, store.size());
+            assertEquals(count, ids.size());
+            assertEquals(count, scanned.get());
+            assertTrue(store.contains("WALLET-00001234"));
+        }
+    }
+
+    @Test
+    void testRecoversFromTornTailAfterCrash() throws IOException {
+        // Given - a store that is never closed, followed by a partially written record
+        FileWalletStore crashed = FileWalletStore.open(storeDir);
+        Wallet first = wallet(1);
+        Wallet second = wallet(2);
+        crashed.save(first);
+        crashed.save(second);
+        Files.write(storeDir.resolve("wallets.log"), new byte[] {0, 0, 0, 64, 1, 2, 3},
+                StandardOpenOption.APPEND);
+
+        // When
+        try (FileWalletStore recovered = FileWalletStore.open(storeDir)) {
+            // Then
+            assertEquals(2, recovered.size());
+            assertEquals(second.address(), recovered.load(second.walletId()).address());
+            recovered.save(wallet(3));
+            assertEquals(3, recovered.size());
+        }
+    }
+
+    @Test
+    void testRebuildsMissingIndex() throws IOException {
+        // Given
+        Wallet saved = wallet(7);
+        try (FileWalletStore store = FileWalletStore.open(storeDir)) {
+            store.save(saved);
+        }
+        Files.delete(storeDir.resolve("wallets.idx"));
+
+        // When
+        try (FileWalletStore rebuilt = FileWalletStore.open(storeDir)) {
+            // Then
+            assertEquals(saved.address(), rebuilt.load(saved.walletId()).address());
+        }
+    }
+
+    @Test
+    void testCompactionDropsSupersededRecords() throws IOException {
+        // Given
+        Wallet original = wallet(1);
+        try (FileWalletStore store = FileWalletStore.open(storeDir)) {
+            store.save(original);
+            for (int i = 0; i < 100; i++) {
+                store.save(original);
+            }
+            long before = Files.size(storeDir.resolve("wallets.log"));
+
+            // When
+            store.compact();
+
+            // Then
+            assertTrue(Files.size(storeDir.resolve("wallets.log")) < before);
+            assertEquals(1, store.size());
+            assertEquals(original.address(), store.load(original.walletId()).address());
+        }
+    }
+
+    @Test
+    void testClear() {
+        try (FileWalletStore store = FileWalletStore.open(storeDir)) {
+            store.save(wallet(1));
+            store.clear();
+            assertEquals(0, store.size());
+            assertFalse(store.contains(wallet(1).walletId()));
+        }
+    }
+
+    @Test
+    void testClosedStoreRejectsWrites() {
+        FileWalletStore store = FileWalletStore.open(storeDir);
+        store.close();
+
+        WalletException exception = assertThrows(WalletException.class, () -> store.save(wallet(1)));
+        assertEquals(WalletException.ErrorType.STORAGE_ERROR, exception.getErrorType());
+    }
+
+    @Test
+    void testWalletServiceRestoresWalletsAfterRestart() {
+        // Given
+        WalletService service = new WalletService(MainNetParams.get(), null, FileWalletStore.open(storeDir));
+        Wallet generated = service.generateWallet();
+        Wallet imported = service.importFromPrivateKey(new ECKey().getPrivateKeyAsHex());
+        service.shutdown();
+
+        // When
+        WalletService restarted = new WalletService(MainNetParams.get(), null, FileWalletStore.open(storeDir));
+        try {
+            // Then
+            assertEquals(generated, restarted.getWallet(generated.walletId()));
+            assertEquals(imported.address(), restarted.getWallet(imported.walletId()).address());
+            assertEquals(2, restarted.listWalletIds().size());
+            assertEquals(2, restarted.getAllWallets().size());
+        } finally {
+            restarted.shutdown();
+        }
+    }
+}
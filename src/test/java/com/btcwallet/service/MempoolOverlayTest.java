@@ -0,0 +1,172 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.UtxoSet;
+import com.btcwallet.balance.WalletBalance;
+import com.btcwallet.transaction.MempoolOverlay;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.Utils;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MempoolOverlayTest {
+
+    private static final NetworkParameters PARAMS = MainNetParams.get();
+    private static final String WALLET_ID = "WALLET-1";
+    private static final String FUNDING_HASH = Sha256Hash.of("funding".getBytes()).toString();
+
+    private ManualClock clock;
+    private Script changeScript;
+    private Script recipientScript;
+
+    /** Clock that only moves when told to. */
+    private static final class ManualClock extends Clock {
+        private volatile Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        clock = new ManualClock();
+        changeScript = ScriptBuilder.createOutputScript(LegacyAddress.fromKey(PARAMS, new ECKey()));
+        recipientScript = ScriptBuilder.createOutputScript(LegacyAddress.fromKey(PARAMS, new ECKey()));
+    }
+
+    /**
+     * Payment spending one outpoint, with change back to the wallet at output 1.
+     */
+    private Transaction spend(String transactionHash, int outputIndex, long change) {
+        Transaction transaction = new Transaction(PARAMS);
+        transaction.addInput(Sha256Hash.wrap(transactionHash), outputIndex, new ScriptBuilder().build());
+        transaction.addOutput(Coin.valueOf(10_000), recipientScript);
+        transaction.addOutput(Coin.valueOf(change), changeScript);
+        return transaction;
+    }
+
+    private WalletBalance.UTXO utxo(String transactionHash, int outputIndex, long value, int confirmations) {
+        return new WalletBalance.UTXO(transactionHash, outputIndex, Coin.valueOf(value),
+                Utils.HEX.encode(changeScript.getProgram()), confirmations);
+    }
+
+    private static WalletBalance refreshed(WalletBalance.UTXO... utxos) {
+        return new WalletBalance(WALLET_ID, Coin.ZERO, Coin.ZERO, Coin.ZERO, Instant.now(), "1", List.of(utxos));
+    }
+
+    @Test
+    void testChangeUnseenPastGraceIsDropped() {
+        // Given - change from a broadcast the refresh never lists
+        MempoolOverlay overlay = new MempoolOverlay(MempoolOverlay.DEFAULT_MAX_ANCESTORS, clock);
+        Transaction payment = spend(FUNDING_HASH, 0, 80_000);
+        overlay.record(WALLET_ID, payment, changeScript.getProgram());
+        WalletBalance stale = refreshed(utxo(FUNDING_HASH, 0, 100_000, 3));
+
+        // When - refreshes arrive within the grace period
+        clock.advance(MempoolOverlay.UNSEEN_GRACE.minusMinutes(1));
+        overlay.onBalanceChanged(null, stale);
+
+        // Then
+        assertEquals(1, overlay.pendingOutputs(WALLET_ID));
+        assertTrue(overlay.apply(WALLET_ID, stale.utxoSet()).indexOf(payment.getTxId().toString(), 1) >= 0);
+
+        // When - and after it
+        clock.advance(Duration.ofMinutes(2));
+        overlay.onBalanceChanged(stale, stale);
+
+        // Then - the change is no longer offered
+        assertEquals(0, overlay.pendingOutputs(WALLET_ID));
+        assertEquals(-1, overlay.apply(WALLET_ID, stale.utxoSet()).indexOf(payment.getTxId().toString(), 1));
+    }
+
+    @Test
+    void testSpentOutpointsStayHiddenWhileTheRefreshListsThem() {
+        // Given
+        MempoolOverlay overlay = new MempoolOverlay(MempoolOverlay.DEFAULT_MAX_ANCESTORS, clock);
+        Transaction payment = spend(FUNDING_HASH, 0, 80_000);
+        String paymentHash = payment.getTxId().toString();
+        overlay.record(WALLET_ID, payment, changeScript.getProgram());
+
+        // When - a refresh still lists the spent output
+        WalletBalance stale = refreshed(utxo(FUNDING_HASH, 0, 100_000, 3));
+        overlay.onBalanceChanged(null, stale);
+
+        // Then - it stays hidden, the change is offered instead
+        UtxoSet applied = overlay.apply(WALLET_ID, stale.utxoSet());
+        assertEquals(-1, applied.indexOf(FUNDING_HASH, 0));
+        assertTrue(applied.indexOf(paymentHash, 1) >= 0);
+
+        // When - the refresh catches up with the payment
+        WalletBalance current = refreshed(utxo(paymentHash, 1, 80_000, 0));
+        overlay.onBalanceChanged(stale, current);
+
+        // Then - the overlay has nothing left to add
+        assertEquals(0, overlay.pendingOutputs(WALLET_ID));
+        assertEquals(1, overlay.apply(WALLET_ID, current.utxoSet()).size());
+
+        // When - a later refresh lists the output again, e.g. after the payment was evicted
+        WalletBalance evicted = refreshed(utxo(FUNDING_HASH, 0, 100_000, 3));
+        overlay.onBalanceChanged(current, evicted);
+
+        // Then - it is no longer hidden
+        assertTrue(overlay.apply(WALLET_ID, evicted.utxoSet()).indexOf(FUNDING_HASH, 0) >= 0);
+    }
+
+    @Test
+    void testAncestryIsPrunedOnceTransactionsConfirm() {
+        // Given - a chain of two unconfirmed payments at an ancestor limit of two
+        MempoolOverlay overlay = new MempoolOverlay(2, clock);
+        Transaction first = spend(FUNDING_HASH, 0, 80_000);
+        overlay.record(WALLET_ID, first, changeScript.getProgram());
+        Transaction second = spend(first.getTxId().toString(), 1, 60_000);
+        overlay.record(WALLET_ID, second, changeScript.getProgram());
+        String secondHash = second.getTxId().toString();
+        Transaction third = spend(secondHash, 1, 40_000);
+
+        UtxoSet stale = overlay.apply(WALLET_ID, refreshed(utxo(FUNDING_HASH, 0, 100_000, 3)).utxoSet());
+        assertEquals(3, overlay.ancestorCount(WALLET_ID, third));
+        assertFalse(overlay.withinAncestorLimit(WALLET_ID, stale).test(stale.indexOf(secondHash, 1)));
+
+        // When - the second payment confirms, and with it the first
+        WalletBalance confirmed = refreshed(utxo(secondHash, 1, 60_000, 1));
+        overlay.onBalanceChanged(null, confirmed);
+
+        // Then - neither counts as an ancestor any more
+        UtxoSet current = overlay.apply(WALLET_ID, confirmed.utxoSet());
+        assertEquals(1, overlay.ancestorCount(WALLET_ID, third));
+        assertTrue(overlay.withinAncestorLimit(WALLET_ID, current).test(current.indexOf(secondHash, 1)));
+    }
+}
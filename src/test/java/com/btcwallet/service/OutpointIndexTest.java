@@ -0,0 +1,300 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.OutpointIndex;
+import com.btcwallet.balance.OutpointIndex.Reservation;
+import com.btcwallet.balance.OutpointIndex.State;
+import com.btcwallet.balance.UtxoSet;
+import com.btcwallet.balance.WalletBalance;
+
+import org.bitcoinj.core.Coin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutpointIndexTest {
+
+    private static final String HASH_A = "aa".repeat(32);
+    private static final String HASH_B = "bb".repeat(32);
+
+    private OutpointIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new OutpointIndex();
+    }
+
+    private static UtxoSet utxos(String... outpoints) {
+        UtxoSet.Builder builder = UtxoSet.builder(outpoints.length);
+        for (String outpoint : outpoints) {
+            String[] parts = outpoint.split(":");
+            builder.add(new WalletBalance.UTXO(parts[0], Integer.parseInt(parts[1]), Coin.valueOf(1000), "", 1));
+        }
+        return builder.build();
+    }
+
+    /** Clock that only moves when told to. */
+    private static final class ManualClock extends Clock {
+        private volatile Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    private static byte[] bytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    @Test
+    void testSyncTracksOwnerAndSpentOutputs() {
+        // Given
+        UtxoSet before = utxos(HASH_A + ":0", HASH_A + ":1");
+        index.sync("WALLET-1", null, before);
+
+        // When - output 1 is spent and a new output arrives
+        index.sync("WALLET-1", before, utxos(HASH_A + ":0", HASH_B + ":0"));
+
+        // Then
+        assertEquals("WALLET-1", index.ownerOf(HASH_B, 0));
+        assertEquals(State.UNSPENT, index.stateOf(HASH_A, 0));
+        assertEquals(State.SPENT_CONFIRMED, index.stateOf(HASH_A, 1));
+        assertNull(index.stateOf(HASH_B, 1));
+        assertEquals(1, index.stats().byState().get(State.SPENT_CONFIRMED));
+    }
+
+    @Test
+    void testPendingSpendIsAllOrNothing() {
+        // Given
+        index.sync("WALLET-1", null, utxos(HASH_A + ":0", HASH_A + ":1"));
+        assertTrue(index.markSpentPending("WALLET-1", new byte[][] {bytes(HASH_A)}, new int[] {0}));
+
+        // When - a second transaction wants output 1 and the already spent output 0
+        boolean marked = index.markSpentPending("WALLET-1",
+            new byte[][] {bytes(HASH_A), bytes(HASH_A)}, new int[] {1, 0});
+
+        // Then
+        assertFalse(marked);
+        assertEquals(State.UNSPENT, index.stateOf(HASH_A, 1));
+
+        // When - the first transaction fails to broadcast
+        index.releasePending(new byte[][] {bytes(HASH_A)}, new int[] {0});
+
+        // Then
+        assertEquals(State.UNSPENT, index.stateOf(HASH_A, 0));
+    }
+
+    @Test
+    void testPendingSpendSurvivesRefreshUntilChainDropsOutput() {
+        // Given
+        UtxoSet before = utxos(HASH_A + ":0");
+        index.sync("WALLET-1", null, before);
+        index.markSpentPending("WALLET-1", new byte[][] {bytes(HASH_A)}, new int[] {0});
+
+        // When - a refresh still lists the output
+        index.sync("WALLET-1", before, before);
+
+        // Then
+        assertEquals(State.SPENT_PENDING, index.stateOf(HASH_A, 0));
+        assertFalse(index.isSpendable(before, 0, new byte[UtxoSet.HASH_LENGTH]));
+
+        // When - the spend is reflected by the chain
+        index.sync("WALLET-1", before, UtxoSet.EMPTY);
+
+        // Then
+        assertEquals(State.SPENT_CONFIRMED, index.stateOf(HASH_A, 0));
+    }
+
+    @Test
+    void testPendingSpendStillListedAfterGraceIsReleased() {
+        // Given
+        ManualClock clock = new ManualClock();
+        index = new OutpointIndex(clock);
+        UtxoSet before = utxos(HASH_A + ":0");
+        index.sync("WALLET-1", null, before);
+        index.markSpentPending("WALLET-1", new byte[][] {bytes(HASH_A)}, new int[] {0});
+
+        // When - refreshes keep listing the output within the grace period
+        clock.advance(OutpointIndex.PENDING_GRACE.minusMinutes(1));
+        index.sync("WALLET-1", before, before);
+
+        // Then
+        assertEquals(State.SPENT_PENDING, index.stateOf(HASH_A, 0));
+
+        // When - and still after it
+        clock.advance(Duration.ofMinutes(2));
+        index.sync("WALLET-1", before, before);
+
+        // Then - the spend never reached the network
+        assertEquals(State.UNSPENT, index.stateOf(HASH_A, 0));
+        assertTrue(index.isSpendable(before, 0, new byte[UtxoSet.HASH_LENGTH]));
+        assertEquals(0, index.stats().byState().get(State.SPENT_PENDING));
+    }
+
+    @Test
+    void testGrowsAndKeepsEveryEntry() {
+        // Given - enough outputs to force several rebuilds
+        UtxoSet.Builder builder = UtxoSet.builder(10_000);
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        for (int i = 0; i < 10_000; i++) {
+            hash[0] = (byte) i;
+            hash[31] = (byte) (i >>> 8);
+            builder.add(hash, 0, i % 3, 1000, new byte[0], 1);
+        }
+        UtxoSet set = builder.build();
+
+        // When
+        index.sync("WALLET-1", null, set);
+
+        // Then
+        assertEquals(10_000, index.size());
+        for (int i = 0; i < set.size(); i++) {
+            assertEquals(State.UNSPENT, index.stateOf(set.transactionHashAt(i), set.outputIndexAt(i)));
+        }
+    }
+
+    @Test
+    void testReservationHoldsUntilCommittedReleasedOrExpired() {
+        // Given
+        ManualClock clock = new ManualClock();
+        index = new OutpointIndex(clock);
+        UtxoSet set = utxos(HASH_A + ":0", HASH_A + ":1");
+        index.sync("WALLET-1", null, set);
+        byte[][] hashes = {bytes(HASH_A), bytes(HASH_A)};
+
+        // When
+        Reservation first = index.reserve("WALLET-1", hashes, new int[] {0, 1}, Duration.ofSeconds(30));
+
+        // Then - neither output can be selected or claimed again, and a refused claim takes nothing
+        assertNotNull(first);
+        assertEquals(State.RESERVED, index.stateOf(HASH_A, 0));
+        assertFalse(index.isSpendable(set, 1, new byte[UtxoSet.HASH_LENGTH]));
+        assertNull(index.reserve("WALLET-1", new byte[][] {bytes(HASH_A)}, new int[] {1}, Duration.ofSeconds(30)));
+        assertFalse(index.markSpentPending("WALLET-1", new byte[][] {bytes(HASH_A)}, new int[] {0}));
+
+        // When - the lease runs out and another transaction takes output 1
+        clock.advance(Duration.ofSeconds(31));
+        assertTrue(index.isSpendable(set, 0, new byte[UtxoSet.HASH_LENGTH]));
+        Reservation second = index.reserve("WALLET-1", new byte[][] {bytes(HASH_A)}, new int[] {1},
+            Duration.ofSeconds(30));
+
+        // Then - the first reservation can no longer commit, and releasing it leaves output 1 alone
+        assertNotNull(second);
+        assertFalse(index.commit(first));
+        index.release(first);
+        assertEquals(State.UNSPENT, index.stateOf(HASH_A, 0));
+        assertEquals(State.RESERVED, index.stateOf(HASH_A, 1));
+
+        // When
+        assertTrue(index.commit(second));
+        index.release(second);
+
+        // Then - releasing after a commit changes nothing
+        assertEquals(State.SPENT_PENDING, index.stateOf(HASH_A, 1));
+        assertEquals(1, index.stats().byState().get(State.SPENT_PENDING));
+        assertEquals(0, index.stats().byState().get(State.RESERVED));
+    }
+
+    @Test
+    void testConcurrentReservationsNeverShareAnOutpoint() throws Exception {
+        // Given - few outputs and many threads reserving overlapping pairs of them
+        int outputs = 16;
+        String[] outpoints = new String[outputs];
+        for (int i = 0; i < outputs; i++) {
+            outpoints[i] = HASH_B + ":" + i;
+        }
+        index.sync("WALLET-1", null, utxos(outpoints));
+        byte[] hash = bytes(HASH_B);
+        AtomicIntegerArray holders = new AtomicIntegerArray(outputs);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            // When
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    int overlaps = 0;
+                    for (int i = 0; i < 20_000; i++) {
+                        int[] indices = {(i + offset) % outputs, (i * 7 + offset * 3 + 1) % outputs};
+                        if (indices[0] == indices[1]) {
+                            continue;
+                        }
+                        Reservation reservation = index.reserve("WALLET-1", new byte[][] {hash, hash}, indices,
+                            Duration.ofMinutes(1));
+                        if (reservation == null) {
+                            continue;
+                        }
+                        for (int output : indices) {
+                            if (holders.incrementAndGet(output) != 1) {
+                                overlaps++;
+                            }
+                        }
+                        for (int output : indices) {
+                            holders.decrementAndGet(output);
+                        }
+                        index.release(reservation);
+                    }
+                    return overlaps;
+                }));
+            }
+
+            // Then
+            for (Future<Integer> result : results) {
+                assertEquals(0, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(outputs, index.stats().byState().get(State.UNSPENT));
+    }
+
+    @Test
+    void testUnspendableFindsReservedOutputsInOneQuery() {
+        // Given
+        UtxoSet set = utxos(HASH_A + ":0", HASH_A + ":1", HASH_B + ":0");
+        index.sync("WALLET-1", null, set);
+        assertTrue(index.unspendable(set, 0).isEmpty());
+
+        // When
+        index.reserve("WALLET-1", new byte[][] {bytes(HASH_A)}, new int[] {1}, Duration.ofSeconds(30));
+        BitSet unspendable = index.unspendable(set, 0);
+
+        // Then
+        assertEquals(1, unspendable.cardinality());
+        assertTrue(unspendable.get(set.indexOf(HASH_A, 1)));
+        assertTrue(index.unspendable(set, set.size()).isEmpty());
+    }
+}
@@ -0,0 +1,152 @@
+package com.btcwallet.service;
+
+import com.btcwallet.transaction.BatchTransaction;
+import com.btcwallet.transaction.PaymentQueue;
+import com.btcwallet.transaction.PaymentQueue.QueuedPayment;
+import com.btcwallet.transaction.PaymentQueue.Status;
+import com.btcwallet.transaction.Transaction;
+import com.btcwallet.transaction.TransactionException;
+import com.btcwallet.transaction.TransactionService;
+import com.btcwallet.wallet.Wallet;
+import com.btcwallet.wallet.WalletService;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.params.MainNetParams;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentQueueTest {
+
+    private static final String WALLET_ID = "WALLET-QUEUE-001";
+    private static final String RECIPIENT = "1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa";
+    private static final Duration WINDOW = Duration.ofHours(1);
+
+    @TempDir
+    Path queueDir;
+
+    @Mock
+    private WalletService walletService;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @BeforeEach
+    void setUp() {
+        Wallet wallet = Wallet.fromECKey(WALLET_ID, new ECKey(), MainNetParams.get());
+        lenient().when(walletService.getWallet(WALLET_ID)).thenReturn(wallet);
+        lenient().when(walletService.isValidAddress(anyString())).thenReturn(true);
+    }
+
+    private static BatchTransaction batch(String transactionId) {
+        return new BatchTransaction(transactionId, WALLET_ID, List.of(), 0, 0,
+            Transaction.TransactionStatus.SIMULATED, Instant.now(), true, null);
+    }
+
+    private static QueuedPayment awaitStatus(PaymentQueue queue, String paymentId, Status status)
+            throws InterruptedException {
+        for (int i = 0; i < 250; i++) {
+            QueuedPayment payment = queue.get(paymentId).orElseThrow();
+            if (payment.status() == status) {
+                return payment;
+            }
+            Thread.sleep(20);
+        }
+        fail("Payment " + paymentId + " never reached " + status);
+        return null;
+    }
+
+    @Test
+    void testFullQueueIsSentAsOneBatch() throws Exception {
+        // Given
+        when(transactionService.createBatchTransaction(eq(WALLET_ID), anyList(), eq(true))).thenReturn(batch("tx-1"));
+
+        try (PaymentQueue queue = PaymentQueue.open(queueDir, walletService, transactionService, WINDOW, 3)) {
+            // When - the third payment fills the batch long before the window ends
+            QueuedPayment first = queue.enqueue(WALLET_ID, RECIPIENT, 10_000, true);
+            QueuedPayment second = queue.enqueue(WALLET_ID, RECIPIENT, 20_000, true);
+            QueuedPayment third = queue.enqueue(WALLET_ID, RECIPIENT, 30_000, true);
+
+            // Then - one transaction, one output per payment in queue order
+            assertEquals(Status.QUEUED, first.status());
+            assertEquals("tx-1:0", awaitStatus(queue, first.paymentId(), Status.SENT).reference());
+            assertEquals("tx-1:1", awaitStatus(queue, second.paymentId(), Status.SENT).reference());
+            assertEquals("tx-1:2", awaitStatus(queue, third.paymentId(), Status.SENT).reference());
+            verify(transactionService, times(1)).createBatchTransaction(eq(WALLET_ID), argThat(payments ->
+                payments.size() == 3 && payments.get(2).amount() == 30_000), eq(true));
+            assertEquals(1, queue.stats().batches());
+        }
+    }
+
+    @Test
+    void testQueuedPaymentsSurviveRestart() {
+        // Given
+        String paymentId;
+        try (PaymentQueue queue = PaymentQueue.open(queueDir, walletService, transactionService, WINDOW, 10)) {
+            paymentId = queue.enqueue(WALLET_ID, RECIPIENT, 10_000, false).paymentId();
+        }
+        when(transactionService.createBatchTransaction(eq(WALLET_ID), anyList(), eq(false))).thenReturn(batch("tx-2"));
+
+        // When
+        try (PaymentQueue reopened = PaymentQueue.open(queueDir, walletService, transactionService, WINDOW, 10)) {
+            assertEquals(Status.QUEUED, reopened.get(paymentId).orElseThrow().status());
+            reopened.flush(WALLET_ID);
+
+            // Then
+            QueuedPayment payment = reopened.get(paymentId).orElseThrow();
+            assertEquals(Status.SENT, payment.status());
+            assertEquals("tx-2", payment.transactionId());
+        }
+    }
+
+    @Test
+    void testPaymentsBeingSentAtCrashAreNotResent() throws Exception {
+        // Given - a copy of the journal taken while the batch is being sent stands in for a crash
+        Path crashDir = Files.createDirectory(queueDir.resolve("crash"));
+        when(transactionService.createBatchTransaction(eq(WALLET_ID), anyList(), eq(false))).thenAnswer(invocation -> {
+            Files.copy(queueDir.resolve("payments.log"), crashDir.resolve("payments.log"));
+            throw TransactionException.networkError("Broadcast timed out");
+        });
+        String paymentId;
+        try (PaymentQueue queue = PaymentQueue.open(queueDir, walletService, transactionService, WINDOW, 10)) {
+            paymentId = queue.enqueue(WALLET_ID, RECIPIENT, 10_000, false).paymentId();
+            queue.flush(WALLET_ID);
+            assertEquals(Status.FAILED, queue.get(paymentId).orElseThrow().status());
+        }
+
+        // When
+        try (PaymentQueue recovered = PaymentQueue.open(crashDir, walletService, transactionService, WINDOW, 10)) {
+            // Then
+            assertEquals(Status.INTERRUPTED, recovered.get(paymentId).orElseThrow().status());
+            assertEquals(0, recovered.stats().queued());
+        }
+        verify(transactionService, times(1)).createBatchTransaction(any(), anyList(), anyBoolean());
+    }
+
+    @Test
+    void testInvalidPaymentIsRefusedUpFront() {
+        try (PaymentQueue queue = PaymentQueue.open(queueDir, walletService, transactionService, WINDOW, 10)) {
+            // Below the dust limit
+            assertThrows(TransactionException.class, () -> queue.enqueue(WALLET_ID, RECIPIENT, 100, true));
+
+            // Unknown wallet
+            assertThrows(TransactionException.class, () -> queue.enqueue("WALLET-MISSING", RECIPIENT, 10_000, true));
+
+            assertEquals(0, queue.stats().queued());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.PortfolioTotals;
+import com.btcwallet.balance.WalletBalance;
+
+import org.bitcoinj.core.Coin;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortfolioTotalsTest {
+
+    private static WalletBalance balance(String walletId, long confirmed, long unconfirmed) {
+        return new WalletBalance(walletId, Coin.valueOf(confirmed), Coin.valueOf(unconfirmed),
+                Coin.valueOf(confirmed + unconfirmed), Instant.now(), "1", List.of());
+    }
+
+    @Test
+    void testUpdatesAdjustTotalsByDifference() {
+        // Given
+        PortfolioTotals totals = new PortfolioTotals();
+        totals.update(balance("WALLET-1", 100, 0));
+        totals.update(balance("WALLET-2", 200, 10));
+
+        // When
+        totals.update(balance("WALLET-1", 80, 5));
+        totals.remove("WALLET-2");
+
+        // Then
+        assertEquals(new PortfolioTotals.Totals(80, 5, 85, 1), totals.totals());
+        assertFalse(totals.contains("WALLET-2"));
+    }
+
+    @Test
+    void testConcurrentUpdatesStayConsistent() throws InterruptedException {
+        // Given
+        PortfolioTotals totals = new PortfolioTotals();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When - 100 wallets each updated 100 times, ending at 1000 confirmed
+        for (int w = 0; w < 100; w++) {
+            String walletId = "WALLET-" + w;
+            executor.execute(() -> {
+                for (int i = 1; i <= 100; i++) {
+                    totals.update(balance(walletId, i * 10L, 0));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(Coin.valueOf(100_000), totals.getTotal());
+        assertTrue(totals.check(Map.of()).consistent());
+    }
+
+    @Test
+    void testCheckCorrectsWalletsThatDifferFromReference() {
+        // Given
+        PortfolioTotals totals = new PortfolioTotals();
+        totals.update(balance("WALLET-1", 100, 0));
+        totals.update(balance("WALLET-2", 200, 0));
+
+        // When - the cache holds a newer balance for WALLET-1
+        PortfolioTotals.Check check = totals.check(Map.of("WALLET-1", balance("WALLET-1", 120, 0)));
+
+        // Then
+        assertFalse(check.consistent());
+        assertEquals(1, check.walletsCorrected());
+        assertEquals(Coin.valueOf(320), totals.getTotal());
+        assertTrue(totals.check(Map.of()).consistent());
+    }
+}
@@ -0,0 +1,173 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.HashedTimingWheel;
+import com.btcwallet.balance.RefreshTiers;
+import com.btcwallet.balance.TieredRefreshScheduler;
+import com.btcwallet.balance.TieredRefreshScheduler.Tier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredRefreshSchedulerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    // No jitter so every deadline is exact
+    private static final RefreshTiers TIERS = new RefreshTiers(
+        Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofHours(1), 6, 0.1, 0);
+
+    private AtomicLong clock;
+    private TieredRefreshScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(1_000 * SECOND);
+        scheduler = new TieredRefreshScheduler(TIERS, clock::get);
+    }
+
+    private void advance(long nanos) {
+        clock.addAndGet(nanos);
+    }
+
+    @Test
+    void testNewWalletsAreSpreadAcrossColdPeriod() {
+        // Given
+        for (int i = 0; i < 1_000; i++) {
+            scheduler.track("WALLET-" + i);
+        }
+
+        // When - half the cold period passes
+        advance(TimeUnit.MINUTES.toNanos(30));
+        List<String> firstHalf = scheduler.pollDue();
+        advance(TimeUnit.MINUTES.toNanos(30) + SECOND);
+        List<String> secondHalf = scheduler.pollDue();
+
+        // Then - roughly half came due in each half, every wallet exactly once
+        assertTrue(firstHalf.size() > 350 && firstHalf.size() < 650, "first half: " + firstHalf.size());
+        assertEquals(1_000, firstHalf.size() + secondHalf.size());
+        assertEquals(1_000, scheduler.tierSizes().get(Tier.COLD));
+    }
+
+    @Test
+    void testFrequentReadsPromoteToHotImmediately() {
+        // Given
+        scheduler.track("WALLET-1");
+        advance(TimeUnit.MINUTES.toNanos(1));
+
+        // When - six reads within a minute
+        for (int i = 0; i < 6; i++) {
+            scheduler.recordAccess("WALLET-1");
+        }
+
+        // Then - hot now and due after the hot period instead of its cold deadline
+        assertEquals(Tier.HOT, scheduler.tierOf("WALLET-1"));
+        assertEquals(1, scheduler.tierSizes().get(Tier.HOT));
+        advance(29 * SECOND);
+        assertTrue(scheduler.pollDue().isEmpty());
+        advance(SECOND);
+        assertEquals(List.of("WALLET-1"), scheduler.pollDue());
+    }
+
+    @Test
+    void testHotWalletStaysHotWhileReadAndCoolsDownWhenIdle() {
+        // Given - a wallet read once every five seconds
+        scheduler.track("WALLET-1");
+        for (int i = 0; i < 12; i++) {
+            advance(5 * SECOND);
+            scheduler.recordAccess("WALLET-1");
+        }
+        assertEquals(Tier.HOT, scheduler.tierOf("WALLET-1"));
+
+        // When - it keeps being read across a refresh
+        for (int i = 0; i < 6; i++) {
+            advance(5 * SECOND);
+            scheduler.recordAccess("WALLET-1");
+        }
+        scheduler.pollDue();
+
+        // Then
+        assertEquals(Tier.HOT, scheduler.tierOf("WALLET-1"));
+
+        // When - reads stop
+        List<Tier> seen = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            advance(TimeUnit.HOURS.toNanos(1));
+            scheduler.pollDue();
+            seen.add(scheduler.tierOf("WALLET-1"));
+        }
+
+        // Then - it steps down to warm and eventually cold
+        assertTrue(seen.contains(Tier.WARM));
+        assertEquals(Tier.COLD, seen.get(seen.size() - 1));
+    }
+
+    @Test
+    void testUntrackedWalletsAreNotRefreshed() {
+        // Given
+        scheduler.track("WALLET-1");
+        scheduler.track("WALLET-2");
+
+        // When
+        scheduler.untrack("WALLET-1");
+        scheduler.recordAccess("WALLET-3");
+        advance(TimeUnit.HOURS.toNanos(1) + SECOND);
+
+        // Then
+        assertEquals(List.of("WALLET-2"), scheduler.pollDue());
+        assertNull(scheduler.tierOf("WALLET-1"));
+        assertNull(scheduler.tierOf("WALLET-3"));
+        assertEquals(1, scheduler.tierSizes().get(Tier.COLD));
+    }
+
+    @Test
+    void testTimingWheelReschedulingReplacesPreviousDeadline() {
+        // Given
+        HashedTimingWheel wheel = new HashedTimingWheel(SECOND, 8, 0);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("WALLET-1", 5 * SECOND);
+
+        // When
+        wheel.schedule("WALLET-1", 7 * SECOND);
+        wheel.advance(6 * SECOND, expired::add);
+
+        // Then
+        assertTrue(expired.isEmpty());
+        wheel.advance(7 * SECOND, expired::add);
+        assertEquals(List.of("WALLET-1"), expired);
+        assertFalse(wheel.isScheduled("WALLET-1"));
+    }
+
+    @Test
+    void testTimingWheelDeadlinesBeyondOneRevolution() {
+        // Given - eight one-second buckets and a deadline 20 seconds out
+        HashedTimingWheel wheel = new HashedTimingWheel(SECOND, 8, 0);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("WALLET-1", 20 * SECOND);
+        wheel.schedule("WALLET-2", 3 * SECOND);
+
+        // When - the wheel passes WALLET-1's bucket twice
+        wheel.advance(19 * SECOND, expired::add);
+
+        // Then
+        assertEquals(List.of("WALLET-2"), expired);
+        wheel.advance(20 * SECOND, expired::add);
+        assertEquals(List.of("WALLET-2", "WALLET-1"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testInvalidTiers() {
+        assertThrows(IllegalArgumentException.class, () -> new RefreshTiers(
+            Duration.ofMinutes(5), Duration.ofSeconds(30), Duration.ofHours(1), 6, 0.1, 0.1));
+        assertThrows(IllegalArgumentException.class, () -> new RefreshTiers(
+            Duration.ofSeconds(30), Duration.ofMinutes(5), Duration.ofHours(1), 6, 0.1, 1));
+    }
+}
@@ -5,6 +5,8 @@ import com.btcwallet.exception.BitcoinConfigurationException;
 import com.btcwallet.network.BitcoinNodeClient;
 import com.btcwallet.network.FeeCalculator;
 import com.btcwallet.network.NetworkMonitor;
+import com.btcwallet.transaction.BatchTransaction;
+import com.btcwallet.transaction.Payment;
 import com.btcwallet.transaction.Transaction;
 import com.btcwallet.transaction.TransactionException;
 import com.btcwallet.transaction.TransactionService;
@@ -126,7 +128,7 @@ class TransactionServiceTest {
         when(walletService.getWallet(testWalletId)).thenReturn(testWallet);
         when(walletService.isValidAddress(testRecipient)).thenReturn(true);
         when(walletService.getWalletBalance(testWalletId)).thenReturn(balance);
-        when(feeCalculator.calculateFee(any())).thenReturn(fee);
+        when(feeCalculator.calculateFee(anyInt())).thenReturn(fee);
 
         // When
         Transaction transaction = transactionService.createTransaction(
@@ -175,7 +177,7 @@ class TransactionServiceTest {
         when(walletService.getWallet(testWalletId)).thenReturn(testWallet);
         when(walletService.isValidAddress(testRecipient)).thenReturn(true);
         when(walletService.getWalletBalance(testWalletId)).thenReturn(balance);
-        when(feeCalculator.calculateFee(any(org.bitcoinj.core.Transaction.class))).thenReturn(fee);
+        when(feeCalculator.calculateFee(anyInt())).thenReturn(fee);
 
         // When
         Transaction transaction = transactionService.createTransaction(
@@ -217,7 +219,7 @@ class TransactionServiceTest {
         when(walletService.getWallet(testWalletId)).thenReturn(testWallet);
         when(walletService.isValidAddress(testRecipient)).thenReturn(true);
         when(walletService.getWalletBalance(testWalletId)).thenReturn(balance);
-        when(feeCalculator.calculateFee(any(org.bitcoinj.core.Transaction.class))).thenReturn(fee);
+        when(feeCalculator.calculateFee(anyInt())).thenReturn(fee);
         when(networkMonitor.isNetworkAvailable()).thenReturn(true);
         when(networkMonitor.getMempoolSize()).thenReturn(3000);
 
@@ -306,7 +308,7 @@ class TransactionServiceTest {
 
         // Mock the transaction creation to bypass BitcoinJ signing issues
         // We want to test network availability, not transaction signing
-        when(feeCalculator.calculateFee(any())).thenReturn(5000L);
+        when(feeCalculator.calculateFee(anyInt())).thenReturn(5000L);
 
         // When/Then
         TransactionException exception = assertThrows(TransactionException.class, () -> {
@@ -359,7 +361,7 @@ class TransactionServiceTest {
         when(walletService.getWallet(testWalletId)).thenReturn(testWallet);
         when(walletService.isValidAddress(testRecipient)).thenReturn(true);
         when(walletService.getWalletBalance(testWalletId)).thenReturn(balance);
-        when(feeCalculator.calculateFee(any())).thenReturn(5000L);
+        when(feeCalculator.calculateFee(anyInt())).thenReturn(5000L);
 
         // Test that validation catches invalid transactions (e.g. amount too high)
         assertThrows(TransactionException.class, () -> {
@@ -367,4 +369,198 @@ class TransactionServiceTest {
                     testWalletId, testRecipient, 500000, true);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSecondSpendOfSameUtxoIsRefused() throws Exception {
+        // Given - a single UTXO and a broadcast that only succeeds the second time
+        com.btcwallet.balance.WalletBalance.UTXO utxo = new com.btcwallet.balance.WalletBalance.UTXO(
+                "0000000000000000000000000000000000000000000000000000000000000000",
+                0,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                "scriptPubKey",
+                10);
+        com.btcwallet.balance.WalletBalance balance = new com.btcwallet.balance.WalletBalance(
+                testWalletId,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                org.bitcoinj.core.Coin.ZERO,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                java.time.Instant.now(),
+                "100",
+                java.util.List.of(utxo));
+
+        when(walletService.getWallet(testWalletId)).thenReturn(testWallet);
+        when(walletService.isValidAddress(testRecipient)).thenReturn(true);
+        when(walletService.getWalletBalance(testWalletId)).thenReturn(balance);
+        when(feeCalculator.calculateFee(anyInt())).thenReturn(5000L);
+        when(networkMonitor.isNetworkAvailable()).thenReturn(false, true);
+        when(networkMonitor.getMempoolSize()).thenReturn(3000);
+
+        // When - the failed broadcast releases the UTXO, the successful one marks it spent
+        assertThrows(TransactionException.class,
+                () -> transactionService.createTransaction(testWalletId, testRecipient, 100000, false));
+        Transaction transaction = transactionService.createTransaction(testWalletId, testRecipient, 100000, false);
+
+        // Then - spending it again is refused before signing
+        assertEquals(Transaction.TransactionStatus.BROADCASTED, transaction.status());
+        assertThrows(TransactionException.class,
+                () -> transactionService.createTransaction(testWalletId, testRecipient, 100000, false));
+    }
+
+    @Test
+    void testBatchPaysEveryRecipientFromOneTransaction() throws Exception {
+        // Given - one UTXO funding three payouts
+        com.btcwallet.balance.WalletBalance.UTXO utxo = new com.btcwallet.balance.WalletBalance.UTXO(
+                "0000000000000000000000000000000000000000000000000000000000000000",
+                0,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                "scriptPubKey",
+                10);
+        com.btcwallet.balance.WalletBalance balance = new com.btcwallet.balance.WalletBalance(
+                testWalletId,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                org.bitcoinj.core.Coin.ZERO,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                java.time.Instant.now(),
+                "100",
+                java.util.List.of(utxo));
+        String otherRecipient = org.bitcoinj.core.LegacyAddress.fromKey(MainNetParams.get(), new ECKey()).toString();
+        java.util.List<Payment> payments = java.util.List.of(
+                new Payment(testRecipient, 50000),
+                new Payment(otherRecipient, 30000),
+                new Payment(testRecipient, 20000));
+
+        when(walletService.getWallet(testWalletId)).thenReturn(testWallet);
+        when(walletService.isValidAddress(anyString())).thenReturn(true);
+        when(walletService.getWalletBalance(testWalletId)).thenReturn(balance);
+        when(feeCalculator.calculateFee(anyInt())).thenReturn(5000L);
+
+        // When
+        BatchTransaction batch = transactionService.createBatchTransaction(testWalletId, payments, true);
+
+        // Then - one input, one output per payout in order, then change: 200,000 - 100,000 - 5,000
+        org.bitcoinj.core.Transaction rawTx = batch.rawTransaction();
+        assertEquals(1, rawTx.getInputs().size());
+        assertEquals(4, rawTx.getOutputs().size());
+        assertEquals(95000, rawTx.getOutput(3).getValue().getValue());
+        assertEquals(100000, batch.totalAmount());
+        assertEquals(5000, batch.fee());
+        assertEquals(Transaction.TransactionStatus.SIMULATED, batch.status());
+        for (int i = 0; i < payments.size(); i++) {
+            BatchTransaction.Payout payout = batch.payouts().get(i);
+            assertEquals(i, payout.outputIndex());
+            assertEquals(payments.get(i).amount(), rawTx.getOutput(i).getValue().getValue());
+            assertEquals(payments.get(i).recipientAddress(), payout.recipientAddress());
+            assertEquals(batch.transactionId() + ":" + i, payout.reference());
+        }
+    }
+
+    @Test
+    void testSegwitWalletSpendsWithWitnessesAtWitnessSizes() throws Exception {
+        // Given - a native SegWit wallet and a fee rate of 10 sat/vB
+        Wallet segwitWallet = Wallet.fromECKey(testWalletId, new ECKey(), MainNetParams.get(),
+                org.bitcoinj.script.Script.ScriptType.P2WPKH);
+        com.btcwallet.balance.WalletBalance.UTXO utxo = new com.btcwallet.balance.WalletBalance.UTXO(
+                "0000000000000000000000000000000000000000000000000000000000000000",
+                0,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                "scriptPubKey",
+                10);
+        com.btcwallet.balance.WalletBalance balance = new com.btcwallet.balance.WalletBalance(
+                testWalletId,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                org.bitcoinj.core.Coin.ZERO,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                java.time.Instant.now(),
+                "100",
+                java.util.List.of(utxo));
+
+        when(walletService.getWallet(testWalletId)).thenReturn(segwitWallet);
+        when(walletService.isValidAddress(testRecipient)).thenReturn(true);
+        when(walletService.getWalletBalance(testWalletId)).thenReturn(balance);
+        when(feeCalculator.calculateFee(anyInt())).thenReturn(5000L);
+        when(feeCalculator.getFeeRate(any())).thenReturn(10);
+
+        // When
+        Transaction transaction = transactionService.createTransaction(testWalletId, testRecipient, 100000, true);
+
+        // Then - 5,000 for the outputs, 1 vB marker and flag, 68 vB input, 31 vB change output
+        org.bitcoinj.core.Transaction rawTx = transaction.rawTransaction();
+        assertEquals(6000, transaction.fee());
+        assertEquals(94000, rawTx.getOutput(1).getValue().getValue());
+        assertEquals(segwitWallet.address(), rawTx.getOutput(1).getScriptPubKey()
+                .getToAddress(MainNetParams.get()).toString());
+        assertTrue(rawTx.getInput(0).hasWitness());
+        assertEquals(0, rawTx.getInput(0).getScriptBytes().length);
+    }
+
+    @Test
+    void testBatchRejectsDustPayment() {
+        // Given
+        when(walletService.getWallet(testWalletId)).thenReturn(testWallet);
+        when(walletService.isValidAddress(testRecipient)).thenReturn(true);
+
+        // When & Then - the second payout is below the dust limit
+        TransactionException exception = assertThrows(TransactionException.class,
+                () -> transactionService.createBatchTransaction(testWalletId, java.util.List.of(
+                        new Payment(testRecipient, 50000), new Payment(testRecipient, 100)), true));
+        assertTrue(exception.getMessage().contains("Payment 1"));
+    }
+
+    @Test
+    void testChangeIsChainedUntilAncestorLimit() throws Exception {
+        // Given - one UTXO, no balance refresh between payments, chains of at most two transactions
+        com.btcwallet.balance.WalletBalance balance = new com.btcwallet.balance.WalletBalance(
+                testWalletId,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                org.bitcoinj.core.Coin.ZERO,
+                org.bitcoinj.core.Coin.valueOf(200000),
+                java.time.Instant.now(),
+                "100",
+                java.util.List.of(new com.btcwallet.balance.WalletBalance.UTXO(
+                        "0000000000000000000000000000000000000000000000000000000000000000",
+                        0, org.bitcoinj.core.Coin.valueOf(200000), "scriptPubKey", 10)));
+        com.btcwallet.transaction.MempoolOverlay overlay = new com.btcwallet.transaction.MempoolOverlay(2);
+        TransactionService chainingService = new TransactionService(walletService, feeCalculator, networkMonitor,
+                bitcoinNodeClient, new com.btcwallet.balance.OutpointIndex(),
+                com.btcwallet.transaction.selection.WasteMinimizingSelector.defaults(), overlay);
+
+        when(walletService.getWallet(testWalletId)).thenReturn(testWallet);
+        when(walletService.isValidAddress(testRecipient)).thenReturn(true);
+        when(walletService.getWalletBalance(testWalletId)).thenReturn(balance);
+        when(feeCalculator.calculateFee(anyInt())).thenReturn(5000L);
+        when(networkMonitor.isNetworkAvailable()).thenReturn(true);
+        when(networkMonitor.getMempoolSize()).thenReturn(3000);
+
+        // When - the second payment spends the first one's change right away
+        Transaction first = chainingService.createTransaction(testWalletId, testRecipient, 100000, false);
+        Transaction second = chainingService.createTransaction(testWalletId, testRecipient, 50000, false);
+
+        // Then
+        org.bitcoinj.core.TransactionOutPoint spent = second.rawTransaction().getInput(0).getOutpoint();
+        assertEquals(first.rawTransaction().getTxId(), spent.getHash());
+        assertEquals(95000, first.rawTransaction().getOutput(spent.getIndex()).getValue().value);
+
+        // When & Then - a third link would exceed the limit, so its change is not offered
+        assertThrows(TransactionException.class,
+                () -> chainingService.createTransaction(testWalletId, testRecipient, 20000, false));
+
+        // When - the refresh sees the second payment confirmed
+        com.btcwallet.balance.WalletBalance refreshed = new com.btcwallet.balance.WalletBalance(
+                testWalletId,
+                org.bitcoinj.core.Coin.valueOf(40000),
+                org.bitcoinj.core.Coin.ZERO,
+                org.bitcoinj.core.Coin.valueOf(40000),
+                java.time.Instant.now(),
+                "101",
+                java.util.List.of(new com.btcwallet.balance.WalletBalance.UTXO(
+                        second.rawTransaction().getTxId().toString(), 1,
+                        org.bitcoinj.core.Coin.valueOf(40000), "scriptPubKey", 1)));
+        overlay.onBalanceChanged(balance, refreshed);
+        when(walletService.getWalletBalance(testWalletId)).thenReturn(refreshed);
+
+        // Then - the chain starts over
+        assertEquals(0, overlay.pendingOutputs(testWalletId));
+        Transaction third = chainingService.createTransaction(testWalletId, testRecipient, 20000, false);
+        assertEquals(Transaction.TransactionStatus.BROADCASTED, third.status());
+    }
+}
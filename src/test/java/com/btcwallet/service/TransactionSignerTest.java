@@ -0,0 +1,131 @@
+package com.btcwallet.service;
+
+import com.btcwallet.transaction.TransactionSigner;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.SegwitAddress;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutPoint;
+import org.bitcoinj.core.TransactionWitness;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionSignerTest {
+
+    private static final NetworkParameters PARAMS = MainNetParams.get();
+
+    private final ECKey key = new ECKey();
+    private final Script scriptPubKey = ScriptBuilder.createOutputScript(LegacyAddress.fromKey(PARAMS, key));
+
+    private static Transaction unsignedTransaction(int inputCount, ECKey key) {
+        Transaction transaction = new Transaction(PARAMS);
+        for (int i = 0; i < inputCount; i++) {
+            TransactionOutPoint outPoint = new TransactionOutPoint(PARAMS, i % 3,
+                Sha256Hash.of(new byte[] {(byte) i, (byte) (i >>> 8)}));
+            TransactionInput input = new TransactionInput(PARAMS, transaction, new byte[] {}, outPoint,
+                Coin.valueOf(10_000 + i));
+            if (i % 2 == 1) {
+                input.setSequenceNumber(TransactionInput.NO_SEQUENCE - 1);
+            }
+            transaction.addInput(input);
+        }
+        transaction.addOutput(Coin.valueOf(5_000L * inputCount), LegacyAddress.fromKey(PARAMS, new ECKey()));
+        transaction.addOutput(Coin.valueOf(1_234), LegacyAddress.fromKey(PARAMS, key));
+        transaction.setLockTime(800_000);
+        return transaction;
+    }
+
+    private Transaction signedInputByInput(int inputCount) {
+        Transaction transaction = unsignedTransaction(inputCount, key);
+        for (int i = 0; i < inputCount; i++) {
+            TransactionSignature signature = transaction.calculateSignature(
+                i, key, scriptPubKey, Transaction.SigHash.ALL, false);
+            transaction.getInput(i).setScriptSig(ScriptBuilder.createInputScript(signature, key));
+        }
+        return transaction;
+    }
+
+    private Transaction witnessSignedInputByInput(int inputCount) {
+        Transaction transaction = unsignedTransaction(inputCount, key);
+        Script scriptCode = ScriptBuilder.createP2PKHOutputScript(key);
+        for (int i = 0; i < inputCount; i++) {
+            TransactionInput input = transaction.getInput(i);
+            TransactionSignature signature = transaction.calculateWitnessSignature(
+                i, key, scriptCode, input.getValue(), Transaction.SigHash.ALL, false);
+            input.setWitness(TransactionWitness.redeemP2WPKH(signature, key));
+        }
+        return transaction;
+    }
+
+    @Test
+    void testParallelSigningMatchesSequentialSigning() {
+        // Given
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int inputCount : new int[] {1, 2, 17, 300}) {
+                Transaction expected = signedInputByInput(inputCount);
+                Transaction transaction = unsignedTransaction(inputCount, key);
+
+                // When - every transaction goes through the pool, however small
+                new TransactionSigner(pool, 1).sign(transaction, key, scriptPubKey);
+
+                // Then
+                assertArrayEquals(expected.bitcoinSerialize(), transaction.bitcoinSerialize(),
+                    "Signed transaction differs for " + inputCount + " inputs");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testDefaultSignerMatchesSequentialSigning() {
+        // Given
+        Transaction expected = signedInputByInput(3);
+        Transaction transaction = unsignedTransaction(3, key);
+
+        // When
+        new TransactionSigner().sign(transaction, key, scriptPubKey);
+
+        // Then
+        assertArrayEquals(expected.bitcoinSerialize(), transaction.bitcoinSerialize());
+        assertEquals(expected.getTxId(), transaction.getTxId());
+    }
+
+    @Test
+    void testWitnessSigningMatchesBip143Signing() {
+        // Given
+        Script witnessScriptPubKey = ScriptBuilder.createOutputScript(SegwitAddress.fromKey(PARAMS, key));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int inputCount : new int[] {1, 2, 17, 300}) {
+                Transaction expected = witnessSignedInputByInput(inputCount);
+                Transaction transaction = unsignedTransaction(inputCount, key);
+
+                // When
+                new TransactionSigner(pool, 1).sign(transaction, key, witnessScriptPubKey);
+
+                // Then - the signatures live in the witness, script signatures stay empty
+                assertArrayEquals(expected.bitcoinSerialize(), transaction.bitcoinSerialize(),
+                    "Signed transaction differs for " + inputCount + " inputs");
+                assertTrue(transaction.hasWitnesses());
+                assertEquals(0, transaction.getInput(0).getScriptBytes().length);
+                assertEquals(expected.getWTxId(), transaction.getWTxId());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
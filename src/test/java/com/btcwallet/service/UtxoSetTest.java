@@ -0,0 +1,124 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.BalanceDelta;
+import com.btcwallet.balance.UtxoSet;
+import com.btcwallet.balance.WalletBalance;
+
+import org.bitcoinj.core.Coin;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UtxoSetTest {
+
+    private static final String HASH_A = "ab".repeat(32);
+    private static final String HASH_B = "0".repeat(64);
+    private static final String SCRIPT = "76a914" + "11".repeat(20) + "88ac";
+
+    private static WalletBalance.UTXO utxo(String hash, int index, long value, int confirmations) {
+        return new WalletBalance.UTXO(hash, index, Coin.valueOf(value), SCRIPT, confirmations);
+    }
+
+    @Test
+    void testRoundTripAndCachedTotals() {
+        // Given
+        List<WalletBalance.UTXO> utxos = List.of(
+            utxo(HASH_A, 0, 1000, 3),
+            utxo(HASH_B, 1, 500, 0),
+            new WalletBalance.UTXO("tx0", 2, Coin.valueOf(250), "script", 1));
+
+        // When
+        UtxoSet set = UtxoSet.of(utxos);
+
+        // Then - hex and non-hex values come back unchanged
+        assertEquals(utxos, set.asList());
+        assertEquals(1250, set.confirmedValue());
+        assertEquals(500, set.unconfirmedValue());
+        assertEquals(1750, set.totalValue());
+        assertEquals(HASH_A + ":0", set.outpointAt(0));
+        assertSame(set.scriptPubKeyAt(0), set.scriptPubKeyAt(1));
+        assertFalse(set.copyHash(2, new byte[UtxoSet.HASH_LENGTH], 0));
+    }
+
+    @Test
+    void testApplyReplacesRemovesAndAppends() {
+        // Given
+        UtxoSet set = UtxoSet.of(List.of(utxo(HASH_A, 0, 1000, 0), utxo(HASH_A, 1, 2000, 1)));
+
+        // When - the first output confirms, the second is spent and a new one arrives
+        UtxoSet updated = set.apply(new BalanceDelta("WALLET-1",
+            List.of(utxo(HASH_A, 0, 1000, 1), utxo(HASH_B, 0, 300, 0)),
+            Set.of(HASH_A + ":1"), null));
+
+        // Then
+        assertEquals(List.of(utxo(HASH_A, 0, 1000, 1), utxo(HASH_B, 0, 300, 0)), updated.asList());
+        assertEquals(1000, updated.confirmedValue());
+        assertEquals(300, updated.unconfirmedValue());
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void testRawPartsMatchObjectForm() {
+        // Given
+        byte[] hash = new byte[UtxoSet.HASH_LENGTH];
+        hash[0] = (byte) 0xab;
+        byte[] script = {0x76, (byte) 0xa9};
+
+        // When
+        UtxoSet fromRaw = UtxoSet.builder(1).add(hash, 0, 4, 700, script, 2).build();
+
+        // Then
+        String hex = "ab" + "00".repeat(31);
+        assertEquals(UtxoSet.of(List.of(new WalletBalance.UTXO(hex, 4, Coin.valueOf(700), "76a9", 2))), fromRaw);
+        assertEquals(hex, fromRaw.transactionHashAt(0));
+        assertEquals(700, fromRaw.valueAt(0));
+    }
+
+    @Test
+    void testCeilingAndRangeInValueOrder() {
+        // Given
+        UtxoSet set = UtxoSet.of(List.of(
+            utxo(HASH_A, 0, 5000, 1),
+            utxo(HASH_A, 1, 100, 1),
+            utxo(HASH_A, 2, 2500, 1),
+            utxo(HASH_A, 3, 2500, 1),
+            utxo(HASH_A, 4, 90000, 1)));
+
+        // When
+        int ceiling = set.ceilingRank(2600);
+        int from = set.ceilingRank(1000);
+        int to = set.ceilingRank(5001);
+
+        // Then - smallest UTXO of at least 2600 is the 5000 one; three UTXOs lie in [1000, 5000]
+        assertEquals(0, set.positionAtRank(ceiling));
+        assertEquals(3, to - from);
+        assertEquals(2500, set.valueAtRank(from));
+        assertEquals(set.size(), set.ceilingRank(100000));
+        assertEquals(1, set.positionAtRank(0));
+    }
+
+    @Test
+    void testValueOrderIsCarriedAcrossDeltas() {
+        // Given - a set whose value order has been built
+        UtxoSet set = UtxoSet.of(List.of(utxo(HASH_A, 0, 300, 1), utxo(HASH_A, 1, 100, 1), utxo(HASH_A, 2, 200, 1)));
+        set.ceilingRank(0);
+
+        // When - one output is spent, one changes value and one arrives
+        UtxoSet updated = set.apply(new BalanceDelta("WALLET-1",
+            List.of(utxo(HASH_A, 0, 50, 2), utxo(HASH_B, 0, 250, 0)),
+            Set.of(HASH_A + ":1"), null));
+
+        // Then - same order as a freshly sorted copy
+        UtxoSet fresh = UtxoSet.of(updated.asList());
+        assertEquals(fresh.size(), updated.size());
+        for (int rank = 0; rank < updated.size(); rank++) {
+            assertEquals(fresh.valueAtRank(rank), updated.valueAtRank(rank));
+            assertEquals(fresh.positionAtRank(rank), updated.positionAtRank(rank));
+        }
+        assertEquals(50, updated.valueAtRank(0));
+        assertEquals(250, updated.valueAtRank(2));
+    }
+}
@@ -7,6 +7,7 @@ import com.btcwallet.wallet.WalletImporter;
 
 import org.bitcoinj.params.MainNetParams;
 import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.script.Script;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -118,6 +119,25 @@ class WalletGeneratorTest {
         // Note: Private keys might differ due to different key derivation paths, but addresses should match
     }
 
+    @Test
+    void testNativeSegwitWalletGenerationWithMnemonicConsistency() {
+        // Given
+        WalletGenerator generator = new WalletGenerator(MainNetParams.get());
+
+        // When
+        WalletGenerator.WalletGenerationResult result = generator.generateWalletWithMnemonic(Script.ScriptType.P2WPKH);
+        Wallet wallet = result.getWallet();
+        WalletImporter importer = new WalletImporter(MainNetParams.get());
+        Wallet importedWallet = importer.importFromMnemonic(result.getMnemonic(), Script.ScriptType.P2WPKH);
+        Wallet legacyWallet = importer.importFromMnemonic(result.getMnemonic());
+
+        // Then - BIP84 derivation gives a bc1q address and a different key than BIP44
+        assertTrue(wallet.address().startsWith("bc1q"));
+        assertEquals(Script.ScriptType.P2WPKH, wallet.scriptType());
+        assertEquals(wallet.address(), importedWallet.address());
+        assertNotEquals(legacyWallet.publicKey(), wallet.publicKey());
+    }
+
     @Test
     void testWalletGenerationExceptionHandling() {
         // This test verifies that our exception handling works correctly
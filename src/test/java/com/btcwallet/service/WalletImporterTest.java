@@ -6,12 +6,14 @@ import com.btcwallet.wallet.WalletImporter;
 
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.SegwitAddress;
 import org.bitcoinj.crypto.ChildNumber;
 import org.bitcoinj.crypto.DeterministicKey;
 import org.bitcoinj.crypto.HDKeyDerivation;
 import org.bitcoinj.crypto.MnemonicCode;
 import org.bitcoinj.params.MainNetParams;
 import org.bitcoinj.params.TestNet3Params;
+import org.bitcoinj.script.Script;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
@@ -91,6 +93,53 @@ class WalletImporterTest {
         assertEquals(expectedAddress, wallet.address(), "The imported wallet address does not match the standard BIP44 derivation path (m/44'/0'/0'/0/0)");
     }
 
+    @Test
+    void testImportFromMnemonicNativeSegwit() {
+        // Given - the BIP84 test vector: m / 84' / 0' / 0' / 0 / 0
+        WalletImporter importer = new WalletImporter(MainNetParams.get());
+        String mnemonic = "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about";
+
+        // When
+        Wallet wallet = importer.importFromMnemonic(mnemonic, Script.ScriptType.P2WPKH);
+
+        // Then
+        assertEquals("bc1qcr8te4kr609gcawutmrza0j4xv80jy8z306fyu", wallet.address());
+        assertEquals(Script.ScriptType.P2WPKH, wallet.scriptType());
+    }
+
+    @Test
+    void testImportFromWIFNativeSegwit() {
+        // Given
+        WalletImporter importer = new WalletImporter(MainNetParams.get());
+        ECKey key = new ECKey();
+
+        // When
+        Wallet segwit = importer.importFromWIF(key.getPrivateKeyAsWiF(MainNetParams.get()), Script.ScriptType.P2WPKH);
+        Wallet legacy = importer.importFromWIF(key.getPrivateKeyAsWiF(MainNetParams.get()));
+
+        // Then - same key, different address
+        assertEquals(SegwitAddress.fromKey(MainNetParams.get(), key).toString(), segwit.address());
+        assertEquals(Script.ScriptType.P2WPKH, segwit.scriptType());
+        assertEquals(Script.ScriptType.P2PKH, legacy.scriptType());
+        assertEquals(legacy.publicKey(), segwit.publicKey());
+    }
+
+    @Test
+    void testImportedWalletsAreDatedBeforeTheirKeysHistory() {
+        // Given
+        WalletImporter importer = new WalletImporter(MainNetParams.get());
+        ECKey key = new ECKey();
+
+        // When
+        Wallet fromKey = importer.importFromPrivateKey(key.getPrivateKeyAsHex());
+        Wallet fromMnemonic = importer.importFromMnemonic(
+            "abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon abandon about");
+
+        // Then - the chain is scanned from when the key could first have been used, not from the import
+        assertEquals(MainNetParams.get().getGenesisBlock().getTimeSeconds(), fromKey.createdAt().getEpochSecond());
+        assertEquals(MnemonicCode.BIP39_STANDARDISATION_TIME_SECS, fromMnemonic.createdAt().getEpochSecond());
+    }
+
     @Test
     void testImportFromWIF() {
         // Given
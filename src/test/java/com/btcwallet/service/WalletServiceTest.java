@@ -1,13 +1,18 @@
 package com.btcwallet.service;
 
 import com.btcwallet.balance.BalanceCache;
+import com.btcwallet.balance.BalanceCachePolicy;
+import com.btcwallet.balance.BalanceDelta;
+import com.btcwallet.balance.PortfolioTotals;
 import com.btcwallet.balance.WalletBalance;
 import com.btcwallet.balance.BalanceException;
 import com.btcwallet.network.BitcoinNodeClient;
+import com.btcwallet.network.ChainEventListener;
 import com.btcwallet.wallet.Wallet;
 import com.btcwallet.wallet.WalletException;
 import com.btcwallet.wallet.WalletGenerator;
 import com.btcwallet.wallet.WalletService;
+import com.btcwallet.wallet.WalletStore;
 
 import org.bitcoinj.core.ECKey;
 import org.bitcoinj.core.Coin;
@@ -16,14 +21,24 @@ import org.bitcoinj.params.TestNet3Params;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,12 +49,20 @@ class WalletServiceTest {
     private BitcoinNodeClient bitcoinNodeClient;
 
     private WalletService walletService;
+    private BalanceCache balanceCache;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        BalanceCache.getInstance().clearAll();
-        this.walletService = new WalletService(MainNetParams.get(), bitcoinNodeClient);
+        useBalanceCache(new BalanceCache());
+    }
+
+    private void useBalanceCache(BalanceCache cache) {
+        if (walletService != null) {
+            walletService.shutdown();
+        }
+        this.balanceCache = cache;
+        this.walletService = new WalletService(MainNetParams.get(), bitcoinNodeClient, null, cache);
     }
 
     @AfterEach
@@ -49,6 +72,23 @@ class WalletServiceTest {
         }
     }
 
+    @Test
+    void testStartupDefersLoadingStoredWallets() {
+        // Given - a wallet store and no header store yet
+        WalletStore walletStore = mock(WalletStore.class);
+        when(walletStore.walletIds()).thenReturn(List.of());
+        when(bitcoinNodeClient.hasPersistedChainState()).thenReturn(false);
+
+        // When
+        WalletService started = new WalletService(MainNetParams.get(), bitcoinNodeClient, walletStore);
+        started.shutdown();
+
+        // Then - stored wallets are watched when the client first initializes, not while starting
+        verify(bitcoinNodeClient).watchOnInitialize(any());
+        verify(bitcoinNodeClient, never()).watchWallets(any());
+        verify(walletStore, never()).forEach(any());
+    }
+
     @Test
     void testWalletServiceDefaultConstructor() {
         // Given/When
@@ -75,6 +115,17 @@ class WalletServiceTest {
         assertNotNull(walletService.getWallet(wallet.walletId()));
     }
 
+    @Test
+    void testRegisteredWalletsAreWatchedByNodeClient() {
+        // When
+        Wallet generated = walletService.generateWallet();
+        Wallet imported = walletService.importFromPrivateKey(new ECKey().getPrivateKeyAsHex());
+
+        // Then
+        verify(bitcoinNodeClient).watchWallet(generated);
+        verify(bitcoinNodeClient).watchWallet(imported);
+    }
+
     @Test
     void testGenerateWalletWithMnemonic() {
         // Setup for TestNet
@@ -364,6 +415,35 @@ class WalletServiceTest {
         assertTrue(walletIds.contains(wallet2.walletId()));
     }
 
+    @Test
+    void testConcurrentWalletGeneration() throws InterruptedException {
+        // Given
+        walletService.clearWallets();
+        int threads = 16;
+        int walletsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When - generate and list concurrently
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < walletsPerThread; i++) {
+                    walletService.generateWallet();
+                    walletService.listWalletIds().forEach(walletService::getWallet);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        // Then - no registration was lost
+        assertEquals(threads * walletsPerThread, walletService.listWalletIds().size());
+        assertEquals(threads * walletsPerThread, walletService.getAllWallets().size());
+    }
+
     // --- New Tests for balance-related methods with mocked BalanceService ---
 
     @Test
@@ -437,6 +517,224 @@ class WalletServiceTest {
         verify(bitcoinNodeClient, times(1)).getWalletBalance(wallet);
     }
 
+    @Test
+    void testStaleBalanceBurstIsCoalescedIntoOneNodeCall() throws Exception {
+        // Given - a slow node and a burst of 500 requests for one uncached wallet
+        Wallet wallet = walletService.generateWallet();
+        int requests = 500;
+        WalletBalance nodeBalance = new WalletBalance(wallet.walletId(), Coin.valueOf(1000), Coin.ZERO,
+                Coin.valueOf(1000), Instant.now(), "1", List.of());
+        CountDownLatch nodeRelease = new CountDownLatch(1);
+        when(bitcoinNodeClient.getWalletBalance(wallet)).thenAnswer(invocation -> {
+            nodeRelease.await(10, TimeUnit.SECONDS);
+            return nodeBalance;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<WalletBalance>> responses = new ArrayList<>();
+
+        try {
+            // When
+            for (int i = 0; i < requests; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return walletService.getWalletBalance(wallet.walletId());
+                }));
+            }
+            start.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (walletService.getBalanceRequestStats().coalesced() < requests - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            nodeRelease.countDown();
+
+            // Then
+            for (Future<WalletBalance> response : responses) {
+                assertEquals(nodeBalance, response.get(10, TimeUnit.SECONDS));
+            }
+            verify(bitcoinNodeClient, times(1)).getWalletBalance(wallet);
+            assertEquals(1, walletService.getBalanceRequestStats().executed());
+            assertEquals(requests - 1, walletService.getBalanceRequestStats().coalesced());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testStaleBalanceIsServedWhileRevalidating() throws Exception {
+        // Given - a cached balance past its soft TTL and a node that is slow to answer
+        useBalanceCache(new BalanceCache(
+                new BalanceCachePolicy(Duration.ofMillis(50), Duration.ofHours(1), 1.0, Integer.MAX_VALUE),
+                BalanceCache.DEFAULT_MAXIMUM_WEIGHT));
+        Wallet wallet = walletService.generateWallet();
+        WalletBalance first = balanceOf(wallet, 100);
+        WalletBalance second = balanceOf(wallet, 200);
+        CountDownLatch nodeRelease = new CountDownLatch(1);
+        when(bitcoinNodeClient.getWalletBalance(wallet))
+                .thenReturn(first)
+                .thenAnswer(invocation -> {
+                    nodeRelease.await(10, TimeUnit.SECONDS);
+                    return second;
+                });
+        assertEquals(first, walletService.getWalletBalance(wallet.walletId()));
+        Thread.sleep(60);
+
+        // When - the node is still blocked
+        WalletBalance served = walletService.getWalletBalance(wallet.walletId());
+        WalletBalance servedAgain = walletService.getWalletBalance(wallet.walletId());
+
+        // Then - the stale value is served and exactly one background refresh runs
+        assertEquals(first, served);
+        assertEquals(first, servedAgain);
+        verify(bitcoinNodeClient, timeout(2000).times(2)).getWalletBalance(wallet);
+        nodeRelease.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (balanceCache.get(wallet.walletId()) != second && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(second, walletService.getWalletBalance(wallet.walletId()));
+        verify(bitcoinNodeClient, times(2)).getWalletBalance(wallet);
+    }
+
+    @Test
+    void testHotBalanceIsRefreshedAhead() throws Exception {
+        // Given - refresh entries read 3 times once they are 50ms old
+        useBalanceCache(new BalanceCache(
+                new BalanceCachePolicy(Duration.ofSeconds(10), Duration.ofHours(1), 0.005, 3),
+                BalanceCache.DEFAULT_MAXIMUM_WEIGHT));
+        Wallet wallet = walletService.generateWallet();
+        when(bitcoinNodeClient.getWalletBalance(wallet)).thenReturn(balanceOf(wallet, 100));
+        walletService.getWalletBalance(wallet.walletId());
+        Thread.sleep(60);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            walletService.getWalletBalance(wallet.walletId());
+        }
+
+        // Then - refreshed in the background although still within the soft TTL
+        verify(bitcoinNodeClient, timeout(2000).times(2)).getWalletBalance(wallet);
+        assertFalse(balanceCache.isCacheStale(wallet.walletId()));
+    }
+
+    @Test
+    void testBalancePastHardTtlIsFetchedSynchronously() throws Exception {
+        // Given
+        useBalanceCache(new BalanceCache(
+                new BalanceCachePolicy(Duration.ofMillis(10), Duration.ofMillis(20), 1.0, Integer.MAX_VALUE),
+                BalanceCache.DEFAULT_MAXIMUM_WEIGHT));
+        Wallet wallet = walletService.generateWallet();
+        WalletBalance first = balanceOf(wallet, 100);
+        WalletBalance second = balanceOf(wallet, 200);
+        when(bitcoinNodeClient.getWalletBalance(wallet)).thenReturn(first, second);
+        walletService.getWalletBalance(wallet.walletId());
+        Thread.sleep(40);
+
+        // When
+        WalletBalance balance = walletService.getWalletBalance(wallet.walletId());
+
+        // Then
+        assertEquals(second, balance);
+        verify(bitcoinNodeClient, times(2)).getWalletBalance(wallet);
+    }
+
+    @Test
+    void testChainEventsInvalidateOnlyAffectedWallets() throws Exception {
+        // Given - entries that never expire on their own
+        useBalanceCache(new BalanceCache(BalanceCachePolicy.untilInvalidated(), BalanceCache.DEFAULT_MAXIMUM_WEIGHT));
+        walletService.enableChainEventInvalidation();
+        ArgumentCaptor<ChainEventListener> listener = ArgumentCaptor.forClass(ChainEventListener.class);
+        verify(bitcoinNodeClient).addChainEventListener(listener.capture());
+        Wallet paid = walletService.generateWallet();
+        Wallet untouched = walletService.generateWallet();
+        when(bitcoinNodeClient.getWalletBalance(paid)).thenReturn(balanceOf(paid, 100), balanceOf(paid, 300));
+        when(bitcoinNodeClient.getWalletBalance(untouched)).thenReturn(balanceOf(untouched, 50));
+        walletService.getWalletBalance(paid.walletId());
+        walletService.getWalletBalance(untouched.walletId());
+
+        // When - a block pays to one of the wallets
+        listener.getValue().onWalletsAffected(Set.of(paid.walletId()));
+
+        // Then
+        assertEquals(Coin.valueOf(300), walletService.getWalletBalance(paid.walletId()).getTotalBalance());
+        assertEquals(Coin.valueOf(50), walletService.getWalletBalance(untouched.walletId()).getTotalBalance());
+        verify(bitcoinNodeClient, times(2)).getWalletBalance(paid);
+        verify(bitcoinNodeClient, times(1)).getWalletBalance(untouched);
+
+        // When - the chain reorganizes
+        listener.getValue().onReorganize();
+
+        // Then
+        assertTrue(balanceCache.getAllCachedBalances().isEmpty());
+    }
+
+    @Test
+    void testPushedDeltasKeepCachedBalanceCurrentWithoutPolling() throws Exception {
+        // Given - a cached balance with one confirmed UTXO
+        useBalanceCache(new BalanceCache(BalanceCachePolicy.untilInvalidated(), BalanceCache.DEFAULT_MAXIMUM_WEIGHT));
+        walletService.enableChainEventInvalidation();
+        ArgumentCaptor<ChainEventListener> listener = ArgumentCaptor.forClass(ChainEventListener.class);
+        verify(bitcoinNodeClient).addChainEventListener(listener.capture());
+        Wallet wallet = walletService.generateWallet();
+        WalletBalance.UTXO funding = new WalletBalance.UTXO("aa", 0, Coin.valueOf(1000), "script", 3);
+        when(bitcoinNodeClient.getWalletBalance(wallet)).thenReturn(new WalletBalance(wallet.walletId(),
+                Coin.valueOf(1000), Coin.ZERO, Coin.valueOf(1000), Instant.now(), "10", List.of(funding)));
+        walletService.getWalletBalance(wallet.walletId());
+
+        // When - the wallet spends it, keeping 600 change in the mempool
+        listener.getValue().onBalanceDelta(new BalanceDelta(wallet.walletId(),
+                List.of(new WalletBalance.UTXO("bb", 1, Coin.valueOf(600), "script", 0)), Set.of("aa:0"), "10"));
+
+        // Then - served from the updated cache entry
+        WalletBalance balance = walletService.getWalletBalance(wallet.walletId());
+        assertEquals(Coin.ZERO, balance.getConfirmedBalance());
+        assertEquals(Coin.valueOf(600), balance.getUnconfirmedBalance());
+        assertEquals("bb:1", balance.getUtxos().get(0).getOutpoint());
+        verify(bitcoinNodeClient, times(1)).getWalletBalance(wallet);
+    }
+
+    @Test
+    void testBatchServesHitsAndResolvesMissesInOneNodeCall() throws Exception {
+        // Given - one cached wallet, two uncached ones and an unknown ID
+        Wallet cached = walletService.generateWallet();
+        Wallet missA = walletService.generateWallet();
+        Wallet missB = walletService.generateWallet();
+        when(bitcoinNodeClient.getWalletBalance(cached)).thenReturn(balanceOf(cached, 10));
+        walletService.getWalletBalance(cached.walletId());
+        when(bitcoinNodeClient.getWalletBalances(anyCollection())).thenReturn(Map.of(
+                missA.walletId(), balanceOf(missA, 20),
+                missB.walletId(), balanceOf(missB, 30)));
+        List<String> results = new ArrayList<>();
+
+        // When
+        walletService.getWalletBalances(
+                List.of(cached.walletId(), missA.walletId(), "UNKNOWN", missB.walletId(), missA.walletId()),
+                new WalletService.BalanceBatchListener() {
+                    @Override
+                    public void onBalance(WalletBalance balance) {
+                        results.add(balance.getWalletId() + "=" + balance.getTotalBalance().value);
+                    }
+
+                    @Override
+                    public void onError(String walletId, String message) {
+                        results.add(walletId + "!");
+                    }
+                });
+
+        // Then - hits and errors first, then both misses from a single node query
+        assertEquals(List.of(cached.walletId() + "=10", "UNKNOWN!", missA.walletId() + "=20", missB.walletId() + "=30"),
+                results);
+        verify(bitcoinNodeClient, times(1)).getWalletBalances(
+                argThat(wallets -> List.copyOf(wallets).equals(List.of(missA, missB))));
+        assertEquals(Coin.valueOf(20), walletService.getWalletBalance(missA.walletId()).getTotalBalance());
+        verify(bitcoinNodeClient, never()).getWalletBalance(missA);
+    }
+
+    private static WalletBalance balanceOf(Wallet wallet, long satoshis) {
+        return new WalletBalance(wallet.walletId(), Coin.valueOf(satoshis), Coin.ZERO, Coin.valueOf(satoshis),
+                Instant.now(), "1", List.of());
+    }
+
     @Test
     void testHasSufficientFunds() throws Exception {
         // Given
@@ -455,18 +753,91 @@ class WalletServiceTest {
 
     @Test
     void testGetTotalBalance() throws Exception {
-        // Given
+        // Given - two generated wallets, which hold nothing until funded
         walletService.clearWallets();
         Wallet w1 = walletService.generateWallet();
         Wallet w2 = walletService.generateWallet();
-        
-        when(bitcoinNodeClient.getWalletBalance(w1)).thenReturn(new WalletBalance(w1.walletId(), Coin.valueOf(100), Coin.ZERO, Coin.valueOf(100), Instant.now(), "1", List.of()));
-        when(bitcoinNodeClient.getWalletBalance(w2)).thenReturn(new WalletBalance(w2.walletId(), Coin.valueOf(200), Coin.ZERO, Coin.valueOf(200), Instant.now(), "1", List.of()));
 
         // When
-        Coin retrievedTotal = walletService.getTotalBalance();
+        PortfolioTotals.Totals generated = walletService.getPortfolioTotals();
+        when(bitcoinNodeClient.getWalletBalance(w1)).thenReturn(balanceOf(w1, 100));
+        when(bitcoinNodeClient.getWalletBalance(w2)).thenReturn(balanceOf(w2, 200));
+        walletService.getWalletBalance(w1.walletId());
+        walletService.getWalletBalance(w2.walletId());
+
+        // Then - the totals cover both from the start and follow the loaded balances
+        assertEquals(0, generated.total());
+        assertEquals(2, generated.wallets());
+        assertEquals(Coin.valueOf(300), walletService.getTotalBalance());
+        verify(bitcoinNodeClient, times(1)).getWalletBalance(w1);
+        verify(bitcoinNodeClient, never()).getWalletBalances(anyCollection());
+    }
 
-        // Then
-        assertEquals(Coin.valueOf(300), retrievedTotal);
+    @Test
+    void testImportedWalletsAreLoadedIntoTotalsInBackground() throws Exception {
+        // Given - the node answers for one imported wallet and fails for the other
+        walletService.clearWallets();
+        CountDownLatch imported = new CountDownLatch(1);
+        AtomicReference<String> failingAddress = new AtomicReference<>();
+        when(bitcoinNodeClient.getWalletBalance(any(Wallet.class))).thenAnswer(invocation -> {
+            imported.await();
+            Wallet wallet = invocation.getArgument(0);
+            if (wallet.address().equals(failingAddress.get())) {
+                throw new RuntimeException("Node error");
+            }
+            return balanceOf(wallet, 100);
+        });
+
+        // When
+        walletService.importFromPrivateKey(new ECKey().getPrivateKeyAsHex());
+        failingAddress.set(walletService.importFromPrivateKey(new ECKey().getPrivateKeyAsHex()).address());
+        PortfolioTotals.Totals beforeLoad = walletService.getPortfolioTotals();
+        imported.countDown();
+        PortfolioTotals.Totals loaded = awaitTotals(1);
+        verify(bitcoinNodeClient, timeout(2000).times(2)).getWalletBalance(any(Wallet.class));
+        walletService.getPortfolioTotals();
+
+        // Then - reads never wait for the node, and the failed wallet is not retried by reads
+        assertEquals(0, beforeLoad.wallets());
+        assertEquals(100, loaded.total());
+        assertEquals(1, loaded.wallets());
+        verify(bitcoinNodeClient, times(2)).getWalletBalance(any(Wallet.class));
+        verify(bitcoinNodeClient, never()).getWalletBalances(anyCollection());
+    }
+
+    @Test
+    void testPortfolioTotalsFollowBalanceChangesWithoutReloading() throws Exception {
+        // Given
+        walletService.clearWallets();
+        Wallet w1 = walletService.generateWallet();
+        Wallet w2 = walletService.generateWallet();
+        when(bitcoinNodeClient.getWalletBalance(w1)).thenReturn(balanceOf(w1, 100),
+                new WalletBalance(w1.walletId(), Coin.valueOf(100), Coin.valueOf(50), Coin.valueOf(150), Instant.now(), "2", List.of()));
+        when(bitcoinNodeClient.getWalletBalance(w2)).thenReturn(balanceOf(w2, 200));
+        walletService.getWalletBalance(w1.walletId());
+        walletService.getWalletBalance(w2.walletId());
+        assertEquals(Coin.valueOf(300), walletService.getTotalBalance());
+
+        // When - one wallet receives an unconfirmed payment
+        walletService.refreshWalletBalance(w1.walletId());
+
+        // Then - the sums moved by the difference and w2 was not fetched again
+        PortfolioTotals.Totals totals = walletService.getPortfolioTotals();
+        assertEquals(300, totals.confirmed());
+        assertEquals(50, totals.unconfirmed());
+        assertEquals(350, totals.total());
+        assertEquals(2, totals.wallets());
+        verify(bitcoinNodeClient, times(1)).getWalletBalance(w2);
+        assertTrue(walletService.checkPortfolioTotals().consistent());
+    }
+
+    private PortfolioTotals.Totals awaitTotals(int wallets) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        PortfolioTotals.Totals totals = walletService.getPortfolioTotals();
+        while (totals.wallets() < wallets && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            totals = walletService.getPortfolioTotals();
+        }
+        return totals;
     }
-}
\ No newline at end of file
+}
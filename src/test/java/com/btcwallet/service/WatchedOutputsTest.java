@@ -0,0 +1,222 @@
+package com.btcwallet.service;
+
+import com.btcwallet.balance.BalanceDelta;
+import com.btcwallet.balance.WalletBalance;
+import com.btcwallet.network.WatchedOutputs;
+
+import org.bitcoinj.core.Coin;
+import org.bitcoinj.core.Context;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionConfidence;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatchedOutputsTest {
+
+    private static final NetworkParameters PARAMS = MainNetParams.get();
+
+    private WatchedOutputs watchedOutputs;
+    private byte[] aliceScript;
+    private byte[] bobScript;
+
+    @BeforeEach
+    void setUp() {
+        Context.propagate(new Context(PARAMS));
+        watchedOutputs = new WatchedOutputs();
+        aliceScript = ScriptBuilder.createOutputScript(LegacyAddress.fromKey(PARAMS, new ECKey())).getProgram();
+        bobScript = ScriptBuilder.createOutputScript(LegacyAddress.fromKey(PARAMS, new ECKey())).getProgram();
+        watchedOutputs.watch("ALICE", aliceScript);
+        watchedOutputs.watch("BOB", bobScript);
+    }
+
+    private static Transaction funding(String seed) {
+        Transaction transaction = new Transaction(PARAMS);
+        transaction.addInput(Sha256Hash.of(seed.getBytes()), 0, new ScriptBuilder().build());
+        return transaction;
+    }
+
+    private static void confirm(Transaction transaction, int height, int depth) {
+        transaction.getConfidence().setAppearedAtChainHeight(height);
+        transaction.getConfidence().setDepthInBlocks(depth);
+    }
+
+    @Test
+    void testBalanceIsReadFromTheWalletsOwnOutputs() {
+        // Given - a confirmed transaction paying both wallets
+        Transaction received = funding("received");
+        received.addOutput(Coin.valueOf(30_000), new Script(aliceScript));
+        received.addOutput(Coin.valueOf(20_000), new Script(aliceScript));
+        received.addOutput(Coin.valueOf(10_000), new Script(bobScript));
+        confirm(received, 100, 3);
+
+        // When
+        Map<String, BalanceDelta> deltas = watchedOutputs.apply(received, List.of(), "102");
+        WalletBalance alice = watchedOutputs.balance("ALICE", aliceScript, Instant.now(), "102");
+        WalletBalance bob = watchedOutputs.balance("BOB", bobScript, Instant.now(), "102");
+
+        // Then
+        assertEquals(Set.of("ALICE", "BOB"), deltas.keySet());
+        assertEquals(2, deltas.get("ALICE").upserted().size());
+        assertEquals(Coin.valueOf(50_000), alice.getConfirmedBalance());
+        assertEquals(Coin.ZERO, alice.getUnconfirmedBalance());
+        assertEquals(2, alice.utxoSet().size());
+        assertEquals(3, alice.utxoSet().confirmationsAt(0));
+        assertEquals(Coin.valueOf(10_000), bob.getTotalBalance());
+        assertEquals(1, bob.utxoSet().size());
+    }
+
+    @Test
+    void testBalanceIsLookedUpByWalletId() {
+        // Given
+        Transaction received = funding("received");
+        received.addOutput(Coin.valueOf(30_000), new Script(aliceScript));
+        watchedOutputs.apply(received, List.of(), null);
+
+        // When
+        WalletBalance alice = watchedOutputs.balance("ALICE", Instant.now(), null);
+        WalletBalance unwatched = watchedOutputs.balance("CAROL", Instant.now(), null);
+
+        // Then
+        assertEquals(Coin.valueOf(30_000), alice.getTotalBalance());
+        assertEquals(Coin.ZERO, unwatched.getTotalBalance());
+        assertTrue(unwatched.utxoSet().isEmpty());
+    }
+
+    @Test
+    void testSpendMovesOutputsBetweenWallets() {
+        // Given - Alice's confirmed output, then a pending payment from it to Bob
+        Transaction received = funding("received");
+        received.addOutput(Coin.valueOf(30_000), new Script(aliceScript));
+        confirm(received, 100, 1);
+        watchedOutputs.apply(received, List.of(), "100");
+
+        TransactionOutput aliceOutput = received.getOutput(0);
+        Transaction payment = new Transaction(PARAMS);
+        payment.addInput(aliceOutput);
+        payment.addOutput(Coin.valueOf(25_000), new Script(bobScript));
+        aliceOutput.markAsSpent(payment.getInput(0));
+
+        // When
+        Map<String, BalanceDelta> deltas = watchedOutputs.apply(payment, List.of(aliceOutput), "100");
+
+        // Then
+        assertEquals(Set.of(received.getTxId() + ":0"), deltas.get("ALICE").removed());
+        assertEquals(1, deltas.get("BOB").upserted().size());
+        WalletBalance alice = watchedOutputs.balance("ALICE", aliceScript, Instant.now(), "100");
+        WalletBalance bob = watchedOutputs.balance("BOB", bobScript, Instant.now(), "100");
+        assertEquals(Coin.ZERO, alice.getTotalBalance());
+        assertTrue(alice.utxoSet().isEmpty());
+        assertEquals(Coin.ZERO, bob.getConfirmedBalance());
+        assertEquals(Coin.valueOf(25_000), bob.getUnconfirmedBalance());
+    }
+
+    @Test
+    void testOnlyTheFirstConfirmationIsPushed() {
+        // Given - a pending payment to Alice
+        Transaction received = funding("received");
+        received.addOutput(Coin.valueOf(30_000), new Script(aliceScript));
+        Map<String, BalanceDelta> pending = watchedOutputs.apply(received, List.of(), "100");
+
+        // When - it confirms, then gets buried by the next block
+        confirm(received, 101, 1);
+        Map<String, BalanceDelta> confirmed = watchedOutputs.apply(received, List.of(), "101");
+        received.getConfidence().setDepthInBlocks(2);
+        Map<String, BalanceDelta> deepened = watchedOutputs.apply(received, List.of(), "102");
+
+        // Then
+        assertEquals(0, pending.get("ALICE").upserted().get(0).getConfirmations());
+        assertEquals(1, confirmed.get("ALICE").upserted().get(0).getConfirmations());
+        assertTrue(deepened.isEmpty());
+        assertEquals(2, watchedOutputs.balance("ALICE", aliceScript, Instant.now(), "102").utxoSet().confirmationsAt(0));
+    }
+
+    @Test
+    void testDeadTransactionRestoresTheOutputsItSpent() {
+        // Given - Alice's output spent by a pending payment to Bob
+        Transaction received = funding("received");
+        received.addOutput(Coin.valueOf(30_000), new Script(aliceScript));
+        confirm(received, 100, 1);
+        watchedOutputs.apply(received, List.of(), "100");
+
+        TransactionOutput aliceOutput = received.getOutput(0);
+        Transaction payment = new Transaction(PARAMS);
+        payment.addInput(aliceOutput);
+        payment.addOutput(Coin.valueOf(25_000), new Script(bobScript));
+        aliceOutput.markAsSpent(payment.getInput(0));
+        watchedOutputs.apply(payment, List.of(aliceOutput), "100");
+
+        // When - the payment is double spent
+        payment.getConfidence().setConfidenceType(TransactionConfidence.ConfidenceType.DEAD);
+        aliceOutput.markAsUnspent();
+        Map<String, BalanceDelta> deltas = watchedOutputs.apply(payment, List.of(aliceOutput), "101");
+
+        // Then
+        assertEquals(1, deltas.get("ALICE").upserted().size());
+        assertEquals(Set.of(payment.getTxId() + ":0"), deltas.get("BOB").removed());
+        assertEquals(Coin.valueOf(30_000), watchedOutputs.balance("ALICE", aliceScript, Instant.now(), "101").getTotalBalance());
+        assertEquals(Coin.ZERO, watchedOutputs.balance("BOB", bobScript, Instant.now(), "101").getTotalBalance());
+    }
+
+    @Test
+    void testRepeatedEventsAreNotPushedAgain() {
+        // Given - a payment already applied
+        Transaction received = funding("received");
+        received.addOutput(Coin.valueOf(30_000), new Script(aliceScript));
+        watchedOutputs.apply(received, List.of(), null);
+
+        // When - the same state is reported again
+        Map<String, BalanceDelta> deltas = watchedOutputs.apply(received, List.of(), null);
+
+        // Then
+        assertTrue(deltas.isEmpty());
+    }
+
+    @Test
+    void testResetRebuildsFromTheWatchingWallet() {
+        // Given - an indexed output, and a reload that finds only another one
+        Transaction before = funding("before");
+        before.addOutput(Coin.valueOf(30_000), new Script(aliceScript));
+        watchedOutputs.apply(before, List.of(), null);
+
+        Transaction reloaded = funding("reloaded");
+        reloaded.addOutput(Coin.valueOf(40_000), new Script(bobScript));
+
+        // When
+        watchedOutputs.reset(List.of(aliceScript, bobScript), List.of(reloaded.getOutput(0)));
+
+        // Then
+        assertEquals(Coin.ZERO, watchedOutputs.balance("ALICE", aliceScript, Instant.now(), null).getTotalBalance());
+        assertEquals(Coin.valueOf(40_000), watchedOutputs.balance("BOB", bobScript, Instant.now(), null).getTotalBalance());
+    }
+
+    @Test
+    void testOutputsToUnwatchedScriptsAreIgnored() {
+        // Given
+        byte[] strangerScript = ScriptBuilder.createOutputScript(LegacyAddress.fromKey(PARAMS, new ECKey())).getProgram();
+        Transaction transaction = funding("stranger");
+        transaction.addOutput(Coin.valueOf(30_000), new Script(strangerScript));
+
+        // When
+        Map<String, BalanceDelta> deltas = watchedOutputs.apply(transaction, List.of(), null);
+
+        // Then
+        assertTrue(deltas.isEmpty());
+        assertNull(watchedOutputs.walletIds(strangerScript));
+        assertTrue(watchedOutputs.balance("STRANGER", strangerScript, Instant.now(), null).utxoSet().isEmpty());
+    }
+}